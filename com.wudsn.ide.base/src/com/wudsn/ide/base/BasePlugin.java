@@ -22,6 +22,7 @@ package com.wudsn.ide.base;
 import org.osgi.framework.BundleContext;
 
 import com.wudsn.ide.base.common.AbstractIDEPlugin;
+import com.wudsn.ide.base.common.JarMainDaemon;
 
 /**
  * The activator class controls the plug-in life cycle
@@ -68,6 +69,7 @@ public final class BasePlugin extends AbstractIDEPlugin {
 	 */
 	@Override
 	public void stop(BundleContext context) throws Exception {
+		JarMainDaemon.getInstance().terminateHelpers();
 		plugin = null;
 		super.stop(context);
 	}
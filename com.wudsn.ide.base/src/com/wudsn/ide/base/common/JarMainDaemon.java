@@ -0,0 +1,425 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ * 
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.wudsn.ide.base.common;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.wudsn.ide.base.BasePlugin;
+
+/**
+ * Executes the main class of executable ".jar" files in long-lived helper VMs
+ * instead of starting a new Java VM via "java -jar" for every call. This saves
+ * the VM startup and the loading and JIT compilation of the JDK classes. The
+ * main class itself is loaded into a new class loader for every call, so no
+ * static state of the compiler is kept between calls. See
+ * {@link JarMainDaemonMain} for the protocol.
+ * 
+ * A helper VM is started per ".jar" file and working directory, because the
+ * working directory of a VM cannot be changed. Idle helper VMs are reused and
+ * terminated after {@link #IDLE_TIMEOUT_MILLIS}. If no helper VM is available
+ * or it cannot be started, the caller has to fall back to the execution as
+ * separate process. After a helper VM could not be started, no further helper
+ * VMs are started in the same session. The helper VMs can be disabled by
+ * setting the system property {@link #PROPERTY_NAME} to <code>false</code>.
+ * 
+ * @author Peter Dell
+ * 
+ * @since 1.7.2
+ */
+public final class JarMainDaemon {
+
+	public static final String PROPERTY_NAME = "com.wudsn.ide.base.common.JarMainDaemon";
+
+	/**
+	 * Maximum number of helper VMs, busy or idle.
+	 */
+	private static final int MAX_HELPERS = 4;
+
+	/**
+	 * Time after which an idle helper VM is terminated.
+	 */
+	private static final long IDLE_TIMEOUT_MILLIS = 10 * 60 * 1000;
+
+	/**
+	 * Log file for the output of the helper VMs which is not sent as frame, for
+	 * example errors of the VM startup.
+	 */
+	private static final String HELPER_LOG_FILE_NAME = "helper.log";
+
+	/**
+	 * The result of an execution in a helper VM. The send duration is the time
+	 * until the job was sent to the helper VM, including the start of the helper
+	 * VM if required.
+	 */
+	public static final class Result {
+		public final long sendDurationNanos;
+		public final int exitValue;
+		public final String outputLog;
+		public final String errorLog;
+
+		Result(long sendDurationNanos, int exitValue, String outputLog, String errorLog) {
+			this.sendDurationNanos = sendDurationNanos;
+			this.exitValue = exitValue;
+			this.outputLog = outputLog;
+			this.errorLog = errorLog;
+		}
+	}
+
+	/**
+	 * A running helper VM or a reserved slot for a helper VM which is not
+	 * started yet.
+	 */
+	private static final class Helper {
+		public final String key;
+		public final Process process;
+		public final DataOutputStream out;
+		public final DataInputStream in;
+		public long lastUsedMillis;
+
+		Helper(String key, Process process) {
+			this.key = key;
+			this.process = process;
+			if (process != null) {
+				out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+				in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+			} else {
+				out = null;
+				in = null;
+			}
+		}
+	}
+
+	private static JarMainDaemon instance;
+
+	private File classPathFolder;
+	private boolean startFailed;
+	private final Map<String, List<Helper>> idleHelpers;
+	private int helperCount;
+
+	/**
+	 * Creation is private.
+	 */
+	private JarMainDaemon() {
+		idleHelpers = new HashMap<String, List<Helper>>();
+	}
+
+	/**
+	 * Gets the shared instance.
+	 * 
+	 * @return The shared instance, not <code>null</code>.
+	 */
+	public static synchronized JarMainDaemon getInstance() {
+		if (instance == null) {
+			instance = new JarMainDaemon();
+		}
+		return instance;
+	}
+
+	/**
+	 * Determines if the helper VMs are enabled.
+	 * 
+	 * @return <code>true</code> unless the system property {@link #PROPERTY_NAME}
+	 *         is <code>false</code>.
+	 */
+	public static boolean isEnabled() {
+		return !Boolean.FALSE.toString().equalsIgnoreCase(System.getProperty(PROPERTY_NAME));
+	}
+
+	/**
+	 * Executes the main class of an executable ".jar" file in a helper VM. The
+	 * output is passed to the print streams while the main class is running.
+	 * 
+	 * @param javaExecutable   The Java executable, not empty and not
+	 *                         <code>null</code>.
+	 * @param jarFile          The ".jar" file, not <code>null</code>.
+	 * @param args             The arguments for the main class, not
+	 *                         <code>null</code>.
+	 * @param workingDirectory The working directory, not <code>null</code>.
+	 * @param out              The print stream for the output, see
+	 *                         {@link System#out}.
+	 * @param err              The print stream for the error output, see
+	 *                         {@link System#err}.
+	 * @return The result or <code>null</code> if the ".jar" file has to be
+	 *         executed as separate process.
+	 */
+	public Result execute(String javaExecutable, File jarFile, String[] args, File workingDirectory,
+			PrintStream out, PrintStream err) {
+		if (javaExecutable == null) {
+			throw new IllegalArgumentException("Parameter 'javaExecutable' must not be null.");
+		}
+		if (jarFile == null) {
+			throw new IllegalArgumentException("Parameter 'jarFile' must not be null.");
+		}
+		if (args == null) {
+			throw new IllegalArgumentException("Parameter 'args' must not be null.");
+		}
+		if (workingDirectory == null) {
+			throw new IllegalArgumentException("Parameter 'workingDirectory' must not be null.");
+		}
+		if (out == null) {
+			throw new IllegalArgumentException("Parameter 'out' must not be null.");
+		}
+		if (err == null) {
+			throw new IllegalArgumentException("Parameter 'err' must not be null.");
+		}
+
+		long startNanoTime = System.nanoTime();
+		String key = javaExecutable + File.pathSeparator + jarFile.getAbsolutePath() + File.pathSeparator
+				+ workingDirectory.getAbsolutePath();
+		Helper helper = acquireHelper(key);
+		if (helper == null) {
+			return null;
+		}
+		if (helper.process == null) {
+			helper = startHelper(key, javaExecutable, workingDirectory);
+			if (helper == null) {
+				return null;
+			}
+		}
+
+		ByteArrayOutputStream outputLog = new ByteArrayOutputStream();
+		ByteArrayOutputStream errorLog = new ByteArrayOutputStream();
+		long sendDurationNanos = 0;
+		boolean jobSent = false;
+		try {
+			helper.out.writeUTF(jarFile.getAbsolutePath());
+			helper.out.writeInt(args.length);
+			for (String arg : args) {
+				helper.out.writeUTF(arg);
+			}
+			helper.out.flush();
+			sendDurationNanos = System.nanoTime() - startNanoTime;
+			jobSent = true;
+
+			while (true) {
+				int frameType;
+				try {
+					frameType = helper.in.readUnsignedByte();
+				} catch (EOFException ex) {
+					// The main class has terminated the helper VM via System.exit().
+					int exitValue = helper.process.waitFor();
+					discardHelper(helper);
+					return createResult(sendDurationNanos, exitValue, outputLog, errorLog);
+				}
+				byte[] data = new byte[helper.in.readInt()];
+				helper.in.readFully(data);
+				switch (frameType) {
+				case JarMainDaemonMain.FRAME_OUTPUT:
+					outputLog.write(data);
+					out.write(data);
+					out.flush();
+					break;
+				case JarMainDaemonMain.FRAME_ERROR:
+					errorLog.write(data);
+					err.write(data);
+					err.flush();
+					break;
+				case JarMainDaemonMain.FRAME_EXIT:
+					releaseHelper(helper);
+					return createResult(sendDurationNanos, Integer.parseInt(new String(data, StandardCharsets.UTF_8)),
+							outputLog, errorLog);
+				case JarMainDaemonMain.FRAME_FAILED:
+					BasePlugin.getInstance().log("Cannot execute '{0}' in helper VM: {1}",
+							new Object[] { jarFile.getPath(), new String(data, StandardCharsets.UTF_8) });
+					releaseHelper(helper);
+					return null;
+				default:
+					throw new IOException("Invalid frame type " + frameType);
+				}
+			}
+		} catch (IOException | InterruptedException | NumberFormatException ex) {
+			BasePlugin.getInstance().logError("Communication with helper VM for '{0}' failed.",
+					new Object[] { jarFile.getPath() }, ex);
+			discardHelper(helper);
+			if (jobSent && (outputLog.size() > 0 || errorLog.size() > 0)) {
+				// The output was already passed on, so the job cannot be repeated.
+				return createResult(sendDurationNanos, 1, outputLog, errorLog);
+			}
+			return null;
+		}
+	}
+
+	private static Result createResult(long sendDurationNanos, int exitValue, ByteArrayOutputStream outputLog,
+			ByteArrayOutputStream errorLog) {
+		return new Result(sendDurationNanos, exitValue, outputLog.toString(), errorLog.toString());
+	}
+
+	/**
+	 * Takes an idle helper VM for the key or reserves a new one.
+	 * 
+	 * @param key The key, not <code>null</code>.
+	 * @return An idle helper, a helper without process which has to be started,
+	 *         or <code>null</code> if the maximum number of helper VMs is
+	 *         reached.
+	 */
+	private synchronized Helper acquireHelper(String key) {
+		long now = System.currentTimeMillis();
+		for (Iterator<List<Helper>> i = idleHelpers.values().iterator(); i.hasNext();) {
+			List<Helper> helpers = i.next();
+			for (Iterator<Helper> j = helpers.iterator(); j.hasNext();) {
+				Helper helper = j.next();
+				if (now - helper.lastUsedMillis > IDLE_TIMEOUT_MILLIS || !helper.process.isAlive()) {
+					j.remove();
+					helperCount--;
+					helper.process.destroy();
+				}
+			}
+			if (helpers.isEmpty()) {
+				i.remove();
+			}
+		}
+
+		List<Helper> helpers = idleHelpers.get(key);
+		if (helpers != null) {
+			Helper helper = helpers.remove(helpers.size() - 1);
+			if (helpers.isEmpty()) {
+				idleHelpers.remove(key);
+			}
+			return helper;
+		}
+		if (startFailed || helperCount >= MAX_HELPERS) {
+			return null;
+		}
+		helperCount++;
+		return new Helper(key, null);
+	}
+
+	private synchronized void releaseHelper(Helper helper) {
+		helper.lastUsedMillis = System.currentTimeMillis();
+		List<Helper> helpers = idleHelpers.get(helper.key);
+		if (helpers == null) {
+			helpers = new ArrayList<Helper>();
+			idleHelpers.put(helper.key, helpers);
+		}
+		helpers.add(helper);
+	}
+
+	private synchronized void discardHelper(Helper helper) {
+		helperCount--;
+		if (helper.process != null) {
+			helper.process.destroy();
+		}
+	}
+
+	/**
+	 * Starts a helper VM and waits for its {@link JarMainDaemonMain#FRAME_READY}
+	 * frame.
+	 * 
+	 * @param key              The key, not <code>null</code>.
+	 * @param javaExecutable   The Java executable, not <code>null</code>.
+	 * @param workingDirectory The working directory, not <code>null</code>.
+	 * @return The helper or <code>null</code> if it cannot be started.
+	 */
+	private Helper startHelper(String key, String javaExecutable, File workingDirectory) {
+		Helper helper = new Helper(key, null);
+		try {
+			File folder = getClassPathFolder();
+			ProcessBuilder processBuilder = new ProcessBuilder(javaExecutable, "-cp", folder.getPath(),
+					JarMainDaemonMain.class.getName());
+			processBuilder.directory(workingDirectory);
+			processBuilder.redirectError(Redirect.appendTo(new File(folder, HELPER_LOG_FILE_NAME)));
+			helper = new Helper(key, processBuilder.start());
+			int frameType = helper.in.readUnsignedByte();
+			byte[] data = new byte[helper.in.readInt()];
+			helper.in.readFully(data);
+			String version = new String(data, StandardCharsets.UTF_8);
+			if (frameType != JarMainDaemonMain.FRAME_READY || !version.equals(JarMainDaemonMain.PROTOCOL_VERSION)) {
+				throw new IOException("Invalid ready frame of type " + frameType + " and version '" + version + "'");
+			}
+			return helper;
+		} catch (IOException ex) {
+			BasePlugin.getInstance().logError("Cannot start helper VM '{0}' in working directory '{1}'.",
+					new Object[] { javaExecutable, workingDirectory.getPath() }, ex);
+			synchronized (this) {
+				startFailed = true;
+			}
+			discardHelper(helper);
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the folder which contains the classes of the helper VM. The classes
+	 * are copied from the class path of the plugin once per session.
+	 * 
+	 * @return The folder, not <code>null</code>.
+	 * @throws IOException If the classes cannot be copied.
+	 */
+	private synchronized File getClassPathFolder() throws IOException {
+		if (classPathFolder == null) {
+			// Files registered for deletion later are deleted first.
+			File folder = Files.createTempDirectory("wudsn-jar-main-daemon").toFile();
+			folder.deleteOnExit();
+			File packageFolder = folder;
+			for (String name : JarMainDaemonMain.class.getPackage().getName().split("\\.")) {
+				packageFolder = new File(packageFolder, name);
+				packageFolder.mkdir();
+				packageFolder.deleteOnExit();
+			}
+			new File(folder, HELPER_LOG_FILE_NAME).deleteOnExit();
+			for (String className : JarMainDaemonMain.CLASS_NAMES) {
+				String resourceName = className.replace('.', '/') + ".class";
+				File file = new File(packageFolder, className.substring(className.lastIndexOf('.') + 1) + ".class");
+				file.deleteOnExit();
+				try (InputStream inputStream = JarMainDaemonMain.class.getClassLoader()
+						.getResourceAsStream(resourceName)) {
+					if (inputStream == null) {
+						throw new IOException("Class file '" + resourceName + "' not found");
+					}
+					Files.copy(inputStream, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+			classPathFolder = folder;
+		}
+		return classPathFolder;
+	}
+
+	/**
+	 * Terminates all idle helper VMs. Busy helper VMs terminate when their job is
+	 * complete and the IDE is closed, because their {@link System#in} is closed.
+	 */
+	public synchronized void terminateHelpers() {
+		for (List<Helper> helpers : idleHelpers.values()) {
+			for (Helper helper : helpers) {
+				helperCount--;
+				helper.process.destroy();
+			}
+		}
+		idleHelpers.clear();
+	}
+}
@@ -0,0 +1,298 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ * 
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.wudsn.ide.base.common;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+/**
+ * Main class of the helper VM started by {@link JarMainDaemon}. The helper VM
+ * is started in the working directory of the compiler and receives jobs via
+ * {@link System#in}. Every job consists of the path of an executable ".jar"
+ * file and the arguments for its main class. The main class is loaded into a
+ * new class loader for every job, so no static state is kept between jobs.
+ * The output to {@link System#out} and {@link System#err} is sent back as
+ * frames via the original standard output stream while the job is running.
+ * 
+ * A frame consists of the frame type, the length of the data and the data.
+ * After the main method has returned, the exit value is sent as
+ * {@link #FRAME_EXIT} frame. If the main class calls {@link System#exit(int)},
+ * the helper VM terminates and the exit value of the process is the exit value
+ * of the job. If the main class cannot be loaded, a {@link #FRAME_FAILED}
+ * frame is sent and the caller executes the ".jar" file as separate process.
+ * 
+ * This class is copied into a separate class path for the helper VM. It must
+ * therefore only use classes of the JDK and the nested classes listed in
+ * {@link #CLASS_NAMES}.
+ * 
+ * @author Peter Dell
+ * 
+ * @since 1.7.2
+ */
+public final class JarMainDaemonMain {
+
+	/**
+	 * The names of the classes that constitute the helper VM.
+	 */
+	static final String[] CLASS_NAMES = { JarMainDaemonMain.class.getName(),
+			JarMainDaemonMain.class.getName() + "$FrameOutputStream" };
+
+	/**
+	 * Sent once after the start, the data is the protocol version.
+	 */
+	static final int FRAME_READY = 'R';
+
+	/**
+	 * Output of the job to {@link System#out}.
+	 */
+	static final int FRAME_OUTPUT = 'O';
+
+	/**
+	 * Output of the job to {@link System#err}.
+	 */
+	static final int FRAME_ERROR = 'E';
+
+	/**
+	 * End of the job, the data is the exit value.
+	 */
+	static final int FRAME_EXIT = 'X';
+
+	/**
+	 * The job could not be started, the data is the reason.
+	 */
+	static final int FRAME_FAILED = 'F';
+
+	/**
+	 * The version of the protocol.
+	 */
+	static final String PROTOCOL_VERSION = "1";
+
+	/**
+	 * Output stream which sends everything written as frame of a given type.
+	 */
+	private static final class FrameOutputStream extends OutputStream {
+
+		private final DataOutputStream out;
+		private final int frameType;
+
+		FrameOutputStream(DataOutputStream out, int frameType) {
+			this.out = out;
+			this.frameType = frameType;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (len > 0) {
+				writeFrame(out, frameType, b, off, len);
+			}
+		}
+	}
+
+	/**
+	 * Creation is private.
+	 */
+	private JarMainDaemonMain() {
+	}
+
+	/**
+	 * Writes a frame and flushes the stream.
+	 * 
+	 * @param out       The data output stream, not <code>null</code>.
+	 * @param frameType The frame type.
+	 * @param data      The data, not <code>null</code>.
+	 * @param offset    The offset of the data.
+	 * @param length    The length of the data.
+	 * @throws IOException If writing fails.
+	 */
+	static void writeFrame(DataOutputStream out, int frameType, byte[] data, int offset, int length)
+			throws IOException {
+		synchronized (out) {
+			out.writeByte(frameType);
+			out.writeInt(length);
+			out.write(data, offset, length);
+			out.flush();
+		}
+	}
+
+	private static void writeFrame(DataOutputStream out, int frameType, String text) throws IOException {
+		byte[] data = text.getBytes(StandardCharsets.UTF_8);
+		writeFrame(out, frameType, data, 0, data.length);
+	}
+
+	/**
+	 * Main method of the helper VM. Terminates when {@link System#in} is closed.
+	 * 
+	 * @param args The arguments, not used.
+	 * @throws IOException If the communication fails.
+	 */
+	public static void main(String[] args) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(FileDescriptor.in)));
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+		PrintStream jobOut = new PrintStream(new FrameOutputStream(out, FRAME_OUTPUT), true);
+		PrintStream jobErr = new PrintStream(new FrameOutputStream(out, FRAME_ERROR), true);
+		System.setOut(jobOut);
+		System.setErr(jobErr);
+		System.setIn(new ByteArrayInputStream(new byte[0]));
+		writeFrame(out, FRAME_READY, PROTOCOL_VERSION);
+
+		while (true) {
+			String jarPath;
+			try {
+				jarPath = in.readUTF();
+			} catch (EOFException ex) {
+				return;
+			}
+			String[] jobArgs = new String[in.readInt()];
+			for (int i = 0; i < jobArgs.length; i++) {
+				jobArgs[i] = in.readUTF();
+			}
+
+			Properties properties = (Properties) System.getProperties().clone();
+			try {
+				Method mainMethod = null;
+				URLClassLoader classLoader = null;
+				String reason;
+				try {
+					String mainClassName = null;
+					try (JarFile jarFile = new JarFile(jarPath)) {
+						Manifest manifest = jarFile.getManifest();
+						if (manifest != null) {
+							mainClassName = manifest.getMainAttributes().getValue(Attributes.Name.MAIN_CLASS);
+						}
+					}
+					if (mainClassName == null) {
+						reason = "No main class in manifest of '" + jarPath + "'";
+					} else {
+						// The parent is the platform class loader, so the helper class is
+						// invisible to the job.
+						classLoader = new URLClassLoader(new URL[] { new File(jarPath).toURI().toURL() },
+								ClassLoader.getSystemClassLoader().getParent());
+						mainMethod = Class.forName(mainClassName.trim(), false, classLoader).getMethod("main",
+								String[].class);
+						if (Modifier.isStatic(mainMethod.getModifiers())) {
+							reason = null;
+						} else {
+							reason = "Main method of '" + mainClassName + "' is not static";
+						}
+					}
+				} catch (Exception | LinkageError ex) {
+					reason = ex.toString();
+				}
+
+				if (reason != null) {
+					if (classLoader != null) {
+						classLoader.close();
+					}
+					writeFrame(out, FRAME_FAILED, reason);
+					continue;
+				}
+
+				int exitValue = runMain(classLoader, mainMethod, jobArgs);
+				classLoader.close();
+				jobOut.flush();
+				jobErr.flush();
+				byte[] data = Integer.toString(exitValue).getBytes(StandardCharsets.UTF_8);
+				writeFrame(out, FRAME_EXIT, data, 0, data.length);
+			} finally {
+				System.setProperties(properties);
+			}
+		}
+	}
+
+	/**
+	 * Runs the main method like "java -jar" and waits for the non-daemon threads
+	 * started by it.
+	 * 
+	 * @param classLoader The class loader of the ".jar" file, not
+	 *                    <code>null</code>.
+	 * @param mainMethod  The main method, not <code>null</code>.
+	 * @param args        The arguments, not <code>null</code>.
+	 * @return The exit value.
+	 */
+	private static int runMain(ClassLoader classLoader, Method mainMethod, String[] args) {
+		Thread thread = Thread.currentThread();
+		ClassLoader contextClassLoader = thread.getContextClassLoader();
+		Set<Thread> existingThreads = new HashSet<Thread>(Thread.getAllStackTraces().keySet());
+		int exitValue = 0;
+		thread.setContextClassLoader(classLoader);
+		try {
+			mainMethod.invoke(null, (Object) args);
+		} catch (InvocationTargetException ex) {
+			// Remove the frames of the helper VM like for "java -jar".
+			Throwable cause = ex.getCause();
+			StackTraceElement[] stackTrace = cause.getStackTrace();
+			for (int i = stackTrace.length - 1; i >= 0; i--) {
+				if (stackTrace[i].getClassName().equals(mainMethod.getDeclaringClass().getName())
+						&& stackTrace[i].getMethodName().equals(mainMethod.getName())) {
+					cause.setStackTrace(Arrays.copyOf(stackTrace, i + 1));
+					break;
+				}
+			}
+			System.err.print("Exception in thread \"main\" ");
+			cause.printStackTrace();
+			exitValue = 1;
+		} catch (IllegalAccessException ex) {
+			ex.printStackTrace();
+			exitValue = 1;
+		} finally {
+			thread.setContextClassLoader(contextClassLoader);
+		}
+
+		for (Thread jobThread : Thread.getAllStackTraces().keySet()) {
+			if (!existingThreads.contains(jobThread) && !jobThread.isDaemon()) {
+				try {
+					jobThread.join();
+				} catch (InterruptedException ex) {
+					break;
+				}
+			}
+		}
+		return exitValue;
+	}
+}
@@ -130,6 +130,22 @@ public final class MessageQueue {
 
 	}
 
+	/**
+	 * Adds entries from another message queue to the message queue.
+	 * 
+	 * @param entries The entries, may be empty, not <code>null</code>.
+	 * 
+	 * @since 1.7.2
+	 */
+	public void addEntries(List<Entry> entries) {
+		if (entries == null) {
+			throw new IllegalArgumentException("Parameter 'entries' must not be null.");
+		}
+		for (Entry entry : entries) {
+			addMessageQueueEntry(entry);
+		}
+	}
+
 	private void addMessageQueueEntry(Entry messageQueueEntry) {
 		if (messageQueueEntry == null) {
 			throw new IllegalArgumentException("Parameter 'messageQueueEntry' must not be null.");
@@ -0,0 +1,226 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.wudsn.ide.base.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import com.wudsn.ide.base.BasePlugin;
+
+/**
+ * Executes a list of independent tasks in parallel, for example the files of a
+ * batch build or batch conversion. The tasks are executed by a thread pool, but
+ * the progress monitor is only called by the calling thread, because progress
+ * monitors are not thread safe. The tasks themselves may only call
+ * {@link IProgressMonitor#isCanceled()}.
+ * 
+ * @author Peter Dell
+ * 
+ * @since 1.7.2
+ */
+public final class ParallelExecutor {
+
+	/**
+	 * Interval in which the calling thread checks if the progress monitor was
+	 * canceled while waiting for a task.
+	 */
+	private static final long CANCEL_CHECK_MILLIS = 100;
+
+	/**
+	 * A task to be executed in parallel.
+	 * 
+	 * @param <T> The type of the result.
+	 */
+	public static interface Task<T> {
+
+		/**
+		 * Gets the name of the task which is displayed as sub task of the progress
+		 * monitor.
+		 * 
+		 * @return The name, not <code>null</code>.
+		 */
+		public String getName();
+
+		/**
+		 * Executes the task in a thread of the pool. Errors which concern only this
+		 * task should be part of the result, because a runtime exception aborts
+		 * all tasks.
+		 * 
+		 * @return The result, may be <code>null</code>.
+		 */
+		public T execute();
+	}
+
+	/**
+	 * Creation is private.
+	 */
+	private ParallelExecutor() {
+	}
+
+	/**
+	 * Gets the default number of tasks executed in parallel. This is the number of
+	 * available processors unless it is overridden by a system property.
+	 * 
+	 * @param property The name of the system property to override the default,
+	 *                 not <code>null</code>.
+	 * @return The concurrency, a positive integer.
+	 */
+	public static int getDefaultConcurrency(String property) {
+		if (property == null) {
+			throw new IllegalArgumentException("Parameter 'property' must not be null.");
+		}
+		int concurrency = Runtime.getRuntime().availableProcessors();
+		String value = System.getProperty(property);
+		if (value != null && StringUtility.isSpecified(value)) {
+			try {
+				concurrency = Integer.parseInt(value.trim());
+			} catch (NumberFormatException ex) {
+				BasePlugin.getInstance().logError("Invalid value '{0}' for system property '{1}'",
+						new Object[] { value, property }, ex);
+			}
+		}
+		return Math.max(1, concurrency);
+	}
+
+	/**
+	 * Executes the tasks in parallel and waits for their results. For every task
+	 * the progress monitor receives the name of the task as sub task and one unit
+	 * of work when the task is complete. The caller is responsible for
+	 * {@link IProgressMonitor#beginTask(String, int)} and
+	 * {@link IProgressMonitor#done()}.
+	 * 
+	 * @param <T>            The type of the results.
+	 * @param tasks          The tasks, may be empty, not <code>null</code>.
+	 * @param concurrency    The maximum number of tasks executed in parallel, a
+	 *                       positive integer.
+	 * @param threadName     The name of the threads of the pool, not
+	 *                       <code>null</code>.
+	 * @param threadPriority The priority of the threads of the pool, see
+	 *                       {@link Thread#setPriority(int)}.
+	 * @param monitor        The progress monitor, not <code>null</code>.
+	 * @return The modifiable list of results in the order of the tasks, not
+	 *         <code>null</code>.
+	 * 
+	 * @throws OperationCanceledException If the progress monitor was canceled.
+	 *                                    Tasks which are still running are
+	 *                                    interrupted.
+	 */
+	public static <T> List<T> execute(List<? extends Task<T>> tasks, int concurrency, final String threadName,
+			final int threadPriority, final IProgressMonitor monitor) {
+		if (tasks == null) {
+			throw new IllegalArgumentException("Parameter 'tasks' must not be null.");
+		}
+		if (concurrency < 1) {
+			throw new IllegalArgumentException(
+					"Parameter 'concurrency' must be positive. Specified value is " + concurrency + ".");
+		}
+		if (threadName == null) {
+			throw new IllegalArgumentException("Parameter 'threadName' must not be null.");
+		}
+		if (monitor == null) {
+			throw new IllegalArgumentException("Parameter 'monitor' must not be null.");
+		}
+
+		ExecutorService executorService = Executors.newFixedThreadPool(Math.min(concurrency, Math.max(1, tasks.size())),
+				new ThreadFactory() {
+
+					@Override
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, threadName);
+						thread.setDaemon(true);
+						thread.setPriority(threadPriority);
+						return thread;
+					}
+				});
+		List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+		try {
+			for (final Task<T> task : tasks) {
+				futures.add(executorService.submit(new Callable<T>() {
+
+					@Override
+					public T call() {
+						if (monitor.isCanceled()) {
+							return null;
+						}
+						return task.execute();
+					}
+				}));
+			}
+
+			List<T> results = new ArrayList<T>(futures.size());
+			for (int i = 0; i < futures.size(); i++) {
+				monitor.subTask(tasks.get(i).getName());
+				results.add(getResult(futures.get(i), monitor));
+				monitor.worked(1);
+			}
+			if (monitor.isCanceled()) {
+				throw new OperationCanceledException();
+			}
+			return results;
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	/**
+	 * Waits for the result of a task.
+	 * 
+	 * @param <T>     The type of the result.
+	 * @param future  The future of the task, not <code>null</code>.
+	 * @param monitor The progress monitor, not <code>null</code>.
+	 * @return The result, may be <code>null</code>.
+	 * 
+	 * @throws OperationCanceledException If the progress monitor was canceled.
+	 */
+	private static <T> T getResult(Future<T> future, IProgressMonitor monitor) {
+		while (true) {
+			if (monitor.isCanceled()) {
+				throw new OperationCanceledException();
+			}
+			try {
+				return future.get(CANCEL_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException ex) {
+				// Check the progress monitor again.
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new OperationCanceledException();
+			} catch (ExecutionException ex) {
+				Throwable cause = ex.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new RuntimeException(cause);
+			}
+		}
+	}
+}
@@ -30,7 +30,8 @@ import com.wudsn.ide.base.BasePlugin;
 /**
  * The process with logs is the inter-process interface to the executables. The
  * {@link System#out} and the {@link System#err} streams are captured into
- * strings.
+ * strings. Executable ".jar" files are executed in a helper VM of the
+ * {@link JarMainDaemon} if possible.
  * 
  * @author Peter Dell
  */
@@ -41,6 +42,8 @@ public final class ProcessWithLogs {
 	private int exitValue;
 	private String outputLog;
 	private String errorLog;
+	private long execDurationNanos;
+	private long waitForDurationNanos;
 
 	public static final String[] getExecutableExtensions() {
 
@@ -114,8 +117,17 @@ public final class ProcessWithLogs {
 		exitValue = 0;
 		outputLog = "";
 		errorLog = "";
+		execDurationNanos = 0;
+		waitForDurationNanos = 0;
+
+		// Executable ".jar" files are executed in a helper VM if possible.
+		if (wait && execJarMain(out, err)) {
+			return;
+		}
+
 		Profiler profiler = new Profiler(this);
 		profiler.begin("exec");
+		long startNanoTime = System.nanoTime();
 		try {
 			BasePlugin.getInstance().log("Executing process '{0}' in working directory '{1}'.",
 					new Object[] { getCommandArrayString(), workingDirectory.getPath() });
@@ -127,18 +139,21 @@ public final class ProcessWithLogs {
 			throw ex;
 		} finally {
 			profiler.end("exec");
+			execDurationNanos = System.nanoTime() - startNanoTime;
 		}
 		if (wait) {
 			String encoding = null;
 			StreamsProxy streamsProxy = new StreamsProxy(process, encoding, out, err);
 			try {
 				profiler.begin("waitFor");
+				startNanoTime = System.nanoTime();
 				process.waitFor();
 			} catch (InterruptedException ex) {
 				BasePlugin.getInstance().logError("Process interrupted", null, ex);
 				throw new IOException(ex.getMessage());
 			} finally {
 				profiler.end("waitFor");
+				waitForDurationNanos = System.nanoTime() - startNanoTime;
 				process.destroy();
 			}
 
@@ -150,6 +165,49 @@ public final class ProcessWithLogs {
 
 	}
 
+	/**
+	 * Executes the main class of an executable ".jar" file in a helper VM of the
+	 * {@link JarMainDaemon} if the command is "java -jar". The duration until the
+	 * job is sent to the helper VM counts as execution duration and the duration
+	 * of the job counts as wait duration.
+	 * 
+	 * @param out The print stream for the output output, see {@link System#out} .
+	 * @param err The print stream for the error output, see {@link System#err}.
+	 * @return <code>true</code> if the ".jar" file was executed in a helper VM,
+	 *         <code>false</code> if it has to be executed as separate process.
+	 * 
+	 * @since 1.7.2
+	 */
+	private boolean execJarMain(PrintStream out, PrintStream err) {
+		if (commandArray.length < 3 || !commandArray[1].equals("-jar") || !JarMainDaemon.isEnabled()) {
+			return false;
+		}
+		String[] args = new String[commandArray.length - 3];
+		System.arraycopy(commandArray, 3, args, 0, args.length);
+
+		Profiler profiler = new Profiler(this);
+		profiler.begin("execJarMain");
+		long startNanoTime = System.nanoTime();
+		JarMainDaemon.Result result;
+		try {
+			BasePlugin.getInstance().log("Executing '{0}' in helper VM with working directory '{1}'.",
+					new Object[] { getCommandArrayString(), workingDirectory.getPath() });
+			result = JarMainDaemon.getInstance().execute(commandArray[0], new File(commandArray[2]), args,
+					workingDirectory, out, err);
+		} finally {
+			profiler.end("execJarMain");
+		}
+		if (result == null) {
+			return false;
+		}
+		execDurationNanos = result.sendDurationNanos;
+		waitForDurationNanos = System.nanoTime() - startNanoTime - execDurationNanos;
+		exitValue = result.exitValue;
+		outputLog = result.outputLog;
+		errorLog = result.errorLog;
+		return true;
+	}
+
 	/**
 	 * Gets the command array to be as string.
 	 * 
@@ -185,6 +243,32 @@ public final class ProcessWithLogs {
 		return exitValue;
 	}
 
+	/**
+	 * Gets the duration of the process creation of the last execution. For an
+	 * execution in a helper VM it is the duration until the job was sent to the
+	 * helper VM.
+	 * 
+	 * @return The duration in nanoseconds.
+	 * 
+	 * @since 1.7.2
+	 */
+	public long getExecDurationNanos() {
+		return execDurationNanos;
+	}
+
+	/**
+	 * Gets the duration from the process creation until the termination of the
+	 * last execution.
+	 * 
+	 * @return The duration in nanoseconds, <code>0</code> if the execution did
+	 *         not wait for the termination.
+	 * 
+	 * @since 1.7.2
+	 */
+	public long getWaitForDurationNanos() {
+		return waitForDurationNanos;
+	}
+
 	/**
 	 * Gets the output log captured from {@link System#out}.
 	 * 
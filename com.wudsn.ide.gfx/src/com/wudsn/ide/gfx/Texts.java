@@ -76,6 +76,10 @@ public final class Texts extends NLS {
 	public static String SAVE_AS_DIALOG_TITLE;
 	public static String SAVE_AS_DIALOG_MESSAGE;
 
+	public static String CONVERSION_JOB_NAME;
+	public static String BATCH_CONVERSION_JOB_NAME;
+	public static String BATCH_CONVERSION_TASK_NAME;
+
 	public static String CONVERTER_CONSOLE_TITLE;
 
 	public static String IMAGE_VIEW_ASPECT_LABEL;
@@ -54,6 +54,83 @@ public abstract class Converter {
 	protected Converter() {
 	}
 
+	/**
+	 * Decodes bytes with 8 pixels of 1 bit each into one palette color index per
+	 * pixel. The leftmost pixel is in the highest bit.
+	 * 
+	 * @param bytes        The source bytes, not <code>null</code>.
+	 * @param bytesOffset  The offset of the first byte in the source bytes, a
+	 *                     non-negative integer.
+	 * @param length       The number of bytes to decode, a non-negative integer.
+	 * @param pixels       The palette color indices, not <code>null</code>.
+	 * @param pixelsOffset The offset of the first pixel in the palette color
+	 *                     indices, a non-negative integer.
+	 * 
+	 * @since 1.7.2
+	 */
+	protected static void decode1BitPixels(byte[] bytes, int bytesOffset, int length, byte[] pixels,
+			int pixelsOffset) {
+		for (int i = bytesOffset, end = bytesOffset + length; i < end; i++) {
+			int b = bytes[i];
+			pixels[pixelsOffset++] = (byte) ((b >>> 7) & 0x1);
+			pixels[pixelsOffset++] = (byte) ((b >>> 6) & 0x1);
+			pixels[pixelsOffset++] = (byte) ((b >>> 5) & 0x1);
+			pixels[pixelsOffset++] = (byte) ((b >>> 4) & 0x1);
+			pixels[pixelsOffset++] = (byte) ((b >>> 3) & 0x1);
+			pixels[pixelsOffset++] = (byte) ((b >>> 2) & 0x1);
+			pixels[pixelsOffset++] = (byte) ((b >>> 1) & 0x1);
+			pixels[pixelsOffset++] = (byte) (b & 0x1);
+		}
+	}
+
+	/**
+	 * Decodes bytes with 4 pixels of 2 bits each into one palette color index per
+	 * pixel. The leftmost pixel is in the highest bits.
+	 * 
+	 * @param bytes        The source bytes, not <code>null</code>.
+	 * @param bytesOffset  The offset of the first byte in the source bytes, a
+	 *                     non-negative integer.
+	 * @param length       The number of bytes to decode, a non-negative integer.
+	 * @param pixels       The palette color indices, not <code>null</code>.
+	 * @param pixelsOffset The offset of the first pixel in the palette color
+	 *                     indices, a non-negative integer.
+	 * 
+	 * @since 1.7.2
+	 */
+	protected static void decode2BitPixels(byte[] bytes, int bytesOffset, int length, byte[] pixels,
+			int pixelsOffset) {
+		for (int i = bytesOffset, end = bytesOffset + length; i < end; i++) {
+			int b = bytes[i];
+			pixels[pixelsOffset++] = (byte) ((b >>> 6) & 0x3);
+			pixels[pixelsOffset++] = (byte) ((b >>> 4) & 0x3);
+			pixels[pixelsOffset++] = (byte) ((b >>> 2) & 0x3);
+			pixels[pixelsOffset++] = (byte) (b & 0x3);
+		}
+	}
+
+	/**
+	 * Decodes bytes with 2 pixels of 4 bits each into one palette color index per
+	 * pixel. The leftmost pixel is in the highest bits.
+	 * 
+	 * @param bytes        The source bytes, not <code>null</code>.
+	 * @param bytesOffset  The offset of the first byte in the source bytes, a
+	 *                     non-negative integer.
+	 * @param length       The number of bytes to decode, a non-negative integer.
+	 * @param pixels       The palette color indices, not <code>null</code>.
+	 * @param pixelsOffset The offset of the first pixel in the palette color
+	 *                     indices, a non-negative integer.
+	 * 
+	 * @since 1.7.2
+	 */
+	protected static void decode4BitPixels(byte[] bytes, int bytesOffset, int length, byte[] pixels,
+			int pixelsOffset) {
+		for (int i = bytesOffset, end = bytesOffset + length; i < end; i++) {
+			int b = bytes[i];
+			pixels[pixelsOffset++] = (byte) ((b >>> 4) & 0xf);
+			pixels[pixelsOffset++] = (byte) (b & 0xf);
+		}
+	}
+
 	/**
 	 * Sets the definition of the Converter. Called by {@link ConverterRegistry}
 	 * only.
@@ -79,6 +156,27 @@ public abstract class Converter {
 		return definition;
 	}
 
+	/**
+	 * Determines cheaply if the given byte array might be converted to an image by
+	 * this converter, based only on its size and signature bytes. Only if this
+	 * method returns <code>true</code>, {@link #canConvertToImage(byte[])} is
+	 * called for the complete check. Converters which unpack or decode the content
+	 * in {@link #canConvertToImage(byte[])} should override this method.
+	 * 
+	 * @param bytes The byte array, not empty and not <code>null</code>.
+	 * 
+	 * @return <code>true</code> if the given byte array might be converted to an
+	 *         image by this converter, <code>false</code> otherwise.
+	 * 
+	 * @since 1.7.2
+	 */
+	public boolean mayConvertToImage(byte[] bytes) {
+		if (bytes == null) {
+			throw new IllegalArgumentException("Parameter 'bytes' must not be null.");
+		}
+		return true;
+	}
+
 	/**
 	 * Determines if the given byte array can be converted to an image by this
 	 * converter.
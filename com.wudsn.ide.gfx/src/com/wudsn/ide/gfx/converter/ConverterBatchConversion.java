@@ -0,0 +1,479 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.wudsn.ide.gfx.converter;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceVisitor;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Path;
+
+import com.wudsn.ide.base.common.MessageQueue;
+import com.wudsn.ide.base.common.ParallelExecutor;
+import com.wudsn.ide.base.common.StringUtility;
+import com.wudsn.ide.base.common.TextUtility;
+import com.wudsn.ide.gfx.GraphicsPlugin;
+import com.wudsn.ide.gfx.Texts;
+import com.wudsn.ide.gfx.converter.ImageConverterParameters.TargetFile;
+import com.wudsn.ide.gfx.model.ConverterDirection;
+import com.wudsn.ide.gfx.model.ConverterMode;
+
+/**
+ * Headless conversion of multiple files without opening them in the
+ * {@link com.wudsn.ide.gfx.editor.GraphicsConversionEditor}. A conversion is
+ * either a conversion file with the extension ".cnv" or a raw source file or
+ * image which is converted with the parameters of a template. The conversions
+ * are loaded, converted and saved in parallel up to the configured concurrency.
+ * Every conversion uses its own {@link ConverterDataLogic} and message queue.
+ * The results including the messages and the timing are collected per file.
+ * The conversions are started from the context menu of resources or headless
+ * via {@link ConverterBatchConversionApplication}.
+ * 
+ * @author Peter Dell
+ * 
+ * @since 1.7.2
+ */
+public final class ConverterBatchConversion {
+
+	/**
+	 * The system property to override the maximum number of conversions run in
+	 * parallel. The default is the number of available processors.
+	 */
+	public static final String CONCURRENCY_PROPERTY = "com.wudsn.ide.gfx.converter.ConverterBatchConversion.concurrency"; //$NON-NLS-1$
+
+	private static final String CNV_EXTENSION = "cnv";
+
+	/**
+	 * The result of converting a single file.
+	 */
+	public static final class Result {
+
+		public final IFile file;
+		ConverterDirection converterDirection;
+		String converterId;
+		boolean success;
+		long durationMillis;
+		List<MessageQueue.Entry> messages;
+
+		Result(IFile file) {
+			this.file = file;
+			converterId = "";
+			messages = Collections.emptyList();
+		}
+
+		/**
+		 * Gets the converter direction.
+		 * 
+		 * @return The converter direction or <code>null</code> if the conversion was
+		 *         not loaded.
+		 */
+		public ConverterDirection getConverterDirection() {
+			return converterDirection;
+		}
+
+		/**
+		 * Gets the converter id.
+		 * 
+		 * @return The converter id, may be empty, not <code>null</code>.
+		 */
+		public String getConverterId() {
+			return converterId;
+		}
+
+		/**
+		 * Determines if the conversion was successful and all targets were saved.
+		 * 
+		 * @return <code>true</code> if the conversion was successful.
+		 */
+		public boolean isSuccess() {
+			return success;
+		}
+
+		public long getDurationMillis() {
+			return durationMillis;
+		}
+
+		/**
+		 * Gets the messages sent while loading, converting and saving.
+		 * 
+		 * @return The unmodifiable list of messages, may be empty, not
+		 *         <code>null</code>.
+		 */
+		public List<MessageQueue.Entry> getMessages() {
+			return messages;
+		}
+	}
+
+	private final GraphicsPlugin plugin;
+
+	/**
+	 * Creation is public.
+	 */
+	public ConverterBatchConversion() {
+		plugin = GraphicsPlugin.getInstance();
+	}
+
+	/**
+	 * Gets the maximum number of conversions run in parallel.
+	 * 
+	 * @return The concurrency, a positive integer.
+	 */
+	public static int getDefaultConcurrency() {
+		return ParallelExecutor.getDefaultConcurrency(CONCURRENCY_PROPERTY);
+	}
+
+	/**
+	 * Finds the conversion files in the specified resources. Folders and projects
+	 * are searched recursively.
+	 * 
+	 * @param resources The resources, may be empty, not <code>null</code>.
+	 * @return The modifiable list of conversion files in the order in which they
+	 *         were found, may be empty, not <code>null</code>.
+	 * 
+	 * @throws CoreException If the resources cannot be visited.
+	 */
+	public List<IFile> findConversionFiles(List<IResource> resources) throws CoreException {
+		if (resources == null) {
+			throw new IllegalArgumentException("Parameter 'resources' must not be null.");
+		}
+		final Set<IFile> result = new LinkedHashSet<IFile>();
+		for (IResource resource : resources) {
+			resource.accept(new IResourceVisitor() {
+
+				@Override
+				public boolean visit(IResource resource) throws CoreException {
+					if (resource.getType() == IResource.FILE
+							&& CNV_EXTENSION.equalsIgnoreCase(resource.getFileExtension())) {
+						result.add((IFile) resource);
+					}
+					return true;
+				}
+			});
+		}
+		return new ArrayList<IFile>(result);
+	}
+
+	/**
+	 * Finds the raw source files or images in the specified resources which can
+	 * be converted with the parameters of a template, see
+	 * {@link #createConversion(IFile, ConverterParameters)}. Folders and projects
+	 * are searched recursively. For {@link ConverterDirection#IMAGE_TO_FILES}
+	 * only images are found. For {@link ConverterDirection#FILES_TO_IMAGE} images
+	 * are never found. If no file extensions are specified, all images or all
+	 * files with a source file extension supported by the converter of the
+	 * template are found. Conversion files are never found.
+	 * 
+	 * @param resources      The resources, may be empty, not <code>null</code>.
+	 * @param template       The template parameters, not <code>null</code>.
+	 * @param fileExtensions The file extensions in lower case letters, may be
+	 *                       empty, not <code>null</code>.
+	 * @return The modifiable list of files in the order in which they were found,
+	 *         may be empty, not <code>null</code>.
+	 * 
+	 * @throws CoreException If the resources cannot be visited.
+	 */
+	public List<IFile> findSourceFiles(List<IResource> resources, ConverterParameters template,
+			final List<String> fileExtensions) throws CoreException {
+		if (resources == null) {
+			throw new IllegalArgumentException("Parameter 'resources' must not be null.");
+		}
+		if (template == null) {
+			throw new IllegalArgumentException("Parameter 'template' must not be null.");
+		}
+		if (fileExtensions == null) {
+			throw new IllegalArgumentException("Parameter 'fileExtensions' must not be null.");
+		}
+		final ConverterDirection converterDirection = template.getConverterDirection();
+		final ConverterDefinition converterDefinition = plugin.getConverterRegistry()
+				.getDefinition(template.getConverterCommonParameters().getConverterId(), converterDirection);
+		if (converterDefinition == null) {
+			throw new IllegalArgumentException("Converter '" + template.getConverterCommonParameters().getConverterId()
+					+ "' is not defined for converter direction '" + converterDirection + "'.");
+		}
+		final Set<IFile> result = new LinkedHashSet<IFile>();
+		for (IResource resource : resources) {
+			resource.accept(new IResourceVisitor() {
+
+				@Override
+				public boolean visit(IResource resource) throws CoreException {
+					if (resource.getType() != IResource.FILE) {
+						return true;
+					}
+					String fileExtension = resource.getFileExtension();
+					fileExtension = fileExtension == null ? "" : fileExtension.toLowerCase();
+					if (fileExtension.equals(CNV_EXTENSION)
+							|| (!fileExtensions.isEmpty() && !fileExtensions.contains(fileExtension))) {
+						return true;
+					}
+					boolean image = ConverterDataLogic.ImageExtensions.getImageFormat(
+							resource.getFullPath()) != ConverterDataLogic.ImageExtensions.UNKNOWN_FORMAT;
+					switch (converterDirection) {
+					case FILES_TO_IMAGE:
+						if (!image && (!fileExtensions.isEmpty()
+								|| converterDefinition.isSourceFileExtensionSupported(fileExtension))) {
+							result.add((IFile) resource);
+						}
+						break;
+					case IMAGE_TO_FILES:
+						if (image) {
+							result.add((IFile) resource);
+						}
+						break;
+					default:
+						throw new RuntimeException("Unknown converter direction '" + converterDirection + "'.");
+					}
+					return true;
+				}
+			});
+		}
+		return new ArrayList<IFile>(result);
+	}
+
+	/**
+	 * Creates the converter data for a conversion file. The parameters are read
+	 * when the conversion is run.
+	 * 
+	 * @param file The conversion file with the extension ".cnv", not
+	 *             <code>null</code>.
+	 * @return The new converter data, not <code>null</code>.
+	 */
+	public ConverterData createConversion(IFile file) {
+		if (file == null) {
+			throw new IllegalArgumentException("Parameter 'file' must not be null.");
+		}
+		ConverterData data = new ConverterData();
+		data.setFile(file);
+		data.setConverterMode(ConverterMode.CNV);
+		return data;
+	}
+
+	/**
+	 * Creates the converter data for a raw source file or image based on the
+	 * parameters of a template, for example the parameters read from another
+	 * conversion file. The converter direction and converter id of the template
+	 * are used. For {@link ConverterDirection#FILES_TO_IMAGE}, all source files
+	 * are the raw file and the image is saved next to it as PNG file. For
+	 * {@link ConverterDirection#IMAGE_TO_FILES}, the image is the raw file and
+	 * the file name of every specified target file is prefixed with the name of
+	 * the image without its extension, so "ship.png" and the template target file
+	 * "out/charset.chr" result in "out/ship.charset.chr".
+	 * 
+	 * @param file     The raw source file or image, not <code>null</code>.
+	 * @param template The template parameters, not <code>null</code>.
+	 * @return The new converter data, not <code>null</code>.
+	 */
+	public ConverterData createConversion(IFile file, ConverterParameters template) {
+		if (file == null) {
+			throw new IllegalArgumentException("Parameter 'file' must not be null.");
+		}
+		if (template == null) {
+			throw new IllegalArgumentException("Parameter 'template' must not be null.");
+		}
+		ConverterData data = new ConverterData();
+		data.setFile(file);
+		ConverterParameters parameters = data.getParameters();
+		template.copyTo(parameters);
+		// The palette colors array would otherwise be shared with the template.
+		FilesConverterParameters filesConverterParameters = parameters.getFilesConverterParameters();
+		filesConverterParameters.setPaletteRGBs(filesConverterParameters.getPaletteRGBs().clone());
+
+		String fileName = file.getName();
+		switch (template.getConverterDirection()) {
+		case FILES_TO_IMAGE:
+			data.setConverterMode(ConverterMode.RAW_FILE);
+			filesConverterParameters.setDefaultSourceFilePath(fileName);
+			filesConverterParameters.setImageFilePath(fileName + ".png");
+			break;
+		case IMAGE_TO_FILES:
+			data.setConverterMode(ConverterMode.RAW_IMAGE);
+			ImageConverterParameters imageConverterParameters = parameters.getImageConverterParameters();
+			imageConverterParameters.setImageFilePath(fileName);
+			String baseName = file.getFullPath().removeFileExtension().lastSegment();
+			for (int i = 0; i < imageConverterParameters.getTargetFilesSize(); i++) {
+				TargetFile targetFile = imageConverterParameters.getTargetFile(i);
+				if (StringUtility.isSpecified(targetFile.getPath())) {
+					IPath targetFilePath = Path.fromPortableString(targetFile.getPath());
+					targetFilePath = targetFilePath.removeLastSegments(1)
+							.append(baseName + "." + targetFilePath.lastSegment());
+					targetFile.setPath(targetFilePath.toPortableString());
+				}
+			}
+			break;
+		default:
+			throw new RuntimeException("Unknown converter direction '" + template.getConverterDirection() + "'.");
+		}
+		return data;
+	}
+
+	/**
+	 * Runs the conversions in parallel. The converter console receives a summary
+	 * with the result and timing per file.
+	 * 
+	 * @param conversions The converter data created by
+	 *                    {@link #createConversion(IFile)} or
+	 *                    {@link #createConversion(IFile, ConverterParameters)},
+	 *                    may be empty, not <code>null</code>.
+	 * @param concurrency The maximum number of conversions run in parallel, a
+	 *                    positive integer.
+	 * @param monitor     The progress monitor, not <code>null</code>.
+	 * @return The list of results in the order of the conversions, not
+	 *         <code>null</code>.
+	 * 
+	 * @throws OperationCanceledException If the progress monitor was canceled.
+	 */
+	public List<Result> convert(List<ConverterData> conversions, int concurrency, IProgressMonitor monitor) {
+		if (conversions == null) {
+			throw new IllegalArgumentException("Parameter 'conversions' must not be null.");
+		}
+		if (concurrency < 1) {
+			throw new IllegalArgumentException(
+					"Parameter 'concurrency' must be positive. Specified value is " + concurrency + ".");
+		}
+		if (monitor == null) {
+			throw new IllegalArgumentException("Parameter 'monitor' must not be null.");
+		}
+
+		long startTimeMillis = System.currentTimeMillis();
+		monitor.beginTask(Texts.BATCH_CONVERSION_JOB_NAME, conversions.size());
+
+		final ConverterConsole converterConsole = plugin.getConverterConsole();
+		synchronized (converterConsole) {
+			converterConsole.println("");
+			converterConsole.println("Converting " + conversions.size() + " files with up to " + concurrency
+					+ " parallel conversions on " + new SimpleDateFormat().format(new Date()) + ".");
+		}
+
+		List<ParallelExecutor.Task<Result>> tasks = new ArrayList<ParallelExecutor.Task<Result>>(conversions.size());
+		for (final ConverterData data : conversions) {
+			tasks.add(new ParallelExecutor.Task<Result>() {
+
+				@Override
+				public String getName() {
+					return TextUtility.format(Texts.BATCH_CONVERSION_TASK_NAME, data.getFile().getFullPath().toString());
+				}
+
+				@Override
+				public Result execute() {
+					Result result = new Result(data.getFile());
+					long fileStartTimeMillis = System.currentTimeMillis();
+					MessageQueue messageQueue = new MessageQueue();
+					try {
+						convertFile(data, messageQueue, result);
+					} catch (RuntimeException ex) {
+						plugin.logError("Cannot convert '{0}'", new Object[] { data.getFile().getFullPath() }, ex);
+						messageQueue.sendMessage(0, IStatus.ERROR, "{0}",
+								String.valueOf(ex.getMessage() == null ? ex.getClass().getName() : ex.getMessage()));
+						result.success = false;
+					}
+					result.durationMillis = System.currentTimeMillis() - fileStartTimeMillis;
+					result.messages = Collections
+							.unmodifiableList(new ArrayList<MessageQueue.Entry>(messageQueue.getEntries()));
+					return result;
+				}
+			});
+		}
+
+		try {
+			List<Result> results = ParallelExecutor.execute(tasks, concurrency,
+					ConverterBatchConversion.class.getName(), Thread.NORM_PRIORITY, monitor);
+			printSummary(converterConsole, results, System.currentTimeMillis() - startTimeMillis);
+			return results;
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Loads, converts and saves a single conversion.
+	 * 
+	 * @param data         The converter data, not <code>null</code>.
+	 * @param messageQueue The message queue of the conversion, not
+	 *                     <code>null</code>.
+	 * @param result       The result to be filled, not <code>null</code>.
+	 */
+	private static void convertFile(ConverterData data, MessageQueue messageQueue, Result result) {
+		ConverterDataLogic converterDataLogic = new ConverterDataLogic(messageQueue);
+		if (data.getConverterMode() == ConverterMode.CNV) {
+			converterDataLogic.load(data);
+		} else {
+			converterDataLogic.loadSources(data, false);
+		}
+		result.converterDirection = data.getConverterDirection();
+		result.converterId = data.getParameters().getConverterCommonParameters().getConverterId();
+		if (messageQueue.containsError()) {
+			return;
+		}
+		result.success = converterDataLogic.saveTargets(data) && !messageQueue.containsError();
+	}
+
+	/**
+	 * Prints the summary with the result and timing per file. The errors of
+	 * failed conversions are printed below the file.
+	 * 
+	 * @param converterConsole The converter console, not <code>null</code>.
+	 * @param results          The results, not <code>null</code>.
+	 * @param durationMillis   The total duration in milliseconds.
+	 */
+	private static void printSummary(ConverterConsole converterConsole, List<Result> results, long durationMillis) {
+		int successCount = 0;
+		long sumDurationMillis = 0;
+		StringBuilder builder = new StringBuilder();
+		builder.append("\nConversion summary:\n");
+		for (Result result : results) {
+			if (result.success) {
+				successCount++;
+			}
+			sumDurationMillis += result.durationMillis;
+			builder.append(result.success ? "OK    " : "FAILED");
+			builder.append(" ").append(String.format("%6d ms", Long.valueOf(result.durationMillis)));
+			builder.append(" ").append(result.converterDirection == null ? "" : result.converterDirection.name());
+			builder.append(" ").append(result.file.getFullPath().toString());
+			if (StringUtility.isSpecified(result.converterId)) {
+				builder.append(" (").append(result.converterId).append(")");
+			}
+			builder.append("\n");
+			if (!result.success) {
+				for (MessageQueue.Entry entry : result.messages) {
+					if (entry.getSeverity() == IStatus.ERROR) {
+						builder.append("       ")
+								.append(TextUtility.format(entry.getMessage(), entry.getParameters())).append("\n");
+					}
+				}
+			}
+		}
+		builder.append(successCount + " of " + results.size() + " files converted successfully in " + durationMillis
+				+ " ms (" + sumDurationMillis + " ms sequential).");
+		synchronized (converterConsole) {
+			converterConsole.println(builder.toString());
+		}
+	}
+}
@@ -0,0 +1,234 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.wudsn.ide.gfx.converter;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+
+import com.wudsn.ide.base.common.MessageQueue;
+import com.wudsn.ide.base.common.TextUtility;
+import com.wudsn.ide.gfx.model.ConverterDirection;
+
+/**
+ * Headless application for {@link ConverterBatchConversion}. It is started
+ * with "-application com.wudsn.ide.gfx.ConverterBatchConversion" and the
+ * workspace containing the files as "-data". The arguments are the folders or
+ * files to be converted, either as workspace paths or as file system
+ * locations. Without "-template", the conversion files in the folders are
+ * converted. With "-template", the images or raw files in the folders are
+ * converted with the converter and the parameters of the template conversion
+ * file. The result of every file is printed to the standard output. The exit
+ * code is {@link #EXIT_FAILED} if at least one conversion failed.
+ * 
+ * @author Peter Dell
+ * 
+ * @since 1.7.2
+ */
+public final class ConverterBatchConversionApplication implements IApplication {
+
+	/**
+	 * Exit code if at least one conversion failed.
+	 */
+	public static final Integer EXIT_FAILED = Integer.valueOf(1);
+
+	/**
+	 * Exit code if the arguments are invalid.
+	 */
+	public static final Integer EXIT_INVALID_ARGUMENTS = Integer.valueOf(2);
+
+	private static final String TEMPLATE = "-template";
+	private static final String CONVERTER = "-converter";
+	private static final String EXTENSIONS = "-extensions";
+	private static final String CONCURRENCY = "-concurrency";
+
+	/**
+	 * Creation is public. Called by the application container.
+	 */
+	public ConverterBatchConversionApplication() {
+	}
+
+	@Override
+	public Object start(IApplicationContext context) throws Exception {
+		String[] args = (String[]) context.getArguments().get(IApplicationContext.APPLICATION_ARGS);
+		if (args == null) {
+			args = new String[0];
+		}
+		PrintStream out = System.out;
+		PrintStream err = System.err;
+
+		IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+		IFile templateFile = null;
+		String converterId = null;
+		List<String> fileExtensions = new ArrayList<String>();
+		int concurrency = ConverterBatchConversion.getDefaultConcurrency();
+		List<IResource> resources = new ArrayList<IResource>();
+		try {
+			for (int i = 0; i < args.length; i++) {
+				String arg = args[i];
+				if (arg.equals(TEMPLATE) || arg.equals(CONVERTER) || arg.equals(EXTENSIONS)
+						|| arg.equals(CONCURRENCY)) {
+					if (i + 1 == args.length) {
+						throw new IllegalArgumentException("Missing value for argument '" + arg + "'.");
+					}
+					String value = args[++i];
+					if (arg.equals(TEMPLATE)) {
+						IResource resource = getResource(root, value);
+						if (resource.getType() != IResource.FILE) {
+							throw new IllegalArgumentException("Template '" + value + "' is not a file.");
+						}
+						templateFile = (IFile) resource;
+					} else if (arg.equals(CONVERTER)) {
+						converterId = value;
+					} else if (arg.equals(EXTENSIONS)) {
+						fileExtensions.addAll(Arrays.asList(value.toLowerCase().split(",")));
+					} else {
+						try {
+							concurrency = Integer.parseInt(value);
+						} catch (NumberFormatException ex) {
+							concurrency = 0;
+						}
+						if (concurrency < 1) {
+							throw new IllegalArgumentException("Invalid concurrency '" + value + "'.");
+						}
+					}
+				} else {
+					resources.add(getResource(root, arg));
+				}
+			}
+			if (resources.isEmpty()) {
+				throw new IllegalArgumentException("No folder or file specified.");
+			}
+			if (templateFile == null && (converterId != null || !fileExtensions.isEmpty())) {
+				throw new IllegalArgumentException(
+						"Arguments '" + CONVERTER + "' and '" + EXTENSIONS + "' require argument '" + TEMPLATE + "'.");
+			}
+		} catch (IllegalArgumentException ex) {
+			err.println(ex.getMessage());
+			printUsage(err);
+			return EXIT_INVALID_ARGUMENTS;
+		}
+
+		ConverterBatchConversion converterBatchConversion = new ConverterBatchConversion();
+		List<ConverterData> conversions = new ArrayList<ConverterData>();
+		if (templateFile == null) {
+			for (IFile file : converterBatchConversion.findConversionFiles(resources)) {
+				conversions.add(converterBatchConversion.createConversion(file));
+			}
+		} else {
+			ConverterParameters template = new ConverterParameters();
+			try {
+				template.read(templateFile);
+			} catch (CoreException ex) {
+				err.println(ex.getMessage());
+				return EXIT_INVALID_ARGUMENTS;
+			}
+			if (converterId != null) {
+				template.getConverterCommonParameters().setConverterId(converterId);
+			}
+			List<IFile> files;
+			try {
+				files = converterBatchConversion.findSourceFiles(resources, template, fileExtensions);
+			} catch (IllegalArgumentException ex) {
+				err.println(ex.getMessage());
+				return EXIT_INVALID_ARGUMENTS;
+			}
+			for (IFile file : files) {
+				conversions.add(converterBatchConversion.createConversion(file, template));
+			}
+		}
+
+		List<ConverterBatchConversion.Result> results = converterBatchConversion.convert(conversions, concurrency,
+				new NullProgressMonitor());
+		Integer exitCode = EXIT_OK;
+		for (ConverterBatchConversion.Result result : results) {
+			ConverterDirection converterDirection = result.getConverterDirection();
+			out.println((result.isSuccess() ? "OK     " : "FAILED ") + result.file.getFullPath() + " "
+					+ (converterDirection == null ? "" : converterDirection.name()) + " " + result.getConverterId()
+					+ " " + result.getDurationMillis() + " ms");
+			if (!result.isSuccess()) {
+				exitCode = EXIT_FAILED;
+				for (MessageQueue.Entry entry : result.getMessages()) {
+					out.println("       " + TextUtility.format(entry.getMessage(), entry.getParameters()));
+				}
+			}
+		}
+		out.println(results.size() + " files converted.");
+		return exitCode;
+	}
+
+	@Override
+	public void stop() {
+	}
+
+	/**
+	 * Gets the existing resource for a workspace path or a file system location.
+	 * The resource is refreshed, so files created outside of the workspace are
+	 * found.
+	 * 
+	 * @param root The workspace root, not <code>null</code>.
+	 * @param path The workspace path or file system location, not
+	 *             <code>null</code>.
+	 * @return The resource, not <code>null</code>.
+	 * 
+	 * @throws IllegalArgumentException If the path does not denote a resource in
+	 *                                  the workspace.
+	 * @throws CoreException            If the resource cannot be refreshed.
+	 */
+	private static IResource getResource(IWorkspaceRoot root, String path) throws CoreException {
+		IResource resource = root.findMember(new Path(path));
+		if (resource == null) {
+			File file = new File(path).getAbsoluteFile();
+			IPath location = new Path(file.getPath());
+			resource = file.isDirectory() ? root.getContainerForLocation(location)
+					: root.getFileForLocation(location);
+		}
+		if (resource == null) {
+			throw new IllegalArgumentException("Path '" + path + "' is not located in the workspace.");
+		}
+		resource.refreshLocal(IResource.DEPTH_INFINITE, null);
+		if (!resource.exists()) {
+			throw new IllegalArgumentException("Path '" + path + "' does not exist.");
+		}
+		return resource;
+	}
+
+	/**
+	 * Prints the usage.
+	 * 
+	 * @param out The print stream, not <code>null</code>.
+	 */
+	private static void printUsage(PrintStream out) {
+		out.println("Arguments: [" + TEMPLATE + " <conversion file> [" + CONVERTER + " <converter id>] ["
+				+ EXTENSIONS + " <extension>,...]] [" + CONCURRENCY + " <count>] <folder or file>...");
+	}
+}
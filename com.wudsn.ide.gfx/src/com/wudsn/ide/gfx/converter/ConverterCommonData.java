@@ -59,6 +59,23 @@ public abstract class ConverterCommonData {
 		return result;
 	}
 
+	/**
+	 * Copies the image data and its properties to another instance.
+	 * 
+	 * @param target The target, not <code>null</code>.
+	 * 
+	 * @since 1.7.2
+	 */
+	void copyContentTo(ConverterCommonData target) {
+		if (target == null) {
+			throw new IllegalArgumentException("Parameter 'target' must not be null.");
+		}
+		target.imageDataWidth = imageDataWidth;
+		target.imageDataHeight = imageDataHeight;
+		target.imageData = imageData;
+		target.imageColorHistogram = imageColorHistogram;
+	}
+
 	public abstract boolean isCreateConversionEnabled();
 
 	public abstract boolean isValid();
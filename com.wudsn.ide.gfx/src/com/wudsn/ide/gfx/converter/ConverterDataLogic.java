@@ -19,10 +19,13 @@
 
 package com.wudsn.ide.gfx.converter;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IResource;
@@ -33,6 +36,7 @@ import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.SWTException;
 import org.eclipse.swt.graphics.ImageData;
@@ -54,6 +58,41 @@ import com.wudsn.ide.gfx.model.ConverterDirection;
 import com.wudsn.ide.gfx.model.ConverterMode;
 
 public final class ConverterDataLogic {
+
+	/**
+	 * Name of the system property which overrides the maximum number of pixels
+	 * of source and resulting images.
+	 * 
+	 * @since 1.7.2
+	 */
+	public static final String MAX_PIXELS_PROPERTY = "com.wudsn.ide.gfx.converter.maxPixels";
+
+	/**
+	 * Default maximum number of pixels of source and resulting images. The
+	 * editor displays the images as native images outside of the Java heap, so
+	 * their size is limited even if the heap is large enough.
+	 */
+	private static final long DEFAULT_MAX_PIXELS = 16 * 1024 * 1024;
+
+	/**
+	 * Memory which is kept free for the editor and the converters when large
+	 * images are created.
+	 */
+	private static final long MEMORY_RESERVE = 64 * 1024 * 1024;
+
+	/**
+	 * Memory per pixel for the working copies besides the image data. The
+	 * converter scripts and the tile sets copy the pixels to int arrays and the
+	 * tile sets count the colors of every tile line.
+	 */
+	private static final long WORKING_COPY_BYTES_PER_PIXEL = 24;
+
+	/**
+	 * Memory per distinct color for the color histogram of direct palette
+	 * images. The hash table has up to four slots with two int values per color.
+	 */
+	private static final long HISTOGRAM_BYTES_PER_COLOR = 32;
+
 	private MessageQueue messageQueue;
 	private FilesConverterDataLogic filesConverterDataLogic;
 
@@ -62,7 +101,7 @@ public final class ConverterDataLogic {
 	 * 
 	 * @author Peter Dell
 	 */
-	private static final class ImageExtensions {
+	static final class ImageExtensions {
 		public static final String CNV = "cnv";
 		public static final String BMP = "bmp";
 		public static final String ICO = "ico";
@@ -180,7 +219,20 @@ public final class ConverterDataLogic {
 			} else {
 				fileExtension = "";
 			}
-			filesConverterDataLogic.findDefaultFileConverter(filesConverterData, bytes, fileExtension);
+			List<ConverterDefinition> candidateDefinitions = filesConverterDataLogic
+					.findDefaultFileConverter(filesConverterData, bytes, fileExtension);
+			if (candidateDefinitions.size() > 1) {
+				StringBuilder builder = new StringBuilder();
+				for (ConverterDefinition candidateDefinition : candidateDefinitions) {
+					if (builder.length() > 0) {
+						builder.append(", ");
+					}
+					builder.append(candidateDefinition.getName());
+				}
+				messageQueue.sendMessage(ConverterCommonParameters.MessageIds.CONVERTER_ID, IStatus.INFO,
+						"{0} converters match the file content, best match first: {1}",
+						String.valueOf(candidateDefinitions.size()), builder.toString());
+			}
 
 		}
 	}
@@ -266,6 +318,63 @@ public final class ConverterDataLogic {
 		}
 	}
 
+	/**
+	 * Creates a copy of the file, the mode and the parameters of the converter
+	 * data. The copy can be loaded and converted in a background thread while the
+	 * original is still being edited. Use
+	 * {@link #copyConversionResult(ConverterData, ConverterData)} to transfer the
+	 * result back.
+	 * 
+	 * @param data The converter data, not <code>null</code>.
+	 * @return The new converter data, not <code>null</code>.
+	 * 
+	 * @since 1.7.2
+	 */
+	public ConverterData createSnapshot(ConverterData data) {
+		if (data == null) {
+			throw new IllegalArgumentException("Parameter 'data' must not be null.");
+		}
+		ConverterData result = new ConverterData();
+		result.setFile(data.getFile());
+		result.setConverterMode(data.getConverterMode());
+		data.getParameters().copyTo(result.getParameters());
+		// The palette colors array is shared by the copy and edited in place.
+		FilesConverterParameters filesConverterParameters = result.getParameters().getFilesConverterParameters();
+		filesConverterParameters.setPaletteRGBs(filesConverterParameters.getPaletteRGBs().clone());
+		return result;
+	}
+
+	/**
+	 * Copies the loaded and converted content of a snapshot back to the converter
+	 * data it was created from. Of the parameters, only the palette colors and the
+	 * script are copied, because the conversion adapts them. The caller must
+	 * ensure the other parameters have not been changed since the snapshot was
+	 * created.
+	 * 
+	 * @param snapshot The snapshot created by
+	 *                 {@link #createSnapshot(ConverterData)}, not
+	 *                 <code>null</code>.
+	 * @param data     The converter data, not <code>null</code>.
+	 * 
+	 * @since 1.7.2
+	 */
+	public void copyConversionResult(ConverterData snapshot, ConverterData data) {
+		if (snapshot == null) {
+			throw new IllegalArgumentException("Parameter 'snapshot' must not be null.");
+		}
+		if (data == null) {
+			throw new IllegalArgumentException("Parameter 'data' must not be null.");
+		}
+		ConverterParameters snapshotParameters = snapshot.getParameters();
+		ConverterParameters parameters = data.getParameters();
+		parameters.getFilesConverterParameters()
+				.setPaletteRGBs(snapshotParameters.getFilesConverterParameters().getPaletteRGBs());
+		parameters.getImageConverterParameters()
+				.setScript(snapshotParameters.getImageConverterParameters().getScript());
+		snapshot.getFilesConverterData().copyContentTo(data.getFilesConverterData());
+		snapshot.getImageConverterData().copyContentTo(data.getImageConverterData());
+	}
+
 	public ConverterData createConversion(ConverterData data) {
 		if (data == null) {
 			throw new IllegalArgumentException("Parameter 'data' must not be null.");
@@ -319,12 +428,20 @@ public final class ConverterDataLogic {
 		return saveFile;
 	}
 
-	public void saveTargets(ConverterData data) {
+	/**
+	 * Converts the loaded sources and saves the resulting image or target files.
+	 * 
+	 * @param data The converter data, not <code>null</code>.
+	 * @return <code>true</code> if the conversion was successful and all targets
+	 *         were saved, <code>false</code> otherwise.
+	 */
+	public boolean saveTargets(ConverterData data) {
 		if (data == null) {
 			throw new IllegalArgumentException("Parameter 'data' must not be null.");
 		}
 		IPath filePathPrefix;
 		IPath filePath;
+		boolean saved = false;
 		if (convert(data)) {
 			switch (data.getConverterDirection()) {
 			case FILES_TO_IMAGE:
@@ -335,7 +452,7 @@ public final class ConverterDataLogic {
 				filePathPrefix = filesConverterData.getFilePathPrefix();
 				filePath = Path.fromPortableString(filesConverterData.getParameters().getImageFilePath());
 				filePath = IPathUtility.makeAbsolute(filePath, filePathPrefix, false);
-				saveTargetImage(FilesConverterParameters.MessageIds.IMAGE_FILE_PATH, filePath,
+				saved = saveTargetImage(FilesConverterParameters.MessageIds.IMAGE_FILE_PATH, filePath,
 						filesConverterData.getImageData());
 				break;
 			case IMAGE_TO_FILES:
@@ -347,7 +464,7 @@ public final class ConverterDataLogic {
 				filePathPrefix = imageConverterData.getFilePathPrefix();
 				int size = imageConverterData.getConverter().getDefinition().getTargetFileDefinitions().size();
 				int minSize = Math.min(size, imageConverterParameters.getTargetFilesSize());
-				boolean saved = true;
+				saved = true;
 				for (int i = 0; i < minSize; i++) {
 					TargetFile targetFile = imageConverterParameters.getTargetFile(i);
 					filePath = Path.fromPortableString(targetFile.getPath());
@@ -369,6 +486,7 @@ public final class ConverterDataLogic {
 
 			}
 		}
+		return saved;
 	}
 
 	/**
@@ -428,18 +546,18 @@ public final class ConverterDataLogic {
 		return result;
 	}
 
-	private void saveTargetImage(int messageId, IPath filePath, ImageData imageData) {
+	private boolean saveTargetImage(int messageId, IPath filePath, ImageData imageData) {
 		if (filePath == null) {
 			throw new IllegalArgumentException("Parameter 'filePath' must not be null.");
 		}
 		if (filePath.isEmpty()) {
 			messageQueue.sendMessage(messageId, IStatus.ERROR, "No image path specified");
-			return;
+			return false;
 		}
 		if (imageData == null) {
 			messageQueue.sendMessage(messageId, IStatus.ERROR,
 					"Image {0} not saved as there is no data for this image", filePath.toPortableString());
-			return;
+			return false;
 		}
 
 		ImageLoader imageLoader = new ImageLoader();
@@ -449,7 +567,7 @@ public final class ConverterDataLogic {
 			messageQueue.sendMessage(messageId, IStatus.ERROR,
 					"Image {0} not saved as there is the extension cannot be mapped to a supported image format",
 					filePath.toPortableString());
-			return;
+			return false;
 		}
 
 		boolean success = false;
@@ -475,6 +593,7 @@ public final class ConverterDataLogic {
 		if (success) {
 			messageQueue.sendMessage(messageId, IStatus.INFO, "Image {0} saved", filePath.toPortableString());
 		}
+		return success;
 	}
 
 	private ImageData loadSourceImage(int messageId, IPath filePath) {
@@ -484,6 +603,11 @@ public final class ConverterDataLogic {
 		ImageData imageData = null;
 		if (!filePath.isEmpty()) {
 			IFile file = ResourcesPlugin.getWorkspace().getRoot().getFile(filePath);
+			SourceFileCache sourceFileCache = SourceFileCache.getInstance();
+			imageData = sourceFileCache.getImageData(file);
+			if (imageData != null) {
+				return imageData;
+			}
 
 			InputStream is;
 			try {
@@ -496,8 +620,18 @@ public final class ConverterDataLogic {
 			if (is != null) {
 				try {
 					try {
-						imageData = new ImageData(is);
-
+						// Check the size from the header before the whole image is
+						// decoded into memory.
+						is = new BufferedInputStream(is, ImageFileHeader.MAX_HEADER_SIZE);
+						ImageFileHeader imageFileHeader = ImageFileHeader.read(is);
+						if (imageFileHeader == null || checkMemory(messageId, "Image file",
+								imageFileHeader.width, imageFileHeader.height, 32)) {
+							imageData = new ImageData(is);
+							sourceFileCache.putImageData(file, imageData);
+						}
+					} catch (IOException ex) {
+						messageQueue.sendMessage(messageId, IStatus.ERROR,
+								"Cannot open image file. " + ex.getMessage());
 					} catch (SWTException ex) {
 						messageQueue.sendMessage(messageId, IStatus.ERROR,
 								"Cannot open image file. " + ex.getMessage());
@@ -526,8 +660,12 @@ public final class ConverterDataLogic {
 		if (!filePath.isEmpty()) {
 			try {
 				IFile file = ResourcesPlugin.getWorkspace().getRoot().getFile(filePath);
-
-				result = FileUtility.readBytes(file, FileUtility.MAX_SIZE_1MB, true);
+				SourceFileCache sourceFileCache = SourceFileCache.getInstance();
+				result = sourceFileCache.getBytes(file);
+				if (result == null) {
+					result = FileUtility.readBytes(file, FileUtility.MAX_SIZE_1MB, true);
+					sourceFileCache.putBytes(file, result);
+				}
 			} catch (CoreException ex) {
 				messageQueue.sendMessage(messageId, ex);
 				result = null;
@@ -542,21 +680,107 @@ public final class ConverterDataLogic {
 		return result;
 	}
 
+	/**
+	 * Gets the maximum number of pixels of source and resulting images. This is
+	 * {@link #DEFAULT_MAX_PIXELS} unless it is overridden by the system property
+	 * {@link #MAX_PIXELS_PROPERTY}.
+	 * 
+	 * @return The maximum number of pixels, a positive long.
+	 */
+	private static long getMaxPixels() {
+		long maxPixels = DEFAULT_MAX_PIXELS;
+		String value = System.getProperty(MAX_PIXELS_PROPERTY);
+		if (value != null && StringUtility.isSpecified(value)) {
+			try {
+				maxPixels = Long.parseLong(value.trim());
+			} catch (NumberFormatException ex) {
+				GraphicsPlugin.getInstance().logError("Invalid value '{0}' for system property '{1}'",
+						new Object[] { value, MAX_PIXELS_PROPERTY }, ex);
+			}
+		}
+		return Math.max(1, maxPixels);
+	}
+
+	/**
+	 * Checks if an image of the specified size is within the maximum number of
+	 * pixels and if the memory for the image, the working copies of the
+	 * converters and the color histogram is available.
+	 * 
+	 * @param messageId    The message id for the error message.
+	 * @param subject      The subject for the error message, not
+	 *                     <code>null</code>.
+	 * @param width        The width of the image in pixels.
+	 * @param height       The height of the image in pixels.
+	 * @param bitsPerPixel The number of bits per pixel.
+	 * @return <code>true</code> if the memory is available, <code>false</code>
+	 *         if an error message was sent.
+	 */
+	private boolean checkMemory(int messageId, String subject, int width, int height, int bitsPerPixel) {
+		long pixels = (long) width * height;
+		long maxPixels = getMaxPixels();
+		if (pixels > maxPixels) {
+			messageQueue.sendMessage(messageId, IStatus.ERROR,
+					"{0} with {1}x{2} pixels exceeds the limit of {3} pixels defined by the system property '{4}'",
+					subject, String.valueOf(width), String.valueOf(height), String.valueOf(maxPixels),
+					MAX_PIXELS_PROPERTY);
+			return false;
+		}
+
+		// Scan lines are padded to full 32 bit words.
+		long requiredBytes = ((long) width * bitsPerPixel + 31) / 32 * 4 * height;
+		requiredBytes += pixels * WORKING_COPY_BYTES_PER_PIXEL;
+		if (bitsPerPixel > 8) {
+			// Every pixel of a direct palette image may have a distinct color.
+			requiredBytes += Math.min(pixels, 1 << 24) * HISTOGRAM_BYTES_PER_COLOR;
+		}
+		Runtime runtime = Runtime.getRuntime();
+		long availableBytes = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory()) - MEMORY_RESERVE;
+		if (requiredBytes > availableBytes) {
+			long megaByte = 1024 * 1024;
+			messageQueue.sendMessage(messageId, IStatus.ERROR,
+					"{0} with {1}x{2} pixels would require {3} MB of memory, but only {4} MB are available", subject,
+					String.valueOf(width), String.valueOf(height), String.valueOf(requiredBytes / megaByte),
+					String.valueOf(Math.max(0, availableBytes / megaByte)));
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Converts the sources loaded into the converter data to the targets.
+	 * 
+	 * @param data The converter data, not <code>null</code>.
+	 * @return <code>true</code> if the conversion was successful.
+	 */
 	public boolean convert(ConverterData data) {
+		return convert(data, null);
+	}
+
+	/**
+	 * Converts the sources loaded into the converter data to the targets and
+	 * reports the progress of the conversion phases.
+	 * 
+	 * @param data    The converter data, not <code>null</code>.
+	 * @param monitor The progress monitor or <code>null</code>. If the monitor is
+	 *                canceled, the conversion stops after the current phase.
+	 * @return <code>true</code> if the conversion was successful.
+	 */
+	public boolean convert(ConverterData data, IProgressMonitor monitor) {
 		if (data == null) {
 			throw new IllegalArgumentException("Parameter 'data' must not be null.");
 		}
 		ConverterDirection converterDirection;
 		converterDirection = data.getConverterDirection();
+		SubMonitor subMonitor = SubMonitor.convert(monitor, 3);
 		boolean result;
 		switch (converterDirection) {
 
 		case FILES_TO_IMAGE:
-			result = convertFilesToImage(data);
+			result = convertFilesToImage(data, subMonitor);
 			break;
 
 		case IMAGE_TO_FILES:
-			result = convertImageToFiles(data);
+			result = convertImageToFiles(data, subMonitor);
 			break;
 
 		default:
@@ -565,7 +789,7 @@ public final class ConverterDataLogic {
 		return result;
 	}
 
-	private boolean convertImageToFiles(ConverterData data) {
+	private boolean convertImageToFiles(ConverterData data, SubMonitor subMonitor) {
 		if (data == null) {
 			throw new IllegalArgumentException("Parameter 'data' must not be null.");
 		}
@@ -593,6 +817,7 @@ public final class ConverterDataLogic {
 			imageConverterData.setImageColorHistogram(imageColorHistogram);
 
 		}
+		subMonitor.worked(1);
 
 		imageConverterData.setImageDataWidth(imageConverterData.getImageData().width);
 		imageConverterData.setImageDataHeight(imageConverterData.getImageData().height);
@@ -612,9 +837,10 @@ public final class ConverterDataLogic {
 			return false;
 		}
 
-		if (messageQueue.containsError()) {
+		if (messageQueue.containsError() || subMonitor.isCanceled()) {
 			return false;
 		}
+		subMonitor.worked(1);
 
 		// Default the script if none is specified.
 		if (StringUtility.isEmpty(imageConverterParameters.getScript())) {
@@ -635,6 +861,7 @@ public final class ConverterDataLogic {
 			}
 
 			ConverterScript.convertToFileData(converter, imageConverterData);
+			subMonitor.worked(1);
 		} catch (CoreException ex) {
 			messageQueue.sendMessage(ConverterCommonParameters.MessageIds.CONVERTER_ID, ex);
 			return false;
@@ -650,7 +877,7 @@ public final class ConverterDataLogic {
 		return true;
 	}
 
-	private boolean convertFilesToImage(ConverterData data) {
+	private boolean convertFilesToImage(ConverterData data, SubMonitor subMonitor) {
 		if (data == null) {
 			throw new IllegalArgumentException("Parameter 'data' must not be null.");
 		}
@@ -715,23 +942,27 @@ public final class ConverterDataLogic {
 					String.valueOf(filesConverterData.getImageDataWidth()));
 		}
 
-		int MAX_PIXELS = 1000 * 1000;
-		int pixels = filesConverterData.getImageDataWidth() * filesConverterData.getImageDataHeight();
-		if (pixels > MAX_PIXELS) {
-			messageQueue.sendMessage(FilesConverterParameters.MessageIds.ROWS, IStatus.ERROR,
-					"Resulting image would have {0} pixels and exceed the memory limit of {1} pixels",
-					String.valueOf(pixels), String.valueOf(MAX_PIXELS));
+		if (messageQueue.containsError()) {
+			return false;
 		}
 
-		if (messageQueue.containsError()) {
+		// The size is limited by the available memory instead of a fixed number
+		// of pixels, so large tile sheets and maps can be converted.
+		int paletteSize;
+		paletteSize = filesConverterData.getConverter().getDefinition().getTargetImagePaletteSize();
+		if (!checkMemory(FilesConverterParameters.MessageIds.ROWS, "Resulting image",
+				filesConverterData.getImageDataWidth(), filesConverterData.getImageDataHeight(),
+				paletteSize > 0 ? 8 : 24)) {
+			return false;
+		}
+		if (subMonitor.isCanceled()) {
 			return false;
 		}
+		subMonitor.worked(1);
 
 		// Create index or direct palette and image data.
 		PaletteData paletteData;
 		ImageData imageData;
-		int paletteSize;
-		paletteSize = filesConverterData.getConverter().getDefinition().getTargetImagePaletteSize();
 		if (paletteSize > 0) {
 			// Create 8 bit index palette.
 			RGB[] paletteColors = new RGB[paletteSize];
@@ -754,11 +985,8 @@ public final class ConverterDataLogic {
 			paletteData = new PaletteData(actualPaletteColors);
 			imageData = new ImageData(filesConverterData.getImageDataWidth(), filesConverterData.getImageDataHeight(),
 					8, paletteData);
-			for (int y = 0; y < filesConverterData.getImageDataHeight(); y++) {
-				for (int x = 0; x < filesConverterData.getImageDataWidth(); x++) {
-					imageData.setPixel(x, y, spacingColorIndex);
-				}
-			}
+			// With 8 bit depth every byte of the scan lines is one pixel.
+			Arrays.fill(imageData.data, (byte) spacingColorIndex);
 		} else {
 			// Create 24 bit direct palette.
 			paletteData = new PaletteData(0xFF0000, 0xFF00, 0xFF);
@@ -774,10 +1002,15 @@ public final class ConverterDataLogic {
 			conversionResult = false;
 		}
 		filesConverterData.setImageDataValid(conversionResult);
+		if (subMonitor.isCanceled()) {
+			return false;
+		}
+		subMonitor.worked(1);
 
 		ImageColorHistogram imageColorHistogram = new ImageColorHistogram();
 		imageColorHistogram.analyze(imageData);
 		filesConverterData.setImageColorHistogram(imageColorHistogram);
+		subMonitor.worked(1);
 		return conversionResult;
 	}
 }
@@ -127,6 +127,18 @@ public final class ConverterDefinition implements Comparable<ConverterDefinition
 		}
 	}
 
+	/**
+	 * Gets the supported source file extensions.
+	 * 
+	 * @return The unmodifiable list of source file extensions in lower case
+	 *         characters, may be empty, not <code>null</code>.
+	 * 
+	 * @since 1.7.2
+	 */
+	final List<String> getSourceFileExtensions() {
+		return Collections.unmodifiableList(sourceFileExtensions);
+	}
+
 	/**
 	 * Determines if a given file extension is supported.
 	 * 
@@ -65,6 +65,11 @@ public final class ConverterRegistry {
 	private List<ConverterDefinition> filesToImageConverterDefinitionList;
 	private List<ConverterDefinition> imageToFilesConverterDefinitionList;
 
+	/**
+	 * The files to image converter definitions by their source file extensions.
+	 */
+	private Map<String, List<ConverterDefinition>> filesToImageConverterDefinitionListMap;
+
 	/**
 	 * The cached map of converter instances.
 	 */
@@ -76,6 +81,7 @@ public final class ConverterRegistry {
 	public ConverterRegistry() {
 		filesToImageConverterDefinitionList = Collections.emptyList();
 		imageToFilesConverterDefinitionList = Collections.emptyList();
+		filesToImageConverterDefinitionListMap = Collections.emptyMap();
 		converterMap = Collections.emptyMap();
 
 	}
@@ -156,6 +162,24 @@ public final class ConverterRegistry {
 		Collections.sort(filesToImageConverterDefinitionList);
 		filesToImageConverterDefinitionList = Collections.unmodifiableList(filesToImageConverterDefinitionList);
 
+		// Index the sorted list by the source file extensions.
+		filesToImageConverterDefinitionListMap = new TreeMap<String, List<ConverterDefinition>>();
+		for (ConverterDefinition converterDefinition : filesToImageConverterDefinitionList) {
+			for (String sourceFileExtension : converterDefinition.getSourceFileExtensions()) {
+				List<ConverterDefinition> list = filesToImageConverterDefinitionListMap.get(sourceFileExtension);
+				if (list == null) {
+					list = new ArrayList<ConverterDefinition>(1);
+					filesToImageConverterDefinitionListMap.put(sourceFileExtension, list);
+				}
+				list.add(converterDefinition);
+			}
+		}
+		for (Map.Entry<String, List<ConverterDefinition>> entry : filesToImageConverterDefinitionListMap
+				.entrySet()) {
+			entry.setValue(Collections.unmodifiableList(entry.getValue()));
+		}
+		filesToImageConverterDefinitionListMap = Collections.unmodifiableMap(filesToImageConverterDefinitionListMap);
+
 		// Create a sorted, unmodifiable copy.
 		imageToFilesConverterDefinitionList = new ArrayList<ConverterDefinition>(imageToFilesConverterDefinitionList);
 		Collections.sort(imageToFilesConverterDefinitionList);
@@ -219,6 +243,29 @@ public final class ConverterRegistry {
 		}
 	}
 
+	/**
+	 * Gets the unmodifiable list of files to image converter definitions which
+	 * support a source file extension.
+	 * 
+	 * @param sourceFileExtension The source file extension in lower case
+	 *                            characters, may be empty, not <code>null</code>.
+	 * 
+	 * @return The unmodifiable list of converter definitions, sorted by their id,
+	 *         may be empty, not <code>null</code>.
+	 * 
+	 * @since 1.7.2
+	 */
+	public List<ConverterDefinition> getFilesToImageDefinitions(String sourceFileExtension) {
+		if (sourceFileExtension == null) {
+			throw new IllegalArgumentException("Parameter 'sourceFileExtension' must not be null.");
+		}
+		List<ConverterDefinition> result = filesToImageConverterDefinitionListMap.get(sourceFileExtension);
+		if (result == null) {
+			result = Collections.emptyList();
+		}
+		return result;
+	}
+
 	/**
 	 * Gets the converter definition for an id.
 	 * 
@@ -20,6 +20,8 @@
 package com.wudsn.ide.gfx.converter;
 
 import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IStatus;
@@ -28,13 +30,23 @@ import org.mozilla.javascript.Context;
 import org.mozilla.javascript.ContextFactory;
 import org.mozilla.javascript.Function;
 import org.mozilla.javascript.RhinoException;
+import org.mozilla.javascript.Script;
 import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
 
 import com.wudsn.ide.base.common.FileUtility;
 import com.wudsn.ide.gfx.GraphicsPlugin;
 
 /**
- * Converter script utility class.
+ * Converter script utility class. Scripts are compiled only once per script
+ * text and executed in a new scope on top of shared, sealed standard objects
+ * for every conversion.
+ * 
+ * The function "convertToFileData" of the script is called with the
+ * {@link ImageConverterData} as first argument and a read-only array with the
+ * pixel color values of the image as second argument. The pixel at (x,y) has
+ * the index "y * data.getImageDataWidth() + x" in the array. Reading from the
+ * array is much faster than calling "data.getPixel(x,y)" for every pixel.
  * 
  * @author Peter Dell
  * 
@@ -42,50 +54,121 @@ import com.wudsn.ide.gfx.GraphicsPlugin;
  */
 public final class ConverterScript {
 
+	/**
+	 * The maximum number of compiled scripts which are kept.
+	 */
+	private static final int MAX_COMPILED_SCRIPTS = 32;
+
+	private static ScriptableObject sharedScope;
+	private static final Map<String, Script> compiledScripts = new LinkedHashMap<String, Script>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Script> eldest) {
+			return size() > MAX_COMPILED_SCRIPTS;
+		}
+	};
+
+	/**
+	 * Read-only JavaScript array on top of the pixel color values of the image.
+	 * The values are read directly from the Java array when they are accessed, so
+	 * neither the array is copied nor all values are converted in advance.
+	 */
+	private static final class PixelsArray extends ScriptableObject {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int[] pixels;
+
+		/**
+		 * Creates a new instance.
+		 * 
+		 * @param scope  The current scope, not <code>null</code>.
+		 * @param pixels The pixel color values, not <code>null</code>.
+		 */
+		PixelsArray(Scriptable scope, int[] pixels) {
+			super(scope, ScriptableObject.getArrayPrototype(scope));
+			this.pixels = pixels;
+		}
+
+		@Override
+		public String getClassName() {
+			return "Array";
+		}
+
+		@Override
+		public boolean has(int index, Scriptable start) {
+			return index >= 0 && index < pixels.length;
+		}
+
+		@Override
+		public Object get(int index, Scriptable start) {
+			if (index >= 0 && index < pixels.length) {
+				return Integer.valueOf(pixels[index]);
+			}
+			return Scriptable.NOT_FOUND;
+		}
+
+		@Override
+		public Object get(String name, Scriptable start) {
+			if (name.equals("length")) {
+				return Integer.valueOf(pixels.length);
+			}
+			return super.get(name, start);
+		}
+
+		@Override
+		public void put(int index, Scriptable start, Object value) {
+			throw Context.reportRuntimeError("The pixels array is read-only.");
+		}
+
+		@Override
+		public Object[] getIds() {
+			Object[] result = new Object[pixels.length];
+			for (int i = 0; i < pixels.length; i++) {
+				result[i] = Integer.valueOf(i);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Creation is private.
+	 */
+	private ConverterScript() {
+	}
+
 	public static void convertToFileData(Converter converter, ImageConverterData data) throws CoreException {
 
 		// Collect the arguments into a single string.
 		String script = data.getParameters().getScript();
 		ConverterScriptData converterScriptData = data.getConverterScriptData();
-		ContextFactory contextFactory = ContextFactory.getGlobal();
-		Context context = null;
-		Scriptable scope = null;
 
+		// Creates and enters a new Context. The Context stores information
+		// about the execution environment of a script and is bound to the
+		// current thread.
+		Context context = ContextFactory.getGlobal().enterContext();
 		try {
-			if (!script.equals(converterScriptData.getCompiledScript())) {
-
-				if (converterScriptData.getCompiledContext() != null && Context.getCurrentContext() != null) {
-					Context.exit();
-				}
-				// Creates and enters a new Context. The Context stores
-				// information
-				// about the execution environment of a script.
-				context = contextFactory.enterContext();
-				scope = context.initStandardObjects();
-				context.setOptimizationLevel(9);
-				context.evaluateString(scope, script, "Line ", 1, null);
-				// Initialize the standard objects (Object, Function, etc.)
-				// This must be done before scripts can be executed. Returns
-				// a scope object that we use in later calls.
-				converterScriptData.setCompiledScript(script);
-				converterScriptData.setCompiledContext(context);
-				converterScriptData.setCompiledScope(scope);
-			} else {
-				// Restore the previous context.
-				context = converterScriptData.getCompiledContext();
-				contextFactory.enterContext(context);
-				scope = converterScriptData.getCompiledScope();
-			}
+			context.setOptimizationLevel(9);
+			converterScriptData.setErrorLineNumber(-1);
+			Script compiledScript = getCompiledScript(context, script);
+
+			// Every conversion has its own top level scope, so global variables
+			// of the previous conversion or another script are not visible.
+			Scriptable scope = context.newObject(getSharedScope(context));
+			scope.setPrototype(sharedScope);
+			scope.setParentScope(null);
+			compiledScript.exec(context, scope);
 
 			// Set global variables.
 			ConverterConsole converterConsole = GraphicsPlugin.getInstance().getConverterConsole();
 			scope.put("Console", scope, Context.toObject(converterConsole, scope));
 
 			// Call function
-			converterScriptData.setErrorLineNumber(-1);
 			String functionName = "convertToFileData";
 			Object functionObject = scope.get(functionName, scope);
-			if (functionObject == null) {
+			if (functionObject == null || functionObject == Scriptable.NOT_FOUND) {
 				throw new CoreException(
 						new Status(IStatus.ERROR, GraphicsPlugin.ID, "'" + functionName + "' is undefined."));
 			}
@@ -94,7 +177,7 @@ public final class ConverterScript {
 						new Status(IStatus.ERROR, GraphicsPlugin.ID, "'" + functionName + "' is not a function."));
 			}
 
-			Object functionArgs[] = { Context.toObject(data, scope) };
+			Object functionArgs[] = { Context.toObject(data, scope), new PixelsArray(scope, data.getPixels()) };
 			Function function = (Function) functionObject;
 			function.call(context, scope, scope, functionArgs);
 
@@ -109,10 +192,44 @@ public final class ConverterScript {
 
 			// Exit from the context. Remove the context association to the
 			// current thread.
-			if (Context.getCurrentContext() != null) {
-				Context.exit();
+			Context.exit();
+		}
+	}
+
+	/**
+	 * Gets the shared scope with the sealed standard objects, creating it on first
+	 * use.
+	 * 
+	 * @param context The current context, not <code>null</code>.
+	 * @return The shared scope, not <code>null</code>.
+	 */
+	private static synchronized ScriptableObject getSharedScope(Context context) {
+		if (sharedScope == null) {
+			sharedScope = context.initStandardObjects(null, true);
+		}
+		return sharedScope;
+	}
+
+	/**
+	 * Gets the compiled form of a script, compiling it if it is not yet compiled.
+	 * 
+	 * @param context The current context, not <code>null</code>.
+	 * @param script  The script, may be empty, not <code>null</code>.
+	 * @return The compiled script, not <code>null</code>.
+	 * @throws RhinoException If the script cannot be compiled.
+	 */
+	private static Script getCompiledScript(Context context, String script) {
+		Script result;
+		synchronized (compiledScripts) {
+			result = compiledScripts.get(script);
+		}
+		if (result == null) {
+			result = context.compileString(script, "Line ", 1, null);
+			synchronized (compiledScripts) {
+				compiledScripts.put(script, result);
 			}
 		}
+		return result;
 	}
 
 	/**
@@ -19,80 +19,16 @@
 
 package com.wudsn.ide.gfx.converter;
 
-import org.mozilla.javascript.Context;
-import org.mozilla.javascript.Scriptable;
-
 /**
- * Container for a compiled converter scripts and its context.
+ * Container for the state of converter script execution. The compiled scripts
+ * themselves are shared, see {@link ConverterScript}.
  * 
  * @author Peter Dell
  * @since 1.6.6
  */
 public final class ConverterScriptData {
-	private String compiledScript;
-	private Context compiledContext;
-	private Scriptable compiledScope;
 	private int errorLineNumber;
 
-	/**
-	 * Gets the compiled script for which the compiled context and scope are cached.
-	 * 
-	 * @return The compiled script, maybe be empty, not <code>null</code>.
-	 */
-	public String getCompiledScript() {
-		return compiledScript;
-	}
-
-	/**
-	 * Sets the compiled script for which the compiled context and scope are cached.
-	 * 
-	 * @param compiledScript The compiled script, may be empty, not
-	 *                       <code>null</code>.
-	 */
-	public void setCompiledScript(String compiledScript) {
-		if (compiledScript == null) {
-			throw new IllegalArgumentException("Parameter 'compiledScript' must not be null.");
-		}
-		this.compiledScript = compiledScript;
-	}
-
-	/**
-	 * Gets the compiled context which was created for the compiled script.
-	 * 
-	 * @return The compiled context or <code>null</code>.
-	 */
-	public Context getCompiledContext() {
-		return compiledContext;
-	}
-
-	/**
-	 * Sets the compiled context which was created for the compiled script.
-	 * 
-	 * @param compiledContext The compiled context or <code>null</code>.
-	 */
-	public void setCompiledContext(Context compiledContext) {
-		this.compiledContext = compiledContext;
-
-	}
-
-	/**
-	 * Gets the compiled scope which was created for the compiled script.
-	 * 
-	 * @return The compiled context or <code>null</code>.
-	 */
-	public Scriptable getCompiledScope() {
-		return compiledScope;
-	}
-
-	/**
-	 * Sets the compiled scope which was created for the compiled script.
-	 * 
-	 * @param compiledScope The compiled scope or <code>null</code>.
-	 */
-	public void setCompiledScope(Scriptable compiledScope) {
-		this.compiledScope = compiledScope;
-	}
-
 	/**
 	 * Set the line number of the first error that occurred in the script.
 	 * 
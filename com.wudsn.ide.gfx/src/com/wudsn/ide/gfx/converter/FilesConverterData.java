@@ -99,6 +99,15 @@ public final class FilesConverterData extends ConverterCommonData {
 		sourceFilesBytes.clear();
 	}
 
+	@Override
+	void copyContentTo(ConverterCommonData target) {
+		super.copyContentTo(target);
+		FilesConverterData filesConverterData = (FilesConverterData) target;
+		filesConverterData.sourceFilesBytes.clear();
+		filesConverterData.sourceFilesBytes.addAll(sourceFilesBytes);
+		filesConverterData.imageDataValid = imageDataValid;
+	}
+
 	public void setSourceFileBytes(int sourceFileId, byte[] bytes) {
 		if (sourceFileId < 0) {
 			throw new IllegalArgumentException(
@@ -164,6 +173,114 @@ public final class FilesConverterData extends ConverterCommonData {
 		return value;
 	}
 
+	/**
+	 * Gets the offset of the first byte of the source file which is converted, as
+	 * specified in the parameters. Together with
+	 * {@link #getSourceFileBytes(int)} and {@link #getSourceFileLength(int)} this
+	 * allows converters to decode the source file in bulk instead of calling
+	 * {@link #getSourceFileByte(int, int)} for every byte.
+	 * 
+	 * @param sourceFileId The id of the source file, a non-negative integer.
+	 * @return The offset of the first byte, a non-negative integer.
+	 * 
+	 * @since 1.7.2
+	 */
+	public int getSourceFileOffset(int sourceFileId) {
+		return Math.max(0, parameters.getSourceFile(sourceFileId).getOffset());
+	}
+
+	/**
+	 * Gets the number of bytes of the source file which are available for
+	 * conversion starting at {@link #getSourceFileOffset(int)}. The relative
+	 * offsets <code>0</code> to <code>length-1</code> are exactly those for which
+	 * {@link #getSourceFileByte(int, int)} does not return <code>-1</code>.
+	 * 
+	 * @param sourceFileId The id of the source file, a non-negative integer.
+	 * @return The number of bytes, a non-negative integer.
+	 * 
+	 * @since 1.7.2
+	 */
+	public int getSourceFileLength(int sourceFileId) {
+		byte[] sourceFileBytes = getSourceFileBytes(sourceFileId);
+		if (sourceFileBytes == null) {
+			return 0;
+		}
+		int offset = parameters.getSourceFile(sourceFileId).getOffset();
+		if (offset < 0) {
+			return 0;
+		}
+		return Math.max(0, sourceFileBytes.length - offset);
+	}
+
+	/**
+	 * Sets a horizontal run of palette pixels in one row. For 8 bit images the
+	 * palette color indices are copied directly into the scan line of the image
+	 * data. Pixels outside of the image are ignored.
+	 * 
+	 * @param x            The x position of the first pixel.
+	 * @param y            The y position of the row.
+	 * @param colors       The palette color indices, not <code>null</code>.
+	 * @param colorsOffset The offset of the first palette color index, a
+	 *                     non-negative integer.
+	 * @param count        The number of pixels, a non-negative integer.
+	 * 
+	 * @since 1.7.2
+	 */
+	public void setPalettePixels(int x, int y, byte[] colors, int colorsOffset, int count) {
+		if (colors == null) {
+			throw new IllegalArgumentException("Parameter 'colors' must not be null.");
+		}
+		if (y < 0 || y >= imageData.height) {
+			return;
+		}
+		if (x < 0) {
+			colorsOffset -= x;
+			count += x;
+			x = 0;
+		}
+		count = Math.min(count, imageData.width - x);
+		if (count <= 0) {
+			return;
+		}
+		if (imageData.depth == 8) {
+			System.arraycopy(colors, colorsOffset, imageData.data, y * imageData.bytesPerLine + x, count);
+		} else {
+			imageData.setPixels(x, y, count, colors, colorsOffset);
+		}
+	}
+
+	/**
+	 * Sets a horizontal run of direct pixels in one row. Pixels outside of the
+	 * image are ignored.
+	 * 
+	 * @param x            The x position of the first pixel.
+	 * @param y            The y position of the row.
+	 * @param colors       The direct RGB colors, not <code>null</code>.
+	 * @param colorsOffset The offset of the first direct RGB color, a
+	 *                     non-negative integer.
+	 * @param count        The number of pixels, a non-negative integer.
+	 * 
+	 * @since 1.7.2
+	 */
+	public void setDirectPixels(int x, int y, int[] colors, int colorsOffset, int count) {
+		if (colors == null) {
+			throw new IllegalArgumentException("Parameter 'colors' must not be null.");
+		}
+		if (y < 0 || y >= imageData.height) {
+			return;
+		}
+		if (x < 0) {
+			colorsOffset -= x;
+			count += x;
+			x = 0;
+		}
+		count = Math.min(count, imageData.width - x);
+		if (count <= 0) {
+			return;
+		}
+		imageData.setPixels(x, y, count, colors, colorsOffset);
+	}
+
 	public void setPalettePixel(int x, int y, int color) {
 		try {
 			imageData.setPixel(x, y, color);
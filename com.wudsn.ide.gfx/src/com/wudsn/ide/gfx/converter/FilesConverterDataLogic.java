@@ -18,8 +18,13 @@
  */
 package com.wudsn.ide.gfx.converter;
 
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.eclipse.swt.graphics.RGB;
 
@@ -219,8 +224,13 @@ public final class FilesConverterDataLogic {
 	 *                      <code>null</code>.
 	 * @param fileExtension The file extension of the input file, may be empty, not
 	 *                      <code>null</code>.
+	 * @return The unmodifiable list of definitions of the matching converters,
+	 *         ranked as described in
+	 *         {@link #findFileConverterCandidates(byte[], String)}, may be empty,
+	 *         not <code>null</code>.
 	 */
-	public void findDefaultFileConverter(FilesConverterData data, byte[] bytes, String fileExtension) {
+	public List<ConverterDefinition> findDefaultFileConverter(FilesConverterData data, byte[] bytes,
+			String fileExtension) {
 		if (data == null) {
 			throw new IllegalArgumentException("Parameter 'data' must not be null.");
 		}
@@ -234,45 +244,119 @@ public final class FilesConverterDataLogic {
 		int rows;
 		FilesConverterParameters parameters = data.getParameters();
 
+		List<ConverterDefinition> candidateDefinitions = findFileConverterCandidates(bytes, fileExtension);
+
+		// Use the best match.
+		if (!candidateDefinitions.isEmpty()) {
+			ConverterRegistry converterRegistry = GraphicsPlugin.getInstance().getConverterRegistry();
+			Converter converter = converterRegistry.getConverter(candidateDefinitions.get(0).getId());
+			converter.convertToImageSizeAndPalette(data, bytes);
+		} else {
+			// If nothing matched, display as hires bitmap.
+			data.getParameters().setConverterId(LinearBitMapGraphics8Converter.class.getName());
+			applyDefaults(data);
+			columns = 40;
+			rows = (bytes.length + columns - 1) / columns;
+			parameters.setColumns(columns);
+			parameters.setRows(rows);
+		}
+		return candidateDefinitions;
+	}
+
+	/**
+	 * Finds all converters which can convert the content of an input file. The
+	 * converters which support the file extension are ranked first, the others
+	 * second, each group in the order of the registry. The cheap check
+	 * {@link Converter#mayConvertToImage(byte[])} is performed first. The complete
+	 * checks of the remaining candidates are performed in parallel.
+	 * 
+	 * @param bytes         The file content of the input file, not
+	 *                      <code>null</code>.
+	 * @param fileExtension The file extension of the input file, may be empty, not
+	 *                      <code>null</code>.
+	 * @return The unmodifiable list of definitions of the matching converters, best
+	 *         match first, may be empty, not <code>null</code>.
+	 * 
+	 * @since 1.7.2
+	 */
+	public List<ConverterDefinition> findFileConverterCandidates(byte[] bytes, String fileExtension) {
+		if (bytes == null) {
+			throw new IllegalArgumentException("Parameter 'bytes' must not be null.");
+		}
+		if (fileExtension == null) {
+			throw new IllegalArgumentException("Parameter 'fileExtension' must not be null.");
+		}
+
 		ConverterRegistry converterRegistry = GraphicsPlugin.getInstance().getConverterRegistry();
-		List<ConverterDefinition> converterDefinitions = converterRegistry
-				.getDefinitions(ConverterDirection.FILES_TO_IMAGE);
-
-		// Try to match file extensions and content.
-		boolean converted = false;
-		Iterator<ConverterDefinition> i = converterDefinitions.iterator();
-		while (i.hasNext() && !converted) {
-			ConverterDefinition converterDefinition = i.next();
-			if (converterDefinition.isSourceFileExtensionSupported(fileExtension)) {
-				Converter converter = converterRegistry.getConverter(converterDefinition.getId());
-				if (converter.canConvertToImage(bytes)) {
-					converter.convertToImageSizeAndPalette(data, bytes);
-					converted = true;
-				}
+		List<ConverterDefinition> extensionDefinitions = converterRegistry.getFilesToImageDefinitions(fileExtension);
+		List<ConverterDefinition> rankedDefinitions = new ArrayList<ConverterDefinition>(extensionDefinitions);
+		for (ConverterDefinition converterDefinition : converterRegistry
+				.getDefinitions(ConverterDirection.FILES_TO_IMAGE)) {
+			if (!extensionDefinitions.contains(converterDefinition)) {
+				rankedDefinitions.add(converterDefinition);
 			}
 		}
 
-		// Ignore file extension and try to match content only.
-		if (!converted) {
-			i = converterDefinitions.iterator();
-			while (i.hasNext() && !converted) {
-				ConverterDefinition converterDefinition = i.next();
-				Converter converter = converterRegistry.getConverter(converterDefinition.getId());
-				if (converter.canConvertToImage(bytes)) {
-					converter.convertToImageSizeAndPalette(data, bytes);
-					converted = true;
+		// Cheap checks based on size and signature.
+		List<ConverterDefinition> candidateDefinitions = new ArrayList<ConverterDefinition>();
+		List<Converter> candidateConverters = new ArrayList<Converter>();
+		for (ConverterDefinition converterDefinition : rankedDefinitions) {
+			Converter converter = converterRegistry.getConverter(converterDefinition.getId());
+			if (bytes.length > 0 && converter.mayConvertToImage(bytes)) {
+				candidateDefinitions.add(converterDefinition);
+				candidateConverters.add(converter);
+			}
+		}
+
+		// Complete checks, which may unpack or decode the content.
+		boolean[] results = canConvertToImage(candidateConverters, bytes);
+		List<ConverterDefinition> result = new ArrayList<ConverterDefinition>();
+		for (int i = 0; i < results.length; i++) {
+			if (results[i]) {
+				result.add(candidateDefinitions.get(i));
+			}
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	private static boolean[] canConvertToImage(List<Converter> converters, final byte[] bytes) {
+		boolean[] results = new boolean[converters.size()];
+		if (results.length == 1) {
+			results[0] = canConvertToImage(converters.get(0), bytes);
+			return results;
+		}
+
+		// Converters are stateless, so the checks can run in parallel.
+		List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>(converters.size());
+		for (final Converter converter : converters) {
+			tasks.add(new Callable<Boolean>() {
+
+				@Override
+				public Boolean call() {
+					return Boolean.valueOf(canConvertToImage(converter, bytes));
 				}
+			});
+		}
+		try {
+			List<Future<Boolean>> futures = ForkJoinPool.commonPool().invokeAll(tasks);
+			for (int i = 0; i < results.length; i++) {
+				results[i] = futures.get(i).get().booleanValue();
 			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException ex) {
+			throw new RuntimeException("Cannot check converters", ex.getCause());
 		}
+		return results;
+	}
 
-		// If nothing matched, display as hires bitmap.
-		if (!converted) {
-			data.getParameters().setConverterId(LinearBitMapGraphics8Converter.class.getName());
-			applyDefaults(data);
-			columns = 40;
-			rows = (bytes.length + columns - 1) / columns;
-			parameters.setColumns(columns);
-			parameters.setRows(rows);
+	private static boolean canConvertToImage(Converter converter, byte[] bytes) {
+		try {
+			return converter.canConvertToImage(bytes);
+		} catch (RuntimeException ex) {
+			GraphicsPlugin.getInstance().logError("Runtime exception during canConvertToImage() of {0}",
+					new Object[] { converter.getClass().getName() }, ex);
+			return false;
 		}
 	}
 }
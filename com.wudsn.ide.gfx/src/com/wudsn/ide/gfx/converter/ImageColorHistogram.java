@@ -21,7 +21,6 @@ package com.wudsn.ide.gfx.converter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.TreeMap;
 
 import org.eclipse.swt.graphics.ImageData;
 import org.eclipse.swt.graphics.PaletteData;
@@ -32,7 +31,8 @@ import com.wudsn.ide.base.common.NumberFactory;
 /**
  * Image color histogram container. Counts the number of occurrences of a pixel
  * color value in an image data. Pixel color values may be greater than 256 in
- * case of direct palettes.
+ * case of direct palettes. Indexed palettes are counted in an array indexed by
+ * the pixel color, direct palettes in {@link PixelColorCounts}.
  * 
  * @author Peter Dell
  */
@@ -42,7 +42,8 @@ public final class ImageColorHistogram {
 	private int pixelCount;
 	private List<Integer> pixelColors;
 	private List<Integer> usedPixelColors;
-	private TreeMap<Integer, Integer> pixelColorCounts;
+	private int[] indexedPixelColorCounts;
+	private PixelColorCounts directPixelColorCounts;
 
 	/**
 	 * Created by {@link ImageConverterData}.
@@ -50,7 +51,6 @@ public final class ImageColorHistogram {
 	ImageColorHistogram() {
 		pixelColors = Collections.emptyList();
 		usedPixelColors = Collections.emptyList();
-		pixelColorCounts = new TreeMap<Integer, Integer>();
 	}
 
 	/**
@@ -61,7 +61,8 @@ public final class ImageColorHistogram {
 		pixelCount = 0;
 		pixelColors = Collections.emptyList();
 		usedPixelColors = Collections.emptyList();
-		pixelColorCounts.clear();
+		indexedPixelColorCounts = null;
+		directPixelColorCounts = null;
 	}
 
 	/**
@@ -87,22 +88,52 @@ public final class ImageColorHistogram {
 				}
 				pixelColors = Collections.unmodifiableList(pixelColors);
 			}
-			for (int y = 0; y < imageData.height; y++) {
-				for (int x = 0; x < imageData.width; x++) {
-					Integer pixelColor = NumberFactory.getInteger(imageData.getPixel(x, y));
-					Integer pixelColorCount = pixelColorCounts.get(pixelColor);
-					if (pixelColorCount == null) {
-						pixelColorCount = NumberFactory.getInteger(1);
-					} else {
-						pixelColorCount = NumberFactory.getInteger(pixelColorCount.intValue() + 1);
+			int width = imageData.width;
+			int height = imageData.height;
+			List<Integer> newUsedPixelColors = new ArrayList<Integer>();
+			if (!paletteData.isDirect && imageData.depth <= 8) {
+				int[] counts = new int[1 << imageData.depth];
+				if (imageData.depth == 8) {
+					// Every byte of the scan lines is one pixel.
+					byte[] data = imageData.data;
+					for (int y = 0; y < height; y++) {
+						for (int i = y * imageData.bytesPerLine, end = i + width; i < end; i++) {
+							counts[data[i] & 0xff]++;
+						}
 					}
-					pixelColorCounts.put(pixelColor, pixelColorCount);
+				} else {
+					int[] linePixels = new int[width];
+					for (int y = 0; y < height; y++) {
+						imageData.getPixels(0, y, width, linePixels, 0);
+						for (int x = 0; x < width; x++) {
+							counts[linePixels[x]]++;
+						}
+					}
+				}
+				for (int i = 0; i < counts.length; i++) {
+					if (counts[i] > 0) {
+						newUsedPixelColors.add(NumberFactory.getInteger(i));
+					}
+				}
+				indexedPixelColorCounts = counts;
+			} else {
+				PixelColorCounts counts = new PixelColorCounts();
+				int[] linePixels = new int[width];
+				for (int y = 0; y < height; y++) {
+					imageData.getPixels(0, y, width, linePixels, 0);
+					for (int x = 0; x < width; x++) {
+						counts.increment(linePixels[x]);
+					}
+				}
+				for (int pixelColor : counts.getPixelColors()) {
+					newUsedPixelColors.add(NumberFactory.getInteger(pixelColor));
 				}
+				directPixelColorCounts = counts;
 			}
+			usedPixelColors = Collections.unmodifiableList(newUsedPixelColors);
 		} else {
 			pixelColors = Collections.emptyList();
 		}
-		usedPixelColors = Collections.unmodifiableList(new ArrayList<Integer>(pixelColorCounts.keySet()));
 	}
 
 	public boolean isDirectPalette() {
@@ -178,12 +209,17 @@ public final class ImageColorHistogram {
 		if (pixelColor == null) {
 			throw new IllegalArgumentException("Parameter 'pixelColor' must not be null.");
 		}
-		Integer count = pixelColorCounts.get(pixelColor);
-		if (count == null) {
-			return 0;
+		int intValue = pixelColor.intValue();
+		if (indexedPixelColorCounts != null) {
+			if (intValue < 0 || intValue >= indexedPixelColorCounts.length) {
+				return 0;
+			}
+			return indexedPixelColorCounts[intValue];
 		}
-		return count.intValue();
-
+		if (directPixelColorCounts != null) {
+			return directPixelColorCounts.get(intValue);
+		}
+		return 0;
 	}
 
 	/**
@@ -0,0 +1,151 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.wudsn.ide.gfx.converter;
+
+import java.util.Random;
+
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.PaletteData;
+import org.eclipse.swt.graphics.RGB;
+
+import com.wudsn.ide.base.common.Assertions;
+import com.wudsn.ide.base.common.Test;
+import com.wudsn.ide.base.common.TestMethod;
+
+/**
+ * Checks and benchmarks {@link ImageColorHistogram} and {@link TileSet} for
+ * typical 8-bit screen sizes and large direct color images.
+ * 
+ * @author Peter Dell
+ * 
+ * @since 1.7.2
+ */
+public final class ImageColorHistogramTest {
+
+	private static final int RUNS = 20;
+
+	/**
+	 * Creation is private.
+	 */
+	private ImageColorHistogramTest() {
+	}
+
+	@TestMethod
+	public static void main(String[] args) {
+		Random random = new Random(0);
+		benchmark("Atari Graphics 15 160x192 indexed", createIndexedImageData(160, 192, 4, random));
+		benchmark("Atari Graphics 8 320x192 indexed", createIndexedImageData(320, 192, 2, random));
+		benchmark("C64 Koala 160x200 indexed", createIndexedImageData(160, 200, 16, random));
+		benchmark("320x256 indexed", createIndexedImageData(320, 256, 256, random));
+		benchmark("1920x1080 direct", createDirectImageData(1920, 1080, 4096, random));
+		benchmark("2048x2048 direct", createDirectImageData(2048, 2048, 1 << 18, random));
+	}
+
+	private static ImageData createIndexedImageData(int width, int height, int colors, Random random) {
+		RGB[] rgbs = new RGB[colors];
+		for (int i = 0; i < colors; i++) {
+			rgbs[i] = new RGB(i, i, i);
+		}
+		ImageData imageData = new ImageData(width, height, 8, new PaletteData(rgbs));
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				imageData.setPixel(x, y, random.nextInt(colors));
+			}
+		}
+		return imageData;
+	}
+
+	private static ImageData createDirectImageData(int width, int height, int colors, Random random) {
+		ImageData imageData = new ImageData(width, height, 24, new PaletteData(0xFF0000, 0xFF00, 0xFF));
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				imageData.setPixel(x, y, random.nextInt(colors));
+			}
+		}
+		return imageData;
+	}
+
+	private static void benchmark(String name, ImageData imageData) {
+		ImageColorHistogram imageColorHistogram = new ImageColorHistogram();
+		imageColorHistogram.analyze(imageData);
+		check(imageColorHistogram, imageData);
+
+		long startTime = System.nanoTime();
+		for (int i = 0; i < RUNS; i++) {
+			imageColorHistogram.analyze(imageData);
+		}
+		long histogramMillis = (System.nanoTime() - startTime) / RUNS / 1000000;
+
+		TileSet tileSet = new TileSet(imageData, 8, 8);
+		check(tileSet, imageData);
+		startTime = System.nanoTime();
+		for (int i = 0; i < RUNS; i++) {
+			tileSet = new TileSet(imageData, 8, 8);
+		}
+		long tileSetMillis = (System.nanoTime() - startTime) / RUNS / 1000000;
+
+		Test.log(name + ": " + imageColorHistogram.getUsedPixelColors().size() + " colors, histogram "
+				+ histogramMillis + " ms, 8x8 tiles " + tileSetMillis + " ms");
+	}
+
+	private static void check(ImageColorHistogram imageColorHistogram, ImageData imageData) {
+		int total = 0;
+		for (Integer pixelColor : imageColorHistogram.getUsedPixelColors()) {
+			total += imageColorHistogram.getPixelColorCount(pixelColor);
+		}
+		Assertions.assertEquals(Integer.valueOf(total), Integer.valueOf(imageData.width * imageData.height));
+		int pixelColor = imageData.getPixel(imageData.width / 2, imageData.height / 2);
+		int count = 0;
+		for (int y = 0; y < imageData.height; y++) {
+			for (int x = 0; x < imageData.width; x++) {
+				if (imageData.getPixel(x, y) == pixelColor) {
+					count++;
+				}
+			}
+		}
+		Assertions.assertEquals(Integer.valueOf(imageColorHistogram.getPixelColorCount(Integer.valueOf(pixelColor))),
+				Integer.valueOf(count));
+	}
+
+	private static void check(TileSet tileSet, ImageData imageData) {
+		Tile tile = tileSet.getTile(tileSet.getColumns() / 2, tileSet.getRows() / 2);
+		int x = tile.getColumn() * tileSet.getPixelsPerColumn();
+		int y = tile.getRow() * tileSet.getPixelsPerRow();
+		int pixelColor = imageData.getPixel(x, y);
+		int count = 0;
+		int lineCount = 0;
+		for (int y1 = 0; y1 < tileSet.getPixelsPerRow(); y1++) {
+			for (int x1 = 0; x1 < tileSet.getPixelsPerColumn(); x1++) {
+				int tilePixelColor = imageData.getPixel(x + x1, y + y1);
+				Assertions.assertEquals(tile.getPixelColor(x1, y1), Integer.valueOf(tilePixelColor));
+				if (tilePixelColor == pixelColor) {
+					count++;
+					if (y1 == 0) {
+						lineCount++;
+					}
+				}
+			}
+		}
+		Assertions.assertEquals(Integer.valueOf(tile.getPixelColorCount(Integer.valueOf(pixelColor))),
+				Integer.valueOf(count));
+		Assertions.assertEquals(Integer.valueOf(tile.getLinePixelColorCount(0, pixelColor)),
+				Integer.valueOf(lineCount));
+	}
+}
@@ -37,6 +37,8 @@ public final class ImageConverterData extends ConverterCommonData {
 	private transient ConverterScriptData converterScriptData;
 	private transient ImageData targetImageData;
 	private transient List<byte[]> targetFilesBytes;
+	private transient ImageData pixelsImageData;
+	private transient int[] pixels;
 
 	ImageConverterData(ConverterData converterData) {
 		super(converterData);
@@ -97,6 +99,16 @@ public final class ImageConverterData extends ConverterCommonData {
 		clearTargetFileBytes();
 	}
 
+	@Override
+	void copyContentTo(ConverterCommonData target) {
+		super.copyContentTo(target);
+		ImageConverterData imageConverterData = (ImageConverterData) target;
+		imageConverterData.converterScriptData.setErrorLineNumber(converterScriptData.geErrorLineNumber());
+		imageConverterData.targetImageData = targetImageData;
+		imageConverterData.targetFilesBytes.clear();
+		imageConverterData.targetFilesBytes.addAll(targetFilesBytes);
+	}
+
 	/**
 	 * Gets the pixel color value for a given position. There must be an instance of
 	 * image data set.
@@ -109,11 +121,36 @@ public final class ImageConverterData extends ConverterCommonData {
 	 * @throws NullPointerException if there is no image data at all.
 	 */
 	public int getPixel(int x, int y) {
-		try {
-			return imageData.getPixel(x, y);
-		} catch (IllegalArgumentException ex) {
+		if (x < 0 || x >= imageData.width || y < 0 || y >= imageData.height) {
 			throw new RuntimeException("Pixel (" + x + "," + y + ") is outside of the image.");
 		}
+		return getPixels()[y * imageData.width + x];
+	}
+
+	/**
+	 * Gets the pixel color values of all pixels. There must be an instance of
+	 * image data set. The values are extracted from the image data once and
+	 * cached until the image data changes.
+	 * 
+	 * @return The pixel color values in row order, the pixel at (x,y) has the
+	 *         index <code>y*width+x</code>. Not <code>null</code>.
+	 * 
+	 * @throws NullPointerException if there is no image data at all.
+	 * 
+	 * @since 1.7.2
+	 */
+	public int[] getPixels() {
+		if (pixels == null || pixelsImageData != imageData) {
+			int width = imageData.width;
+			int height = imageData.height;
+			int[] newPixels = new int[width * height];
+			for (int y = 0; y < height; y++) {
+				imageData.getPixels(0, y, width, newPixels, y * width);
+			}
+			pixels = newPixels;
+			pixelsImageData = imageData;
+		}
+		return pixels;
 	}
 
 	/**
@@ -176,21 +213,34 @@ public final class ImageConverterData extends ConverterCommonData {
 	 * Sets the bytes for a target file from java script.
 	 * 
 	 * @param targetFileId The target field id, a non-negative integer.
-	 * @param scriptBytes  The bytes, may be empty or <code>null</code>.
+	 * @param scriptBytes  The bytes as JavaScript array, as Java
+	 *                     <code>byte[]</code> or as Java <code>int[]</code>,
+	 *                     may be empty or <code>null</code>. A Java
+	 *                     <code>byte[]</code> is used directly without copying.
 	 */
-	public void setTargetFileObject(int targetFileId, NativeArray scriptBytes) {
+	public void setTargetFileObject(int targetFileId, Object scriptBytes) {
 		byte[] bytes = null;
-		if (scriptBytes != null) {
-			int length = (int) scriptBytes.getLength();
+		if (scriptBytes instanceof byte[]) {
+			bytes = (byte[]) scriptBytes;
+		} else if (scriptBytes instanceof int[]) {
+			int[] intBytes = (int[]) scriptBytes;
+			bytes = new byte[intBytes.length];
+			for (int i = 0; i < intBytes.length; i++) {
+				bytes[i] = (byte) intBytes[i];
+			}
+		} else if (scriptBytes instanceof NativeArray) {
+			NativeArray nativeArray = (NativeArray) scriptBytes;
+			int length = (int) nativeArray.getLength();
 			bytes = new byte[length];
 			for (int i = 0; i < length; i++) {
-				Object o = scriptBytes.get(i, null);
-				if (o instanceof Double) {
-					bytes[i] = ((Double) o).byteValue();
-				} else if (o instanceof Integer) {
-					bytes[i] = ((Integer) o).byteValue();
+				Object o = nativeArray.get(i, nativeArray);
+				if (o instanceof Number) {
+					bytes[i] = (byte) ((Number) o).intValue();
 				}
 			}
+		} else if (scriptBytes != null) {
+			throw new RuntimeException(
+					"Target file content of type " + scriptBytes.getClass().getName() + " is not supported.");
 		}
 		setTargetFileBytes(targetFileId, bytes);
 	}
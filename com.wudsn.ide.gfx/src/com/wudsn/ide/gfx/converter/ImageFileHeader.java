@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.wudsn.ide.gfx.converter;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Size of an image as specified in the header of a PNG, GIF, BMP or JPEG file.
+ * The header is read without decoding the image, so the memory required for
+ * the decoded image can be checked before it is allocated.
+ * 
+ * @author Peter Dell
+ * 
+ * @since 1.7.2
+ */
+final class ImageFileHeader {
+
+	/**
+	 * The maximum number of bytes read to find the header. JPEG files may contain
+	 * large metadata segments before the frame header.
+	 */
+	public static final int MAX_HEADER_SIZE = 256 * 1024;
+
+	public final int width;
+	public final int height;
+
+	private ImageFileHeader(int width, int height) {
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * Reads the header from an input stream. The position of the stream is reset
+	 * to the position before reading.
+	 * 
+	 * @param inputStream The input stream, must support mark and reset, not
+	 *                    <code>null</code>.
+	 * @return The header or <code>null</code> if the format is not supported or
+	 *         the header is invalid.
+	 * @throws IOException If the input stream cannot be read.
+	 */
+	public static ImageFileHeader read(InputStream inputStream) throws IOException {
+		if (inputStream == null) {
+			throw new IllegalArgumentException("Parameter 'inputStream' must not be null.");
+		}
+		if (!inputStream.markSupported()) {
+			throw new IllegalArgumentException("Parameter 'inputStream' must support mark and reset.");
+		}
+		inputStream.mark(MAX_HEADER_SIZE);
+		byte[] bytes = new byte[MAX_HEADER_SIZE];
+		int length = 0;
+		try {
+			int count;
+			while (length < bytes.length && (count = inputStream.read(bytes, length, bytes.length - length)) > 0) {
+				length += count;
+			}
+		} finally {
+			inputStream.reset();
+		}
+		return read(bytes, length);
+	}
+
+	/**
+	 * Reads the header from the first bytes of an image file.
+	 * 
+	 * @param bytes  The bytes, not <code>null</code>.
+	 * @param length The number of valid bytes.
+	 * @return The header or <code>null</code> if the format is not supported or
+	 *         the header is invalid.
+	 */
+	static ImageFileHeader read(byte[] bytes, int length) {
+		if (bytes == null) {
+			throw new IllegalArgumentException("Parameter 'bytes' must not be null.");
+		}
+		int width = -1;
+		int height = -1;
+		if (length >= 24 && getInt(bytes, 0) == 0x89504e47 && getInt(bytes, 12) == 0x49484452) {
+			// PNG signature followed by the IHDR chunk.
+			width = getInt(bytes, 16);
+			height = getInt(bytes, 20);
+		} else if (length >= 10 && bytes[0] == 'G' && bytes[1] == 'I' && bytes[2] == 'F') {
+			width = getWordLittleEndian(bytes, 6);
+			height = getWordLittleEndian(bytes, 8);
+		} else if (length >= 26 && bytes[0] == 'B' && bytes[1] == 'M') {
+			if (getWordLittleEndian(bytes, 14) == 12) {
+				// OS/2 bitmap core header.
+				width = getWordLittleEndian(bytes, 18);
+				height = getWordLittleEndian(bytes, 20);
+			} else {
+				width = getIntLittleEndian(bytes, 18);
+				height = Math.abs(getIntLittleEndian(bytes, 22));
+			}
+		} else if (length >= 4 && (bytes[0] & 0xff) == 0xff && (bytes[1] & 0xff) == 0xd8) {
+			// Find the start of frame segment.
+			int offset = 2;
+			while (offset + 9 <= length && (bytes[offset] & 0xff) == 0xff) {
+				int marker = bytes[offset + 1] & 0xff;
+				if (marker >= 0xc0 && marker <= 0xcf && marker != 0xc4 && marker != 0xc8 && marker != 0xcc) {
+					height = getWord(bytes, offset + 5);
+					width = getWord(bytes, offset + 7);
+					break;
+				}
+				offset += 2 + getWord(bytes, offset + 2);
+			}
+		}
+		if (width <= 0 || height <= 0) {
+			return null;
+		}
+		return new ImageFileHeader(width, height);
+	}
+
+	private static int getWord(byte[] bytes, int offset) {
+		return (bytes[offset] & 0xff) << 8 | (bytes[offset + 1] & 0xff);
+	}
+
+	private static int getInt(byte[] bytes, int offset) {
+		return getWord(bytes, offset) << 16 | getWord(bytes, offset + 2);
+	}
+
+	private static int getWordLittleEndian(byte[] bytes, int offset) {
+		return (bytes[offset] & 0xff) | (bytes[offset + 1] & 0xff) << 8;
+	}
+
+	private static int getIntLittleEndian(byte[] bytes, int offset) {
+		return getWordLittleEndian(bytes, offset) | getWordLittleEndian(bytes, offset + 2) << 16;
+	}
+}
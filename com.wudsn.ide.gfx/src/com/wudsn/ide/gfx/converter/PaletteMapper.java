@@ -4,13 +4,11 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.Comparator;
 
 import org.eclipse.swt.graphics.RGB;
 
-import com.wudsn.ide.base.common.NumberFactory;
-
 /**
  * Copyright (C) 2009 - 2014 <a href="http://www.wudsn.com" target="_top">Peter
  * Dell</a>
@@ -36,26 +34,109 @@ import com.wudsn.ide.base.common.NumberFactory;
  * the location if the palette mapper implementation class. The file content is
  * loaded from the class path using the class loader.
  * 
+ * The nearest palette color of an RGB value is found without comparing all
+ * palette colors. For the RGB based metrics, the RGB cube is divided into cells
+ * and the palette colors which can be nearest to any color in a cell are
+ * computed once per cell. For {@link Metric#LAB}, a k-d tree over the L*a*b*
+ * values of the palette colors is searched. Both searches are exact and return
+ * the same index as a linear search over all palette colors. Results are kept
+ * in a fixed size cache with primitive keys, so repeated colors are mapped
+ * without search.
  * 
  * @since 1.6.4
  */
 public abstract class PaletteMapper {
+
+	/**
+	 * The distance metric used to find the nearest palette color.
+	 * 
+	 * @since 1.7.2
+	 */
+	public enum Metric {
+		/**
+		 * Squared distance of the red, green and blue values.
+		 */
+		RGB,
+
+		/**
+		 * Squared distance of the red, green and blue values weighted 2:4:3 by the
+		 * sensitivity of the human eye.
+		 */
+		WEIGHTED_RGB,
+
+		/**
+		 * Squared distance of the CIE L*a*b* values (CIE76) for sRGB values with
+		 * illuminant D65.
+		 */
+		LAB
+	}
+
+	// Number of bits of the cache index, must be at most 24.
+	private static final int CACHE_BITS = 14;
+
+	// Number of bits of a color component which select the cell of the cube.
+	private static final int CELL_BITS = 5;
+	private static final int CELL_SIZE = 1 << (8 - CELL_BITS);
+
+	private static final double[] SRGB_TO_LINEAR;
+
+	static {
+		SRGB_TO_LINEAR = new double[256];
+		for (int i = 0; i < SRGB_TO_LINEAR.length; i++) {
+			double value = i / 255.0;
+			if (value > 0.04045) {
+				value = Math.pow(((value + 0.055) / 1.055), 2.4);
+			} else {
+				value = value / 12.92;
+			}
+			SRGB_TO_LINEAR[i] = value * 100.0;
+		}
+	}
+
 	private int palette_size;
 	private int[] palette_r;
 	private int[] palette_g;
 	private int[] palette_b;
-	private Map<Integer, Integer> map;
+
+	private Metric metric;
+
+	// The candidate palette indices per cell of the RGB cube in ascending order,
+	// computed on first use of the cell.
+	private int[][] cellIndices;
+	private int weightR;
+	private int weightG;
+	private int weightB;
+
+	// The k-d tree for LAB is stored as implicit balanced tree. The node of the
+	// range [start, end) is at the middle of the range and splits by the axis of
+	// its depth. The L*a*b* values are stored per palette index.
+	private int[] treeIndices;
+	private double[] treeCoordinates;
+
+	// The cache stores the RGB value plus one as key, so zero marks free entries.
+	private int[] cacheKeys;
+	private byte[] cacheValues;
+
+	// Scratch variables of the search.
+	private final double[] queryCoordinates;
+	private int bestIndex;
+	private double bestDistance;
 
 	protected PaletteMapper(int palette_size) {
 		if (palette_size < 1) {
 			throw new IllegalArgumentException(
 					"Parameter 'palette_size' must be positive. Specified value is " + palette_size + ".");
 		}
+		if (palette_size > 256) {
+			throw new IllegalArgumentException(
+					"Parameter 'palette_size' must not be greater than 256. Specified value is " + palette_size + ".");
+		}
 		this.palette_size = palette_size;
-		map = new HashMap<Integer, Integer>();
 		palette_r = new int[palette_size];
 		palette_g = new int[palette_size];
 		palette_b = new int[palette_size];
+		metric = Metric.RGB;
+		queryCoordinates = new double[3];
 	}
 
 	public final void loadPalette(String fileName) {
@@ -93,7 +174,36 @@ public abstract class PaletteMapper {
 			}
 		} while (count > -1);
 
-		map.clear();
+		clearSearch();
+	}
+
+	/**
+	 * Sets the distance metric used to find the nearest palette color. The
+	 * default is {@link Metric#RGB}.
+	 * 
+	 * @param metric The metric, not <code>null</code>.
+	 * 
+	 * @since 1.7.2
+	 */
+	public final void setMetric(Metric metric) {
+		if (metric == null) {
+			throw new IllegalArgumentException("Parameter 'metric' must not be null.");
+		}
+		if (this.metric != metric) {
+			this.metric = metric;
+			clearSearch();
+		}
+	}
+
+	/**
+	 * Gets the distance metric used to find the nearest palette color.
+	 * 
+	 * @return The metric, not <code>null</code>.
+	 * 
+	 * @since 1.7.2
+	 */
+	public final Metric getMetric() {
+		return metric;
 	}
 
 	/**
@@ -119,31 +229,294 @@ public abstract class PaletteMapper {
 	 */
 	public final int getPaletteIndex(int r, int g, int b) {
 		int color = r << 16 | g << 8 | b;
-		Integer colorKey = NumberFactory.getInteger(color);
-
-		Integer colorValue = map.get(colorKey);
-
-		if (colorValue == null) {
-
-			int diff = 0x7fffffff;
-			int n = 0;
-			for (int m = 0; m < 256; m++) {
-				int e = (palette_r[m] - r);
-				int d = e * e;
-				e = (palette_g[m] - g);
-				d += e * e;
-				e = (palette_b[m] - b);
-				d += e * e;
-				if (d < diff) {
-					diff = d;
-					n = m;
-				}
+		if (cacheKeys == null) {
+			createSearch();
+		}
+
+		int hash = color * 0x9e3779b9;
+		int cacheIndex = hash >>> (32 - CACHE_BITS);
+		if (cacheKeys[cacheIndex] == color + 1) {
+			return cacheValues[cacheIndex] & 0xff;
+		}
+
+		int result;
+		if (cellIndices != null) {
+			result = findNearestInCell(r, g, b);
+		} else {
+			getLAB(r, g, b, queryCoordinates, 0);
+			bestIndex = -1;
+			bestDistance = Double.MAX_VALUE;
+			findNearest(0, palette_size, 0);
+			result = bestIndex;
+		}
+
+		cacheKeys[cacheIndex] = color + 1;
+		cacheValues[cacheIndex] = (byte) result;
+		return result;
+	}
+
+	/**
+	 * Gets the index of an RGB value in the palette by comparing all palette
+	 * colors. Used to verify the optimized search.
+	 * 
+	 * @param r The 8-bit red value
+	 * @param g The 8-bit green value
+	 * @param b The 8-bit blue value
+	 * 
+	 * @return The palette index, a non-negative integer.
+	 */
+	final int getPaletteIndexLinear(int r, int g, int b) {
+		double[] lab = new double[3];
+		double[] paletteLAB = new double[3];
+		getLAB(r, g, b, lab, 0);
+		double diff = Double.MAX_VALUE;
+		int n = 0;
+		for (int m = 0; m < palette_size; m++) {
+			int er = palette_r[m] - r;
+			int eg = palette_g[m] - g;
+			int eb = palette_b[m] - b;
+			double d;
+			switch (metric) {
+			case RGB:
+				d = er * er + eg * eg + eb * eb;
+				break;
+			case WEIGHTED_RGB:
+				d = 2 * er * er + 4 * eg * eg + 3 * eb * eb;
+				break;
+			case LAB:
+				getLAB(palette_r[m], palette_g[m], palette_b[m], paletteLAB, 0);
+				d = getDistance(lab, 0, paletteLAB, 0);
+				break;
+			default:
+				throw new IllegalStateException("Unknown metric '" + metric + "'.");
+			}
+			if (d < diff) {
+				diff = d;
+				n = m;
+			}
+		}
+		return n;
+	}
+
+	private void clearSearch() {
+		cacheKeys = null;
+		cacheValues = null;
+		cellIndices = null;
+		treeIndices = null;
+		treeCoordinates = null;
+	}
+
+	private void createSearch() {
+		cacheKeys = new int[1 << CACHE_BITS];
+		cacheValues = new byte[1 << CACHE_BITS];
+
+		switch (metric) {
+		case RGB:
+			createCells(1, 1, 1);
+			break;
+		case WEIGHTED_RGB:
+			createCells(2, 4, 3);
+			break;
+		case LAB:
+			createTree();
+			break;
+		default:
+			throw new IllegalStateException("Unknown metric '" + metric + "'.");
+		}
+	}
+
+	private void createCells(int weightR, int weightG, int weightB) {
+		this.weightR = weightR;
+		this.weightG = weightG;
+		this.weightB = weightB;
+		cellIndices = new int[1 << (CELL_BITS * 3)][];
+	}
+
+	private int findNearestInCell(int r, int g, int b) {
+		int cellIndex = (r >>> (8 - CELL_BITS)) << (CELL_BITS * 2) | (g >>> (8 - CELL_BITS)) << CELL_BITS
+				| (b >>> (8 - CELL_BITS));
+		int[] indices = cellIndices[cellIndex];
+		if (indices == null) {
+			indices = createCellIndices(r & -CELL_SIZE, g & -CELL_SIZE, b & -CELL_SIZE);
+			cellIndices[cellIndex] = indices;
+		}
+
+		// On equal distance the lower palette index wins, as in a linear search.
+		int diff = Integer.MAX_VALUE;
+		int n = indices[0];
+		for (int i = 0; i < indices.length; i++) {
+			int m = indices[i];
+			int e = (palette_r[m] - r);
+			int d = weightR * e * e;
+			e = (palette_g[m] - g);
+			d += weightG * e * e;
+			e = (palette_b[m] - b);
+			d += weightB * e * e;
+			if (d < diff) {
+				diff = d;
+				n = m;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Computes the palette indices which can be nearest to a color in a cell. The
+	 * nearest palette color of every color in the cell is not farther than the
+	 * maximum distance of any palette color to the cell. So all palette colors
+	 * whose minimum distance to the cell exceeds the smallest maximum distance can
+	 * be skipped.
+	 * 
+	 * @param r The red value of the first color in the cell.
+	 * @param g The green value of the first color in the cell.
+	 * @param b The blue value of the first color in the cell.
+	 * @return The palette indices in ascending order, not empty, not
+	 *         <code>null</code>.
+	 */
+	private int[] createCellIndices(int r, int g, int b) {
+		int[] minDistances = new int[palette_size];
+		int threshold = Integer.MAX_VALUE;
+		for (int m = 0; m < palette_size; m++) {
+			minDistances[m] = weightR * getMinDistance(palette_r[m], r) + weightG * getMinDistance(palette_g[m], g)
+					+ weightB * getMinDistance(palette_b[m], b);
+			int maxDistance = weightR * getMaxDistance(palette_r[m], r) + weightG * getMaxDistance(palette_g[m], g)
+					+ weightB * getMaxDistance(palette_b[m], b);
+			threshold = Math.min(threshold, maxDistance);
+		}
+		int[] indices = new int[palette_size];
+		int size = 0;
+		for (int m = 0; m < palette_size; m++) {
+			if (minDistances[m] <= threshold) {
+				indices[size++] = m;
+			}
+		}
+		return Arrays.copyOf(indices, size);
+	}
+
+	private static int getMinDistance(int value, int start) {
+		int e;
+		if (value < start) {
+			e = start - value;
+		} else if (value >= start + CELL_SIZE) {
+			e = value - (start + CELL_SIZE - 1);
+		} else {
+			e = 0;
+		}
+		return e * e;
+	}
+
+	private static int getMaxDistance(int value, int start) {
+		int e = Math.max(Math.abs(value - start), Math.abs(value - (start + CELL_SIZE - 1)));
+		return e * e;
+	}
+
+	private void createTree() {
+		treeCoordinates = new double[palette_size * 3];
+		Integer[] indices = new Integer[palette_size];
+		for (int i = 0; i < palette_size; i++) {
+			getLAB(palette_r[i], palette_g[i], palette_b[i], treeCoordinates, i * 3);
+			indices[i] = Integer.valueOf(i);
+		}
+		buildTree(indices, 0, palette_size, 0);
+		treeIndices = new int[palette_size];
+		for (int i = 0; i < palette_size; i++) {
+			treeIndices[i] = indices[i].intValue();
+		}
+	}
+
+	private void buildTree(Integer[] indices, int start, int end, final int axis) {
+		if (end - start <= 1) {
+			return;
+		}
+		// Sort by the axis and the index, so equal coordinates are in index order.
+		Arrays.sort(indices, start, end, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer i1, Integer i2) {
+				int result = Double.compare(treeCoordinates[i1.intValue() * 3 + axis],
+						treeCoordinates[i2.intValue() * 3 + axis]);
+				return result != 0 ? result : i1.compareTo(i2);
+			}
+		});
+		int middle = (start + end) >>> 1;
+		int nextAxis = (axis + 1) % 3;
+		buildTree(indices, start, middle, nextAxis);
+		buildTree(indices, middle + 1, end, nextAxis);
+	}
+
+	private void findNearest(int start, int end, int axis) {
+		if (start >= end) {
+			return;
+		}
+		int middle = (start + end) >>> 1;
+		int index = treeIndices[middle];
+		double distance = getDistance(queryCoordinates, 0, treeCoordinates, index * 3);
+		// On equal distance the lower palette index wins, as in a linear search.
+		if (distance < bestDistance || (distance == bestDistance && index < bestIndex)) {
+			bestDistance = distance;
+			bestIndex = index;
+		}
+
+		double delta = queryCoordinates[axis] - treeCoordinates[index * 3 + axis];
+		int nextAxis = (axis + 1) % 3;
+		if (delta < 0) {
+			findNearest(start, middle, nextAxis);
+			if (delta * delta <= bestDistance) {
+				findNearest(middle + 1, end, nextAxis);
 			}
-			colorValue = Integer.valueOf(n);
-			map.put(colorKey, colorValue);
+		} else {
+			findNearest(middle + 1, end, nextAxis);
+			if (delta * delta <= bestDistance) {
+				findNearest(start, middle, nextAxis);
+			}
+		}
+	}
+
+	private static double getDistance(double[] coordinates1, int offset1, double[] coordinates2, int offset2) {
+		double e = coordinates1[offset1] - coordinates2[offset2];
+		double d = e * e;
+		e = coordinates1[offset1 + 1] - coordinates2[offset2 + 1];
+		d += e * e;
+		e = coordinates1[offset1 + 2] - coordinates2[offset2 + 2];
+		d += e * e;
+		return d;
+	}
+
+	/**
+	 * Converts an sRGB value to CIE L*a*b* values with observer 2 degrees and
+	 * illuminant D65.
+	 * 
+	 * @param r      The 8-bit red value
+	 * @param g      The 8-bit green value
+	 * @param b      The 8-bit blue value
+	 * @param lab    The array to which the L*, a* and b* values are written, not
+	 *               <code>null</code>.
+	 * @param offset The offset of the L* value in the array.
+	 * 
+	 * @since 1.7.2
+	 */
+	public static void getLAB(int r, int g, int b, double[] lab, int offset) {
+		if (lab == null) {
+			throw new IllegalArgumentException("Parameter 'lab' must not be null.");
 		}
-		return colorValue.intValue();
+		double linearR = SRGB_TO_LINEAR[r & 0xff];
+		double linearG = SRGB_TO_LINEAR[g & 0xff];
+		double linearB = SRGB_TO_LINEAR[b & 0xff];
+
+		double x = getLABComponent((linearR * 0.4124 + linearG * 0.3576 + linearB * 0.1805) / 95.047);
+		double y = getLABComponent((linearR * 0.2126 + linearG * 0.7152 + linearB * 0.0722) / 100.000);
+		double z = getLABComponent((linearR * 0.0193 + linearG * 0.1192 + linearB * 0.9505) / 108.883);
 
+		lab[offset] = (116.0 * y) - 16.0;
+		lab[offset + 1] = 500.0 * (x - y);
+		lab[offset + 2] = 200.0 * (y - z);
+	}
+
+	private static double getLABComponent(double value) {
+		if (value > 0.008856) {
+			return Math.cbrt(value);
+		}
+		return (7.787 * value) + (16.0 / 116.0);
 	}
 
 	/**
@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.wudsn.ide.gfx.converter;
+
+import java.util.Random;
+
+import com.wudsn.ide.base.common.Assertions;
+import com.wudsn.ide.base.common.Test;
+import com.wudsn.ide.base.common.TestMethod;
+import com.wudsn.ide.gfx.converter.PaletteMapper.Metric;
+import com.wudsn.ide.gfx.converter.atari8bit.Atari8BitPaletteMapper;
+import com.wudsn.ide.gfx.converter.c64.C64PaletteMapper;
+
+/**
+ * Checks that {@link PaletteMapper#getPaletteIndex(int, int, int)} returns the
+ * same indices as a linear search for all metrics and benchmarks the mapping of
+ * a true color photo sized image.
+ * 
+ * @author Peter Dell
+ * 
+ * @since 1.7.2
+ */
+public final class PaletteMapperTest {
+
+	private static final int CHECKS = 100000;
+	private static final int PIXELS = 1920 * 1080;
+
+	/**
+	 * Creation is private.
+	 */
+	private PaletteMapperTest() {
+	}
+
+	@TestMethod
+	public static void main(String[] args) {
+		for (Metric metric : Metric.values()) {
+			test("Atari 8-bit", new Atari8BitPaletteMapper(), metric);
+			test("C64", new C64PaletteMapper(), metric);
+		}
+	}
+
+	private static void test(String name, PaletteMapper paletteMapper, Metric metric) {
+		paletteMapper.setMetric(metric);
+		Random random = new Random(0);
+		for (int i = 0; i < CHECKS; i++) {
+			int r = random.nextInt(256);
+			int g = random.nextInt(256);
+			int b = random.nextInt(256);
+			Assertions.assertEquals(Integer.valueOf(paletteMapper.getPaletteIndex(r, g, b)),
+					Integer.valueOf(paletteMapper.getPaletteIndexLinear(r, g, b)));
+		}
+
+		// Photos have many distinct, but similar colors.
+		int[] pixels = new int[PIXELS];
+		int rgb = 0x808080;
+		for (int i = 0; i < pixels.length; i++) {
+			rgb = (rgb + random.nextInt(0x030303)) & 0xffffff;
+			pixels[i] = rgb;
+		}
+		// Switching the metric clears the cache, so the benchmark starts without
+		// cached colors.
+		paletteMapper.setMetric(Metric.values()[(metric.ordinal() + 1) % Metric.values().length]);
+		paletteMapper.setMetric(metric);
+		long startTime = System.nanoTime();
+		int sum = 0;
+		for (int i = 0; i < pixels.length; i++) {
+			sum += paletteMapper.getPaletteIndex(pixels[i]);
+		}
+		long millis = (System.nanoTime() - startTime) / 1000000;
+
+		startTime = System.nanoTime();
+		int linearSum = 0;
+		for (int i = 0; i < pixels.length; i += 16) {
+			linearSum += paletteMapper.getPaletteIndexLinear(pixels[i] >>> 16, pixels[i] >>> 8 & 0xff,
+					pixels[i] & 0xff);
+		}
+		long linearMillis = (System.nanoTime() - startTime) * 16 / 1000000;
+		Test.log(name + " " + metric + ": " + PIXELS + " pixels mapped in " + millis + " ms, linear search about "
+				+ linearMillis + " ms (checksum " + sum + "/" + linearSum + ")");
+	}
+}
@@ -0,0 +1,178 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.wudsn.ide.gfx.converter;
+
+import java.util.Arrays;
+
+/**
+ * Counts of pixel color values based on an open addressing hash table with
+ * primitive keys and values. Used for direct palette images and for tiles,
+ * where an array indexed by the pixel color would be too large.
+ * 
+ * @author Peter Dell
+ * 
+ * @since 1.7.2
+ */
+public final class PixelColorCounts {
+
+	private static final int MIN_CAPACITY = 4;
+
+	private int[] pixelColors;
+	private int[] counts;
+	private int size;
+
+	/**
+	 * Creates empty counts for a small number of distinct pixel colors.
+	 */
+	public PixelColorCounts() {
+		this(MIN_CAPACITY / 2);
+	}
+
+	/**
+	 * Creates empty counts.
+	 * 
+	 * @param expectedSize The expected number of distinct pixel colors, a
+	 *                     non-negative integer.
+	 */
+	public PixelColorCounts(int expectedSize) {
+		if (expectedSize < 0) {
+			throw new IllegalArgumentException(
+					"Parameter 'expectedSize' must not be negative. Specified value is " + expectedSize + ".");
+		}
+		int capacity = MIN_CAPACITY;
+		while (capacity < expectedSize * 2) {
+			capacity <<= 1;
+		}
+		pixelColors = new int[capacity];
+		counts = new int[capacity];
+	}
+
+	private static int getIndex(int pixelColor, int mask) {
+		int hash = pixelColor * 0x9e3779b9;
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+
+	/**
+	 * Increments the count of a pixel color by one.
+	 * 
+	 * @param pixelColor The pixel color.
+	 */
+	public void increment(int pixelColor) {
+		add(pixelColor, 1);
+	}
+
+	/**
+	 * Adds to the count of a pixel color.
+	 * 
+	 * @param pixelColor The pixel color.
+	 * @param count      The count to add, a positive integer.
+	 */
+	public void add(int pixelColor, int count) {
+		if (count <= 0) {
+			throw new IllegalArgumentException("Parameter 'count' must be positive. Specified value is " + count + ".");
+		}
+		int mask = counts.length - 1;
+		int index = getIndex(pixelColor, mask);
+		while (counts[index] != 0) {
+			if (pixelColors[index] == pixelColor) {
+				counts[index] += count;
+				return;
+			}
+			index = (index + 1) & mask;
+		}
+		pixelColors[index] = pixelColor;
+		counts[index] = count;
+		size++;
+		if (size * 2 > counts.length) {
+			resize(counts.length * 2);
+		}
+	}
+
+	private void resize(int capacity) {
+		int[] oldPixelColors = pixelColors;
+		int[] oldCounts = counts;
+		pixelColors = new int[capacity];
+		counts = new int[capacity];
+		int mask = capacity - 1;
+		for (int i = 0; i < oldCounts.length; i++) {
+			if (oldCounts[i] != 0) {
+				int index = getIndex(oldPixelColors[i], mask);
+				while (counts[index] != 0) {
+					index = (index + 1) & mask;
+				}
+				pixelColors[index] = oldPixelColors[i];
+				counts[index] = oldCounts[i];
+			}
+		}
+	}
+
+	/**
+	 * Gets the count of a pixel color.
+	 * 
+	 * @param pixelColor The pixel color.
+	 * @return The count or <code>0</code> if the pixel color is not contained.
+	 */
+	public int get(int pixelColor) {
+		int mask = counts.length - 1;
+		int index = getIndex(pixelColor, mask);
+		while (counts[index] != 0) {
+			if (pixelColors[index] == pixelColor) {
+				return counts[index];
+			}
+			index = (index + 1) & mask;
+		}
+		return 0;
+	}
+
+	/**
+	 * Gets the number of distinct pixel colors.
+	 * 
+	 * @return The number of distinct pixel colors, a non-negative integer.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the distinct pixel colors.
+	 * 
+	 * @return The new array of distinct pixel colors sorted by their value, may be
+	 *         empty, not <code>null</code>.
+	 */
+	public int[] getPixelColors() {
+		int[] result = new int[size];
+		int j = 0;
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] != 0) {
+				result[j++] = pixelColors[i];
+			}
+		}
+		Arrays.sort(result);
+		return result;
+	}
+
+	/**
+	 * Removes all counts.
+	 */
+	public void clear() {
+		Arrays.fill(counts, 0);
+		size = 0;
+	}
+}
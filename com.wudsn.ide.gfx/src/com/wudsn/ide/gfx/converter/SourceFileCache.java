@@ -0,0 +1,193 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.wudsn.ide.gfx.converter;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.swt.graphics.ImageData;
+
+/**
+ * Cache for the content of source files and source images. Entries are
+ * identified by the workspace path of the file and are only valid as long as
+ * the modification stamp of the resource and the modification time and length
+ * of the file in the file system are unchanged. The cache is shared by all
+ * editors and is thread safe, so conversions can run in background jobs.
+ * 
+ * @author Peter Dell
+ * 
+ * @since 1.7.2
+ */
+final class SourceFileCache {
+
+	/**
+	 * The maximum total size of the cached content in bytes.
+	 */
+	private static final long MAX_TOTAL_SIZE = 64 * 1024 * 1024;
+
+	private static final class Entry {
+		public final long modificationStamp;
+		public final long lastModified;
+		public final long length;
+		public final Object content;
+		public final long size;
+
+		public Entry(long modificationStamp, long lastModified, long length, Object content, long size) {
+			this.modificationStamp = modificationStamp;
+			this.lastModified = lastModified;
+			this.length = length;
+			this.content = content;
+			this.size = size;
+		}
+	}
+
+	private static final SourceFileCache instance = new SourceFileCache();
+
+	private final Map<String, Entry> entries;
+	private long totalSize;
+
+	/**
+	 * Creation is private.
+	 */
+	private SourceFileCache() {
+		entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	}
+
+	/**
+	 * Gets the shared instance.
+	 * 
+	 * @return The shared instance, not <code>null</code>.
+	 */
+	public static SourceFileCache getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Gets the cached bytes of a file.
+	 * 
+	 * @param file The file, not <code>null</code>.
+	 * @return The bytes or <code>null</code> if the file content is not cached or
+	 *         the file has been modified since.
+	 */
+	public byte[] getBytes(IFile file) {
+		return (byte[]) get(file, "bytes:");
+	}
+
+	/**
+	 * Puts the bytes of a file into the cache.
+	 * 
+	 * @param file  The file, not <code>null</code>.
+	 * @param bytes The bytes as read from the file, not <code>null</code>. The
+	 *              array must not be modified afterwards.
+	 */
+	public void putBytes(IFile file, byte[] bytes) {
+		if (bytes == null) {
+			throw new IllegalArgumentException("Parameter 'bytes' must not be null.");
+		}
+		put(file, "bytes:", bytes, bytes.length);
+	}
+
+	/**
+	 * Gets the cached image data of an image file.
+	 * 
+	 * @param file The file, not <code>null</code>.
+	 * @return The image data or <code>null</code> if the image data is not cached
+	 *         or the file has been modified since.
+	 */
+	public ImageData getImageData(IFile file) {
+		return (ImageData) get(file, "image:");
+	}
+
+	/**
+	 * Puts the image data of an image file into the cache.
+	 * 
+	 * @param file      The file, not <code>null</code>.
+	 * @param imageData The image data as read from the file, not
+	 *                  <code>null</code>. The image data must not be modified
+	 *                  afterwards.
+	 */
+	public void putImageData(IFile file, ImageData imageData) {
+		if (imageData == null) {
+			throw new IllegalArgumentException("Parameter 'imageData' must not be null.");
+		}
+		put(file, "image:", imageData, imageData.data.length);
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		totalSize = 0;
+	}
+
+	private static File getIOFile(IFile file) {
+		IPath location = file.getLocation();
+		return location == null ? null : location.toFile();
+	}
+
+	private synchronized Object get(IFile file, String kind) {
+		if (file == null) {
+			throw new IllegalArgumentException("Parameter 'file' must not be null.");
+		}
+		String key = kind + file.getFullPath().toString();
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			return null;
+		}
+		File ioFile = getIOFile(file);
+		if (ioFile == null || entry.modificationStamp != file.getModificationStamp()
+				|| entry.lastModified != ioFile.lastModified() || entry.length != ioFile.length()) {
+			entries.remove(key);
+			totalSize -= entry.size;
+			return null;
+		}
+		return entry.content;
+	}
+
+	private synchronized void put(IFile file, String kind, Object content, long size) {
+		if (file == null) {
+			throw new IllegalArgumentException("Parameter 'file' must not be null.");
+		}
+		File ioFile = getIOFile(file);
+		if (ioFile == null || size > MAX_TOTAL_SIZE / 4) {
+			return;
+		}
+		String key = kind + file.getFullPath().toString();
+		Entry entry = new Entry(file.getModificationStamp(), ioFile.lastModified(), ioFile.length(), content, size);
+		Entry oldEntry = entries.put(key, entry);
+		if (oldEntry != null) {
+			totalSize -= oldEntry.size;
+		}
+		totalSize += size;
+
+		// Remove the least recently used entries.
+		Iterator<Entry> iterator = entries.values().iterator();
+		while (totalSize > MAX_TOTAL_SIZE && iterator.hasNext()) {
+			Entry eldestEntry = iterator.next();
+			iterator.remove();
+			totalSize -= eldestEntry.size;
+		}
+	}
+}
@@ -19,23 +19,26 @@
 
 package com.wudsn.ide.gfx.converter;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
 import com.wudsn.ide.base.common.NumberFactory;
 
+/**
+ * A tile of a {@link TileSet}. The pixel colors and their counts are filled by
+ * the tile set in a single pass over the image data.
+ * 
+ * @author Peter Dell
+ */
 public final class Tile {
 	private TileSet tileSet;
 	private int column;
 	private int row;
 
-	private int xOffset;
-	private int yOffset;
-
-	private Map<Integer, Integer> pixelColorCounts;
-	private List<Map<Integer, Integer>> linePixelColorCounts;
+	private int[] pixelColors;
+	private PixelColorCounts pixelColorCounts;
+	private PixelColorCounts[] linePixelColorCounts;
 
 	private boolean inverseConflict;
 
@@ -54,19 +57,40 @@ public final class Tile {
 		this.column = column;
 		this.row = row;
 
-		xOffset = column * tileSet.getPixelsPerColumn();
-		yOffset = row * tileSet.getPixelsPerRow();
-
-		pixelColorCounts = new TreeMap<Integer, Integer>();
-		linePixelColorCounts = new ArrayList<Map<Integer, Integer>>(tileSet.getPixelsPerRow());
+		pixelColors = new int[tileSet.getPixelsPerColumn() * tileSet.getPixelsPerRow()];
+		pixelColorCounts = new PixelColorCounts();
+		linePixelColorCounts = new PixelColorCounts[tileSet.getPixelsPerRow()];
+		for (int y = 0; y < linePixelColorCounts.length; y++) {
+			linePixelColorCounts[y] = new PixelColorCounts();
+		}
+	}
 
-		for (int y = 0; y < tileSet.getPixelsPerRow(); y++) {
-			linePixelColorCounts.add(new TreeMap<Integer, Integer>());
-			for (int x = 0; x < tileSet.getPixelsPerColumn(); x++) {
-				Integer pixelColor = getPixelColor(x, y);
-				increment(pixelColorCounts, pixelColor);
-				increment(linePixelColorCounts.get(y), pixelColor);
-			}
+	/**
+	 * Sets the pixel colors of a line of the tile and counts them. Pixels of the
+	 * line beyond the count are outside of the image and have the pixel color 0.
+	 * Called by {@link TileSet} only, once per line.
+	 * 
+	 * @param y          The line of the tile, a non-negative integer.
+	 * @param linePixels The pixel colors of the image line, not <code>null</code>.
+	 * @param offset     The offset of the first pixel of the tile in the image
+	 *                   line, a non-negative integer.
+	 * @param count      The number of pixels of the tile in the image line, a
+	 *                   non-negative integer.
+	 * 
+	 * @since 1.7.2
+	 */
+	final void setLinePixelColors(int y, int[] linePixels, int offset, int count) {
+		int width = tileSet.getPixelsPerColumn();
+		PixelColorCounts lineCounts = linePixelColorCounts[y];
+		System.arraycopy(linePixels, offset, pixelColors, y * width, count);
+		for (int i = offset, end = offset + count; i < end; i++) {
+			int pixelColor = linePixels[i];
+			pixelColorCounts.increment(pixelColor);
+			lineCounts.increment(pixelColor);
+		}
+		if (count < width) {
+			pixelColorCounts.add(0, width - count);
+			lineCounts.add(0, width - count);
 		}
 	}
 
@@ -102,13 +126,7 @@ public final class Tile {
 	 * @return The pixel color, not <code>null</code>.
 	 */
 	public Integer getPixelColor(int x, int y) {
-		try {
-			return NumberFactory.getInteger(tileSet.getImageData().getPixel(xOffset + x, yOffset + y));
-		} catch (IllegalArgumentException ex) {
-			// throw new IllegalArgumentException("Cannot access pixel at "
-			// + xOffset + "+" + x + ", " + yOffset + "+" + y + ".", ex);
-			return NumberFactory.getInteger(0);
-		}
+		return NumberFactory.getInteger(pixelColors[y * tileSet.getPixelsPerColumn() + x]);
 	}
 
 	public boolean hasPixelColor(Integer pixelColor) {
@@ -122,12 +140,7 @@ public final class Tile {
 		if (pixelColor == null) {
 			throw new IllegalArgumentException("Parameter 'pixelColor' must not be null.");
 		}
-		Integer pixelColorCount = pixelColorCounts.get(pixelColor);
-		if (pixelColorCount == null) {
-			return 0;
-		}
-		return pixelColorCount.intValue();
-
+		return pixelColorCounts.get(pixelColor.intValue());
 	}
 
 	/**
@@ -182,13 +195,7 @@ public final class Tile {
 	}
 
 	public int getLinePixelColorCount(int y, int pixelColor) {
-		Map<Integer, Integer> pixelColorCounts = linePixelColorCounts.get(y);
-		Integer pixelColorCount = pixelColorCounts.get(NumberFactory.getInteger(pixelColor));
-		if (pixelColorCount == null) {
-			return 0;
-		}
-		return pixelColorCount.intValue();
-
+		return linePixelColorCounts[y].get(pixelColor);
 	}
 
 	/**
@@ -76,6 +76,23 @@ public final class TileSet {
 				tiles[r][c] = tile;
 			}
 		}
+
+		// Fill all tiles and their lines in a single pass over the image lines.
+		int width = imageData.width;
+		int[] linePixels = new int[width];
+		for (int y = 0; y < rows * pixelsPerRow; y++) {
+			int r = y / pixelsPerRow;
+			int count = 0;
+			if (y < imageData.height) {
+				imageData.getPixels(0, y, width, linePixels, 0);
+				count = width;
+			}
+			for (int c = 0; c < columns; c++) {
+				int offset = c * pixelsPerColumn;
+				tiles[r][c].setLinePixelColors(y - r * pixelsPerRow, linePixels, offset,
+						Math.max(0, Math.min(pixelsPerColumn, count - offset)));
+			}
+		}
 	}
 
 	/**
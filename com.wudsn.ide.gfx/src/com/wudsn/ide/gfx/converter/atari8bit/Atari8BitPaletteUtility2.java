@@ -3,6 +3,8 @@ package com.wudsn.ide.gfx.converter.atari8bit;
 import org.eclipse.swt.graphics.GC;
 import org.eclipse.swt.graphics.Rectangle;
 
+import com.wudsn.ide.gfx.converter.PaletteMapper;
+
 // TODO Class Atari8BitPaletteUtility2 is currently not used
 public class Atari8BitPaletteUtility2 {
 
@@ -251,53 +253,11 @@ public class Atari8BitPaletteUtility2 {
 	}
 
 	private void RGB2LAB(RGB c, LAB lab) {
-		double var_R = c.R / 255.0; // R from 0 to 255
-		double var_G = c.G / 255.0; // G from 0 to 255
-		double var_B = c.B / 255.0; // B from 0 to 255
-
-		if (var_R > 0.04045)
-			var_R = Math.pow(((var_R + 0.055) / 1.055), 2.4);
-		else
-			var_R = var_R / 12.92;
-		if (var_G > 0.04045)
-			var_G = Math.pow(((var_G + 0.055) / 1.055), 2.4);
-		else
-			var_G = var_G / 12.92;
-		if (var_B > 0.04045)
-			var_B = Math.pow(((var_B + 0.055) / 1.055), 2.4);
-		else
-			var_B = var_B / 12.92;
-
-		var_R = var_R * 100.0;
-		var_G = var_G * 100.0;
-		var_B = var_B * 100.0;
-
-		// Observer. = 2�, Illuminant = D65
-		double X = var_R * 0.4124 + var_G * 0.3576 + var_B * 0.1805;
-		double Y = var_R * 0.2126 + var_G * 0.7152 + var_B * 0.0722;
-		double Z = var_R * 0.0193 + var_G * 0.1192 + var_B * 0.9505;
-
-		double var_X = X / 95.047; // ref_X = 95.047 Observer= 2�, Illuminant=
-		// D65
-		double var_Y = Y / 100.000; // ref_Y = 100.000
-		double var_Z = Z / 108.883; // ref_Z = 108.883
-
-		if (var_X > 0.008856)
-			var_X = Math.pow(var_X, (1.0 / 3.0));
-		else
-			var_X = (7.787 * var_X) + (16.0 / 116.0);
-		if (var_Y > 0.008856)
-			var_Y = Math.pow(var_Y, (1.0 / 3.0));
-		else
-			var_Y = (7.787 * var_Y) + (16.0 / 116.0);
-		if (var_Z > 0.008856)
-			var_Z = Math.pow(var_Z, (1.0 / 3.0));
-		else
-			var_Z = (7.787 * var_Z) + (16.0 / 116.0);
-
-		lab.L = (116.0 * var_Y) - 16.0;
-		lab.a = 500.0 * (var_X - var_Y);
-		lab.b = 200.0 * (var_Y - var_Z);
+		double[] values = new double[3];
+		PaletteMapper.getLAB(c.R, c.G, c.B, values, 0);
+		lab.L = values[0];
+		lab.a = values[1];
+		lab.b = values[2];
 	}
 
 	private void CalcLAB() {
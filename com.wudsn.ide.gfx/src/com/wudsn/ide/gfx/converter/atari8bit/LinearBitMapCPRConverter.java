@@ -32,6 +32,26 @@ public class LinearBitMapCPRConverter extends LinearBitMapConverter {
 	public LinearBitMapCPRConverter() {
 	}
 
+	@Override
+	public boolean mayConvertToImage(byte[] bytes) {
+		if (bytes == null) {
+			throw new IllegalArgumentException("Parameter 'bytes' must not be null.");
+		}
+		// Compression type 0 is uncompressed, 1 and 2 are compressed.
+		if (bytes.length < 3) {
+			return false;
+		}
+		switch (bytes[0]) {
+		case 0:
+			return bytes.length == 7681;
+		case 1:
+		case 2:
+			return true;
+		default:
+			return false;
+		}
+	}
+
 	@Override
 	public boolean canConvertToImage(byte[] bytes) {
 		if (bytes == null) {
@@ -69,23 +69,21 @@ public class LinearBitMapGraphics15Converter extends LinearBitMapConverter {
 			throw new IllegalArgumentException("Parameter 'data' must not be null.");
 		}
 
-		int offset = 0;
+		byte[] bytes = data.getSourceFileBytes(BIT_MAP_FILE);
+		int offset = data.getSourceFileOffset(BIT_MAP_FILE);
+		int length = data.getSourceFileLength(BIT_MAP_FILE);
+		int columns = data.getParameters().getColumns();
+		int rows = data.getParameters().getRows();
 		int xpixels = 4;
+		byte[] pixels = new byte[columns * xpixels];
 
-		for (int y1 = 0; y1 < data.getParameters().getRows(); y1++) {
-			for (int x1 = 0; x1 < data.getParameters().getColumns(); x1++) {
-				int b = data.getSourceFileByte(BIT_MAP_FILE, offset++);
-				if (b < 0) {
-					return true;
-				}
-				for (int x2 = 0; x2 < 4; x2++) {
-					int x = x1 * xpixels + x2;
-
-					int color = (b & mask_2bit[x2]) >>> shift_2bit[x2];
-					data.setPalettePixel(x, y1, color);
-				}
-
-			}
+		// Decode row by row until the end of the file.
+		for (int y1 = 0; y1 < rows && length > 0; y1++) {
+			int count = Math.min(columns, length);
+			decode2BitPixels(bytes, offset, count, pixels, 0);
+			data.setPalettePixels(0, y1, pixels, 0, count * xpixels);
+			offset += count;
+			length -= count;
 		}
 		return true;
 	}
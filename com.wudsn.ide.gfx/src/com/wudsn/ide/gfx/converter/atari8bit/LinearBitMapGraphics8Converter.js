@@ -1,13 +1,15 @@
-function convertToFileData(data) {
-	var bpsl = (data.getImageDataWidth() + 7) / 8;
+function convertToFileData(data, pixels) {
+	var width = data.getImageDataWidth();
+	var height = data.getImageDataHeight();
+	var bpsl = (width + 7) / 8;
 	var bytes = [];
 	var offset = 0;
-	for (var y = 0; y < data.getImageDataHeight(); y++) {
-	    for (var x = 0; x < data.getImageDataWidth(); x = x + 8) {
+	for (var y = 0; y < height; y++) {
+	    for (var x = 0; x < width; x = x + 8) {
 			var b = 0;
-			for (var p = 0; p < 8; p++) {
+			for (var p = 0; p < 8 && x + p < width; p++) {
 			    var color;
-			    color = data.getPixel(x + p, y);
+			    color = pixels[y * width + x + p];
 			    if (color != 0) {
 					b = b | 1 << 7 - p;
 			    }
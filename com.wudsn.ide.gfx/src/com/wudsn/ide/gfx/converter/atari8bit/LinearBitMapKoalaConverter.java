@@ -33,7 +33,7 @@ public class LinearBitMapKoalaConverter extends LinearBitMapConverter {
 	}
 
 	@Override
-	public boolean canConvertToImage(byte[] bytes) {
+	public boolean mayConvertToImage(byte[] bytes) {
 		if (bytes == null) {
 			throw new IllegalArgumentException("Parameter 'bytes' must not be null.");
 		}
@@ -48,6 +48,14 @@ public class LinearBitMapKoalaConverter extends LinearBitMapConverter {
 				|| bytes[21] != (byte) 0)) {
 			return false;
 		}
+		return true;
+	}
+
+	@Override
+	public boolean canConvertToImage(byte[] bytes) {
+		if (!mayConvertToImage(bytes)) {
+			return false;
+		}
 
 		byte[] unpackedImage = new byte[7684];
 		boolean result = Atari8BitUtility.unpackKoala(bytes, (bytes[4] & 0xff) + 1,
@@ -532,6 +532,14 @@ public class LinearBitMapRIPConverter extends LinearBitMapConverter {
 
 	}
 
+	@Override
+	public boolean mayConvertToImage(byte[] bytes) {
+		if (bytes == null) {
+			throw new IllegalArgumentException("Parameter 'bytes' must not be null.");
+		}
+		return bytes.length >= 23 && bytes[0] == 'R' && bytes[1] == 'I' && bytes[2] == 'P';
+	}
+
 	@Override
 	public boolean canConvertToImage(byte[] bytes) {
 		if (bytes == null) {
@@ -38,29 +38,27 @@ public class SpriteMultiColorConverter extends SpriteConverter {
 			throw new IllegalArgumentException("Parameter 'data' must not be null.");
 		}
 
-		int offset = 0;
+		byte[] bytes = data.getSourceFileBytes(SPRITE_FILE);
+		int offset = data.getSourceFileOffset(SPRITE_FILE);
+		int length = data.getSourceFileLength(SPRITE_FILE);
 		int xpixels = 3 * 4 + data.getParameters().getSpacingWidth();
 		int ypixels = 21 + data.getParameters().getSpacingWidth();
 
+		// Decode all 63 bytes of a sprite at once, the spacing remains as is.
+		byte[] pixels = new byte[63 * 4];
 		for (int y1 = 0; y1 < data.getParameters().getRows(); y1++) {
 			for (int x1 = 0; x1 < (data.getParameters().getColumns()); x1++) {
-				for (int y2 = 0; y2 < 21; y2++) {
-					for (int x2 = 0; x2 < 3; x2++) {
-						int b = data.getSourceFileByte(SPRITE_FILE, offset++);
-						if (b < 0) {
-							return true;
-						}
-
-						int y = y1 * ypixels + y2;
-						for (int x3 = 0; x3 < 4; x3++) {
-							int x = x1 * xpixels + x2 * 4 + x3;
-
-							int color = (b & mask_2bit[x3]) >>> shift_2bit[x3];
-							data.setPalettePixel(x, y, color);
-						}
-					}
+				if (length <= 0) {
+					return true;
+				}
+				int count = Math.min(63, length);
+				decode2BitPixels(bytes, offset, count, pixels, 0);
+				for (int y2 = 0; y2 * 3 < count; y2++) {
+					int rowCount = Math.min(3, count - y2 * 3) * 4;
+					data.setPalettePixels(x1 * xpixels, y1 * ypixels + y2, pixels, y2 * 3 * 4, rowCount);
 				}
-				offset++; // 64th byte
+				offset += count + 1; // 64th byte
+				length -= count + 1;
 			}
 		}
 		return true;
@@ -85,24 +85,26 @@ public class CharSet1x1HiresConverter extends CharSetConverter {
 			throw new IllegalArgumentException("Parameter 'data' must not be null.");
 		}
 
-		int offset = 0;
+		byte[] bytes = data.getSourceFileBytes(CHAR_SET_FILE);
+		int offset = data.getSourceFileOffset(CHAR_SET_FILE);
+		int length = data.getSourceFileLength(CHAR_SET_FILE);
 		int xpixels = 8 + data.getParameters().getSpacingWidth();
 		int ypixels = 8 + data.getParameters().getSpacingWidth();
 
+		// Decode all 8 bytes of a character at once, the spacing remains as is.
+		byte[] pixels = new byte[8 * 8];
 		for (int y1 = 0; y1 < data.getParameters().getRows(); y1++) {
 			for (int x1 = 0; x1 < data.getParameters().getColumns(); x1++) {
-				for (int y2 = 0; y2 < 8; y2++) {
-					int b = data.getSourceFileByte(CHAR_SET_FILE, offset++);
-					if (b < 0) {
-						return true;
-					}
-					int y = y1 * ypixels + y2;
-					for (int x2 = 0; x2 < 8; x2++) {
-						int x = x1 * xpixels + x2;
-						int color = (b & mask_1bit[x2]) >>> shift_1bit[x2];
-						data.setPalettePixel(x, y, color);
-					}
+				if (length <= 0) {
+					return true;
 				}
+				int count = Math.min(8, length);
+				decode1BitPixels(bytes, offset, count, pixels, 0);
+				for (int y2 = 0; y2 < count; y2++) {
+					data.setPalettePixels(x1 * xpixels, y1 * ypixels + y2, pixels, y2 * 8, 8);
+				}
+				offset += count;
+				length -= count;
 			}
 		}
 		return true;
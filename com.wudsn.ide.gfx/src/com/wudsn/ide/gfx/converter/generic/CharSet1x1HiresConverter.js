@@ -1,6 +1,7 @@
-function convertToFileData(data) {
-	var columns = data.getImageDataWidth()  / 8;
-	var rows    = data.getImageDataHeight() / 8;
+function convertToFileData(data, pixels) {
+	var width   = data.getImageDataWidth();
+	var columns = Math.floor(width / 8);
+	var rows    = Math.floor(data.getImageDataHeight() / 8);
 	var chars   = 256;
 
 	var char = 0;
@@ -13,7 +14,7 @@ function convertToFileData(data) {
 					var b = 0;
 					for (var p = 0; p < 8; p++) {
 		    			var color;
-		    			color = data.getPixel(c*8+p, r*8+l);
+		    			color = pixels[(r*8+l)*width + c*8+p];
 		    			if (color != 0) {
 							b = b | 1 << 7 - p;
 		    			}
@@ -39,24 +39,26 @@ public class CharSet1x1MultiColorConverter extends CharSetConverter {
 			throw new IllegalArgumentException("Parameter 'data' must not be null.");
 		}
 
-		int offset = 0;
+		byte[] bytes = data.getSourceFileBytes(CHAR_SET_FILE);
+		int offset = data.getSourceFileOffset(CHAR_SET_FILE);
+		int length = data.getSourceFileLength(CHAR_SET_FILE);
 		int xpixels = 4 + data.getParameters().getSpacingWidth();
 		int ypixels = 8 + data.getParameters().getSpacingWidth();
 
+		// Decode all 8 bytes of a character at once, the spacing remains as is.
+		byte[] pixels = new byte[8 * 4];
 		for (int y1 = 0; y1 < data.getParameters().getRows(); y1++) {
 			for (int x1 = 0; x1 < data.getParameters().getColumns(); x1++) {
-				for (int y2 = 0; y2 < 8; y2++) {
-					int b = data.getSourceFileByte(CHAR_SET_FILE, offset++);
-					if (b < 0) {
-						return true;
-					}
-					int y = y1 * ypixels + y2;
-					for (int x2 = 0; x2 < 4; x2++) {
-						int x = x1 * xpixels + x2;
-						int color = (b & mask_2bit[x2]) >>> shift_2bit[x2];
-						data.setPalettePixel(x, y, color);
-					}
+				if (length <= 0) {
+					return true;
 				}
+				int count = Math.min(8, length);
+				decode2BitPixels(bytes, offset, count, pixels, 0);
+				for (int y2 = 0; y2 < count; y2++) {
+					data.setPalettePixels(x1 * xpixels, y1 * ypixels + y2, pixels, y2 * 4, 4);
+				}
+				offset += count;
+				length -= count;
 			}
 		}
 		return true;
@@ -1,6 +1,7 @@
-function convertToFileData(data) {
-	var columns = data.getImageDataWidth()  / 8;
-	var rows    = data.getImageDataHeight() / 8;
+function convertToFileData(data, pixels) {
+	var width   = data.getImageDataWidth();
+	var columns = Math.floor(width / 8);
+	var rows    = Math.floor(data.getImageDataHeight() / 8);
 	var chars   = 256;
 
 	var char = 0;
@@ -11,13 +12,14 @@ function convertToFileData(data) {
 			if (char < chars) {
 				for (var l=0;l<8;l++) {
 					var b;
-					var x,y,c1,c2,c3,c4;
+					var x,y,i,c1,c2,c3,c4;
 					x = c*4;
 					y = r*8 + l;
-					c1 = data.getPixel(x, y) & 0x3;
-					c2 = data.getPixel(x+1, y) & 0x3;
-					c3 = data.getPixel(x+2, y) & 0x3;
-					c4 = data.getPixel(x+3, y) & 0x3;
+					i = y*width + x;
+					c1 = pixels[i] & 0x3;
+					c2 = pixels[i+1] & 0x3;
+					c3 = pixels[i+2] & 0x3;
+					c4 = pixels[i+3] & 0x3;
 					b = c1 << 6 | c2 << 4 | c3 << 2 | c4; 
 					bytes[offset++] = b;
     			}
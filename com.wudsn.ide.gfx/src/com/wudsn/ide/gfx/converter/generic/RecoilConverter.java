@@ -19,6 +19,8 @@
 
 package com.wudsn.ide.gfx.converter.generic;
 
+import java.util.Arrays;
+
 import com.wudsn.ide.gfx.converter.Converter;
 import com.wudsn.ide.gfx.converter.FilesConverterData;
 import net.sf.recoil.RECOIL;
@@ -31,28 +33,87 @@ import net.sf.recoil.RECOIL;
  */
 public class RecoilConverter extends Converter {
 
-	public static final int SOURCE_FILE = 1;
+	public static final int SOURCE_FILE = 0;
+
+	/**
+	 * Result of decoding a source file. The image size and the pixels are needed
+	 * in different phases of the conversion, but the file is decoded only once.
+	 */
+	private static final class DecodedImage {
+		public final byte[] content;
+		public final String path;
+		public final boolean valid;
+		public final int width;
+		public final int height;
+		public final int[] pixels;
+
+		public DecodedImage(byte[] content, String path) {
+			this.content = content;
+			this.path = path;
+			RECOIL recoil = new RECOIL();
+			valid = recoil.decode(path, content, content.length);
+			if (valid) {
+				width = recoil.getWidth();
+				height = recoil.getHeight();
+				// Keep only the used part of the maximum size pixel buffer.
+				pixels = Arrays.copyOf(recoil.getPixels(), width * height);
+			} else {
+				width = 0;
+				height = 0;
+				pixels = null;
+			}
+		}
+	}
+
+	// The converter is a stateless singleton, but may be used by several threads.
+	private volatile DecodedImage lastDecodedImage;
+
+	/**
+	 * Decodes the source file or takes the result of the last decoding, if the
+	 * source file content and path are the same. The content is compared by
+	 * identity, because unchanged source files are shared by the source file
+	 * cache.
+	 * 
+	 * @param data The data, not <code>null</code>.
+	 * @return The decoded image or <code>null</code> if there is no source file
+	 *         content.
+	 */
+	private DecodedImage decode(FilesConverterData data) {
+		byte[] content = data.getSourceFileBytes(SOURCE_FILE);
+		if (content == null) {
+			return null;
+		}
+		String path = data.getParameters().getSourceFile(SOURCE_FILE).getPath();
+		DecodedImage decodedImage = lastDecodedImage;
+		if (decodedImage == null || decodedImage.content != content || !decodedImage.path.equals(path)) {
+			decodedImage = new DecodedImage(content, path);
+			lastDecodedImage = decodedImage;
+		}
+		return decodedImage;
+	}
 
 	@Override
 	public void convertToImageDataSize(FilesConverterData data) {
-		RECOIL recoil = new RECOIL();
-		byte[] content = data.getSourceFileBytes(SOURCE_FILE);
-		boolean valid = recoil.decode(data.getParameters().getSourceFile(SOURCE_FILE).getPath(), content,
-				content.length);
-		if (valid) {
-			data.setImageDataHeight(recoil.getHeight());
-			data.setImageDataWidth(recoil.getWidth());
+		DecodedImage decodedImage = decode(data);
+		if (decodedImage != null && decodedImage.valid) {
+			data.setImageDataHeight(decodedImage.height);
+			data.setImageDataWidth(decodedImage.width);
 
 		}
 	}
 
 	@Override
 	public boolean convertToImageData(FilesConverterData data) {
-		RECOIL recoil = new RECOIL();
-		byte[] content = data.getSourceFileBytes(SOURCE_FILE);
-		boolean valid = recoil.decode(data.getParameters().getSourceFile(SOURCE_FILE).getPath(), content,
-				content.length);
-		return valid;
+		DecodedImage decodedImage = decode(data);
+		if (decodedImage == null || !decodedImage.valid) {
+			return false;
+		}
+
+		// The pixels are RGB values, which match the direct palette of the image.
+		for (int y = 0; y < decodedImage.height; y++) {
+			data.setDirectPixels(0, y, decodedImage.pixels, y * decodedImage.width, decodedImage.width);
+		}
+		return true;
 	}
 
 }
@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.wudsn.ide.gfx.editor;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.core.commands.AbstractHandler;
+import org.eclipse.core.commands.ExecutionEvent;
+import org.eclipse.core.commands.ExecutionException;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IAdaptable;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.viewers.ISelection;
+import org.eclipse.jface.viewers.IStructuredSelection;
+import org.eclipse.ui.handlers.HandlerUtil;
+import org.eclipse.ui.ide.IDE;
+
+import com.wudsn.ide.gfx.GraphicsPlugin;
+import com.wudsn.ide.gfx.Texts;
+import com.wudsn.ide.gfx.converter.ConverterBatchConversion;
+import com.wudsn.ide.gfx.converter.ConverterData;
+
+/**
+ * Handler for the "Convert Graphics Conversion Files" command in the context
+ * menu of resources. The conversion files in the selected resources are
+ * converted and their targets are saved in a background job, see
+ * {@link ConverterBatchConversion}.
+ * 
+ * @author Peter Dell
+ * 
+ * @since 1.7.2
+ */
+public final class GraphicsBatchConversionCommandHandler extends AbstractHandler {
+
+	@Override
+	public Object execute(ExecutionEvent event) throws ExecutionException {
+		final List<IResource> resources = new ArrayList<IResource>();
+		ISelection selection = HandlerUtil.getCurrentSelection(event);
+		if (selection instanceof IStructuredSelection) {
+			Iterator<?> i = ((IStructuredSelection) selection).iterator();
+			while (i.hasNext()) {
+				Object object = i.next();
+				IResource resource = null;
+				if (object instanceof IResource) {
+					resource = (IResource) object;
+				} else if (object instanceof IAdaptable) {
+					resource = ((IAdaptable) object).getAdapter(IResource.class);
+				}
+				if (resource != null) {
+					resources.add(resource);
+				}
+			}
+		}
+		if (resources.isEmpty()) {
+			return null;
+		}
+
+		// Ensure all current changes in all open editors are saved.
+		if (!IDE.saveAllEditors(new IResource[] { ResourcesPlugin.getWorkspace().getRoot() }, false)) {
+			return null;
+		}
+
+		Job job = new Job(Texts.BATCH_CONVERSION_JOB_NAME) {
+
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				ConverterBatchConversion converterBatchConversion = new ConverterBatchConversion();
+				try {
+					List<IFile> files = converterBatchConversion.findConversionFiles(resources);
+					List<ConverterData> conversions = new ArrayList<ConverterData>(files.size());
+					for (IFile file : files) {
+						conversions.add(converterBatchConversion.createConversion(file));
+					}
+					converterBatchConversion.convert(conversions, ConverterBatchConversion.getDefaultConcurrency(),
+							monitor);
+				} catch (OperationCanceledException ex) {
+					return Status.CANCEL_STATUS;
+				} catch (CoreException ex) {
+					return ex.getStatus();
+				} catch (RuntimeException ex) {
+					GraphicsPlugin.getInstance().logError("Cannot convert graphics conversion files", null, ex);
+					return new Status(IStatus.ERROR, GraphicsPlugin.ID, ex.getMessage(), ex);
+				}
+				return Status.OK_STATUS;
+			}
+		};
+		job.setUser(true);
+		job.schedule();
+		return null;
+	}
+}
@@ -31,6 +31,8 @@ import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.viewers.ISelection;
 import org.eclipse.jface.viewers.ISelectionChangedListener;
 import org.eclipse.jface.viewers.ISelectionProvider;
@@ -42,6 +44,7 @@ import org.eclipse.swt.graphics.RGB;
 import org.eclipse.swt.layout.FillLayout;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
 import org.eclipse.swt.widgets.TabFolder;
 import org.eclipse.swt.widgets.TabItem;
@@ -177,7 +180,7 @@ public final class GraphicsConversionEditor extends EditorPart
 			}
 			parameters.setPaletteManual();
 			parameters.setPaletteRGBs(currentRGBs);
-			convert();
+			convertInBackground();
 			dataToUi();
 		}
 
@@ -193,7 +196,7 @@ public final class GraphicsConversionEditor extends EditorPart
 			rgbs[pixelColor] = rgb;
 			parameters.setPaletteManual();
 			parameters.setPaletteRGBs(rgbs);
-			convert();
+			convertInBackground();
 			dataToUi();
 		}
 
@@ -277,6 +280,86 @@ public final class GraphicsConversionEditor extends EditorPart
 
 	}
 
+	/**
+	 * Background job which loads the sources and converts a snapshot of the
+	 * converter data. Rapid changes are coalesced because every change replaces
+	 * the snapshot and reschedules the job with a delay. The result is published
+	 * in the UI thread only if no newer change has been made in the meantime.
+	 * The job is not a system job, so the progress of long conversions is shown
+	 * in the progress view and the status line.
+	 */
+	private final class ConversionJob extends Job {
+
+		private ConverterData snapshot;
+		private int snapshotRequestId;
+
+		ConversionJob() {
+			super(Texts.CONVERSION_JOB_NAME);
+		}
+
+		/**
+		 * Sets the snapshot to be converted by the next run.
+		 * 
+		 * @param snapshot  The snapshot or <code>null</code> to convert nothing.
+		 * @param requestId The id of the conversion request.
+		 */
+		public synchronized void setSnapshot(ConverterData snapshot, int requestId) {
+			this.snapshot = snapshot;
+			this.snapshotRequestId = requestId;
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			final ConverterData data;
+			final int requestId;
+			synchronized (this) {
+				data = snapshot;
+				requestId = snapshotRequestId;
+				snapshot = null;
+			}
+			if (data == null || monitor.isCanceled()) {
+				return Status.CANCEL_STATUS;
+			}
+
+			// The message queue of the editor must only be used in the UI
+			// thread.
+			final MessageQueue jobMessageQueue = new MessageQueue();
+			ConverterDataLogic jobConverterDataLogic = new ConverterDataLogic(jobMessageQueue);
+			long startTimeMillis = System.currentTimeMillis();
+			if (jobConverterDataLogic.loadSources(data, false)) {
+				if (monitor.isCanceled()) {
+					return Status.CANCEL_STATUS;
+				}
+				if (!jobConverterDataLogic.convert(data, monitor) && monitor.isCanceled()) {
+					return Status.CANCEL_STATUS;
+				}
+				long duration = System.currentTimeMillis() - startTimeMillis;
+				String durationString = NumberUtility.getLongValueDecimalString(duration);
+				switch (data.getConverterDirection()) {
+				case FILES_TO_IMAGE:
+					jobMessageQueue.sendMessage(ImageConverterParameters.MessageIds.IMAGE_FILE_PATH, IStatus.OK,
+							Texts.MESSAGE_S100, durationString);
+					break;
+				case IMAGE_TO_FILES:
+					jobMessageQueue.sendMessage(ImageConverterParameters.MessageIds.IMAGE_FILE_PATH, IStatus.OK,
+							"Image file loaded and converted in {0} ms", durationString);
+					break;
+				}
+			}
+			if (monitor.isCanceled()) {
+				return Status.CANCEL_STATUS;
+			}
+
+			display.asyncExec(new Runnable() {
+				@Override
+				public void run() {
+					publishConversion(requestId, data, jobMessageQueue);
+				}
+			});
+			return Status.OK_STATUS;
+		}
+	}
+
 	// ID of the editor in the plugin manifest.
 	public static final String ID = "com.wudsn.ide.gfx.editor.GraphicsConversionEditor";
 
@@ -285,6 +368,12 @@ public final class GraphicsConversionEditor extends EditorPart
 	private boolean processing;
 	private boolean closeEditor;
 
+	// Delay in milliseconds to wait for further changes before converting.
+	private static final long CONVERSION_DELAY = 100;
+	private Display display;
+	private ConversionJob conversionJob;
+	private int conversionRequestId;
+
 	// All data and parameters.
 	private ConverterDataLogic converterDataLogic;
 	final ConverterData converterData;
@@ -310,6 +399,7 @@ public final class GraphicsConversionEditor extends EditorPart
 
 		selectionChangedListeners = new ArrayList<ISelectionChangedListener>();
 		imageProvider = new MyImageProvider();
+		conversionJob = new ConversionJob();
 	}
 
 	@Override
@@ -319,6 +409,7 @@ public final class GraphicsConversionEditor extends EditorPart
 
 	@Override
 	public void dispose() {
+		cancelConversion();
 		imageProvider.dispose();
 		messageManager.dispose();
 		super.dispose();
@@ -377,6 +468,7 @@ public final class GraphicsConversionEditor extends EditorPart
 			setPartName("");
 		}
 
+		cancelConversion();
 		messageManager.clearMessages();
 		converterData.clear();
 		try {
@@ -448,6 +540,7 @@ public final class GraphicsConversionEditor extends EditorPart
 	public void createPartControl(Composite parent) {
 
 		getSite().setSelectionProvider(this);
+		display = parent.getDisplay();
 
 		Composite composite = parent;
 		composite.setLayout(new FillLayout(SWT.VERTICAL));
@@ -487,12 +580,12 @@ public final class GraphicsConversionEditor extends EditorPart
 
 				switch (action.getId()) {
 				case Actions.TAB_CHANGED:
-					loadSources(false, true);
+					loadSources(false);
 					break;
 
 				case FilesConverterDataView.Actions.FIND_DEFAULT_FILE_CONVERTER:
 					converterDataLogic.findDefaultFileConverter(converterData);
-					convert();
+					convertInBackground();
 					break;
 
 				case FilesConverterDataView.Actions.CREATE_CONVERSION:
@@ -500,7 +593,7 @@ public final class GraphicsConversionEditor extends EditorPart
 					break;
 
 				case FilesConverterDataView.Actions.REFRESH:
-					loadSources(false, true);
+					loadSources(false);
 					break;
 
 				case FilesConverterDataView.Actions.SAVE_IMAGE:
@@ -508,16 +601,16 @@ public final class GraphicsConversionEditor extends EditorPart
 					break;
 
 				case FilesConverterDataView.Actions.CONVERTER_ID_CHANGED:
-					loadSources(true, true);
+					loadSources(true);
 					break;
 
 				case FilesConverterDataView.Actions.PARAMETER_CHANGED:
-					convert();
+					convertInBackground();
 					break;
 
 				case FilesConverterDataView.Actions.PALETTE_COLORS_CHANGED:
 					converterData.getFilesConverterData().getParameters().setPaletteManual();
-					convert();
+					convertInBackground();
 					break;
 
 				case ImageConverterDataView.Actions.CREATE_CONVERSION:
@@ -525,7 +618,7 @@ public final class GraphicsConversionEditor extends EditorPart
 					break;
 
 				case ImageConverterDataView.Actions.REFRESH:
-					loadSources(false, true);
+					loadSources(false);
 					break;
 
 				case ImageConverterDataView.Actions.SAVE_FILES:
@@ -533,11 +626,11 @@ public final class GraphicsConversionEditor extends EditorPart
 					break;
 
 				case ImageConverterDataView.Actions.CONVERTER_ID_CHANGED:
-					loadSources(true, true);
+					loadSources(true);
 					break;
 
 				case ImageConverterDataView.Actions.PARAMETER_CHANGED:
-					convert();
+					convertInBackground();
 				}
 
 				dataToUI();
@@ -553,47 +646,81 @@ public final class GraphicsConversionEditor extends EditorPart
 
 	}
 
-	private void loadSources(boolean applyDefaults, boolean convert) {
+	private void loadSources(boolean applyDefaults) {
 		if (applyDefaults) {
 			converterDataLogic.applyDefaults(converterData);
 		}
-		long startTimeMillis = System.currentTimeMillis();
-		if (converterDataLogic.loadSources(converterData, false)) {
-			if (convert) {
-				converterDataLogic.convert(converterData);
-				long duration = System.currentTimeMillis() - startTimeMillis;
-				String durationString = NumberUtility.getLongValueDecimalString(duration);
-				switch (converterData.getConverterDirection()) {
-				case FILES_TO_IMAGE:
-					messageManager.sendMessage(ImageConverterParameters.MessageIds.IMAGE_FILE_PATH, IStatus.OK,
-							Texts.MESSAGE_S100, durationString);
-					break;
-				case IMAGE_TO_FILES:
-					messageManager.sendMessage(ImageConverterParameters.MessageIds.IMAGE_FILE_PATH, IStatus.OK,
-							"Image file loaded and converted in {0} ms", durationString);
-					break;
-				}
-			} else {
-				switch (converterData.getConverterDirection()) {
-				case FILES_TO_IMAGE:
-					messageManager.sendMessage(ImageConverterParameters.MessageIds.IMAGE_FILE_PATH, IStatus.OK,
-							"Source files loaded");
-					break;
-				case IMAGE_TO_FILES:
-					messageManager.sendMessage(ImageConverterParameters.MessageIds.IMAGE_FILE_PATH, IStatus.OK,
-							"Image file loaded");
-					break;
-				}
-			}
-		}
+		// Sources are loaded together with the conversion. Unchanged source
+		// files are taken from the cache.
+		convertInBackground();
 	}
 
 	final void convert() {
+		cancelConversion();
 		converterDataLogic.convert(converterData);
 	}
 
+	/**
+	 * Loads the sources and converts a snapshot of the current converter data in
+	 * the background. The result replaces the current content once it is
+	 * available.
+	 */
+	final void convertInBackground() {
+		if (display == null) {
+			convert();
+			return;
+		}
+		conversionRequestId++;
+		conversionJob.cancel();
+		conversionJob.setSnapshot(converterDataLogic.createSnapshot(converterData), conversionRequestId);
+		conversionJob.schedule(CONVERSION_DELAY);
+	}
+
+	/**
+	 * Cancels the pending background conversion and discards its result.
+	 */
+	private void cancelConversion() {
+		conversionRequestId++;
+		conversionJob.cancel();
+		conversionJob.setSnapshot(null, conversionRequestId);
+	}
+
+	/**
+	 * Publishes the result of a background conversion, unless a newer conversion
+	 * has been requested in the meantime.
+	 * 
+	 * @param requestId       The id of the conversion request.
+	 * @param snapshot        The converted snapshot, not <code>null</code>.
+	 * @param jobMessageQueue The messages of the conversion, not
+	 *                        <code>null</code>.
+	 */
+	final void publishConversion(int requestId, ConverterData snapshot, MessageQueue jobMessageQueue) {
+		if (requestId != conversionRequestId || tabFolder.isDisposed()) {
+			return;
+		}
+		converterDataLogic.copyConversionResult(snapshot, converterData);
+		messageQueue.addEntries(jobMessageQueue.getEntries());
+
+		// Prevent the update of the views from triggering actions.
+		boolean oldProcessing = processing;
+		processing = true;
+		try {
+			dataToUI();
+		} finally {
+			processing = oldProcessing;
+		}
+	}
+
+	/**
+	 * Saves the targets of the current converter data. The pending background
+	 * conversion is canceled and the sources are loaded again, because the sources
+	 * of the last published conversion may not match the current parameters.
+	 */
 	private void saveTargets() {
-		converterDataLogic.saveTargets(converterData);
+		cancelConversion();
+		if (converterDataLogic.loadSources(converterData, false)) {
+			converterDataLogic.saveTargets(converterData);
+		}
 
 	}
 
@@ -31,14 +31,23 @@ public final class ImageCanvas extends Canvas {
 	private boolean shrinkToFit;
 	private boolean zoomToFit;
 
+	// Maximum number of pixels of a cached scaled image.
+	private static final long MAX_SCALED_IMAGE_PIXELS = 16 * 1024 * 1024;
+
 	// Original image
+	private ImageData sourceImageData;
 	private Image sourceImage;
 
+	// Source image scaled by an integer zoom factor.
+	private Image scaledImage;
+	private int scaledImageZoom;
+
 	// Affine transform applied to the source image.
 	private AffineTransform transform;
 
-	// Screen image
+	// Screen image, only reallocated when the size of the client area changes.
 	private Image screenImage;
+	private GC screenGC;
 
 	/**
 	 * Constructor for ScrollableCanvas.
@@ -60,7 +69,7 @@ public final class ImageCanvas extends Canvas {
 		addPaintListener(new PaintListener() {
 			@Override
 			public void paintControl(final PaintEvent event) {
-				paint(event.gc);
+				paint(event.gc, new Rectangle(event.x, event.y, event.width, event.height));
 			}
 		});
 
@@ -78,48 +87,132 @@ public final class ImageCanvas extends Canvas {
 			sourceImage.dispose();
 			sourceImage = null;
 		}
+		sourceImageData = null;
+		disposeScaledImage();
+		disposeScreenImage();
+	}
+
+	private void disposeScaledImage() {
+		if (scaledImage != null && !scaledImage.isDisposed()) {
+			scaledImage.dispose();
+		}
+		scaledImage = null;
+		scaledImageZoom = 0;
+	}
+
+	private void disposeScreenImage() {
+		if (screenGC != null && !screenGC.isDisposed()) {
+			screenGC.dispose();
+		}
+		screenGC = null;
 		if (screenImage != null && !screenImage.isDisposed()) {
 			screenImage.dispose();
-			screenImage = null;
 		}
+		screenImage = null;
 	}
 
-	/* Paint function */
-	void paint(GC gc) {
+	/**
+	 * Paints the damaged region of the canvas. The region is first rendered into
+	 * the screen image and then copied to the canvas to avoid flickering.
+	 * 
+	 * @param gc               The GC of the canvas, not <code>null</code>.
+	 * @param damagedRectangle The damaged region of the canvas, not
+	 *                         <code>null</code>.
+	 */
+	void paint(GC gc, Rectangle damagedRectangle) {
 		// Canvas' painting area
 		Rectangle clientRectangle = getClientArea();
+		if (clientRectangle.width <= 0 || clientRectangle.height <= 0) {
+			return;
+		}
+		Rectangle paintRectangle = damagedRectangle.intersection(clientRectangle);
+		if (paintRectangle.isEmpty()) {
+			return;
+		}
 
-		if (sourceImage != null) {
-			Rectangle imageRectangle = ImageCanvasUtility.inverseTransformRectangle(transform, clientRectangle);
-			// Find a better start point to render
-			int gap = 2;
-			imageRectangle.x -= gap;
-			imageRectangle.y -= gap;
-			imageRectangle.width += 2 * gap;
-			imageRectangle.height += 2 * gap;
-
-			Rectangle imageBounds = sourceImage.getBounds();
-			imageRectangle = imageRectangle.intersection(imageBounds);
-			Rectangle destRect = ImageCanvasUtility.transformRectangle(transform, imageRectangle);
-
-			if (screenImage != null) {
-				screenImage.dispose();
+		if (screenImage != null) {
+			Rectangle screenBounds = screenImage.getBounds();
+			if (screenBounds.width != clientRectangle.width || screenBounds.height != clientRectangle.height) {
+				disposeScreenImage();
 			}
+		}
+		if (screenImage == null) {
 			screenImage = new Image(getDisplay(), clientRectangle.width, clientRectangle.height);
-			GC newGC = new GC(screenImage);
-			newGC.setBackground(getBackground());
-			newGC.fillRectangle(clientRectangle);
-			newGC.setClipping(clientRectangle);
-			newGC.drawImage(sourceImage, imageRectangle.x, imageRectangle.y, imageRectangle.width,
-					imageRectangle.height, destRect.x, destRect.y, destRect.width, destRect.height);
-			newGC.dispose();
-
-			gc.drawImage(screenImage, 0, 0);
-		} else {
-			gc.setClipping(clientRectangle);
-			gc.fillRectangle(clientRectangle);
-			initScrollBars();
+			screenGC = new GC(screenImage);
 		}
+
+		screenGC.setClipping(paintRectangle);
+		screenGC.setBackground(getBackground());
+		screenGC.fillRectangle(paintRectangle);
+		if (sourceImage != null) {
+			paintSourceImage(screenGC, paintRectangle);
+		}
+		gc.drawImage(screenImage, paintRectangle.x, paintRectangle.y, paintRectangle.width, paintRectangle.height,
+				paintRectangle.x, paintRectangle.y, paintRectangle.width, paintRectangle.height);
+	}
+
+	private void paintSourceImage(GC gc, Rectangle paintRectangle) {
+		// For integer zoom factors copy from the cached scaled image.
+		double scaleX = transform.getScaleX();
+		int zoom = (int) scaleX;
+		if (zoom >= 1 && zoom == scaleX && zoom == transform.getScaleY()) {
+			Image image = getScaledImage(zoom);
+			if (image != null) {
+				Point origin = ImageCanvasUtility.transformPoint(transform, new Point(0, 0));
+				Rectangle imageRectangle = image.getBounds();
+				imageRectangle.x = origin.x;
+				imageRectangle.y = origin.y;
+				imageRectangle = imageRectangle.intersection(paintRectangle);
+				if (!imageRectangle.isEmpty()) {
+					gc.drawImage(image, imageRectangle.x - origin.x, imageRectangle.y - origin.y,
+							imageRectangle.width, imageRectangle.height, imageRectangle.x, imageRectangle.y,
+							imageRectangle.width, imageRectangle.height);
+				}
+				return;
+			}
+		}
+
+		Rectangle imageRectangle = ImageCanvasUtility.inverseTransformRectangle(transform, paintRectangle);
+		// Find a better start point to render
+		int gap = 2;
+		imageRectangle.x -= gap;
+		imageRectangle.y -= gap;
+		imageRectangle.width += 2 * gap;
+		imageRectangle.height += 2 * gap;
+
+		Rectangle imageBounds = sourceImage.getBounds();
+		imageRectangle = imageRectangle.intersection(imageBounds);
+		if (imageRectangle.isEmpty()) {
+			return;
+		}
+		Rectangle destRect = ImageCanvasUtility.transformRectangle(transform, imageRectangle);
+		gc.drawImage(sourceImage, imageRectangle.x, imageRectangle.y, imageRectangle.width, imageRectangle.height,
+				destRect.x, destRect.y, destRect.width, destRect.height);
+	}
+
+	/**
+	 * Gets the source image scaled by an integer zoom factor. The scaled image is
+	 * kept until the zoom factor or the source image changes.
+	 * 
+	 * @param zoom The zoom factor, a positive integer.
+	 * @return The scaled image or <code>null</code> if it would be too large.
+	 */
+	private Image getScaledImage(int zoom) {
+		if (zoom == 1) {
+			return sourceImage;
+		}
+		if (scaledImage != null && scaledImageZoom == zoom) {
+			return scaledImage;
+		}
+		disposeScaledImage();
+		long width = (long) sourceImageData.width * zoom;
+		long height = (long) sourceImageData.height * zoom;
+		if (width * height > MAX_SCALED_IMAGE_PIXELS) {
+			return null;
+		}
+		scaledImage = new Image(getDisplay(), sourceImageData.scaledTo((int) width, (int) height));
+		scaledImageZoom = zoom;
+		return scaledImage;
 	}
 
 	/**
@@ -149,12 +242,13 @@ public final class ImageCanvas extends Canvas {
 		if (sourceImage == null)
 			return;
 
+		AffineTransform oldTransform = new AffineTransform(transform);
 		AffineTransform af = transform;
 		double tx = af.getTranslateX();
 		double select = -scrollBar.getSelection();
 		af.preConcatenate(AffineTransform.getTranslateInstance(select - tx, 0));
 		transform = af;
-		synchronizeScrollBars();
+		synchronizeScrollBars(oldTransform);
 	}
 
 	/* Scroll vertically */
@@ -162,12 +256,13 @@ public final class ImageCanvas extends Canvas {
 		if (sourceImage == null)
 			return;
 
+		AffineTransform oldTransform = new AffineTransform(transform);
 		AffineTransform af = transform;
 		double ty = af.getTranslateY();
 		double select = -scrollBar.getSelection();
 		af.preConcatenate(AffineTransform.getTranslateInstance(0, select - ty));
 		transform = af;
-		synchronizeScrollBars();
+		synchronizeScrollBars(oldTransform);
 	}
 
 	/**
@@ -176,6 +271,18 @@ public final class ImageCanvas extends Canvas {
 	 * :<b> transform, image size, client area size</b>.
 	 */
 	void synchronizeScrollBars() {
+		synchronizeScrollBars(null);
+	}
+
+	/**
+	 * Synchronize the scrollbars with the image. If only the translation changed
+	 * by whole pixels compared to the previous transform, the visible content is
+	 * moved and only the uncovered area is repainted.
+	 * 
+	 * @param previousTransform The transform used for the visible content or
+	 *                          <code>null</code> to repaint everything.
+	 */
+	private void synchronizeScrollBars(AffineTransform previousTransform) {
 		if (sourceImage == null) {
 			redraw();
 			return;
@@ -237,6 +344,16 @@ public final class ImageCanvas extends Canvas {
 		af.preConcatenate(AffineTransform.getTranslateInstance(tx, ty));
 		transform = af;
 
+		if (previousTransform != null && previousTransform.getScaleX() == sx && previousTransform.getScaleY() == sy) {
+			double deltaX = tx - previousTransform.getTranslateX();
+			double deltaY = ty - previousTransform.getTranslateY();
+			if (deltaX == Math.rint(deltaX) && deltaY == Math.rint(deltaY)) {
+				if (deltaX != 0 || deltaY != 0) {
+					scroll((int) deltaX, (int) deltaY, 0, 0, clientArea.width, clientArea.height, false);
+				}
+				return;
+			}
+		}
 		redraw();
 	}
 
@@ -273,6 +390,8 @@ public final class ImageCanvas extends Canvas {
 			sourceImage.dispose();
 			sourceImage = null;
 		}
+		sourceImageData = data;
+		disposeScaledImage();
 
 		if (data != null) {
 			sourceImage = new Image(getDisplay(), data);
@@ -283,6 +402,8 @@ public final class ImageCanvas extends Canvas {
 				redraw();
 			}
 		} else {
+			getHorizontalBar().setEnabled(false);
+			getVerticalBar().setEnabled(false);
 			redraw();
 		}
 	}
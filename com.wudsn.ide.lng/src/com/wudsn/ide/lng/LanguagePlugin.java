@@ -42,7 +42,10 @@ import org.osgi.framework.BundleContext;
 
 import com.wudsn.ide.base.common.AbstractIDEPlugin;
 import com.wudsn.ide.base.common.FileUtility;
+import com.wudsn.ide.lng.compiler.CompilerBuildCache;
 import com.wudsn.ide.lng.compiler.CompilerConsole;
+import com.wudsn.ide.lng.compiler.CompilerDependencyGraph;
+import com.wudsn.ide.lng.compiler.CompilerMetrics;
 import com.wudsn.ide.lng.compiler.CompilerPaths;
 import com.wudsn.ide.lng.compiler.CompilerPathsTest;
 import com.wudsn.ide.lng.compiler.CompilerRegistry;
@@ -94,6 +97,21 @@ public final class LanguagePlugin extends AbstractIDEPlugin {
 	 */
 	private CompilerConsole compilerConsole;
 
+	/**
+	 * The compiler build cache.
+	 */
+	private CompilerBuildCache compilerBuildCache;
+
+	/**
+	 * The compiler dependency graph.
+	 */
+	private CompilerDependencyGraph compilerDependencyGraph;
+
+	/**
+	 * The compiler metrics.
+	 */
+	private CompilerMetrics compilerMetrics;
+
 	/**
 	 * The runner registry.
 	 */
@@ -118,6 +136,9 @@ public final class LanguagePlugin extends AbstractIDEPlugin {
 		compilerRegistry = new CompilerRegistry();
 		compilerPaths = new CompilerPaths();
 		compilerConsole = null;
+		compilerBuildCache = new CompilerBuildCache();
+		compilerDependencyGraph = new CompilerDependencyGraph();
+		compilerMetrics = new CompilerMetrics();
 		runnerRegistry = new RunnerRegistry();
 		runnerPaths = new RunnerPaths();
 		properties = new HashMap<QualifiedName, String>(10);
@@ -157,6 +178,7 @@ public final class LanguagePlugin extends AbstractIDEPlugin {
 			logError("Cannot initialize runner registry", null, ex);
 			throw ex;
 		}
+		compilerDependencyGraph.init();
 
 		// Register for global JFace preferences that also affect the editors.
 		JFacePreferences.getPreferenceStore().addPropertyChangeListener(new IPropertyChangeListener() {
@@ -192,6 +214,7 @@ public final class LanguagePlugin extends AbstractIDEPlugin {
 	 */
 	@Override
 	public void stop(BundleContext context) throws Exception {
+		compilerDependencyGraph.dispose();
 		super.stop(context);
 		plugin = null;
 	}
@@ -283,6 +306,48 @@ public final class LanguagePlugin extends AbstractIDEPlugin {
 		return compilerConsole;
 	}
 
+	/**
+	 * Gets the compiler build cache for this plugin.
+	 * 
+	 * @return The compiler build cache, not <code>null</code>.
+	 * 
+	 * @since 1.7.2
+	 */
+	public CompilerBuildCache getCompilerBuildCache() {
+		if (compilerBuildCache == null) {
+			throw new IllegalStateException("Field 'compilerBuildCache' must not be null.");
+		}
+		return compilerBuildCache;
+	}
+
+	/**
+	 * Gets the compiler dependency graph for this plugin.
+	 * 
+	 * @return The compiler dependency graph, not <code>null</code>.
+	 * 
+	 * @since 1.7.2
+	 */
+	public CompilerDependencyGraph getCompilerDependencyGraph() {
+		if (compilerDependencyGraph == null) {
+			throw new IllegalStateException("Field 'compilerDependencyGraph' must not be null.");
+		}
+		return compilerDependencyGraph;
+	}
+
+	/**
+	 * Gets the compiler metrics for this plugin.
+	 * 
+	 * @return The compiler metrics, not <code>null</code>.
+	 * 
+	 * @since 1.7.2
+	 */
+	public CompilerMetrics getCompilerMetrics() {
+		if (compilerMetrics == null) {
+			throw new IllegalStateException("Field 'compilerMetrics' must not be null.");
+		}
+		return compilerMetrics;
+	}
+
 	/**
 	 * Gets the runner registry for this plugin.
 	 * 
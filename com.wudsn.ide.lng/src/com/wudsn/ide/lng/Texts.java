@@ -41,6 +41,9 @@ public final class Texts extends NLS {
 	 * Compiler console.
 	 */
 	public static String COMPILER_CONSOLE_TITLE;
+	public static String COMPILER_DEPENDENCY_GRAPH_JOB_NAME;
+	public static String COMPILER_BATCH_BUILD_JOB_NAME;
+	public static String COMPILER_BATCH_BUILD_TASK_NAME;
 
 	/**
 	 * Compiler source parser tree.
@@ -117,6 +120,31 @@ public final class Texts extends NLS {
 	public static String COMPILER_SYMBOLS_VIEW_DECIMAL_VALUE_COLUMN_LABEL;
 	public static String COMPILER_SYMBOLS_VIEW_STRING_VALUE_COLUMN_LABEL;
 
+	/**
+	 * Compiler metrics
+	 */
+	public static String COMPILER_METRICS_PHASE_ANNOTATION_SCAN;
+	public static String COMPILER_METRICS_PHASE_FILE_CHECKS;
+	public static String COMPILER_METRICS_PHASE_PROCESS_SPAWN;
+	public static String COMPILER_METRICS_PHASE_COMPILE;
+	public static String COMPILER_METRICS_PHASE_LOG_PARSING;
+	public static String COMPILER_METRICS_PHASE_MARKER_CREATION;
+	public static String COMPILER_METRICS_PHASE_SYMBOL_LOADING;
+	public static String COMPILER_METRICS_PHASE_DISK_IMAGE_WRITING;
+	public static String COMPILER_METRICS_PHASE_RUNNER_LAUNCH;
+	public static String COMPILER_METRICS_VIEW_DEFINITION_COLUMN_LABEL;
+	public static String COMPILER_METRICS_VIEW_PHASE_COLUMN_LABEL;
+	public static String COMPILER_METRICS_VIEW_COUNT_COLUMN_LABEL;
+	public static String COMPILER_METRICS_VIEW_MEAN_COLUMN_LABEL;
+	public static String COMPILER_METRICS_VIEW_MEDIAN_COLUMN_LABEL;
+	public static String COMPILER_METRICS_VIEW_PERCENTILE_90_COLUMN_LABEL;
+	public static String COMPILER_METRICS_VIEW_PERCENTILE_99_COLUMN_LABEL;
+	public static String COMPILER_METRICS_VIEW_MAX_COLUMN_LABEL;
+	public static String COMPILER_METRICS_VIEW_SHARE_COLUMN_LABEL;
+	public static String COMPILER_METRICS_VIEW_EXPORT_CSV_ACTION_LABEL;
+	public static String COMPILER_METRICS_VIEW_EXPORT_JSON_ACTION_LABEL;
+	public static String COMPILER_METRICS_VIEW_RESET_ACTION_LABEL;
+
 	/**
 	 * Preferences: syntax highlighting.
 	 */
@@ -303,6 +331,7 @@ public final class Texts extends NLS {
 	public static String MESSAGE_S143;
 	public static String MESSAGE_W144;
 	public static String MESSAGE_E145;
+	public static String MESSAGE_I146;
 
 	/**
 	 * Initializes the constants.
@@ -0,0 +1,613 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.wudsn.ide.lng.compiler;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceVisitor;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.jface.text.Document;
+
+import com.wudsn.ide.base.common.FileUtility;
+import com.wudsn.ide.base.common.MarkerUtility;
+import com.wudsn.ide.base.common.ParallelExecutor;
+import com.wudsn.ide.base.common.TextUtility;
+import com.wudsn.ide.base.hardware.Hardware;
+import com.wudsn.ide.lng.LanguageAnnotation;
+import com.wudsn.ide.lng.LanguageAnnotationValues;
+import com.wudsn.ide.lng.LanguageAnnotationValues.InvalidLanguageAnnotationException;
+import com.wudsn.ide.lng.LanguagePlugin;
+import com.wudsn.ide.lng.Texts;
+import com.wudsn.ide.lng.compiler.parser.CompilerSourceParser;
+import com.wudsn.ide.lng.preferences.CompilerRunPreferences;
+import com.wudsn.ide.lng.preferences.LanguageHardwareCompilerDefinitionPreferences;
+import com.wudsn.ide.lng.preferences.LanguagePreferences;
+
+/**
+ * Headless build of multiple main source files. The main source files are
+ * discovered in the selected resources based on the
+ * {@link CompilerDependencyGraph}. The compiler definition, hardware and
+ * compiler run preferences of every main source file are resolved from its
+ * annotations in the same way as in the editor. The compiler processes are run
+ * in parallel up to the configured concurrency. Markers are created per main
+ * source file and the results including the timing are collected per main
+ * source file.
+ * 
+ * @author Peter Dell
+ * 
+ * @since 1.7.2
+ */
+public final class CompilerBatchBuild {
+
+	/**
+	 * The system property to override the maximum number of compiler processes
+	 * run in parallel. The default is the number of available processors.
+	 */
+	public static final String CONCURRENCY_PROPERTY = "com.wudsn.ide.lng.compiler.CompilerBatchBuild.concurrency"; //$NON-NLS-1$
+
+	/**
+	 * The result of building a single main source file.
+	 */
+	public static final class Result {
+
+		public final IFile mainSourceIFile;
+		CompilerDefinition compilerDefinition;
+		Hardware hardware;
+		boolean success;
+		boolean upToDate;
+		int errorCount;
+		int warningCount;
+		long durationMillis;
+		String log;
+
+		Result(IFile mainSourceIFile) {
+			this.mainSourceIFile = mainSourceIFile;
+			log = "";
+		}
+
+		/**
+		 * Gets the compiler definition.
+		 * 
+		 * @return The compiler definition or <code>null</code> if no compiler is
+		 *         registered for the main source file.
+		 */
+		public CompilerDefinition getCompilerDefinition() {
+			return compilerDefinition;
+		}
+
+		/**
+		 * Gets the hardware.
+		 * 
+		 * @return The hardware or <code>null</code> if the hardware could not be
+		 *         determined.
+		 */
+		public Hardware getHardware() {
+			return hardware;
+		}
+
+		/**
+		 * Determines if the output file was created or updated successfully.
+		 * 
+		 * @return <code>true</code> if the output file was created or updated
+		 *         successfully or is up to date.
+		 */
+		public boolean isSuccess() {
+			return success;
+		}
+
+		/**
+		 * Determines if the compiler process was not started, because the output
+		 * file was up to date.
+		 * 
+		 * @return <code>true</code> if the output file was up to date.
+		 */
+		public boolean isUpToDate() {
+			return upToDate;
+		}
+
+		/**
+		 * Gets the number of error markers in the main source file and the
+		 * include files which are not already counted for a previous main source
+		 * file.
+		 * 
+		 * @return The number of error markers, a non-negative integer.
+		 */
+		public int getErrorCount() {
+			return errorCount;
+		}
+
+		/**
+		 * Gets the number of warning markers in the main source file and the
+		 * include files which are not already counted for a previous main source
+		 * file.
+		 * 
+		 * @return The number of warning markers, a non-negative integer.
+		 */
+		public int getWarningCount() {
+			return warningCount;
+		}
+
+		public long getDurationMillis() {
+			return durationMillis;
+		}
+
+		/**
+		 * Gets the console log of the build.
+		 * 
+		 * @return The console log, may be empty, not <code>null</code>.
+		 */
+		public String getLog() {
+			return log;
+		}
+	}
+
+	private final LanguagePlugin plugin;
+
+	/**
+	 * Creation is public.
+	 */
+	public CompilerBatchBuild() {
+		plugin = LanguagePlugin.getInstance();
+	}
+
+	/**
+	 * Gets the maximum number of compiler processes run in parallel.
+	 * 
+	 * @return The concurrency, a positive integer.
+	 */
+	public static int getDefaultConcurrency() {
+		return ParallelExecutor.getDefaultConcurrency(CONCURRENCY_PROPERTY);
+	}
+
+	/**
+	 * Finds the main source files in the specified resources. Folders and projects
+	 * are searched recursively. A file is a main source file if a compiler is
+	 * registered for its default editor, it does not specify the annotation
+	 * {@link LanguageAnnotation#MAIN_SOURCE_FILE} and it is not included by any
+	 * other file. Include files which are selected explicitly are replaced by the
+	 * main source files including them.
+	 * 
+	 * @param resources The resources, may be empty, not <code>null</code>.
+	 * @return The modifiable list of main source files in the order in which they
+	 *         were found, may be empty, not <code>null</code>.
+	 * 
+	 * @throws CoreException If the resources cannot be visited.
+	 */
+	public List<IFile> findMainSourceFiles(List<IResource> resources) throws CoreException {
+		if (resources == null) {
+			throw new IllegalArgumentException("Parameter 'resources' must not be null.");
+		}
+		final CompilerDependencyGraph compilerDependencyGraph = plugin.getCompilerDependencyGraph();
+		final Set<IFile> result = new LinkedHashSet<IFile>();
+		for (IResource resource : resources) {
+			if (resource.getType() == IResource.FILE) {
+				IFile iFile = (IFile) resource;
+				File file = getFile(iFile);
+				if (file == null || plugin.getCompilerRegistry().getCompilerByDefaultEditor(iFile) == null) {
+					continue;
+				}
+				for (File mainSourceFile : compilerDependencyGraph.getMainSourceFiles(file)) {
+					IFile mainSourceIFile = getIFile(mainSourceFile);
+					if (mainSourceIFile != null && isMainSourceFile(mainSourceIFile)) {
+						result.add(mainSourceIFile);
+					}
+				}
+				continue;
+			}
+			resource.accept(new IResourceVisitor() {
+
+				@Override
+				public boolean visit(IResource resource) throws CoreException {
+					if (resource.getType() == IResource.FILE) {
+						IFile iFile = (IFile) resource;
+						File file = getFile(iFile);
+						if (file != null && !compilerDependencyGraph.isReferenced(file)
+								&& plugin.getCompilerRegistry().getCompilerByDefaultEditor(iFile) != null
+								&& isMainSourceFile(iFile)) {
+							result.add(iFile);
+						}
+					}
+					return true;
+				}
+			});
+		}
+		return new ArrayList<IFile>(result);
+	}
+
+	/**
+	 * Builds the main source files in parallel. The compiler console receives the
+	 * log of each main source file as a whole when its build is complete,
+	 * followed by a summary.
+	 * 
+	 * @param mainSourceIFiles The main source files, may be empty, not
+	 *                         <code>null</code>.
+	 * @param concurrency      The maximum number of compiler processes run in
+	 *                         parallel, a positive integer.
+	 * @param monitor          The progress monitor, not <code>null</code>.
+	 * @return The list of results in the order of the main source files, not
+	 *         <code>null</code>.
+	 * 
+	 * @throws OperationCanceledException If the progress monitor was canceled.
+	 */
+	public List<Result> build(List<IFile> mainSourceIFiles, int concurrency, IProgressMonitor monitor) {
+		if (mainSourceIFiles == null) {
+			throw new IllegalArgumentException("Parameter 'mainSourceIFiles' must not be null.");
+		}
+		if (concurrency < 1) {
+			throw new IllegalArgumentException(
+					"Parameter 'concurrency' must be positive. Specified value is " + concurrency + ".");
+		}
+		if (monitor == null) {
+			throw new IllegalArgumentException("Parameter 'monitor' must not be null.");
+		}
+
+		long startTimeMillis = System.currentTimeMillis();
+		monitor.beginTask(Texts.COMPILER_BATCH_BUILD_JOB_NAME, mainSourceIFiles.size() * 2);
+
+		// Markers are removed before the parallel builds are started, because
+		// include files may be shared by several main source files.
+		for (IFile mainSourceIFile : mainSourceIFiles) {
+			removeMarkers(mainSourceIFile);
+			monitor.worked(1);
+		}
+
+		final CompilerConsole compilerConsole = plugin.getCompilerConsole();
+		compilerConsole.println("");
+		compilerConsole.println("Building " + mainSourceIFiles.size() + " main source files with up to " + concurrency
+				+ " parallel compiler processes on " + new SimpleDateFormat().format(new Date()) + ".");
+
+		final Set<CompilerProcessLogParser.Marker> createdMarkers = new HashSet<CompilerProcessLogParser.Marker>();
+		List<ParallelExecutor.Task<Result>> tasks = new ArrayList<ParallelExecutor.Task<Result>>(
+				mainSourceIFiles.size());
+		for (final IFile mainSourceIFile : mainSourceIFiles) {
+			tasks.add(new ParallelExecutor.Task<Result>() {
+
+				@Override
+				public String getName() {
+					return TextUtility.format(Texts.COMPILER_BATCH_BUILD_TASK_NAME,
+							mainSourceIFile.getFullPath().toString());
+				}
+
+				@Override
+				public Result execute() {
+					Result result = new Result(mainSourceIFile);
+					long fileStartTimeMillis = System.currentTimeMillis();
+					StringBuilder log = new StringBuilder();
+					try {
+						buildFile(result, log, createdMarkers);
+					} catch (RuntimeException ex) {
+						plugin.logError("Cannot build '{0}'", new Object[] { mainSourceIFile.getFullPath() }, ex);
+						MarkerUtility.createMarker(mainSourceIFile, 0, IMarker.SEVERITY_ERROR, "{0}",
+								String.valueOf(ex.getMessage()));
+					}
+					result.durationMillis = System.currentTimeMillis() - fileStartTimeMillis;
+					result.log = log.toString();
+					synchronized (compilerConsole) {
+						compilerConsole.println(result.log);
+					}
+					return result;
+				}
+			});
+		}
+
+		try {
+			List<Result> results = ParallelExecutor.execute(tasks, concurrency, CompilerBatchBuild.class.getName(),
+					Thread.NORM_PRIORITY, monitor);
+			countMarkers(results);
+			printSummary(compilerConsole, results, System.currentTimeMillis() - startTimeMillis);
+			return results;
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Builds a single main source file.
+	 * 
+	 * @param result         The result to be filled, not <code>null</code>.
+	 * @param log            The console log to be filled, not <code>null</code>.
+	 * @param createdMarkers The markers created for the compiler logs of all main
+	 *                       source files, not <code>null</code>.
+	 */
+	private void buildFile(Result result, final StringBuilder log,
+			final Set<CompilerProcessLogParser.Marker> createdMarkers) {
+		IFile mainSourceIFile = result.mainSourceIFile;
+
+		final Compiler compiler = plugin.getCompilerRegistry().getCompilerByDefaultEditor(mainSourceIFile);
+		if (compiler == null) {
+			return;
+		}
+		CompilerDefinition compilerDefinition = compiler.getDefinition();
+		result.compilerDefinition = compilerDefinition;
+		CompilerMetrics compilerMetrics = plugin.getCompilerMetrics();
+		long nanoTime = System.nanoTime();
+
+		// Determine annotations and hardware.
+		File mainSourceFile = new File(mainSourceIFile.getLocation().toOSString());
+		LanguageAnnotationValues annotationValues;
+		try {
+			annotationValues = CompilerSourceParser.getAnnotationValues(
+					new Document(FileUtility.readString(mainSourceFile, FileUtility.MAX_SIZE_UNLIMITED)));
+		} catch (CoreException ex) {
+			MarkerUtility.createMarker(mainSourceIFile, 0, IMarker.SEVERITY_ERROR, "{0}", ex.getMessage());
+			return;
+		}
+		Hardware hardware;
+		try {
+			hardware = CompilerBuild.getHardware(mainSourceIFile, annotationValues);
+		} catch (InvalidLanguageAnnotationException ex) {
+			return;
+		}
+		if (hardware == null) {
+			hardware = compilerDefinition.getDefaultHardware();
+		}
+		result.hardware = hardware;
+		compilerMetrics.record(compilerDefinition, CompilerMetrics.Phase.ANNOTATION_SCAN, nanoTime);
+
+		LanguagePreferences languagePreferences = plugin.getLanguagePreferences(compilerDefinition.getLanguage());
+		LanguageHardwareCompilerDefinitionPreferences languageHardwareCompilerDefinitionPreferences = languagePreferences
+				.getLanguageHardwareCompilerDefinitionPreferences(hardware, compilerDefinition);
+		final CompilerFiles files = new CompilerFiles(mainSourceIFile, annotationValues, mainSourceIFile,
+				annotationValues, languageHardwareCompilerDefinitionPreferences);
+		if (CompilerBuild.validateOutputFile(files, compilerDefinition) != null) {
+			return;
+		}
+		CompilerRunPreferences compilerRunPreferences = new CompilerRunPreferences(
+				languageHardwareCompilerDefinitionPreferences, annotationValues);
+		CompilerSourceParser compilerSourceParser = compiler.createSourceParser();
+		compilerSourceParser.init(
+				compilerDefinition.getSyntax().getInstructionSet(languageHardwareCompilerDefinitionPreferences.getTarget()));
+
+		CompilerBuild compilerBuild = new CompilerBuild(compiler, compilerSourceParser, files, hardware,
+				compilerRunPreferences) {
+
+			@Override
+			protected void print(String line) {
+				log.append(line).append("\n");
+			}
+
+			@Override
+			protected boolean createLogMarkers(String outputLog, String errorLog) {
+				return CompilerBatchBuild.this.createLogMarkers(compiler, files, outputLog, errorLog, createdMarkers);
+			}
+		};
+		result.success = compilerBuild.execute();
+		result.upToDate = compilerBuild.isUpToDate();
+	}
+
+	/**
+	 * Creates the markers for the compiler logs. Include files may be shared by
+	 * several main source files, so markers which were already created for
+	 * another main source file are not created again.
+	 * 
+	 * @param compiler       The compiler, not <code>null</code>.
+	 * @param files          The compiler files, not <code>null</code>.
+	 * @param outputLog      The output log, not <code>null</code>.
+	 * @param errorLog       The error log, not <code>null</code>.
+	 * @param createdMarkers The markers created for the compiler logs of all main
+	 *                       source files, not <code>null</code>.
+	 * @return <code>true</code> if the logs contain an error.
+	 */
+	private boolean createLogMarkers(Compiler compiler, CompilerFiles files, String outputLog, String errorLog,
+			Set<CompilerProcessLogParser.Marker> createdMarkers) {
+		CompilerMetrics compilerMetrics = plugin.getCompilerMetrics();
+		long nanoTime = System.nanoTime();
+		CompilerProcessLogParser logParser = compiler.createLogParser();
+		logParser.setLogs(files, outputLog, errorLog);
+		List<CompilerProcessLogParser.Marker> markers = logParser.getMarkers();
+		nanoTime = compilerMetrics.record(compiler.getDefinition(), CompilerMetrics.Phase.LOG_PARSING, nanoTime);
+		boolean errorFound = false;
+		List<CompilerProcessLogParser.Marker> newMarkers = new ArrayList<CompilerProcessLogParser.Marker>(
+				markers.size());
+		for (CompilerProcessLogParser.Marker marker : markers) {
+			if (marker.getSeverity() == IMarker.SEVERITY_ERROR) {
+				errorFound = true;
+			}
+		}
+		synchronized (createdMarkers) {
+			for (CompilerProcessLogParser.Marker marker : markers) {
+				if (createdMarkers.add(marker)) {
+					newMarkers.add(marker);
+				}
+			}
+			CompilerProcessLogParser.createMarkers(newMarkers);
+		}
+		compilerMetrics.record(compiler.getDefinition(), CompilerMetrics.Phase.MARKER_CREATION, nanoTime);
+		return errorFound;
+	}
+
+	/**
+	 * Removes the problem markers from a main source file and all workspace files
+	 * it includes.
+	 * 
+	 * @param mainSourceIFile The main source file, not <code>null</code>.
+	 */
+	private void removeMarkers(IFile mainSourceIFile) {
+		for (IFile iFile : getSourceIFiles(mainSourceIFile)) {
+			try {
+				iFile.deleteMarkers(IMarker.PROBLEM, true, IResource.DEPTH_ZERO);
+			} catch (CoreException ex) {
+				plugin.logError("Cannot remove markers", null, ex);
+			}
+		}
+	}
+
+	/**
+	 * Gets the main source file and all workspace files it includes directly or
+	 * indirectly.
+	 * 
+	 * @param mainSourceIFile The main source file, not <code>null</code>.
+	 * @return The list of workspace files starting with the main source file, not
+	 *         empty and not <code>null</code>.
+	 */
+	private List<IFile> getSourceIFiles(IFile mainSourceIFile) {
+		List<IFile> result = new ArrayList<IFile>();
+		result.add(mainSourceIFile);
+		File mainSourceFile = getFile(mainSourceIFile);
+		if (mainSourceFile == null) {
+			return result;
+		}
+		CompilerDependencyGraph compilerDependencyGraph = plugin.getCompilerDependencyGraph();
+		Set<File> visitedFiles = new LinkedHashSet<File>();
+		List<File> files = new ArrayList<File>();
+		visitedFiles.add(mainSourceFile);
+		files.add(mainSourceFile);
+		while (!files.isEmpty()) {
+			for (File file : compilerDependencyGraph.getReferencedFiles(files.remove(files.size() - 1))) {
+				if (visitedFiles.add(file)) {
+					files.add(file);
+					IFile iFile = getIFile(file);
+					if (iFile != null) {
+						result.add(iFile);
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Counts the error and warning markers of the main source files and all
+	 * workspace files they include. Every file is counted only once, for the first
+	 * main source file which includes it, so include files shared by several main
+	 * source files are not counted multiple times.
+	 * 
+	 * @param results The results in the order of the main source files, not
+	 *                <code>null</code>.
+	 */
+	private void countMarkers(List<Result> results) {
+		Set<IFile> countedIFiles = new HashSet<IFile>();
+		for (Result result : results) {
+			for (IFile iFile : getSourceIFiles(result.mainSourceIFile)) {
+				if (!countedIFiles.add(iFile)) {
+					continue;
+				}
+				try {
+					for (IMarker marker : iFile.findMarkers(IMarker.PROBLEM, true, IResource.DEPTH_ZERO)) {
+						switch (marker.getAttribute(IMarker.SEVERITY, 0)) {
+						case IMarker.SEVERITY_ERROR:
+							result.errorCount++;
+							break;
+						case IMarker.SEVERITY_WARNING:
+							result.warningCount++;
+							break;
+						}
+					}
+				} catch (CoreException ex) {
+					plugin.logError("Cannot find markers", null, ex);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Prints the summary with the result and timing per main source file.
+	 * 
+	 * @param compilerConsole The compiler console, not <code>null</code>.
+	 * @param results         The results, not <code>null</code>.
+	 * @param durationMillis  The total duration in milliseconds.
+	 */
+	private static void printSummary(CompilerConsole compilerConsole, List<Result> results, long durationMillis) {
+		int successCount = 0;
+		long sumDurationMillis = 0;
+		StringBuilder builder = new StringBuilder();
+		builder.append("\nBuild summary:\n");
+		for (Result result : results) {
+			if (result.success) {
+				successCount++;
+			}
+			sumDurationMillis += result.durationMillis;
+			builder.append(result.success ? (result.upToDate ? "UP-TO-DATE" : "OK        ") : "FAILED    ");
+			builder.append(" ").append(String.format("%6d ms", Long.valueOf(result.durationMillis)));
+			builder.append(" ").append(String.format("%3d errors, %3d warnings", Integer.valueOf(result.errorCount),
+					Integer.valueOf(result.warningCount)));
+			builder.append(" ").append(result.hardware == null ? "" : result.hardware.name());
+			builder.append(" ").append(result.mainSourceIFile.getFullPath().toString()).append("\n");
+		}
+		builder.append(successCount + " of " + results.size() + " main source files built successfully in "
+				+ durationMillis + " ms (" + sumDurationMillis + " ms sequential).");
+		synchronized (compilerConsole) {
+			compilerConsole.println(builder.toString());
+		}
+	}
+
+	/**
+	 * Determines if a file is a main source file based on its annotations.
+	 * 
+	 * @param iFile The workspace file, not <code>null</code>.
+	 * @return <code>true</code> if the file does not specify the annotation
+	 *         {@link LanguageAnnotation#MAIN_SOURCE_FILE}.
+	 */
+	private static boolean isMainSourceFile(IFile iFile) {
+		File file = getFile(iFile);
+		if (file == null) {
+			return false;
+		}
+		try {
+			LanguageAnnotationValues annotationValues = CompilerSourceParser
+					.getAnnotationValues(new Document(FileUtility.readString(file, FileUtility.MAX_SIZE_UNLIMITED)));
+			return annotationValues.get(LanguageAnnotation.MAIN_SOURCE_FILE) == null;
+		} catch (CoreException ex) {
+			return false;
+		}
+	}
+
+	/**
+	 * Gets the canonical file for a workspace file.
+	 * 
+	 * @param iFile The workspace file, not <code>null</code>.
+	 * @return The canonical file or <code>null</code> if the workspace file has
+	 *         no local file system location.
+	 */
+	private static File getFile(IFile iFile) {
+		IPath location = iFile.getLocation();
+		if (location == null) {
+			return null;
+		}
+		return FileUtility.getCanonicalFile(new File(location.toOSString()));
+	}
+
+	/**
+	 * Gets the workspace file for a file.
+	 * 
+	 * @param file The file, not <code>null</code>.
+	 * @return The workspace file or <code>null</code> if the file is not located in
+	 *         the workspace.
+	 */
+	private static IFile getIFile(File file) {
+		IFile[] iFiles = ResourcesPlugin.getWorkspace().getRoot().findFilesForLocationURI(file.toURI());
+		return iFiles.length > 0 ? iFiles[0] : null;
+	}
+
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.wudsn.ide.lng.compiler;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.core.commands.AbstractHandler;
+import org.eclipse.core.commands.ExecutionEvent;
+import org.eclipse.core.commands.ExecutionException;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IAdaptable;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.viewers.ISelection;
+import org.eclipse.jface.viewers.IStructuredSelection;
+import org.eclipse.ui.handlers.HandlerUtil;
+import org.eclipse.ui.ide.IDE;
+
+import com.wudsn.ide.lng.LanguagePlugin;
+import com.wudsn.ide.lng.Texts;
+
+/**
+ * Handler for the "Build Main Source Files" command in the context menu of
+ * resources. The main source files in the selected resources are built in a
+ * background job, see {@link CompilerBatchBuild}.
+ * 
+ * @author Peter Dell
+ * 
+ * @since 1.7.2
+ */
+public final class CompilerBatchBuildCommandHandler extends AbstractHandler {
+
+	@Override
+	public Object execute(ExecutionEvent event) throws ExecutionException {
+		final List<IResource> resources = new ArrayList<IResource>();
+		ISelection selection = HandlerUtil.getCurrentSelection(event);
+		if (selection instanceof IStructuredSelection) {
+			Iterator<?> i = ((IStructuredSelection) selection).iterator();
+			while (i.hasNext()) {
+				Object object = i.next();
+				IResource resource = null;
+				if (object instanceof IResource) {
+					resource = (IResource) object;
+				} else if (object instanceof IAdaptable) {
+					resource = ((IAdaptable) object).getAdapter(IResource.class);
+				}
+				if (resource != null) {
+					resources.add(resource);
+				}
+			}
+		}
+		if (resources.isEmpty()) {
+			return null;
+		}
+
+		// Ensure all current changes in all open editors are saved.
+		if (!IDE.saveAllEditors(new IResource[] { ResourcesPlugin.getWorkspace().getRoot() }, false)) {
+			return null;
+		}
+
+		Job job = new Job(Texts.COMPILER_BATCH_BUILD_JOB_NAME) {
+
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				CompilerBatchBuild compilerBatchBuild = new CompilerBatchBuild();
+				try {
+					List<IFile> mainSourceIFiles = compilerBatchBuild.findMainSourceFiles(resources);
+					compilerBatchBuild.build(mainSourceIFiles, CompilerBatchBuild.getDefaultConcurrency(), monitor);
+				} catch (OperationCanceledException ex) {
+					return Status.CANCEL_STATUS;
+				} catch (CoreException ex) {
+					return ex.getStatus();
+				} catch (RuntimeException ex) {
+					LanguagePlugin.getInstance().logError("Cannot build main source files", null, ex);
+					return new Status(IStatus.ERROR, LanguagePlugin.ID, ex.getMessage(), ex);
+				}
+				return Status.OK_STATUS;
+			}
+		};
+		job.setUser(true);
+		job.schedule();
+		return null;
+	}
+}
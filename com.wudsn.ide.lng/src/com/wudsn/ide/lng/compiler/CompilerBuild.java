@@ -0,0 +1,514 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.wudsn.ide.lng.compiler;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+
+import com.wudsn.ide.base.common.HexUtility;
+import com.wudsn.ide.base.common.MarkerUtility;
+import com.wudsn.ide.base.common.NumberUtility;
+import com.wudsn.ide.base.common.ProcessWithLogs;
+import com.wudsn.ide.base.common.StringUtility;
+import com.wudsn.ide.base.hardware.Hardware;
+import com.wudsn.ide.lng.HardwareUtility;
+import com.wudsn.ide.lng.LanguageAnnotation;
+import com.wudsn.ide.lng.LanguageAnnotationValues;
+import com.wudsn.ide.lng.LanguageAnnotationValues.InvalidLanguageAnnotationException;
+import com.wudsn.ide.lng.LanguageAnnotationValues.LanguageAnnotationValue;
+import com.wudsn.ide.lng.LanguagePlugin;
+import com.wudsn.ide.lng.LanguageUtility;
+import com.wudsn.ide.lng.Texts;
+import com.wudsn.ide.lng.compiler.parser.CompilerSourceParser;
+import com.wudsn.ide.lng.preferences.CompilerRunPreferences;
+
+/**
+ * Single compiler run for the main source file of a {@link CompilerFiles}
+ * instance. The checks of the compiler executable and its parameters, the reuse
+ * of a previous result via the {@link CompilerBuildCache}, the execution of the
+ * compiler process and the checks of the output file are shared by the compile
+ * command of the editor and the {@link CompilerBatchBuild}. The console output
+ * and the creation of the markers for the compiler logs are implemented by the
+ * sub classes.
+ * 
+ * @author Peter Dell
+ * 
+ * @since 1.7.2
+ */
+public abstract class CompilerBuild {
+
+	private final LanguagePlugin plugin;
+	private final Compiler compiler;
+	private final CompilerSourceParser compilerSourceParser;
+	private final CompilerFiles files;
+	private final Hardware hardware;
+	private final CompilerRunPreferences compilerRunPreferences;
+
+	private boolean upToDate;
+
+	/**
+	 * Creates a new compiler run.
+	 * 
+	 * @param compiler               The compiler, not <code>null</code>.
+	 * @param compilerSourceParser   The source parser of the compiler for the
+	 *                               instruction set of the target, not
+	 *                               <code>null</code>.
+	 * @param files                  The compiler files, not <code>null</code>.
+	 * @param hardware               The hardware, not <code>null</code>.
+	 * @param compilerRunPreferences The compiler run preferences, not
+	 *                               <code>null</code>.
+	 */
+	protected CompilerBuild(Compiler compiler, CompilerSourceParser compilerSourceParser, CompilerFiles files,
+			Hardware hardware, CompilerRunPreferences compilerRunPreferences) {
+		if (compiler == null) {
+			throw new IllegalArgumentException("Parameter 'compiler' must not be null.");
+		}
+		if (compilerSourceParser == null) {
+			throw new IllegalArgumentException("Parameter 'compilerSourceParser' must not be null.");
+		}
+		if (files == null) {
+			throw new IllegalArgumentException("Parameter 'files' must not be null.");
+		}
+		if (hardware == null) {
+			throw new IllegalArgumentException("Parameter 'hardware' must not be null.");
+		}
+		if (compilerRunPreferences == null) {
+			throw new IllegalArgumentException("Parameter 'compilerRunPreferences' must not be null.");
+		}
+		plugin = LanguagePlugin.getInstance();
+		this.compiler = compiler;
+		this.compilerSourceParser = compilerSourceParser;
+		this.files = files;
+		this.hardware = hardware;
+		this.compilerRunPreferences = compilerRunPreferences;
+	}
+
+	/**
+	 * Determine the hardware defined by the value
+	 * {@link LanguageAnnotation#HARDWARE}.
+	 * 
+	 * @param iFile            The IFile to which error message will be
+	 *                         associated, not <code>null</code>.
+	 * @param annotationValues The annotation values, not <code>null</code>.
+	 * 
+	 * @return The hardware or <code>null</code> if is the not defined in the
+	 *         annotation values.
+	 * @throws InvalidLanguageAnnotationException If the hardware is specified but
+	 *                                            invalid. Error message will be
+	 *                                            assigned to the iFile in this
+	 *                                            case.
+	 */
+	public static Hardware getHardware(IFile iFile, LanguageAnnotationValues annotationValues)
+			throws InvalidLanguageAnnotationException {
+		if (iFile == null) {
+			throw new IllegalArgumentException("Parameter 'iFile' must not be null.");
+		}
+		if (annotationValues == null) {
+			throw new IllegalArgumentException("Parameter 'annotationValues' must not be null.");
+		}
+		LanguageAnnotationValue hardwareAnnotationValue = annotationValues.get(LanguageAnnotation.HARDWARE);
+		if (hardwareAnnotationValue == null) {
+			return null;
+		}
+		StringBuilder allowedValuesBuilder = new StringBuilder();
+		Hardware hardware = null;
+		String hardwareValue = hardwareAnnotationValue.value.toUpperCase();
+		for (Hardware value : Hardware.values()) {
+			if (value != Hardware.GENERIC) {
+				if (allowedValuesBuilder.length() > 0) {
+					allowedValuesBuilder.append(",");
+				}
+				allowedValuesBuilder.append(value.name());
+				if (value.name().equals(hardwareValue)) {
+					hardware = value;
+				}
+			}
+		}
+		if (hardware != null) {
+			return hardware;
+		}
+
+		try {
+			iFile.deleteMarkers(IMarker.PROBLEM, true, IResource.DEPTH_ZERO);
+		} catch (CoreException ex) {
+			LanguagePlugin.getInstance().logError("Cannot remove markers", null, ex);
+		}
+		IMarker marker;
+		if (StringUtility.isEmpty(hardwareValue)) {
+			// ERROR: Hardware not specified. Specify one of the
+			// following valid values '{0}'.
+			marker = MarkerUtility.createMarker(iFile, hardwareAnnotationValue.lineNumber, IMarker.SEVERITY_ERROR,
+					Texts.MESSAGE_E128, allowedValuesBuilder.toString());
+		} else {
+			// ERROR: Unknown hardware {0}. Specify one of the
+			// following valid values '{1}'.
+			marker = MarkerUtility.createMarker(iFile, hardwareAnnotationValue.lineNumber, IMarker.SEVERITY_ERROR,
+					Texts.MESSAGE_E124, hardwareValue, allowedValuesBuilder.toString());
+		}
+		throw new InvalidLanguageAnnotationException(hardwareAnnotationValue, marker);
+	}
+
+	/**
+	 * Validates the output file related settings of the compiler files.
+	 * 
+	 * @param files              The compiler files, not <code>null</code>.
+	 * @param compilerDefinition The compiler definition, not <code>null</code>.
+	 * @return The error marker created for the main source file or
+	 *         <code>null</code> if all settings are correct.
+	 */
+	public static IMarker validateOutputFile(CompilerFiles files, CompilerDefinition compilerDefinition) {
+		if (files == null) {
+			throw new IllegalArgumentException("Parameter 'files' must not be null.");
+		}
+		if (compilerDefinition == null) {
+			throw new IllegalArgumentException("Parameter 'compilerDefinition' must not be null.");
+		}
+		if (StringUtility.isEmpty(files.outputFileExtension)) {
+			// ERROR: Output file extension must be set in the preferences of {0} '{1}' or
+			// via the annotation '{2}'.
+			return createMainSourceFileMessage(files, files.outputFileExtensionAnnotationValue, Texts.MESSAGE_E104,
+					compilerDefinition.getText(), compilerDefinition.getName(), LanguageAnnotation.OUTPUT_FILE_EXTENSION);
+		}
+		if (!files.outputFileExtension.startsWith(".")) {
+			// ERROR: Output file extension {0} must start with ".".
+			return createMainSourceFileMessage(files, files.outputFileExtensionAnnotationValue, Texts.MESSAGE_E139,
+					files.outputFileExtension);
+		}
+		if (StringUtility.isEmpty(files.outputFolderMode)) {
+			// ERROR: Output folder mode be set in the preferences of
+			// compiler '{0}' or via the annotation '{1}'.
+			return createMainSourceFileMessage(files, files.outputFolderModeAnnotationValue, Texts.MESSAGE_E140,
+					compilerDefinition.getName(), LanguageAnnotation.OUTPUT_FOLDER_MODE);
+		}
+		if (!CompilerOutputFolderMode.isDefined(files.outputFolderMode)) {
+			// ERROR: Unknown output folder mode {0}. Specify one of the
+			// following valid values '{1}'.
+			return createMainSourceFileMessage(files, files.outputFolderModeAnnotationValue, Texts.MESSAGE_E141,
+					files.outputFolderMode, CompilerOutputFolderMode.getAllowedValues());
+		}
+		return null;
+	}
+
+	/**
+	 * Creates a message associated with the main source file of an
+	 * {@link CompilerFiles} instance. The message is not bound to a line number.
+	 * 
+	 * @param files      The {@link CompilerFiles} not <code>null</code>.
+	 * @param severity   The message severity, see {@link IMarker#SEVERITY}
+	 * @param message    The message, may contain parameter "{0}" to "{9}". May be
+	 *                   empty, not <code>null</code>.
+	 * @param parameters The format parameters for the message, may be empty, not
+	 *                   <code>null</code>.
+	 * @return The marker, not <code>null</code>.
+	 */
+	public static IMarker createMainSourceFileMessage(CompilerFiles files, int severity, String message,
+			String... parameters) {
+		if (files == null) {
+			throw new IllegalArgumentException("Parameter 'files' must not be null.");
+		}
+		return MarkerUtility.createMarker(files.mainSourceFile.iFile, 0, severity, message, parameters);
+	}
+
+	/**
+	 * Creates an error message associated with the main source file of an
+	 * {@link CompilerFiles} instance. The message is bound to the line number of
+	 * the value (if available).
+	 * 
+	 * @param files      The {@link CompilerFiles} not <code>null</code>.
+	 * @param value      The annotation value to which the message belongs or
+	 *                   <code>null</code>.
+	 * @param message    The message, may contain parameter "{0}" to "{9}". May be
+	 *                   empty, not <code>null</code>.
+	 * @param parameters The format parameters for the message, may be empty, not
+	 *                   <code>null</code>.
+	 * @return The marker, not <code>null</code>.
+	 */
+	public static IMarker createMainSourceFileMessage(CompilerFiles files, LanguageAnnotationValue value,
+			String message, String... parameters) {
+		if (files == null) {
+			throw new IllegalArgumentException("Parameter 'files' must not be null.");
+		}
+		return MarkerUtility.createMarker(files.mainSourceFile.iFile, (value == null ? 0 : value.lineNumber),
+				IMarker.SEVERITY_ERROR, message, parameters);
+	}
+
+	/**
+	 * Gets the compiler files.
+	 * 
+	 * @return The compiler files, not <code>null</code>.
+	 */
+	public final CompilerFiles getFiles() {
+		return files;
+	}
+
+	/**
+	 * Determines if the compiler process was not started, because the output file
+	 * was up to date.
+	 * 
+	 * @return <code>true</code> if the output file was up to date.
+	 */
+	public final boolean isUpToDate() {
+		return upToDate;
+	}
+
+	/**
+	 * Executes the compiler process unless the source files, the include files
+	 * and the command line are unchanged since the last successful run. Messages
+	 * are created as markers for the main source file.
+	 * 
+	 * @return <code>true</code> if the output file was created or updated or is up
+	 *         to date, <code>false</code> otherwise.
+	 */
+	public final boolean execute() {
+		CompilerDefinition compilerDefinition = compiler.getDefinition();
+		CompilerMetrics compilerMetrics = plugin.getCompilerMetrics();
+		long nanoTime = System.nanoTime();
+		upToDate = false;
+
+		// Check if output file is modifiable in case it already exists.
+		long outputFileLastModified = -1;
+		if (files.outputFile.exists()) {
+			boolean canWrite = files.outputFile.canWrite();
+			if (canWrite) {
+				try {
+					FileOutputStream fos = new FileOutputStream(files.outputFile, true);
+					try {
+						fos.close();
+					} catch (IOException ex) {
+						plugin.logError("Cannot close file output stream", null, ex);
+					}
+				} catch (FileNotFoundException ex) {
+					canWrite = false;
+				}
+
+			}
+			if (!canWrite) {
+				// ERROR: Output file '{0}' cannot be opened for writing. End
+				// all applications which may keep the file open.
+				createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E106, files.outputFileName);
+				return false;
+			}
+			outputFileLastModified = files.outputFile.lastModified();
+		}
+
+		// Get and check path to compiler executable.
+		String compilerPreferencesText = LanguageUtility.getCompilerPreferencesText(compilerDefinition.getLanguage());
+		String compilerExecutablePath = plugin.getLanguagePreferences(compilerDefinition.getLanguage())
+				.getCompilerExecutablePathOrDefault(compilerDefinition);
+		if (StringUtility.isEmpty(compilerExecutablePath)) {
+			// ERROR: Path to {0} '{1}' executable is not set in the '{2}' preferences.
+			createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E100, compilerDefinition.getText(),
+					compilerDefinition.getName(), compilerPreferencesText);
+			return false;
+		}
+		File compilerExecutableFile = new File(compilerExecutablePath);
+		if (!compilerExecutableFile.exists()) {
+			// ERROR: Path to {0} '{1}' executable in the '{2}' preferences points to
+			// non-existing file '{3}'.
+			createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E103, compilerDefinition.getText(),
+					compilerDefinition.getName(), compilerPreferencesText, compilerExecutablePath);
+			return false;
+		}
+
+		// Get and check compiler executable parameters.
+		String compilerParameters = compilerRunPreferences.getParameters();
+		if (StringUtility.isEmpty(compilerParameters)) {
+			compilerParameters = compilerDefinition.getDefaultParameters();
+		}
+
+		// The parameters are first split at spaces (unless they are quotes) and then
+		// substituted.
+		// This allows for parameters and file paths inner spaces to be used.
+		// In some case addition quotes must be places around parameters, for
+		// example for the "${sourceFilePath}". This can be used to avoid
+		// problems with absolute file path under Unix starting with "/" or path
+		// containing white spaces.
+		compilerParameters = compilerParameters.trim();
+		String compilerParameterArray[] = CompilerCommandLine.splitAtSpaces(compilerParameters);
+		if (compilerParameterArray.length == 0) {
+			// ERROR: The {0} '{1}' does not specify default parameters.
+			createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E101, compilerDefinition.getText(),
+					compilerDefinition.getName());
+			return false;
+		}
+		String[] fullCommandLineArray = CompilerCommandLine.createFullCommandLineArray(compilerExecutablePath,
+				compilerParameterArray, files);
+
+		// Reuse the result of the previous compiler run if the source files, the
+		// include files and the command line are unchanged and the files written by
+		// the previous run still exist.
+		CompilerBuildCache compilerBuildCache = plugin.getCompilerBuildCache();
+		String fingerprint = compilerBuildCache.createFingerprint(compilerSourceParser, files, hardware,
+				compilerExecutableFile, fullCommandLineArray);
+		CompilerBuildCache.Entry compilerBuildCacheEntry = null;
+		if (fingerprint != null) {
+			compilerBuildCacheEntry = compilerBuildCache.getEntry(files, fingerprint);
+		}
+		compilerMetrics.record(compilerDefinition, CompilerMetrics.Phase.FILE_CHECKS, nanoTime);
+		if (compilerBuildCacheEntry != null) {
+			printHeader(": Source files, include files and parameters are unchanged. Reusing previous result.");
+			printLogs(compilerBuildCacheEntry.outputLog, compilerBuildCacheEntry.errorLog);
+
+			// INFO: Output file '{0}' with {1} (${2}) bytes is up to date. The {3} was
+			// not started because the source files, include files and parameters are
+			// unchanged.
+			long fileLength = files.outputFile.length();
+			createMainSourceFileMessage(files, IMarker.SEVERITY_INFO, Texts.MESSAGE_I146, files.outputFilePath,
+					Long.toString(fileLength), HexUtility.getLongValueHexString(fileLength),
+					compilerDefinition.getText());
+			upToDate = true;
+			outputFileAvailable();
+			createLogMarkers(compilerBuildCacheEntry.outputLog, compilerBuildCacheEntry.errorLog);
+			return true;
+		}
+		compilerBuildCache.removeEntry(files);
+
+		ProcessWithLogs compilerProcess = new ProcessWithLogs(fullCommandLineArray, files.mainSourceFile.folder);
+		printHeader(": " + compilerProcess.getCommandArrayString());
+
+		// The logs are collected by the process and printed as a whole.
+		PrintStream nullPrintStream = new PrintStream(OutputStream.nullOutputStream());
+		try {
+			compilerProcess.exec(nullPrintStream, nullPrintStream, true);
+			compilerMetrics.recordDuration(compilerDefinition, CompilerMetrics.Phase.PROCESS_SPAWN,
+					compilerProcess.getExecDurationNanos());
+			compilerMetrics.recordDuration(compilerDefinition, CompilerMetrics.Phase.COMPILE,
+					compilerProcess.getWaitForDurationNanos());
+		} catch (IOException ex) {
+			// ERROR: Cannot execute {0} process '{1}' in working directory '{2}'. System
+			// error: {3}
+			createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E105, compilerDefinition.getText(),
+					compilerProcess.getCommandArrayString(), compilerProcess.getWorkingDirectory().getPath(),
+					ex.getMessage());
+			return false;
+		}
+		printLogs(compilerProcess.getOutputLog(), compilerProcess.getErrorLog());
+
+		// Refresh the output and the symbols file resource.
+		try {
+			IResource[] outputResources = ResourcesPlugin.getWorkspace().getRoot()
+					.findContainersForLocationURI(files.outputFolder.toURI());
+			if (outputResources.length > 0) {
+				outputResources[0].refreshLocal(IResource.DEPTH_ONE, null);
+			}
+		} catch (CoreException ex) {
+			createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, "{0}", ex.getMessage());
+			return false;
+		}
+
+		// Compiling is over, check the result.
+		boolean success = false;
+		boolean compilerSuccess = compiler.isSuccessExitValue(compilerProcess.getExitValue());
+		if (compilerSuccess) {
+			if (!files.outputFile.exists()) {
+				// ERROR: No output file created. Check the error messages and
+				// the console log.
+				createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E107);
+			} else if (files.outputFile.length() == 0) {
+				// ERROR: Output file created but empty. Check the error
+				// messages and the console log.
+				createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E126);
+			} else if (files.outputFile.lastModified() == outputFileLastModified) {
+				// ERROR: Output file not updated. Check the error
+				// messages and the console log.
+				createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E108);
+			} else {
+				// INFO: Output file '{0}' created or updated with {1}
+				// (${2}) bytes.
+				long fileLength = files.outputFile.length();
+				createMainSourceFileMessage(files, IMarker.SEVERITY_INFO, Texts.MESSAGE_I109, files.outputFilePath,
+						Long.toString(fileLength), HexUtility.getLongValueHexString(fileLength));
+
+				// Handle disk images
+				nanoTime = System.nanoTime();
+				CompilerFileWriter compilerFileWriter = HardwareUtility
+						.getCompilerFileWriter(compilerRunPreferences.getHardware());
+				if (compilerFileWriter.createOrUpdateDiskImage(files)) {
+					compilerMetrics.record(compilerDefinition, CompilerMetrics.Phase.DISK_IMAGE_WRITING, nanoTime);
+					if (fingerprint != null) {
+						compilerBuildCache.putEntry(files, fingerprint, compilerProcess,
+								compilerFileWriter.getDiskImageFile(files));
+					}
+					success = true;
+					outputFileAvailable();
+				}
+			}
+		}
+
+		// Output an additional message if the reason for the compiler's exit
+		// value is not already contained in the error messages.
+		boolean errorFound = createLogMarkers(compilerProcess.getOutputLog(), compilerProcess.getErrorLog());
+		if (!compilerSuccess && !errorFound) {
+			// ERROR: {0} process ended with return code {1}. Check the error messages and
+			// the console log.
+			createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E127, compilerDefinition.getText(),
+					NumberUtility.getLongValueDecimalString(compilerProcess.getExitValue()));
+		}
+		return success;
+	}
+
+	private void printHeader(String text) {
+		print("");
+		print("Compiling '" + files.mainSourceFile.iFile.getFullPath() + "' for hardware " + hardware.name() + " on "
+				+ new SimpleDateFormat().format(new Date()) + text);
+	}
+
+	private void printLogs(String outputLog, String errorLog) {
+		print("");
+		print("Compiler '" + compiler.getDefinition().getName() + "' output:");
+		print(errorLog);
+		print(outputLog);
+	}
+
+	/**
+	 * Prints a line of the console log.
+	 * 
+	 * @param line The line, may be empty, not <code>null</code>.
+	 */
+	protected abstract void print(String line);
+
+	/**
+	 * Called when the output file was created or updated or is up to date, before
+	 * the markers for the compiler logs are created.
+	 */
+	protected void outputFileAvailable() {
+	}
+
+	/**
+	 * Creates the markers for the compiler logs.
+	 * 
+	 * @param outputLog The output log, not <code>null</code>.
+	 * @param errorLog  The error log, not <code>null</code>.
+	 * @return <code>true</code> if the logs contain an error.
+	 */
+	protected abstract boolean createLogMarkers(String outputLog, String errorLog);
+}
@@ -0,0 +1,404 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.wudsn.ide.lng.compiler;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.CoreException;
+
+import com.wudsn.ide.base.common.FileUtility;
+import com.wudsn.ide.base.common.HexUtility;
+import com.wudsn.ide.base.common.ProcessWithLogs;
+import com.wudsn.ide.base.hardware.Hardware;
+import com.wudsn.ide.lng.compiler.parser.CompilerSourceParser;
+import com.wudsn.ide.lng.compiler.parser.CompilerSourceParserFileReference;
+import com.wudsn.ide.lng.compiler.parser.CompilerSourceParserFileReferenceType;
+
+/**
+ * Cache for the results of successful compiler runs. A build is identified by a
+ * fingerprint over the content of the main source file and all source and
+ * binary include files referenced directly or indirectly, the compiler
+ * executable, the hardware and the complete command line with all
+ * {@link CompilerVariables} replaced. If one of the referenced files cannot be
+ * resolved, the build has no fingerprint and is never cached. Because the
+ * compiler may also search its include paths, the fingerprint also covers the
+ * files with the same relative path in the working directory and in the
+ * directories specified on the command line. If the fingerprint is unchanged
+ * and the output file, the symbols file and the disk image are unchanged since
+ * the last successful build, the compiler process does not have to be executed
+ * again and its logs can be reused to recreate the markers and symbols.
+ * 
+ * @author Peter Dell
+ * 
+ * @since 1.7.2
+ */
+public final class CompilerBuildCache {
+
+	/**
+	 * A file written by a successful compiler run.
+	 */
+	private static final class Artifact {
+
+		public final File file;
+		public final long lastModified;
+		public final long length;
+
+		Artifact(File file) {
+			this.file = file;
+			this.lastModified = file.lastModified();
+			this.length = file.length();
+		}
+
+		boolean isUnchanged() {
+			return file.isFile() && file.lastModified() == lastModified && file.length() == length;
+		}
+	}
+
+	/**
+	 * The result of a successful compiler run.
+	 */
+	public static final class Entry {
+
+		public final String fingerprint;
+		public final int exitValue;
+		public final String outputLog;
+		public final String errorLog;
+		final List<Artifact> artifacts;
+
+		Entry(String fingerprint, int exitValue, String outputLog, String errorLog, List<Artifact> artifacts) {
+			this.fingerprint = fingerprint;
+			this.exitValue = exitValue;
+			this.outputLog = outputLog;
+			this.errorLog = errorLog;
+			this.artifacts = artifacts;
+		}
+	}
+
+	private static final String DIGEST_ALGORITHM = "SHA-256";
+
+	// Entries by main source file path and output file path.
+	private final Map<String, Entry> entries;
+
+	/**
+	 * Creation is public.
+	 */
+	public CompilerBuildCache() {
+		entries = new HashMap<String, Entry>();
+	}
+
+	/**
+	 * Computes the fingerprint of a build.
+	 * 
+	 * @param compilerSourceParser   The compiler source parser used to detect
+	 *                               the file references, not <code>null</code>.
+	 * @param files                  The compiler files, not <code>null</code>.
+	 * @param hardware               The hardware, not <code>null</code>.
+	 * @param compilerExecutableFile The compiler executable file, not
+	 *                               <code>null</code>.
+	 * @param fullCommandLineArray   The full command line with all variables
+	 *                               replaced, not <code>null</code>.
+	 * @return The fingerprint or <code>null</code> if one of the referenced files
+	 *         cannot be resolved or read.
+	 */
+	public String createFingerprint(CompilerSourceParser compilerSourceParser, CompilerFiles files, Hardware hardware,
+			File compilerExecutableFile, String[] fullCommandLineArray) {
+		if (compilerSourceParser == null) {
+			throw new IllegalArgumentException("Parameter 'compilerSourceParser' must not be null.");
+		}
+		if (files == null) {
+			throw new IllegalArgumentException("Parameter 'files' must not be null.");
+		}
+		if (hardware == null) {
+			throw new IllegalArgumentException("Parameter 'hardware' must not be null.");
+		}
+		if (compilerExecutableFile == null) {
+			throw new IllegalArgumentException("Parameter 'compilerExecutableFile' must not be null.");
+		}
+		if (fullCommandLineArray == null) {
+			throw new IllegalArgumentException("Parameter 'fullCommandLineArray' must not be null.");
+		}
+
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException ex) {
+			throw new RuntimeException("Message digest algorithm " + DIGEST_ALGORITHM + " not available.", ex);
+		}
+
+		update(digest, hardware.name());
+		update(digest, compilerExecutableFile.getPath());
+		update(digest, Long.toString(compilerExecutableFile.lastModified()));
+		update(digest, Long.toString(compilerExecutableFile.length()));
+		for (String parameter : fullCommandLineArray) {
+			update(digest, parameter);
+		}
+
+		List<File> includeDirectories = getIncludeDirectories(files, fullCommandLineArray);
+		Set<File> visitedFiles = new LinkedHashSet<File>();
+		List<File> sourceFiles = new ArrayList<File>();
+		visitedFiles.add(files.mainSourceFile.file);
+		sourceFiles.add(files.mainSourceFile.file);
+
+		// Source includes are followed recursively, binary includes are leafs.
+		while (!sourceFiles.isEmpty()) {
+			File sourceFile = sourceFiles.remove(sourceFiles.size() - 1);
+			byte[] content = readFile(sourceFile);
+			if (content == null) {
+				return null;
+			}
+			update(digest, sourceFile.getPath());
+			digest.update(content);
+
+			for (CompilerSourceParserFileReference fileReference : compilerSourceParser
+					.detectFileReferences(sourceFile.getParentFile(), new String(content))) {
+				File file = new File(fileReference.getAbsoluteFilePath());
+				updateIncludeCandidates(digest, compilerSourceParser, fileReference, file, includeDirectories);
+				if (!visitedFiles.add(file)) {
+					continue;
+				}
+				update(digest, file.getPath());
+
+				// Files written by the compiler are identified by their path only.
+				if (file.equals(files.outputFile) || file.equals(files.symbolsFile)) {
+					continue;
+				}
+				if (fileReference.getType() == CompilerSourceParserFileReferenceType.SOURCE) {
+					sourceFiles.add(file);
+				} else {
+					content = readFile(file);
+					if (content == null) {
+						return null;
+					}
+					digest.update(content);
+				}
+			}
+		}
+
+		StringBuilder result = new StringBuilder();
+		for (byte b : digest.digest()) {
+			result.append(HexUtility.getByteValueHexString(b & 0xff));
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Reads the content of a referenced file.
+	 * 
+	 * @param file The file, not <code>null</code>.
+	 * @return The content or <code>null</code> if the file does not exist or
+	 *         cannot be read.
+	 */
+	private static byte[] readFile(File file) {
+		if (!file.isFile()) {
+			return null;
+		}
+		try {
+			return FileUtility.readBytes(file, FileUtility.MAX_SIZE_UNLIMITED, false);
+		} catch (CoreException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the directories in which the compiler may search for include files
+	 * besides the directory of the including file. These are the working
+	 * directory and all existing directories specified on the command line,
+	 * either as separate parameter or after an option prefix like "-I", "-i:" or
+	 * "--include=".
+	 * 
+	 * @param files                The compiler files, not <code>null</code>.
+	 * @param fullCommandLineArray The full command line with all variables
+	 *                             replaced, not <code>null</code>.
+	 * @return The list of canonical directories, not empty and not
+	 *         <code>null</code>.
+	 */
+	private static List<File> getIncludeDirectories(CompilerFiles files, String[] fullCommandLineArray) {
+		File workingDirectory = files.mainSourceFile.folder;
+		Set<File> result = new LinkedHashSet<File>();
+		result.add(FileUtility.getCanonicalFile(workingDirectory));
+		for (int i = 1; i < fullCommandLineArray.length; i++) {
+			String parameter = fullCommandLineArray[i];
+			addIncludeDirectory(result, workingDirectory, parameter);
+			if (parameter.startsWith("-")) {
+				int index = 0;
+				while (index < parameter.length() && parameter.charAt(index) == '-') {
+					index++;
+				}
+				int separatorIndex = parameter.indexOf(':', index);
+				if (separatorIndex < 0) {
+					separatorIndex = parameter.indexOf('=', index);
+				}
+				if (separatorIndex >= 0) {
+					addIncludeDirectory(result, workingDirectory, parameter.substring(separatorIndex + 1));
+				} else if (index < parameter.length()) {
+					addIncludeDirectory(result, workingDirectory, parameter.substring(index + 1));
+				}
+			}
+		}
+		return new ArrayList<File>(result);
+	}
+
+	private static void addIncludeDirectory(Set<File> includeDirectories, File workingDirectory, String path) {
+		if (path.isEmpty()) {
+			return;
+		}
+		File directory = new File(path);
+		if (!directory.isAbsolute()) {
+			directory = new File(workingDirectory, path);
+		}
+		if (directory.isDirectory()) {
+			includeDirectories.add(FileUtility.getCanonicalFile(directory));
+		}
+	}
+
+	/**
+	 * Adds the state of the files which the compiler could find instead of the
+	 * resolved file when it searches the include directories. Creating or
+	 * changing one of these files changes the fingerprint.
+	 * 
+	 * @param digest               The message digest, not <code>null</code>.
+	 * @param compilerSourceParser The compiler source parser, not
+	 *                             <code>null</code>.
+	 * @param fileReference        The file reference, not <code>null</code>.
+	 * @param file                 The resolved file, not <code>null</code>.
+	 * @param includeDirectories   The include directories, not
+	 *                             <code>null</code>.
+	 */
+	private static void updateIncludeCandidates(MessageDigest digest, CompilerSourceParser compilerSourceParser,
+			CompilerSourceParserFileReference fileReference, File file, List<File> includeDirectories) {
+		String filePath = fileReference.getFilePath();
+		if (new File(filePath).isAbsolute()) {
+			return;
+		}
+		for (File includeDirectory : includeDirectories) {
+			File candidateFile = new File(compilerSourceParser.getIncludeAbsoluteFilePath(fileReference.getType(),
+					includeDirectory, filePath));
+			if (candidateFile.equals(file)) {
+				continue;
+			}
+			update(digest, candidateFile.getPath());
+			if (candidateFile.isFile()) {
+				update(digest, Long.toString(candidateFile.lastModified()));
+				update(digest, Long.toString(candidateFile.length()));
+			} else {
+				update(digest, "-");
+			}
+		}
+	}
+
+	private static void update(MessageDigest digest, String value) {
+		digest.update(value.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	}
+
+	private static String getKey(CompilerFiles files) {
+		return files.mainSourceFile.filePath + File.pathSeparator + files.outputFilePath;
+	}
+
+	/**
+	 * Gets the cache entry for a build if its fingerprint matches and none of the
+	 * files written by the build was deleted or modified since.
+	 * 
+	 * @param files       The compiler files, not <code>null</code>.
+	 * @param fingerprint The fingerprint, not <code>null</code>.
+	 * @return The cache entry or <code>null</code>.
+	 */
+	public synchronized Entry getEntry(CompilerFiles files, String fingerprint) {
+		if (files == null) {
+			throw new IllegalArgumentException("Parameter 'files' must not be null.");
+		}
+		if (fingerprint == null) {
+			throw new IllegalArgumentException("Parameter 'fingerprint' must not be null.");
+		}
+		Entry entry = entries.get(getKey(files));
+		if (entry == null || !entry.fingerprint.equals(fingerprint)) {
+			return null;
+		}
+		for (Artifact artifact : entry.artifacts) {
+			if (!artifact.isUnchanged()) {
+				entries.remove(getKey(files));
+				return null;
+			}
+		}
+		return entry;
+	}
+
+	/**
+	 * Stores the result of a successful compiler run.
+	 * 
+	 * @param files           The compiler files, not <code>null</code>.
+	 * @param fingerprint     The fingerprint, not <code>null</code>.
+	 * @param compilerProcess The terminated compiler process, not
+	 *                        <code>null</code>.
+	 * @param diskImageFile   The disk image file updated with the output file or
+	 *                        <code>null</code>.
+	 */
+	public synchronized void putEntry(CompilerFiles files, String fingerprint, ProcessWithLogs compilerProcess,
+			File diskImageFile) {
+		if (files == null) {
+			throw new IllegalArgumentException("Parameter 'files' must not be null.");
+		}
+		if (fingerprint == null) {
+			throw new IllegalArgumentException("Parameter 'fingerprint' must not be null.");
+		}
+		if (compilerProcess == null) {
+			throw new IllegalArgumentException("Parameter 'compilerProcess' must not be null.");
+		}
+		List<Artifact> artifacts = new ArrayList<Artifact>(3);
+		artifacts.add(new Artifact(files.outputFile));
+		if (files.symbolsFile.isFile()) {
+			artifacts.add(new Artifact(files.symbolsFile));
+		}
+		if (diskImageFile != null) {
+			artifacts.add(new Artifact(diskImageFile));
+		}
+		entries.put(getKey(files), new Entry(fingerprint, compilerProcess.getExitValue(),
+				compilerProcess.getOutputLog(), compilerProcess.getErrorLog(), Collections.unmodifiableList(artifacts)));
+	}
+
+	/**
+	 * Removes the cache entry of a build.
+	 * 
+	 * @param files The compiler files, not <code>null</code>.
+	 */
+	public synchronized void removeEntry(CompilerFiles files) {
+		if (files == null) {
+			throw new IllegalArgumentException("Parameter 'files' must not be null.");
+		}
+		entries.remove(getKey(files));
+	}
+
+	/**
+	 * Removes all cache entries.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.wudsn.ide.lng.compiler;
+
+/**
+ * Utility class to create the command line of a compiler process.
+ * 
+ * @author Peter Dell
+ * 
+ * @since 1.7.2
+ */
+public final class CompilerCommandLine {
+
+	/**
+	 * Creation is private.
+	 */
+	private CompilerCommandLine() {
+	}
+
+	/**
+	 * Splits a string a one or more spaces, unless they are quoted.
+	 * 
+	 * @param commandLine The command line to be split, not <code>null</code>.
+	 * @return The array of string, may be empty, not <code>null</code>.
+	 */
+	public static String[] splitAtSpaces(String commandLine) {
+		if (commandLine == null) {
+			throw new IllegalArgumentException("Parameter 'commandLine' must not be null.");
+		}
+		return commandLine.split("\\s+(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)", -1);
+	}
+
+	/**
+	 * Determines if a compiler executable is a ".jar" file which is executed via
+	 * "java -jar".
+	 * 
+	 * @param compilerExecutablePath The compiler executable path, not
+	 *                               <code>null</code>.
+	 * @return <code>true</code> if the compiler executable is a ".jar" file.
+	 */
+	public static boolean isJarFile(String compilerExecutablePath) {
+		if (compilerExecutablePath == null) {
+			throw new IllegalArgumentException("Parameter 'compilerExecutablePath' must not be null.");
+		}
+		return compilerExecutablePath.toLowerCase().endsWith(".jar");
+	}
+
+	/**
+	 * Creates the full command line for a compiler process. The parameters must
+	 * have been split at spaces before, so that parameters and file paths with
+	 * inner spaces can be used. The {@link CompilerVariables} in the parameters are
+	 * replaced with the values of the compiler files.
+	 * 
+	 * @param compilerExecutablePath The compiler executable path, not empty and not
+	 *                               <code>null</code>.
+	 * @param compilerParameterArray The compiler parameters, may be empty, not
+	 *                               <code>null</code>.
+	 * @param files                  The compiler files, not <code>null</code>.
+	 * @return The full command line, not empty and not <code>null</code>.
+	 */
+	public static String[] createFullCommandLineArray(String compilerExecutablePath, String[] compilerParameterArray,
+			CompilerFiles files) {
+		if (compilerExecutablePath == null) {
+			throw new IllegalArgumentException("Parameter 'compilerExecutablePath' must not be null.");
+		}
+		if (compilerParameterArray == null) {
+			throw new IllegalArgumentException("Parameter 'compilerParameterArray' must not be null.");
+		}
+		if (files == null) {
+			throw new IllegalArgumentException("Parameter 'files' must not be null.");
+		}
+
+		// Special handling for direct execution of ".jar" files.
+		String[] fullCommandLineArray;
+		int offset;
+		if (isJarFile(compilerExecutablePath)) {
+			offset = 3;
+			fullCommandLineArray = new String[offset + compilerParameterArray.length];
+			fullCommandLineArray[0] = "java";
+			fullCommandLineArray[1] = "-jar";
+			fullCommandLineArray[2] = compilerExecutablePath;
+		} else {
+			offset = 1;
+			fullCommandLineArray = new String[offset + compilerParameterArray.length];
+			fullCommandLineArray[0] = compilerExecutablePath;
+		}
+
+		// Map parameter with variables replacement.
+		for (int i = 0; i < compilerParameterArray.length; i++) {
+			String parameter = compilerParameterArray[i];
+			parameter = CompilerVariables.replaceVariables(parameter, files);
+			fullCommandLineArray[i + offset] = parameter;
+		}
+		return fullCommandLineArray;
+	}
+}
@@ -0,0 +1,557 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.wudsn.ide.lng.compiler;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.IResourceVisitor;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.text.Document;
+
+import com.wudsn.ide.base.common.FileUtility;
+import com.wudsn.ide.base.common.StringUtility;
+import com.wudsn.ide.lng.LanguageAnnotation;
+import com.wudsn.ide.lng.LanguageAnnotationValues.LanguageAnnotationValue;
+import com.wudsn.ide.lng.LanguagePlugin;
+import com.wudsn.ide.lng.Target;
+import com.wudsn.ide.lng.Texts;
+import com.wudsn.ide.lng.compiler.parser.CompilerSourceParser;
+import com.wudsn.ide.lng.compiler.parser.CompilerSourceParserFileReference;
+
+/**
+ * Workspace wide graph of the files referenced by source and binary include
+ * directives. A file which specifies the annotation
+ * {@link LanguageAnnotation#MAIN_SOURCE_FILE} is treated as if it was included
+ * by its main source file. The graph is built once in the background and then
+ * updated incrementally based on resource deltas. The resource change listener
+ * only collects the changed files. Parsing is done by a single update job, so
+ * the initial scan and the incremental updates never run concurrently. Only
+ * files whose default editor is a language editor are parsed. All other files,
+ * for example binary include files, are leafs of the graph.
+ * 
+ * @author Peter Dell
+ * 
+ * @since 1.7.2
+ */
+public final class CompilerDependencyGraph implements IResourceChangeListener {
+
+	// Directly referenced files by referencing file.
+	private final Map<File, Set<File>> referencedFilesMap;
+
+	// Directly referencing files by referenced file.
+	private final Map<File, Set<File>> referencingFilesMap;
+
+	// Main source file by file specifying the main source file annotation.
+	private final Map<File, File> mainSourceFileMap;
+
+	// Files specifying the main source file annotation by main source file.
+	private final Map<File, Set<File>> annotatedFilesMap;
+
+	// Workspace files with their location which were changed or removed and
+	// still have to be processed by the update job. Also used as lock for the
+	// pending state.
+	private final Map<IFile, IPath> pendingFiles;
+	private boolean initialScanPending;
+
+	// The single job which updates the graph, guarded by the pending files.
+	private Job updateJob;
+
+	/**
+	 * Creation is public.
+	 */
+	public CompilerDependencyGraph() {
+		referencedFilesMap = new HashMap<File, Set<File>>();
+		referencingFilesMap = new HashMap<File, Set<File>>();
+		mainSourceFileMap = new HashMap<File, File>();
+		annotatedFilesMap = new HashMap<File, Set<File>>();
+		pendingFiles = new LinkedHashMap<IFile, IPath>();
+		initialScanPending = true;
+	}
+
+	/**
+	 * Registers the resource change listener and starts building the graph for the
+	 * current workspace content in the background.
+	 */
+	public void init() {
+		Job job = new Job(Texts.COMPILER_DEPENDENCY_GRAPH_JOB_NAME) {
+
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				return update(monitor);
+			}
+		};
+		job.setSystem(true);
+		job.setPriority(Job.DECORATE);
+		synchronized (pendingFiles) {
+			updateJob = job;
+		}
+
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(this, IResourceChangeEvent.POST_CHANGE);
+		job.schedule();
+	}
+
+	/**
+	 * Unregisters the resource change listener and cancels the update job.
+	 */
+	public void dispose() {
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(this);
+		Job job;
+		synchronized (pendingFiles) {
+			job = updateJob;
+			updateJob = null;
+		}
+		if (job != null) {
+			job.cancel();
+		}
+	}
+
+	@Override
+	public void resourceChanged(IResourceChangeEvent event) {
+		IResourceDelta delta = event.getDelta();
+		if (delta == null) {
+			return;
+		}
+		final Map<IFile, IPath> changedFiles = new LinkedHashMap<IFile, IPath>();
+		try {
+			delta.accept(new IResourceDeltaVisitor() {
+
+				@Override
+				public boolean visit(IResourceDelta delta) throws CoreException {
+					IResource resource = delta.getResource();
+					if (resource.getType() != IResource.FILE) {
+						return true;
+					}
+					IFile iFile = (IFile) resource;
+					switch (delta.getKind()) {
+					case IResourceDelta.ADDED:
+					case IResourceDelta.REMOVED:
+						changedFiles.put(iFile, iFile.getLocation());
+						break;
+					case IResourceDelta.CHANGED:
+						if ((delta.getFlags() & (IResourceDelta.CONTENT | IResourceDelta.REPLACED)) != 0) {
+							changedFiles.put(iFile, iFile.getLocation());
+						}
+						break;
+					}
+					return true;
+				}
+			});
+		} catch (CoreException ex) {
+			LanguagePlugin.getInstance().logError("Cannot update include dependencies", null, ex);
+		}
+		if (changedFiles.isEmpty()) {
+			return;
+		}
+		Job job;
+		synchronized (pendingFiles) {
+			for (Map.Entry<IFile, IPath> entry : changedFiles.entrySet()) {
+				// Re-insert to keep the order of the last change.
+				pendingFiles.remove(entry.getKey());
+				pendingFiles.put(entry.getKey(), entry.getValue());
+			}
+			job = updateJob;
+		}
+		if (job != null) {
+			job.schedule();
+		}
+	}
+
+	/**
+	 * Performs the initial scan if it is still pending and processes all pending
+	 * changes. Called only by the update job.
+	 * 
+	 * @param monitor The progress monitor, not <code>null</code>.
+	 * @return The status, not <code>null</code>.
+	 */
+	IStatus update(final IProgressMonitor monitor) {
+		boolean initialScan;
+		synchronized (pendingFiles) {
+			initialScan = initialScanPending;
+			initialScanPending = false;
+		}
+		if (initialScan) {
+			try {
+				ResourcesPlugin.getWorkspace().getRoot().accept(new IResourceVisitor() {
+
+					@Override
+					public boolean visit(IResource resource) throws CoreException {
+						if (monitor.isCanceled()) {
+							throw new OperationCanceledException();
+						}
+						if (resource.getType() == IResource.FILE) {
+							IFile iFile = (IFile) resource;
+							updateFile(iFile, iFile.getLocation());
+						}
+						return true;
+					}
+				});
+			} catch (OperationCanceledException ex) {
+				synchronized (pendingFiles) {
+					initialScanPending = true;
+				}
+				return Status.CANCEL_STATUS;
+			} catch (CoreException ex) {
+				return ex.getStatus();
+			}
+		}
+
+		while (true) {
+			Map<IFile, IPath> changedFiles;
+			synchronized (pendingFiles) {
+				if (pendingFiles.isEmpty()) {
+					return Status.OK_STATUS;
+				}
+				changedFiles = new LinkedHashMap<IFile, IPath>(pendingFiles);
+				pendingFiles.clear();
+			}
+			for (Map.Entry<IFile, IPath> entry : changedFiles.entrySet()) {
+				if (monitor.isCanceled()) {
+					return Status.CANCEL_STATUS;
+				}
+				updateFile(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Gets the canonical file for a workspace file.
+	 * 
+	 * @param iFile The workspace file, not <code>null</code>.
+	 * @return The canonical file or <code>null</code> if the workspace file has
+	 *         no local file system location.
+	 */
+	private static File getFile(IFile iFile) {
+		return getFile(iFile.getLocation());
+	}
+
+	/**
+	 * Gets the canonical file for a file system location.
+	 * 
+	 * @param location The file system location or <code>null</code>.
+	 * @return The canonical file or <code>null</code> if the location is
+	 *         <code>null</code>.
+	 */
+	private static File getFile(IPath location) {
+		if (location == null) {
+			return null;
+		}
+		return FileUtility.getCanonicalFile(new File(location.toOSString()));
+	}
+
+	/**
+	 * Parses a workspace file and updates its outgoing references. If the
+	 * workspace file does not exist anymore or is no language file, its outgoing
+	 * references are removed.
+	 * 
+	 * @param iFile    The workspace file, not <code>null</code>.
+	 * @param location The file system location of the workspace file at the time
+	 *                 of the change or <code>null</code>.
+	 */
+	private void updateFile(IFile iFile, IPath location) {
+		if (iFile == null) {
+			throw new IllegalArgumentException("Parameter 'iFile' must not be null.");
+		}
+		File file = getFile(location);
+		if (file == null) {
+			return;
+		}
+
+		LanguagePlugin plugin = LanguagePlugin.getInstance();
+		Compiler compiler = null;
+		if (iFile.exists()) {
+			compiler = plugin.getCompilerRegistry().getCompilerByDefaultEditor(iFile);
+		}
+		if (compiler == null) {
+			removeFile(file);
+			return;
+		}
+
+		CompilerDefinition compilerDefinition = compiler.getDefinition();
+		Target target = plugin.getLanguagePreferences(compilerDefinition.getLanguage())
+				.getLanguageHardwareCompilerDefinitionPreferences(compilerDefinition.getDefaultHardware(),
+						compilerDefinition)
+				.getTarget();
+		CompilerSourceParser compilerSourceParser = compiler.createSourceParser();
+		compilerSourceParser.init(compilerDefinition.getSyntax().getInstructionSet(target));
+
+		String text;
+		try {
+			text = new String(FileUtility.readBytes(file, FileUtility.MAX_SIZE_UNLIMITED, false));
+		} catch (CoreException ex) {
+			removeFile(file);
+			return;
+		}
+		Set<File> referencedFiles = new TreeSet<File>();
+		for (CompilerSourceParserFileReference fileReference : compilerSourceParser
+				.detectFileReferences(file.getParentFile(), text)) {
+			referencedFiles.add(new File(fileReference.getAbsoluteFilePath()));
+		}
+
+		// Same resolution as for the language editor.
+		File mainSourceFile = null;
+		LanguageAnnotationValue annotationValue = CompilerSourceParser.getAnnotationValues(new Document(text))
+				.get(LanguageAnnotation.MAIN_SOURCE_FILE);
+		if (annotationValue != null && StringUtility.isSpecified(annotationValue.value)) {
+			IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+			mainSourceFile = getFile(
+					root.getFile(iFile.getFullPath().removeLastSegments(1).append(annotationValue.value)));
+			if (file.equals(mainSourceFile)) {
+				mainSourceFile = null;
+			}
+		}
+
+		synchronized (this) {
+			setReferencedFiles(file, referencedFiles);
+			setMainSourceFile(file, mainSourceFile);
+		}
+	}
+
+	/**
+	 * Removes the outgoing references of a file.
+	 * 
+	 * @param file The file, not <code>null</code>.
+	 */
+	synchronized void removeFile(File file) {
+		if (file == null) {
+			throw new IllegalArgumentException("Parameter 'file' must not be null.");
+		}
+		setReferencedFiles(file, Collections.<File>emptySet());
+		setMainSourceFile(file, null);
+	}
+
+	/**
+	 * Sets the outgoing references of a file and updates the reverse references.
+	 * 
+	 * @param file            The file, not <code>null</code>.
+	 * @param referencedFiles The directly referenced files, may be empty, not
+	 *                        <code>null</code>.
+	 */
+	private synchronized void setReferencedFiles(File file, Set<File> referencedFiles) {
+		Set<File> oldReferencedFiles = referencedFilesMap.remove(file);
+		if (oldReferencedFiles != null) {
+			for (File referencedFile : oldReferencedFiles) {
+				Set<File> referencingFiles = referencingFilesMap.get(referencedFile);
+				referencingFiles.remove(file);
+				if (referencingFiles.isEmpty()) {
+					referencingFilesMap.remove(referencedFile);
+				}
+			}
+		}
+		if (referencedFiles.isEmpty()) {
+			return;
+		}
+		referencedFilesMap.put(file, referencedFiles);
+		for (File referencedFile : referencedFiles) {
+			Set<File> referencingFiles = referencingFilesMap.get(referencedFile);
+			if (referencingFiles == null) {
+				referencingFiles = new TreeSet<File>();
+				referencingFilesMap.put(referencedFile, referencingFiles);
+			}
+			referencingFiles.add(file);
+		}
+	}
+
+	/**
+	 * Sets the main source file specified by the annotation of a file and updates
+	 * the reverse references.
+	 * 
+	 * @param file           The file, not <code>null</code>.
+	 * @param mainSourceFile The main source file or <code>null</code>.
+	 */
+	private synchronized void setMainSourceFile(File file, File mainSourceFile) {
+		File oldMainSourceFile = mainSourceFileMap.remove(file);
+		if (oldMainSourceFile != null) {
+			Set<File> annotatedFiles = annotatedFilesMap.get(oldMainSourceFile);
+			annotatedFiles.remove(file);
+			if (annotatedFiles.isEmpty()) {
+				annotatedFilesMap.remove(oldMainSourceFile);
+			}
+		}
+		if (mainSourceFile == null) {
+			return;
+		}
+		mainSourceFileMap.put(file, mainSourceFile);
+		Set<File> annotatedFiles = annotatedFilesMap.get(mainSourceFile);
+		if (annotatedFiles == null) {
+			annotatedFiles = new TreeSet<File>();
+			annotatedFilesMap.put(mainSourceFile, annotatedFiles);
+		}
+		annotatedFiles.add(file);
+	}
+
+	/**
+	 * Adds the files directly referenced by a file including the files which
+	 * specify the file as their main source file.
+	 * 
+	 * @param file   The file, not <code>null</code>.
+	 * @param result The modifiable result set, not <code>null</code>.
+	 */
+	private void addReferencedFiles(File file, Set<File> result) {
+		Set<File> referencedFiles = referencedFilesMap.get(file);
+		if (referencedFiles != null) {
+			result.addAll(referencedFiles);
+		}
+		Set<File> annotatedFiles = annotatedFilesMap.get(file);
+		if (annotatedFiles != null) {
+			result.addAll(annotatedFiles);
+		}
+	}
+
+	/**
+	 * Adds the files which directly reference a file including the main source
+	 * file specified by the file.
+	 * 
+	 * @param file   The file, not <code>null</code>.
+	 * @param result The modifiable result set, not <code>null</code>.
+	 */
+	private void addReferencingFiles(File file, Set<File> result) {
+		Set<File> referencingFiles = referencingFilesMap.get(file);
+		if (referencingFiles != null) {
+			result.addAll(referencingFiles);
+		}
+		File mainSourceFile = mainSourceFileMap.get(file);
+		if (mainSourceFile != null) {
+			result.add(mainSourceFile);
+		}
+	}
+
+	/**
+	 * Gets the files directly referenced by a file. This includes the files which
+	 * specify the file as their main source file.
+	 * 
+	 * @param file The file, not <code>null</code>.
+	 * @return The unmodifiable set of files, may be empty, not <code>null</code>.
+	 */
+	public synchronized Set<File> getReferencedFiles(File file) {
+		if (file == null) {
+			throw new IllegalArgumentException("Parameter 'file' must not be null.");
+		}
+		Set<File> result = new TreeSet<File>();
+		addReferencedFiles(file, result);
+		return Collections.unmodifiableSet(result);
+	}
+
+	/**
+	 * Gets the files which directly reference a file. This includes the main
+	 * source file specified by the file.
+	 * 
+	 * @param file The file, not <code>null</code>.
+	 * @return The unmodifiable set of files, may be empty, not <code>null</code>.
+	 */
+	public synchronized Set<File> getReferencingFiles(File file) {
+		if (file == null) {
+			throw new IllegalArgumentException("Parameter 'file' must not be null.");
+		}
+		Set<File> result = new TreeSet<File>();
+		addReferencingFiles(file, result);
+		return Collections.unmodifiableSet(result);
+	}
+
+	/**
+	 * Gets all files which reference a file directly or indirectly. These are all
+	 * files that have to be compiled again if the file changes.
+	 * 
+	 * @param file The file, not <code>null</code>.
+	 * @return The unmodifiable set of files, may be empty, not <code>null</code>.
+	 */
+	public synchronized Set<File> getAffectedFiles(File file) {
+		if (file == null) {
+			throw new IllegalArgumentException("Parameter 'file' must not be null.");
+		}
+		Set<File> result = new TreeSet<File>();
+		List<File> openFiles = new ArrayList<File>();
+		Set<File> referencingFiles = new TreeSet<File>();
+		openFiles.add(file);
+		while (!openFiles.isEmpty()) {
+			referencingFiles.clear();
+			addReferencingFiles(openFiles.remove(openFiles.size() - 1), referencingFiles);
+			for (File referencingFile : referencingFiles) {
+				if (result.add(referencingFile)) {
+					openFiles.add(referencingFile);
+				}
+			}
+		}
+		result.remove(file);
+		return Collections.unmodifiableSet(result);
+	}
+
+	/**
+	 * Gets the main source files for a file. These are the files which reference
+	 * the file directly or indirectly but are not referenced themselves. If the
+	 * file is not referenced at all, it is its own main source file.
+	 * 
+	 * @param file The file, not <code>null</code>.
+	 * @return The unmodifiable set of main source files, not empty and not
+	 *         <code>null</code>.
+	 */
+	public synchronized Set<File> getMainSourceFiles(File file) {
+		if (file == null) {
+			throw new IllegalArgumentException("Parameter 'file' must not be null.");
+		}
+		Set<File> result = new TreeSet<File>();
+		for (File affectedFile : getAffectedFiles(file)) {
+			if (!isReferenced(affectedFile)) {
+				result.add(affectedFile);
+			}
+		}
+		if (result.isEmpty()) {
+			result.add(file);
+		}
+		return Collections.unmodifiableSet(result);
+	}
+
+	/**
+	 * Determines if a file is referenced by any other file.
+	 * 
+	 * @param file The file, not <code>null</code>.
+	 * @return <code>true</code> if the file is referenced by a source or binary
+	 *         include directive or specifies the annotation
+	 *         {@link LanguageAnnotation#MAIN_SOURCE_FILE}, <code>false</code>
+	 *         otherwise.
+	 */
+	public synchronized boolean isReferenced(File file) {
+		if (file == null) {
+			throw new IllegalArgumentException("Parameter 'file' must not be null.");
+		}
+		return referencingFilesMap.containsKey(file) || mainSourceFileMap.containsKey(file);
+	}
+}
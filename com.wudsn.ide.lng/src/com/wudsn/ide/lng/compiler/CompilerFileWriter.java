@@ -19,6 +19,8 @@
 
 package com.wudsn.ide.lng.compiler;
 
+import java.io.File;
+
 public class CompilerFileWriter {
 	/**
 	 * Creates or updates a disk image file with the output file.
@@ -36,4 +38,21 @@ public class CompilerFileWriter {
 		}
 		return true;
 	}
+
+	/**
+	 * Gets the disk image file which is created or updated with the output file.
+	 * 
+	 * @param files The compiler files, not <code>null</code>.
+	 * 
+	 * @return The disk image file or <code>null</code> if no disk image is
+	 *         required.
+	 * 
+	 * @since 1.7.2
+	 */
+	public File getDiskImageFile(CompilerFiles files) {
+		if (files == null) {
+			throw new IllegalArgumentException("Parameter 'files' must not be null.");
+		}
+		return null;
+	}
 }
@@ -0,0 +1,401 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.wudsn.ide.lng.compiler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.wudsn.ide.lng.Texts;
+import com.wudsn.ide.lng.runner.RunnerDefinition;
+
+/**
+ * Timing metrics of the phases of builds and runs per compiler definition and
+ * runner definition. For every definition and phase, the durations of the
+ * last {@link #WINDOW_SIZE} executions are kept, so the statistics reflect the
+ * current edit-compile-run loop rather than the whole session.
+ * 
+ * @author Peter Dell
+ * 
+ * @since 1.7.2
+ */
+public final class CompilerMetrics {
+
+	/**
+	 * The phases of a build or run.
+	 */
+	public enum Phase {
+		ANNOTATION_SCAN, FILE_CHECKS, PROCESS_SPAWN, COMPILE, LOG_PARSING, MARKER_CREATION, SYMBOL_LOADING,
+		DISK_IMAGE_WRITING, RUNNER_LAUNCH;
+
+		/**
+		 * Gets the localized text of the phase.
+		 * 
+		 * @return The localized text, not empty and not <code>null</code>.
+		 */
+		public String getText() {
+			switch (this) {
+			case ANNOTATION_SCAN:
+				return Texts.COMPILER_METRICS_PHASE_ANNOTATION_SCAN;
+			case FILE_CHECKS:
+				return Texts.COMPILER_METRICS_PHASE_FILE_CHECKS;
+			case PROCESS_SPAWN:
+				return Texts.COMPILER_METRICS_PHASE_PROCESS_SPAWN;
+			case COMPILE:
+				return Texts.COMPILER_METRICS_PHASE_COMPILE;
+			case LOG_PARSING:
+				return Texts.COMPILER_METRICS_PHASE_LOG_PARSING;
+			case MARKER_CREATION:
+				return Texts.COMPILER_METRICS_PHASE_MARKER_CREATION;
+			case SYMBOL_LOADING:
+				return Texts.COMPILER_METRICS_PHASE_SYMBOL_LOADING;
+			case DISK_IMAGE_WRITING:
+				return Texts.COMPILER_METRICS_PHASE_DISK_IMAGE_WRITING;
+			case RUNNER_LAUNCH:
+				return Texts.COMPILER_METRICS_PHASE_RUNNER_LAUNCH;
+			default:
+				throw new IllegalStateException("Unknown phase " + this + ".");
+			}
+		}
+	}
+
+	/**
+	 * Listener which is notified when new durations are recorded.
+	 */
+	public interface Listener {
+		public void metricsChanged();
+	}
+
+	/**
+	 * Statistics of one phase of one definition over the current window.
+	 */
+	public static final class Statistic {
+		public final String definitionType;
+		public final String definitionName;
+		public final Phase phase;
+		public final long count;
+		public final double meanMillis;
+		public final double medianMillis;
+		public final double percentile90Millis;
+		public final double percentile99Millis;
+		public final double maxMillis;
+		public final double share;
+
+		Statistic(String definitionType, String definitionName, Phase phase, long count, double meanMillis,
+				double medianMillis, double percentile90Millis, double percentile99Millis, double maxMillis,
+				double share) {
+			this.definitionType = definitionType;
+			this.definitionName = definitionName;
+			this.phase = phase;
+			this.count = count;
+			this.meanMillis = meanMillis;
+			this.medianMillis = medianMillis;
+			this.percentile90Millis = percentile90Millis;
+			this.percentile99Millis = percentile99Millis;
+			this.maxMillis = maxMillis;
+			this.share = share;
+		}
+	}
+
+	/**
+	 * Ring buffer with the durations of the last executions of one phase of one
+	 * definition.
+	 */
+	private static final class Window {
+		public final long[] durationNanos;
+		public long count;
+
+		Window() {
+			durationNanos = new long[WINDOW_SIZE];
+		}
+
+		public void add(long duration) {
+			durationNanos[(int) (count % WINDOW_SIZE)] = duration;
+			count++;
+		}
+
+		public long[] getSortedDurations() {
+			long[] result = Arrays.copyOf(durationNanos, (int) Math.min(count, WINDOW_SIZE));
+			Arrays.sort(result);
+			return result;
+		}
+	}
+
+	/**
+	 * The number of executions per definition and phase the statistics are
+	 * based on.
+	 */
+	public static final int WINDOW_SIZE = 100;
+
+	private static final String COMPILER = "Compiler";
+	private static final String RUNNER = "Runner";
+
+	// Windows by definition type and name, then by phase.
+	private final Map<String, Map<Phase, Window>> windows;
+	private final List<Listener> listeners;
+
+	/**
+	 * Creation is public.
+	 */
+	public CompilerMetrics() {
+		windows = new LinkedHashMap<String, Map<Phase, Window>>();
+		listeners = new CopyOnWriteArrayList<Listener>();
+	}
+
+	/**
+	 * Records the duration of a phase of a build.
+	 * 
+	 * @param compilerDefinition The compiler definition, not <code>null</code>.
+	 * @param phase              The phase, not <code>null</code>.
+	 * @param startNanoTime      The start time of the phase as returned by
+	 *                           {@link System#nanoTime()}.
+	 * @return The end time of the phase as returned by {@link System#nanoTime()},
+	 *         which can be used as start time of the next phase.
+	 */
+	public long record(CompilerDefinition compilerDefinition, Phase phase, long startNanoTime) {
+		if (compilerDefinition == null) {
+			throw new IllegalArgumentException("Parameter 'compilerDefinition' must not be null.");
+		}
+		long endNanoTime = System.nanoTime();
+		recordDuration(COMPILER, compilerDefinition.getName(), phase, endNanoTime - startNanoTime);
+		return endNanoTime;
+	}
+
+	/**
+	 * Records the duration of a phase of a build.
+	 * 
+	 * @param compilerDefinition The compiler definition, not <code>null</code>.
+	 * @param phase              The phase, not <code>null</code>.
+	 * @param durationNanos      The duration in nanoseconds, a non-negative
+	 *                           number.
+	 */
+	public void recordDuration(CompilerDefinition compilerDefinition, Phase phase, long durationNanos) {
+		if (compilerDefinition == null) {
+			throw new IllegalArgumentException("Parameter 'compilerDefinition' must not be null.");
+		}
+		recordDuration(COMPILER, compilerDefinition.getName(), phase, durationNanos);
+	}
+
+	/**
+	 * Records the duration of a phase of a run.
+	 * 
+	 * @param runnerDefinition The runner definition, not <code>null</code>.
+	 * @param phase            The phase, not <code>null</code>.
+	 * @param durationNanos    The duration in nanoseconds, a non-negative number.
+	 */
+	public void recordDuration(RunnerDefinition runnerDefinition, Phase phase, long durationNanos) {
+		if (runnerDefinition == null) {
+			throw new IllegalArgumentException("Parameter 'runnerDefinition' must not be null.");
+		}
+		recordDuration(RUNNER, runnerDefinition.getName(), phase, durationNanos);
+	}
+
+	private void recordDuration(String definitionType, String definitionName, Phase phase, long durationNanos) {
+		if (phase == null) {
+			throw new IllegalArgumentException("Parameter 'phase' must not be null.");
+		}
+		synchronized (this) {
+			String key = definitionType + ": " + definitionName;
+			Map<Phase, Window> phaseWindows = windows.get(key);
+			if (phaseWindows == null) {
+				phaseWindows = new LinkedHashMap<Phase, Window>();
+				windows.put(key, phaseWindows);
+			}
+			Window window = phaseWindows.get(phase);
+			if (window == null) {
+				window = new Window();
+				phaseWindows.put(phase, window);
+			}
+			window.add(Math.max(0, durationNanos));
+		}
+		for (Listener listener : listeners) {
+			listener.metricsChanged();
+		}
+	}
+
+	/**
+	 * Removes all recorded durations.
+	 */
+	public void clear() {
+		synchronized (this) {
+			windows.clear();
+		}
+		for (Listener listener : listeners) {
+			listener.metricsChanged();
+		}
+	}
+
+	public void addListener(Listener listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException("Parameter 'listener' must not be null.");
+		}
+		listeners.add(listener);
+	}
+
+	public void removeListener(Listener listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException("Parameter 'listener' must not be null.");
+		}
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Gets the statistics for all definitions and phases with recorded durations.
+	 * The share is the fraction of the phase in the total duration of all phases
+	 * of the same definition within the current window.
+	 * 
+	 * @return The modifiable list of statistics ordered by definition and phase,
+	 *         may be empty, not <code>null</code>.
+	 */
+	public synchronized List<Statistic> getStatistics() {
+		List<Statistic> result = new ArrayList<Statistic>();
+		for (Map.Entry<String, Map<Phase, Window>> entry : windows.entrySet()) {
+			String key = entry.getKey();
+			int index = key.indexOf(": ");
+			String definitionType = key.substring(0, index);
+			String definitionName = key.substring(index + 2);
+
+			long totalNanos = 0;
+			for (Window window : entry.getValue().values()) {
+				for (long duration : window.getSortedDurations()) {
+					totalNanos += duration;
+				}
+			}
+			for (Phase phase : Phase.values()) {
+				Window window = entry.getValue().get(phase);
+				if (window == null) {
+					continue;
+				}
+				long[] durations = window.getSortedDurations();
+				long sumNanos = 0;
+				for (long duration : durations) {
+					sumNanos += duration;
+				}
+				result.add(new Statistic(definitionType, definitionName, phase, window.count,
+						toMillis(sumNanos) / durations.length, toMillis(getPercentile(durations, 50)),
+						toMillis(getPercentile(durations, 90)), toMillis(getPercentile(durations, 99)),
+						toMillis(durations[durations.length - 1]),
+						totalNanos == 0 ? 0 : (double) sumNanos / totalNanos));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Gets a percentile using the nearest rank method.
+	 * 
+	 * @param sortedDurations The sorted durations, not empty and not
+	 *                        <code>null</code>.
+	 * @param percentile      The percentile, between 1 and 100.
+	 * @return The duration at the percentile.
+	 */
+	private static long getPercentile(long[] sortedDurations, int percentile) {
+		int rank = (int) Math.ceil(percentile / 100.0 * sortedDurations.length);
+		return sortedDurations[Math.max(0, rank - 1)];
+	}
+
+	private static double toMillis(long nanos) {
+		return nanos / 1000000.0;
+	}
+
+	private static String formatMillis(double millis) {
+		return String.format(Locale.US, "%.3f", Double.valueOf(millis));
+	}
+
+	/**
+	 * Exports the statistics as CSV with a header line.
+	 * 
+	 * @return The CSV text, not <code>null</code>.
+	 */
+	public String toCSV() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("definitionType,definitionName,phase,count,meanMillis,medianMillis,percentile90Millis,"
+				+ "percentile99Millis,maxMillis,share\n");
+		for (Statistic statistic : getStatistics()) {
+			builder.append(statistic.definitionType).append(',');
+			builder.append('"').append(statistic.definitionName.replace("\"", "\"\"")).append('"').append(',');
+			builder.append(statistic.phase.name()).append(',');
+			builder.append(statistic.count).append(',');
+			builder.append(formatMillis(statistic.meanMillis)).append(',');
+			builder.append(formatMillis(statistic.medianMillis)).append(',');
+			builder.append(formatMillis(statistic.percentile90Millis)).append(',');
+			builder.append(formatMillis(statistic.percentile99Millis)).append(',');
+			builder.append(formatMillis(statistic.maxMillis)).append(',');
+			builder.append(String.format(Locale.US, "%.4f", Double.valueOf(statistic.share))).append('\n');
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Exports the statistics as JSON array of objects.
+	 * 
+	 * @return The JSON text, not <code>null</code>.
+	 */
+	public String toJSON() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("[\n");
+		List<Statistic> statistics = getStatistics();
+		for (int i = 0; i < statistics.size(); i++) {
+			Statistic statistic = statistics.get(i);
+			builder.append("  {");
+			builder.append("\"definitionType\": \"").append(statistic.definitionType).append("\", ");
+			builder.append("\"definitionName\": \"").append(escapeJSON(statistic.definitionName)).append("\", ");
+			builder.append("\"phase\": \"").append(statistic.phase.name()).append("\", ");
+			builder.append("\"count\": ").append(statistic.count).append(", ");
+			builder.append("\"meanMillis\": ").append(formatMillis(statistic.meanMillis)).append(", ");
+			builder.append("\"medianMillis\": ").append(formatMillis(statistic.medianMillis)).append(", ");
+			builder.append("\"percentile90Millis\": ").append(formatMillis(statistic.percentile90Millis))
+					.append(", ");
+			builder.append("\"percentile99Millis\": ").append(formatMillis(statistic.percentile99Millis))
+					.append(", ");
+			builder.append("\"maxMillis\": ").append(formatMillis(statistic.maxMillis)).append(", ");
+			builder.append("\"share\": ").append(String.format(Locale.US, "%.4f", Double.valueOf(statistic.share)));
+			builder.append(i < statistics.size() - 1 ? "},\n" : "}\n");
+		}
+		builder.append("]\n");
+		return builder.toString();
+	}
+
+	private static String escapeJSON(String value) {
+		StringBuilder builder = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '"':
+				builder.append("\\\"");
+				break;
+			case '\\':
+				builder.append("\\\\");
+				break;
+			default:
+				if (c < 0x20) {
+					builder.append(String.format("\\u%04x", Integer.valueOf(c)));
+				} else {
+					builder.append(c);
+				}
+			}
+		}
+		return builder.toString();
+	}
+}
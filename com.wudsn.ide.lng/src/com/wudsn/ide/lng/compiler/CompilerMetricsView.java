@@ -0,0 +1,272 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.wudsn.ide.lng.compiler;
+
+import java.io.File;
+import java.util.Locale;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jface.action.Action;
+import org.eclipse.jface.action.IToolBarManager;
+import org.eclipse.jface.viewers.ArrayContentProvider;
+import org.eclipse.jface.viewers.ColumnLabelProvider;
+import org.eclipse.jface.viewers.TableViewer;
+import org.eclipse.jface.viewers.TableViewerColumn;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.FileDialog;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.ui.part.ViewPart;
+
+import com.wudsn.ide.base.common.FileUtility;
+import com.wudsn.ide.lng.LanguagePlugin;
+import com.wudsn.ide.lng.Texts;
+import com.wudsn.ide.lng.compiler.CompilerMetrics.Statistic;
+
+/**
+ * View which shows the rolling timing statistics of the phases of builds and
+ * runs as recorded by {@link CompilerMetrics}.
+ * 
+ * @author Peter Dell
+ * 
+ * @since 1.7.2
+ */
+public final class CompilerMetricsView extends ViewPart implements CompilerMetrics.Listener {
+
+	public static final String ID = "com.wudsn.ide.lng.compiler.CompilerMetricsView";
+
+	// Model
+	private CompilerMetrics compilerMetrics;
+	private boolean refreshPending;
+
+	// View
+	private TableViewer viewer;
+	private FileDialog exportFileDialog;
+
+	public CompilerMetricsView() {
+		compilerMetrics = LanguagePlugin.getInstance().getCompilerMetrics();
+	}
+
+	@Override
+	public void createPartControl(Composite parent) {
+		IToolBarManager toolBarManager = getViewSite().getActionBars().getToolBarManager();
+
+		Action exportCSVAction = new Action(Texts.COMPILER_METRICS_VIEW_EXPORT_CSV_ACTION_LABEL) {
+			@Override
+			public void run() {
+				export("*.csv", compilerMetrics.toCSV());
+			}
+		};
+		Action exportJSONAction = new Action(Texts.COMPILER_METRICS_VIEW_EXPORT_JSON_ACTION_LABEL) {
+			@Override
+			public void run() {
+				export("*.json", compilerMetrics.toJSON());
+			}
+		};
+		Action resetAction = new Action(Texts.COMPILER_METRICS_VIEW_RESET_ACTION_LABEL) {
+			@Override
+			public void run() {
+				compilerMetrics.clear();
+			}
+		};
+		toolBarManager.add(exportCSVAction);
+		toolBarManager.add(exportJSONAction);
+		toolBarManager.add(resetAction);
+
+		viewer = new TableViewer(parent, SWT.MULTI | SWT.H_SCROLL | SWT.V_SCROLL | SWT.FULL_SELECTION | SWT.BORDER);
+		createColumns();
+		Table table = viewer.getTable();
+		table.setHeaderVisible(true);
+		table.setLinesVisible(true);
+		viewer.setContentProvider(new ArrayContentProvider());
+		getSite().setSelectionProvider(viewer);
+
+		compilerMetrics.addListener(this);
+		dataToUI();
+	}
+
+	private void createColumns() {
+		int index = 0;
+
+		TableViewerColumn col = createTableViewerColumn(Texts.COMPILER_METRICS_VIEW_DEFINITION_COLUMN_LABEL, 160,
+				index++);
+		col.setLabelProvider(new ColumnLabelProvider() {
+			@Override
+			public String getText(Object element) {
+				Statistic statistic = (Statistic) element;
+				return statistic.definitionName;
+			}
+		});
+
+		col = createTableViewerColumn(Texts.COMPILER_METRICS_VIEW_PHASE_COLUMN_LABEL, 140, index++);
+		col.setLabelProvider(new ColumnLabelProvider() {
+			@Override
+			public String getText(Object element) {
+				Statistic statistic = (Statistic) element;
+				return statistic.phase.getText();
+			}
+		});
+
+		col = createTableViewerColumn(Texts.COMPILER_METRICS_VIEW_COUNT_COLUMN_LABEL, 60, index++);
+		col.setLabelProvider(new ColumnLabelProvider() {
+			@Override
+			public String getText(Object element) {
+				Statistic statistic = (Statistic) element;
+				return Long.toString(statistic.count);
+			}
+		});
+
+		col = createTableViewerColumn(Texts.COMPILER_METRICS_VIEW_MEAN_COLUMN_LABEL, 80, index++);
+		col.setLabelProvider(new ColumnLabelProvider() {
+			@Override
+			public String getText(Object element) {
+				Statistic statistic = (Statistic) element;
+				return formatMillis(statistic.meanMillis);
+			}
+		});
+
+		col = createTableViewerColumn(Texts.COMPILER_METRICS_VIEW_MEDIAN_COLUMN_LABEL, 80, index++);
+		col.setLabelProvider(new ColumnLabelProvider() {
+			@Override
+			public String getText(Object element) {
+				Statistic statistic = (Statistic) element;
+				return formatMillis(statistic.medianMillis);
+			}
+		});
+
+		col = createTableViewerColumn(Texts.COMPILER_METRICS_VIEW_PERCENTILE_90_COLUMN_LABEL, 80, index++);
+		col.setLabelProvider(new ColumnLabelProvider() {
+			@Override
+			public String getText(Object element) {
+				Statistic statistic = (Statistic) element;
+				return formatMillis(statistic.percentile90Millis);
+			}
+		});
+
+		col = createTableViewerColumn(Texts.COMPILER_METRICS_VIEW_PERCENTILE_99_COLUMN_LABEL, 80, index++);
+		col.setLabelProvider(new ColumnLabelProvider() {
+			@Override
+			public String getText(Object element) {
+				Statistic statistic = (Statistic) element;
+				return formatMillis(statistic.percentile99Millis);
+			}
+		});
+
+		col = createTableViewerColumn(Texts.COMPILER_METRICS_VIEW_MAX_COLUMN_LABEL, 80, index++);
+		col.setLabelProvider(new ColumnLabelProvider() {
+			@Override
+			public String getText(Object element) {
+				Statistic statistic = (Statistic) element;
+				return formatMillis(statistic.maxMillis);
+			}
+		});
+
+		col = createTableViewerColumn(Texts.COMPILER_METRICS_VIEW_SHARE_COLUMN_LABEL, 60, index++);
+		col.setLabelProvider(new ColumnLabelProvider() {
+			@Override
+			public String getText(Object element) {
+				Statistic statistic = (Statistic) element;
+				return String.format(Locale.US, "%.1f%%", Double.valueOf(statistic.share * 100));
+			}
+		});
+	}
+
+	private TableViewerColumn createTableViewerColumn(String title, int bound, int colNumber) {
+		if (title == null) {
+			throw new IllegalArgumentException("Parameter 'title' must not be null.");
+		}
+		TableViewerColumn viewerColumn = new TableViewerColumn(viewer, SWT.NONE);
+		TableColumn column = viewerColumn.getColumn();
+		column.setText(title);
+		column.setWidth(bound);
+		column.setResizable(true);
+		column.setMoveable(true);
+		if (colNumber > 1) {
+			column.setAlignment(SWT.RIGHT);
+		}
+		return viewerColumn;
+	}
+
+	private static String formatMillis(double millis) {
+		return String.format(Locale.US, "%.1f", Double.valueOf(millis));
+	}
+
+	@Override
+	public void setFocus() {
+		viewer.getControl().setFocus();
+	}
+
+	@Override
+	public void dispose() {
+		compilerMetrics.removeListener(this);
+		super.dispose();
+	}
+
+	/**
+	 * Called from any thread when new durations were recorded. Multiple
+	 * notifications are coalesced into a single refresh in the UI thread.
+	 */
+	@Override
+	public void metricsChanged() {
+		synchronized (this) {
+			if (refreshPending) {
+				return;
+			}
+			refreshPending = true;
+		}
+		Display.getDefault().asyncExec(new Runnable() {
+			@Override
+			public void run() {
+				synchronized (CompilerMetricsView.this) {
+					refreshPending = false;
+				}
+				if (!viewer.getControl().isDisposed()) {
+					dataToUI();
+				}
+			}
+		});
+	}
+
+	void dataToUI() {
+		// Calling setInput will call getElements in the contentProvider
+		viewer.setInput(compilerMetrics.getStatistics());
+	}
+
+	private void export(String extension, String content) {
+		// Create the file dialog only once, so it keeps the selected folder
+		// when exporting multiple times.
+		if (exportFileDialog == null) {
+			exportFileDialog = new FileDialog(getSite().getShell(), SWT.SAVE);
+			exportFileDialog.setOverwrite(true);
+		}
+		exportFileDialog.setFilterExtensions(new String[] { extension });
+		String fileName = exportFileDialog.open();
+		if (fileName == null) {
+			return; // Canceled
+		}
+		try {
+			FileUtility.writeString(new File(fileName), content);
+		} catch (CoreException ex) {
+			LanguagePlugin.getInstance().showError(getSite().getShell(), "Cannot export compiler metrics", ex);
+		}
+	}
+}
@@ -20,7 +20,10 @@
 package com.wudsn.ide.lng.compiler;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IMarker;
@@ -279,4 +282,77 @@ public abstract class CompilerProcessLogParser {
 
 		return new Marker(iFile, lineNumber, severity, message.trim(), detailMarker);
 	}
+
+	/**
+	 * Gets all marker proxies and their detail marker proxies in the logs.
+	 * Duplicate marker proxies are returned only once.
+	 * 
+	 * @return The modifiable list of marker proxies, may be empty, not
+	 *         <code>null</code>.
+	 * 
+	 * @since 1.7.2
+	 */
+	public final List<Marker> getMarkers() {
+		Set<Marker> set = new HashSet<Marker>();
+		List<Marker> markerProxies = new ArrayList<Marker>();
+		while (nextMarker()) {
+			Marker markerProxy = getMarker();
+			while (markerProxy != null) { // Loop to add main marker and its
+				// detail markers
+				if (!set.contains(markerProxy)) {
+					set.add(markerProxy);
+					markerProxies.add(markerProxy);
+				}
+				markerProxy = markerProxy.getDetailMarker();
+			}
+		}
+		return markerProxies;
+	}
+
+	/**
+	 * Creates the transient problem markers for all marker proxies and their
+	 * detail marker proxies in the logs. Duplicate markers are created only once.
+	 * 
+	 * @return The modifiable list of created markers, may be empty, not
+	 *         <code>null</code>.
+	 * 
+	 * @since 1.7.2
+	 */
+	public final List<IMarker> createMarkers() {
+		return createMarkers(getMarkers());
+	}
+
+	/**
+	 * Creates the transient problem markers for marker proxies.
+	 * 
+	 * @param markerProxies The marker proxies, may be empty, not
+	 *                      <code>null</code>.
+	 * @return The modifiable list of created markers, may be empty, not
+	 *         <code>null</code>.
+	 * 
+	 * @since 1.7.2
+	 */
+	public static List<IMarker> createMarkers(List<Marker> markerProxies) {
+		if (markerProxies == null) {
+			throw new IllegalArgumentException("Parameter 'markerProxies' must not be null.");
+		}
+		List<IMarker> markers = new ArrayList<IMarker>(markerProxies.size());
+		for (Marker markerProxy : markerProxies) {
+			try {
+				IFile iFile = markerProxy.getIFile();
+				IMarker marker = iFile.createMarker(IMarker.PROBLEM);
+				marker.setAttribute(IMarker.SEVERITY, markerProxy.getSeverity());
+				marker.setAttribute(IMarker.MESSAGE, markerProxy.getMessage());
+				int lineNumber = markerProxy.getLineNumber();
+				if (lineNumber > 0) {
+					marker.setAttribute(IMarker.LINE_NUMBER, lineNumber);
+				}
+				marker.setAttribute(IMarker.TRANSIENT, true);
+				markers.add(marker);
+			} catch (CoreException ex) {
+				throw new RuntimeException(ex);
+			}
+		}
+		return markers;
+	}
 }
@@ -25,12 +25,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
+import org.eclipse.core.resources.IFile;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IConfigurationElement;
 import org.eclipse.core.runtime.IExtension;
 import org.eclipse.core.runtime.IExtensionPoint;
 import org.eclipse.core.runtime.IExtensionRegistry;
 import org.eclipse.core.runtime.Platform;
+import org.eclipse.ui.IEditorDescriptor;
+import org.eclipse.ui.ide.IDE;
 
 import com.wudsn.ide.base.hardware.Hardware;
 import com.wudsn.ide.lng.Language;
@@ -224,6 +227,49 @@ public final class CompilerRegistry {
 
 		}
 		String compilerClassName = editorClassName.substring(0, index) + "Compiler";
+		Compiler result = getCompilerByClassName(compilerClassName);
+		if (result == null) {
+			throw new IllegalArgumentException("Unknown compiler class '" + compilerClassName + "'.");
+		}
+		return result;
+
+	}
+
+	/**
+	 * Gets the compiler for the default editor of a file.
+	 * 
+	 * @param iFile The file, not <code>null</code>.
+	 * 
+	 * @return The compiler or <code>null</code> if the default editor of the
+	 *         file is not a language editor.
+	 * 
+	 * @since 1.7.2
+	 */
+	public Compiler getCompilerByDefaultEditor(IFile iFile) {
+		if (iFile == null) {
+			throw new IllegalArgumentException("Parameter 'iFile' must not be null.");
+		}
+		IEditorDescriptor editorDescriptor = IDE.getDefaultEditor(iFile);
+		if (editorDescriptor == null) {
+			return null;
+		}
+		final String SUFFIX = "Editor";
+		String editorClassName = editorDescriptor.getId();
+		if (!editorClassName.endsWith(SUFFIX)) {
+			return null;
+		}
+		return getCompilerByClassName(
+				editorClassName.substring(0, editorClassName.length() - SUFFIX.length()) + "Compiler");
+	}
+
+	/**
+	 * Gets the compiler for a given compiler class name.
+	 * 
+	 * @param compilerClassName The compiler class name, not <code>null</code>.
+	 * 
+	 * @return The compiler or <code>null</code>.
+	 */
+	private Compiler getCompilerByClassName(String compilerClassName) {
 		synchronized (compilerMap) {
 			for (Compiler compiler : compilerMap.values()) {
 				if (compiler.getClass().getName().equals(compilerClassName)) {
@@ -231,9 +277,7 @@ public final class CompilerRegistry {
 				}
 			}
 		}
-
-		throw new IllegalArgumentException("Unknown compiler class '" + compilerClassName + "'.");
-
+		return null;
 	}
 
 	/**
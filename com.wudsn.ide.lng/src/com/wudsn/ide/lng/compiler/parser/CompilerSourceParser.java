@@ -20,6 +20,7 @@
 package com.wudsn.ide.lng.compiler.parser;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -214,6 +215,63 @@ public abstract class CompilerSourceParser {
 		}
 	}
 
+	/**
+	 * Detects all file references in the lines of a source text and resolves their
+	 * absolute file paths. This method is stateless.
+	 * 
+	 * @param documentDirectory The directory of the source text which acts as the
+	 *                          basis for relative paths or <code>null</code> if it
+	 *                          is not known.
+	 * @param text              The source text, may be empty, not
+	 *                          <code>null</code>.
+	 * @return The list of file references with their absolute file paths, may be
+	 *         empty, not <code>null</code>.
+	 * 
+	 * @since 1.7.2
+	 */
+	public final List<CompilerSourceParserFileReference> detectFileReferences(File documentDirectory, String text) {
+		if (text == null) {
+			throw new IllegalArgumentException("Parameter 'text' must not be null.");
+		}
+
+		List<CompilerSourceParserFileReference> result = new ArrayList<CompilerSourceParserFileReference>();
+		for (String line : text.split("\\r\\n|\\r|\\n")) {
+			CompilerSourceParserFileReference fileReference = new CompilerSourceParserFileReference();
+			detectFileReference(line, fileReference);
+			if (fileReference.getType() == CompilerSourceParserFileReferenceType.NONE) {
+				continue;
+			}
+
+			// The file path is the first quoted string after the directive.
+			String filePath = null;
+			Iterator<String> i = compilerSyntax.getStringDelimiters().iterator();
+			while (i.hasNext() && filePath == null) {
+				String quote = i.next();
+				int startQuoteOffset = line.indexOf(quote, fileReference.getDirectiveEndOffset());
+				if (startQuoteOffset == -1) {
+					continue;
+				}
+				int endQuoteOffset = line.indexOf(quote, startQuoteOffset + quote.length());
+				if (endQuoteOffset == -1) {
+					continue;
+				}
+				filePath = line.substring(startQuoteOffset + quote.length(), endQuoteOffset);
+			}
+			if (StringUtility.isEmpty(filePath)) {
+				continue;
+			}
+
+			String absoluteFilePath = getIncludeAbsoluteFilePath(fileReference.getType(), documentDirectory,
+					filePath);
+			if (absoluteFilePath != null) {
+				fileReference.setFilePath(filePath);
+				fileReference.setAbsoluteFilePath(absoluteFilePath);
+				result.add(fileReference);
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * Enhances the file path of an include, for example adds a default extension
 	 * for source includes.
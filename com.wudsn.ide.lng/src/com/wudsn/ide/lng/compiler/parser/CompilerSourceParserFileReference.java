@@ -4,6 +4,8 @@ public final class CompilerSourceParserFileReference {
 
 	private int type;
 	private int directiveEndOffset;
+	private String filePath;
+	private String absoluteFilePath;
 
 	/**
 	 * Creation is public.
@@ -11,6 +13,8 @@ public final class CompilerSourceParserFileReference {
 	public CompilerSourceParserFileReference() {
 		type = CompilerSourceParserFileReferenceType.NONE;
 		directiveEndOffset = 0;
+		filePath = "";
+		absoluteFilePath = "";
 
 	}
 
@@ -67,4 +71,64 @@ public final class CompilerSourceParserFileReference {
 		return directiveEndOffset;
 	}
 
+	/**
+	 * Sets the file path of the referenced file as specified in the directive.
+	 * 
+	 * @param filePath The possibly relative file path, not empty and not
+	 *                 <code>null</code>.
+	 * 
+	 * @since 1.7.2
+	 */
+	public void setFilePath(String filePath) {
+		if (filePath == null) {
+			throw new IllegalArgumentException("Parameter 'filePath' must not be null.");
+		}
+		if (filePath.isEmpty()) {
+			throw new IllegalArgumentException("Parameter 'filePath' must not be empty.");
+		}
+		this.filePath = filePath;
+	}
+
+	/**
+	 * Gets the file path of the referenced file as specified in the directive.
+	 * 
+	 * @return The possibly relative file path, may be empty if the path was not
+	 *         detected, not <code>null</code>.
+	 * 
+	 * @since 1.7.2
+	 */
+	public String getFilePath() {
+		return filePath;
+	}
+
+	/**
+	 * Sets the absolute file path of the referenced file.
+	 * 
+	 * @param absoluteFilePath The absolute file path in OS specific notation, not
+	 *                         empty and not <code>null</code>.
+	 * 
+	 * @since 1.7.2
+	 */
+	public void setAbsoluteFilePath(String absoluteFilePath) {
+		if (absoluteFilePath == null) {
+			throw new IllegalArgumentException("Parameter 'absoluteFilePath' must not be null.");
+		}
+		if (absoluteFilePath.isEmpty()) {
+			throw new IllegalArgumentException("Parameter 'absoluteFilePath' must not be empty.");
+		}
+		this.absoluteFilePath = absoluteFilePath;
+	}
+
+	/**
+	 * Gets the absolute file path of the referenced file.
+	 * 
+	 * @return The absolute file path in OS specific notation, may be empty if the
+	 *         path was not resolved, not <code>null</code>.
+	 * 
+	 * @since 1.7.2
+	 */
+	public String getAbsoluteFilePath() {
+		return absoluteFilePath;
+	}
+
 }
@@ -87,9 +87,17 @@ public final class AppleFileWriter extends CompilerFileWriter {
 		// 0xE646, 0xE65A, 0xE686, 0xE691 };
 	}
 
+	@Override
+	public File getDiskImageFile(CompilerFiles files) {
+		if (files == null) {
+			throw new IllegalArgumentException("Parameter 'files' must not be null.");
+		}
+		return new File(files.outputFilePathWithoutExtension + ".dsk");
+	}
+
 	@Override
 	public boolean createOrUpdateDiskImage(CompilerFiles files) {
-		String imageFilePath = files.outputFilePathWithoutExtension + ".dsk";
+		String imageFilePath = getDiskImageFile(files).getPath();
 		String outputImageEntryName = OUTPUT_IMAGE_ENTRY_NAME;
 		String outputImageEntryTitle = "Loading " + files.outputFileNameWithoutExtension;
 		boolean autoCreate = true;
@@ -20,19 +20,12 @@
 package com.wudsn.ide.lng.editor;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.Date;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
-import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.ResourcesPlugin;
@@ -52,23 +45,22 @@ import org.eclipse.ui.console.IConsoleView;
 import org.eclipse.ui.ide.IDE;
 
 import com.wudsn.ide.base.common.FileUtility;
-import com.wudsn.ide.base.common.HexUtility;
 import com.wudsn.ide.base.common.MarkerUtility;
 import com.wudsn.ide.base.common.NumberUtility;
 import com.wudsn.ide.base.common.ProcessWithLogs;
 import com.wudsn.ide.base.common.StringUtility;
 import com.wudsn.ide.base.hardware.Hardware;
-import com.wudsn.ide.lng.HardwareUtility;
 import com.wudsn.ide.lng.LanguagePlugin;
-import com.wudsn.ide.lng.LanguageUtility;
 import com.wudsn.ide.lng.Texts;
 import com.wudsn.ide.lng.breakpoint.LanguageBreakpoint;
 import com.wudsn.ide.lng.compiler.Compiler;
+import com.wudsn.ide.lng.compiler.CompilerBuild;
+import com.wudsn.ide.lng.compiler.CompilerCommandLine;
 import com.wudsn.ide.lng.compiler.CompilerConsole;
 import com.wudsn.ide.lng.compiler.CompilerDefinition;
-import com.wudsn.ide.lng.compiler.CompilerFileWriter;
 import com.wudsn.ide.lng.compiler.CompilerFiles;
 import com.wudsn.ide.lng.compiler.CompilerFiles.SourceFile;
+import com.wudsn.ide.lng.compiler.CompilerMetrics;
 import com.wudsn.ide.lng.compiler.CompilerProcessLogParser;
 import com.wudsn.ide.lng.compiler.CompilerProcessLogParser.Marker;
 import com.wudsn.ide.lng.compiler.CompilerSymbol;
@@ -77,7 +69,6 @@ import com.wudsn.ide.lng.preferences.CompilerRunPreferences;
 import com.wudsn.ide.lng.runner.Runner;
 import com.wudsn.ide.lng.runner.RunnerDefinition;
 import com.wudsn.ide.lng.runner.RunnerId;
-import com.wudsn.ide.lng.runner.RunnerPaths.RunnerPath;
 import com.wudsn.ide.lng.symbol.CompilerSymbolsView;
 
 /**
@@ -106,24 +97,6 @@ final class LanguageEditorCompileCommand {
 		plugin = LanguagePlugin.getInstance();
 	}
 
-	/**
-	 * Creates a message associated with the main source file of an
-	 * {@link CompilerFiles} instance. The message is not bound to a line number.
-	 * 
-	 * @param files      The {@link CompilerFiles} not <code>null</code>.
-	 * @param severity   The message severity, see {@link IMarker#SEVERITY}
-	 * @param message    The message, may contain parameter "{0}" to "{9}". May be
-	 *                   empty, not <code>null</code>.
-	 * @param parameters The format parameters for the message, may be empty, not
-	 *                   <code>null</code>.
-	 */
-	private void createMainSourceFileMessage(CompilerFiles files, int severity, String message, String... parameters) {
-		if (files == null) {
-			throw new IllegalArgumentException("Parameter 'files' must not be null.");
-		}
-		MarkerUtility.createMarker(files.mainSourceFile.iFile, 0, severity, message, parameters);
-	}
-
 	/**
 	 * Executes a compile command.
 	 * 
@@ -187,25 +160,8 @@ final class LanguageEditorCompileCommand {
 		}
 	}
 
-	/**
-	 * Splits a string a one or more spaces, unless they are quoted.
-	 * 
-	 * @param commandLine The command line to be split, not <code>null</code>.
-	 * @return The array of string, may be empty, not <code>null</code>.
-	 */
-	private static String[] splitAtSpaces(String commandLine) {
-		if (commandLine == null) {
-			throw new IllegalArgumentException("Parameter 'commandLine' must not be null.");
-		}
-		return commandLine.split("\\s+(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)", -1);
-	}
-
-	public static void main(String[] args) {
-		System.out.println(java.util.Arrays.toString(splitAtSpaces("\"a b\"  \"c d\"   e")));
-	}
-
-	private boolean executeInternal(ILanguageEditor languageEditor, CompilerFiles files, String commandId,
-			String runnerId) {
+	private boolean executeInternal(final ILanguageEditor languageEditor, final CompilerFiles files,
+			final String commandId, final String runnerId) {
 
 		if (languageEditor == null) {
 			throw new IllegalArgumentException("Parameter 'languageEditor' must not be null.");
@@ -218,6 +174,8 @@ final class LanguageEditorCompileCommand {
 		}
 
 		LanguageEditorFilesLogic languageEditorFilesLogic = LanguageEditorFilesLogic.createInstance(languageEditor);
+		CompilerMetrics compilerMetrics = plugin.getCompilerMetrics();
+		long nanoTime = System.nanoTime();
 
 		// Remove existing problem markers from all files.
 		if (!languageEditorFilesLogic.removeMarkers(files)) {
@@ -235,6 +193,8 @@ final class LanguageEditorCompileCommand {
 		if (hardware == null) {
 			return false;
 		}
+		CompilerDefinition compilerDefinition = languageEditor.getCompilerDefinition();
+		compilerMetrics.record(compilerDefinition, CompilerMetrics.Phase.ANNOTATION_SCAN, nanoTime);
 
 		// Check files based on the compiler definition.
 		if (!languageEditorFilesLogic.validateOutputFile(files)) {
@@ -242,198 +202,31 @@ final class LanguageEditorCompileCommand {
 		}
 
 		// Create wrapper for run properties.
-		CompilerDefinition compilerDefinition = languageEditor.getCompilerDefinition();
-		CompilerRunPreferences compilerRunPreferences = new CompilerRunPreferences(
+		final CompilerRunPreferences compilerRunPreferences = new CompilerRunPreferences(
 				languageEditor.getLanguageHardwareCompilerPreferences(), files.mainSourceFile.languageAnnotationValues);
 
-		// Check if output file is modifiable in case it already exists.
-		long outputFileLastModified = -1;
-		if (files.outputFile.exists()) {
-			boolean canWrite = files.outputFile.canWrite();
-			if (canWrite) {
-				try {
-					FileOutputStream fos = new FileOutputStream(files.outputFile, true);
-					try {
-						fos.close();
-					} catch (IOException ex) {
-						plugin.logError("Cannot close file output stream", null, ex);
-					}
-				} catch (FileNotFoundException ex) {
-					canWrite = false;
-				}
+		final CompilerConsole compilerConsole = plugin.getCompilerConsole();
+		CompilerBuild compilerBuild = new CompilerBuild(languageEditor.getCompiler(),
+				languageEditor.createCompilerSourceParser(), files, hardware, compilerRunPreferences) {
 
+			@Override
+			protected void print(String line) {
+				compilerConsole.println(line);
 			}
-			if (!canWrite) {
-				// ERROR: Output file '{0}' cannot be opened for writing. End
-				// all applications which may keep the file open.
-				createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E106, files.outputFileName);
-				return false;
-			}
-			outputFileLastModified = files.outputFile.lastModified();
-		}
-
-		// Get and check path to compiler executable.
-		String compilerPreferencesText = LanguageUtility.getCompilerPreferencesText(compilerDefinition.getLanguage());
-		String compilerExecutablePath = languageEditor.getLanguagePreferences()
-				.getCompilerExecutablePathOrDefault(compilerDefinition);
-		if (StringUtility.isEmpty(compilerExecutablePath)) {
-			// ERROR: Path to {0} '{1}' executable is not set in the '{2}' preferences.
-			createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E100, compilerDefinition.getText(),
-					compilerDefinition.getName(), compilerPreferencesText);
-			return false;
-		}
-		File compilerExecutableFile = new File(compilerExecutablePath);
-		if (!compilerExecutableFile.exists()) {
-			// ERROR: Path to {0} '{1}' executable in the '{2}' preferences points to
-			// non-existing file '{3}'.
-			createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E103, compilerDefinition.getText(),
-					compilerDefinition.getName(), compilerPreferencesText, compilerExecutablePath);
-			return false;
-		}
-
-		// Get and check compiler executable parameters.
-		String compilerParameters = compilerRunPreferences.getParameters();
-		if (StringUtility.isEmpty(compilerParameters)) {
-			compilerParameters = compilerDefinition.getDefaultParameters();
-		}
-
-		// The parameters are first split at spaces (unless they are quotes) and then
-		// substituted.
-		// This allows for parameters and file paths inner spaces to be used.
-		// In some case addition quotes must be places around parameters, for
-		// example for the "${sourceFilePath}". This can be used to avoid
-		// problems with absolute file path under Unix starting with "/" or path
-		// containing white spaces.
-		compilerParameters = compilerParameters.trim();
-		String compilerParameterArray[] = splitAtSpaces(compilerParameters);
-
-		if (compilerParameterArray.length == 0) {
-			// ERROR: The {0} '{1}' does not specify default parameters.
-			createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E101, compilerDefinition.getText(),
-					compilerDefinition.getName());
-			return false;
-		}
 
-		// From here on, the method is linear, i.e. there is no "return" until
-		// the end.
-
-		// Special handling for direct execution of ".jar" files.
-		String[] fullCommandLineArray;
-		int offset;
-		if (compilerExecutablePath.toLowerCase().endsWith(".jar")) {
-			offset = 3;
-			fullCommandLineArray = new String[offset + compilerParameterArray.length];
-			fullCommandLineArray[0] = "java";
-			fullCommandLineArray[1] = "-jar";
-			fullCommandLineArray[2] = compilerExecutablePath;
-		} else {
-			offset = 1;
-			fullCommandLineArray = new String[offset + compilerParameterArray.length];
-			fullCommandLineArray[0] = compilerExecutablePath;
-		}
-
-		// Map parameter with variables replacement.
-		for (int i = 0; i < compilerParameterArray.length; i++) {
-			String parameter = compilerParameterArray[i];
-			parameter = CompilerVariables.replaceVariables(parameter, files);
-			fullCommandLineArray[i + offset] = parameter;
-		}
-
-		ProcessWithLogs compilerProcess = new ProcessWithLogs(fullCommandLineArray, files.mainSourceFile.folder);
-		CompilerConsole compilerConsole = plugin.getCompilerConsole();
-		compilerConsole.println("");
-		compilerConsole.println("Compiling for hardware " + hardware.name() + " on "
-				+ new SimpleDateFormat().format(new Date()) + ": " + compilerProcess.getCommandArrayString());
-
-		try {
-			compilerProcess.exec(System.out, System.err, true);
-		} catch (IOException ex) {
-			// ERROR: Cannot execute {0} process '{1}' in working directory '{2}'. System
-			// error: {3}
-			createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E105, compilerDefinition.getText(),
-					compilerProcess.getCommandArrayString(), compilerProcess.getWorkingDirectory().getPath(),
-					ex.getMessage());
-		}
-
-		// Refresh the output and the symbols file resource.
-		if (files.outputFolderPath.equals(files.mainSourceFile.folderPath)
-				|| files.outputFolderPath.equals(files.sourceFile.folderPath)) {
-			try {
-				IResource outputResource = files.mainSourceFile.iFile.getParent();
-				if (outputResource != null) {
-					outputResource.refreshLocal(IResource.DEPTH_ONE, null);
-				}
-				outputResource = files.sourceFile.iFile.getParent();
-				if (outputResource != null) {
-					outputResource.refreshLocal(IResource.DEPTH_ONE, null);
+			@Override
+			protected void outputFileAvailable() {
+				if (commandId.equals(COMPILE_AND_RUN) || commandId.equals(COMPILE_AND_RUN_WITH)) {
+					openOutputFile(languageEditor, files, compilerRunPreferences, compilerConsole, runnerId);
 				}
-
-			} catch (CoreException ex) {
-				createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, ex.getMessage());
-				return false;
 			}
-		}
-
-		compilerConsole.println("");
-		compilerConsole.println("Compiler '" + compilerDefinition.getName() + "' output:");
-		compilerConsole.println(compilerProcess.getErrorLog());
-		compilerConsole.println(compilerProcess.getOutputLog());
-
-		// Compiling is over, check the result.
-		Compiler compiler = languageEditor.getCompiler();
-		boolean compilerSuccess = compiler.isSuccessExitValue(compilerProcess.getExitValue());
-		if (compilerSuccess) {
-			if (files.outputFile.exists()) {
-				if (files.outputFile.length() > 0) {
-					if (files.outputFile.lastModified() != outputFileLastModified) {
-						// INFO: Output file '{0}' created or updated with {1}
-						// (${2}) bytes.
-						long fileLength = files.outputFile.length();
-						createMainSourceFileMessage(files, IMarker.SEVERITY_INFO, Texts.MESSAGE_I109,
-								files.outputFilePath, Long.toString(fileLength),
-								HexUtility.getLongValueHexString(fileLength));
-
-						// Handle disk images
-						CompilerFileWriter compilerFileWriter = HardwareUtility
-								.getCompilerFileWriter(compilerRunPreferences.getHardware());
-						if (!compilerFileWriter.createOrUpdateDiskImage(files)) {
-							return false;
-						}
-
-						if (commandId.equals(COMPILE_AND_RUN) || commandId.equals(COMPILE_AND_RUN_WITH)) {
-
-							openOutputFile(languageEditor, files, compilerRunPreferences, compilerConsole, runnerId);
-
-						}
-					} else {
-						// ERROR: Output file not updated. Check the error
-						// messages and the console log.
-						createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E108);
 
-					}
-				} else {
-					// ERROR: Output file created but empty. Check the error
-					// messages and the console log.
-					createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E126);
-				}
-			} else {
-				// ERROR: No output file created. Check the error messages and
-				// the
-				// console log.
-				createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E107);
+			@Override
+			protected boolean createLogMarkers(String outputLog, String errorLog) {
+				return parseLogs(languageEditor, files, outputLog, errorLog);
 			}
-		}
-
-		// Output an additional message if the reason for the compiler's exit
-		// value is not already contained in the error messages.
-		boolean errorFound = parseLogs(languageEditor, files, compilerProcess);
-		if (!compilerSuccess && !errorFound) {
-			// ERROR: {0} process ended with return code {1}. Check the error messages and
-			// the console log.
-			createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E127, compilerDefinition.getText(),
-					NumberUtility.getLongValueDecimalString(compilerProcess.getExitValue()));
-		}
-
+		};
+		compilerBuild.execute();
 		return true;
 	}
 
@@ -501,7 +294,7 @@ final class LanguageEditorCompileCommand {
 			if (breakpoints.length > 0) {
 				// WARNING: Breakpoints will be ignored because the application
 				// '{0}' does not support passing source level breakpoints.
-				createMainSourceFileMessage(files, IMarker.SEVERITY_WARNING, Texts.MESSAGE_W120,
+				CompilerBuild.createMainSourceFileMessage(files, IMarker.SEVERITY_WARNING, Texts.MESSAGE_W120,
 						new String[] { runner.getDefinition().getName() });
 			}
 			return;
@@ -518,12 +311,12 @@ final class LanguageEditorCompileCommand {
 			} catch (CoreException ex) {
 				// ERROR: Cannot open breakpoints file '{0}' for output. System
 				// error: {1}
-				createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E122,
+				CompilerBuild.createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E122,
 						new String[] { breakpointsFile.getPath(), ex.getMessage() });
 				return;
 			}
 			// INFO: Breakpoints file '{0}' created with {1} active breakpoints.
-			createMainSourceFileMessage(files, IMarker.SEVERITY_INFO, Texts.MESSAGE_I121, new String[] {
+			CompilerBuild.createMainSourceFileMessage(files, IMarker.SEVERITY_INFO, Texts.MESSAGE_I121, new String[] {
 					breakpointsFile.getPath(), NumberUtility.getLongValueDecimalString(activeBreakpointCount) });
 
 		} else {
@@ -531,7 +324,7 @@ final class LanguageEditorCompileCommand {
 			if (breakpointsFile.exists()) {
 				if (!breakpointsFile.delete()) {
 					// ERROR: Cannot delete empty breakpoints file '{0}'.
-					createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E123,
+					CompilerBuild.createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E123,
 							new String[] { breakpointsFile.getPath() });
 				}
 			}
@@ -569,7 +362,7 @@ final class LanguageEditorCompileCommand {
 		if (runner == null) {
 			// ERROR: Definition for application '{0}' from the preferences of
 			// hardware '{1}' is not registered.
-			createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E116, runnerId,
+			CompilerBuild.createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E116, runnerId,
 					hardware.toString());
 			return;
 		}
@@ -589,7 +382,7 @@ final class LanguageEditorCompileCommand {
 		// parameters, for example for the "${outputFilePath}" for
 		// MADS. Otherwise using absolute file path under Unix starting
 		// "/" may cause conflicts.
-		String[] commandLineArray = splitAtSpaces(runnerCommandLine);
+		String[] commandLineArray = CompilerCommandLine.splitAtSpaces(runnerCommandLine);
 
 		// Execution type: DEFAULT_APPLICATION
 		if (runnerId.equals(RunnerId.DEFAULT_APPLICATION)) {
@@ -603,7 +396,7 @@ final class LanguageEditorCompileCommand {
 				// ERROR: Cannot open output file '{0}' with the
 				// standard application since no application is
 				// registered for the file extension '{1}'.
-				createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E115, files.outputFilePath,
+				CompilerBuild.createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E115, files.outputFilePath,
 						extension);
 			} else {
 
@@ -611,7 +404,7 @@ final class LanguageEditorCompileCommand {
 					// INFO: Opening output file '{0}' with
 					// application
 					// '{1}'.
-					createMainSourceFileMessage(files, IMarker.SEVERITY_INFO, Texts.MESSAGE_I118, files.outputFilePath,
+					CompilerBuild.createMainSourceFileMessage(files, IMarker.SEVERITY_INFO, Texts.MESSAGE_I118, files.outputFilePath,
 							program.getName());
 
 					compilerConsole.println("Running '" + runner.getDefinition().getName() + "': " + program.getName()
@@ -619,7 +412,7 @@ final class LanguageEditorCompileCommand {
 				} else {
 					// ERROR: Cannot open output file '{0}' with
 					// application '{1}'.
-					createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E119, files.outputFilePath,
+					CompilerBuild.createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E119, files.outputFilePath,
 							program.getName());
 				}
 			}
@@ -637,7 +430,7 @@ final class LanguageEditorCompileCommand {
 				if (StringUtility.isEmpty(runnerExecutablePath)) {
 					// ERROR: Path to application executable is not
 					// set in the preferences of application '{0}'.
-					createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E112,
+					CompilerBuild.createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E112,
 							runner.getDefinition().getName());
 					error = true;
 				} else {
@@ -646,7 +439,7 @@ final class LanguageEditorCompileCommand {
 						// ERROR: Path to '{0}' application
 						// executable in the preferences points to
 						// non-existing file '{1}'.
-						createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E114,
+						CompilerBuild.createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E114,
 								runner.getDefinition().getName(), runnerExecutablePath);
 						error = true;
 					}
@@ -664,7 +457,7 @@ final class LanguageEditorCompileCommand {
 				}
 
 				// INFO: Opening output file '{0}' with application '{1}'.
-				createMainSourceFileMessage(files, IMarker.SEVERITY_INFO, Texts.MESSAGE_I118, files.outputFilePath,
+				CompilerBuild.createMainSourceFileMessage(files, IMarker.SEVERITY_INFO, Texts.MESSAGE_I118, files.outputFilePath,
 						runner.getDefinition().getName());
 
 				runnerProcess = new ProcessWithLogs(fullCommandLineArray, files.outputFolder);
@@ -675,12 +468,17 @@ final class LanguageEditorCompileCommand {
 				try {
 					boolean wait = compilerRunPreferences.isRunnerWaitForCompletion(runnerId);
 					runnerProcess.exec(compilerConsole.getPrintStream(), compilerConsole.getPrintStream(), wait);
+
+					// Only the process creation is the launch, the runner may run until it
+					// is closed if the execution waits for the completion.
+					plugin.getCompilerMetrics().recordDuration(runner.getDefinition(),
+							CompilerMetrics.Phase.RUNNER_LAUNCH, runnerProcess.getExecDurationNanos());
 					compilerConsole
 							.println("Application returned with exit code " + runnerProcess.getExitValue() + ".");
 				} catch (IOException ex) {
 					// ERROR: Cannot execute application '{0}' process '{1}' in
 					// working directory '{2}'. System error: {3}
-					createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E113,
+					CompilerBuild.createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, Texts.MESSAGE_E113,
 							runner.getDefinition().getName(), runnerProcess.getCommandArrayString(),
 							runnerProcess.getWorkingDirectory().getPath(), ex.getMessage());
 				}
@@ -699,7 +497,8 @@ final class LanguageEditorCompileCommand {
 		return parameter;
 	}
 
-	private boolean parseLogs(ILanguageEditor languageEditor, CompilerFiles files, ProcessWithLogs compileProcess) {
+	private boolean parseLogs(ILanguageEditor languageEditor, CompilerFiles files, String outputLog,
+			String errorLog) {
 
 		if (languageEditor == null) {
 			throw new IllegalArgumentException("Parameter 'languageEditor' must not be null.");
@@ -707,44 +506,30 @@ final class LanguageEditorCompileCommand {
 		if (files == null) {
 			throw new IllegalArgumentException("Parameter 'files' must not be null.");
 		}
-		if (compileProcess == null) {
-			throw new IllegalArgumentException("Parameter 'compileProcess' must not be null.");
+		if (outputLog == null) {
+			throw new IllegalArgumentException("Parameter 'outputLog' must not be null.");
+		}
+		if (errorLog == null) {
+			throw new IllegalArgumentException("Parameter 'errorLog' must not be null.");
 		}
 		Compiler compiler = languageEditor.getCompiler();
+		CompilerDefinition compilerDefinition = compiler.getDefinition();
+		CompilerMetrics compilerMetrics = plugin.getCompilerMetrics();
+		long nanoTime = System.nanoTime();
 		CompilerProcessLogParser logParser = compiler.createLogParser();
 
 		// Line parser with main source file and logs.
-		logParser.setLogs(files, compileProcess.getOutputLog(), compileProcess.getErrorLog());
-
-		Set<Marker> set = new HashSet<Marker>();
-		List<IMarker> markers = new ArrayList<IMarker>();
-		while (logParser.nextMarker()) {
-			Marker markerProxy = logParser.getMarker();
-			while (markerProxy != null) { // Loop to add main marker and its
-				// detail markers
-				if (!set.contains(markerProxy)) {
-					set.add(markerProxy);
-					try {
-						IFile iFile = markerProxy.getIFile();
-						IMarker marker = iFile.createMarker(IMarker.PROBLEM);
-						marker.setAttribute(IMarker.SEVERITY, markerProxy.getSeverity());
-						marker.setAttribute(IMarker.MESSAGE, markerProxy.getMessage());
-						int lineNumber = markerProxy.getLineNumber();
-						if (lineNumber > 0) {
-							marker.setAttribute(IMarker.LINE_NUMBER, lineNumber);
-						}
-						marker.setAttribute(IMarker.TRANSIENT, true);
-						markers.add(marker);
-					} catch (CoreException ex) {
-						throw new RuntimeException(ex);
-					}
-				}
-				markerProxy = markerProxy.getDetailMarker();
-			}
-		}
+		logParser.setLogs(files, outputLog, errorLog);
+
+		List<Marker> markerProxies = logParser.getMarkers();
+		nanoTime = compilerMetrics.record(compilerDefinition, CompilerMetrics.Phase.LOG_PARSING, nanoTime);
+		List<IMarker> markers = CompilerProcessLogParser.createMarkers(markerProxies);
+		nanoTime = compilerMetrics.record(compilerDefinition, CompilerMetrics.Phase.MARKER_CREATION, nanoTime);
 		boolean errorOccurred = positionToFirstErrorOrWarning(languageEditor, markers);
 
+		nanoTime = System.nanoTime();
 		parseCompilerSymbols(languageEditor, files, logParser);
+		compilerMetrics.record(compilerDefinition, CompilerMetrics.Phase.SYMBOL_LOADING, nanoTime);
 
 		return errorOccurred;
 	}
@@ -837,7 +622,7 @@ final class LanguageEditorCompileCommand {
 			if (message == null) {
 				message = ex.getClass().getName();
 			}
-			createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, message);
+			CompilerBuild.createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, message);
 			LanguagePlugin.getInstance().logError("Error in addCompilerSymbols()", null, ex);
 
 		} catch (CoreException ex) {
@@ -845,7 +630,7 @@ final class LanguageEditorCompileCommand {
 			if (message == null) {
 				message = ex.getClass().getName();
 			}
-			createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, message);
+			CompilerBuild.createMainSourceFileMessage(files, IMarker.SEVERITY_ERROR, message);
 
 		}
 
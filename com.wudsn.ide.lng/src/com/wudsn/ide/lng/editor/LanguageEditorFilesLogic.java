@@ -20,8 +20,6 @@
 package com.wudsn.ide.lng.editor;
 
 import java.io.File;
-import java.util.Map;
-import java.util.TreeMap;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IMarker;
@@ -41,9 +39,8 @@ import com.wudsn.ide.lng.LanguageAnnotationValues.InvalidLanguageAnnotationExcep
 import com.wudsn.ide.lng.LanguageAnnotationValues.LanguageAnnotationValue;
 import com.wudsn.ide.lng.LanguagePlugin;
 import com.wudsn.ide.lng.Texts;
-import com.wudsn.ide.lng.compiler.CompilerDefinition;
+import com.wudsn.ide.lng.compiler.CompilerBuild;
 import com.wudsn.ide.lng.compiler.CompilerFiles;
-import com.wudsn.ide.lng.compiler.CompilerOutputFolderMode;
 import com.wudsn.ide.lng.compiler.parser.CompilerSourceParser;
 
 /**
@@ -176,55 +173,7 @@ public final class LanguageEditorFilesLogic {
 	 * @since 1.6.1
 	 */
 	Hardware getHardware(IFile iFile, LanguageAnnotationValues annotationValues) throws InvalidLanguageAnnotationException {
-		if (iFile == null) {
-			throw new IllegalArgumentException("Parameter 'iFile' must not be null.");
-		}
-		Hardware hardware = null;
-		LanguageAnnotationValue hardwareAnnotationValue = annotationValues.get(LanguageAnnotation.HARDWARE);
-		if (hardwareAnnotationValue != null) {
-			Map<String, Hardware> allowedValues = new TreeMap<String, Hardware>();
-			StringBuilder allowedValuesBuilder = new StringBuilder();
-			for (Hardware value : Hardware.values()) {
-
-				if (value != Hardware.GENERIC) {
-					if (allowedValuesBuilder.length() > 0) {
-						allowedValuesBuilder.append(",");
-					}
-					allowedValues.put(value.name(), value);
-					allowedValuesBuilder.append(value.name());
-				}
-			}
-
-			String hardwareValue = hardwareAnnotationValue.value.toUpperCase();
-			if (StringUtility.isEmpty(hardwareValue)) {
-				try {
-					iFile.deleteMarkers(IMarker.PROBLEM, true, IResource.DEPTH_ZERO);
-				} catch (CoreException ex) {
-					LanguagePlugin.getInstance().logError("Cannot remove markers", null, ex);
-				}
-				// ERROR: Hardware not specified. Specify one of the
-				// following valid values '{0}'.
-				IMarker marker = MarkerUtility.createMarker(iFile, hardwareAnnotationValue.lineNumber, IMarker.SEVERITY_ERROR,
-						Texts.MESSAGE_E128, new String[] { allowedValuesBuilder.toString() });
-				throw new InvalidLanguageAnnotationException(hardwareAnnotationValue, marker);
-			}
-			hardware = allowedValues.get(hardwareValue);
-
-			if (hardware == null) {
-				try {
-					iFile.deleteMarkers(IMarker.PROBLEM, true, IResource.DEPTH_ZERO);
-				} catch (CoreException ex) {
-					languageEditor.getPlugin().logError("Cannot remove markers", null, ex);
-				}
-				// ERROR: Unknown hardware {0}. Specify one of the
-				// following valid values '{1}'.
-				IMarker marker = MarkerUtility.createMarker(iFile, hardwareAnnotationValue.lineNumber, IMarker.SEVERITY_ERROR,
-						Texts.MESSAGE_E124, new String[] { hardwareValue, allowedValuesBuilder.toString() });
-				throw new InvalidLanguageAnnotationException(hardwareAnnotationValue, marker);
-			}
-
-		}
-		return hardware;
+		return CompilerBuild.getHardware(iFile, annotationValues);
 	}
 
 	/**
@@ -295,67 +244,12 @@ public final class LanguageEditorFilesLogic {
 		if (files == null) {
 			throw new IllegalArgumentException("Parameter 'files' must not be null.");
 		}
-		CompilerDefinition compilerDefinition = languageEditor.getCompilerDefinition();
-		if (StringUtility.isEmpty(files.outputFileExtension)) {
-			// ERROR: Output file extension must be set in the preferences of {0} '{1}' or
-			// via the annotation '{2}'.
-			createMainSourceFileMessage(files, files.outputFileExtensionAnnotationValue, IMarker.SEVERITY_ERROR,
-					Texts.MESSAGE_E104, compilerDefinition.getText(), compilerDefinition.getName(),
-					LanguageAnnotation.OUTPUT_FILE_EXTENSION);
-
-			return false;
-		}
-		if (!files.outputFileExtension.startsWith(".")) {
-			// ERROR: Output file extension {0} must start with ".".
-			createMainSourceFileMessage(files, files.outputFileExtensionAnnotationValue, IMarker.SEVERITY_ERROR,
-					Texts.MESSAGE_E139, files.outputFileExtension);
-			return false;
-		}
-
-		if (StringUtility.isEmpty(files.outputFolderMode)) {
-			// ERROR: Output folder mode be set in the preferences of
-			// compiler '{0}' or via the annotation '{1}'.
-			createMainSourceFileMessage(files, files.outputFolderModeAnnotationValue, IMarker.SEVERITY_ERROR,
-					Texts.MESSAGE_E140, compilerDefinition.getName(), LanguageAnnotation.OUTPUT_FOLDER_MODE);
-
+		IMarker marker = CompilerBuild.validateOutputFile(files, languageEditor.getCompilerDefinition());
+		if (marker != null) {
+			MarkerUtility.gotoMarker(languageEditor, marker);
 			return false;
 		}
-		if (!CompilerOutputFolderMode.isDefined(files.outputFolderMode)) {
-			// ERROR: Unknown output folder mode {0}. Specify one of the
-			// following valid values '{1}'.
-			createMainSourceFileMessage(files, files.outputFolderModeAnnotationValue, IMarker.SEVERITY_ERROR,
-					Texts.MESSAGE_E141, files.outputFolderMode, CompilerOutputFolderMode.getAllowedValues());
-			return false;
-
-		}
-
 		return true;
 	}
 
-	/**
-	 * Creates a message associated with the main source file of an
-	 * {@link LanguageEditorFilesLogic} instance. The message is is bound to the
-	 * line number number of the value (if available). Also the editor is
-	 * position to the marker.
-	 * 
-	 * @param files      The {@link CompilerFiles} not <code>null</code>.
-	 * @param value   The language value to which the message belongs or
-	 *                   <code>null</code>.
-	 * @param severity   The message severity, see {@link IMarker#SEVERITY}
-	 * @param message    The message, may contain parameter "{0}" to "{9}". May be
-	 *                   empty, not <code>null</code>.
-	 * @param parameters The format parameters for the message, may be empty, not
-	 *                   <code>null</code>.
-	 */
-	private void createMainSourceFileMessage(CompilerFiles files, LanguageAnnotationValue property, int severity,
-			String message, String... parameters) {
-		if (files == null) {
-			throw new IllegalArgumentException("Parameter 'files' must not be null.");
-		}
-		IMarker marker = MarkerUtility.createMarker(files.mainSourceFile.iFile,
-				(property == null ? 0 : property.lineNumber), severity, message, parameters);
-		MarkerUtility.gotoMarker(languageEditor, marker);
-
-	}
-
 }
\ No newline at end of file
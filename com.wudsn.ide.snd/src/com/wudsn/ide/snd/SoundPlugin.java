@@ -28,6 +28,7 @@ import org.eclipse.core.runtime.content.IContentTypeManager;
 import org.osgi.framework.BundleContext;
 
 import com.wudsn.ide.base.common.AbstractIDEPlugin;
+import com.wudsn.ide.snd.player.AudioLinePool;
 import com.wudsn.ide.snd.player.SoundPlayer;
 import com.wudsn.ide.snd.player.atari8.ASAPPlayer;
 import com.wudsn.ide.snd.player.c64.SIDPlayer;
@@ -72,6 +73,7 @@ public final class SoundPlugin extends AbstractIDEPlugin {
 	 */
 	@Override
 	public void stop(BundleContext context) throws Exception {
+		AudioLinePool.closeAll();
 		plugin = null;
 		super.stop(context);
 	}
@@ -54,6 +54,7 @@ public final class Texts extends NLS {
 	public static String SOUND_EDITOR_LOOP_YES;
 	public static String SOUND_EDITOR_NORM_NTSC;
 	public static String SOUND_EDITOR_NORM_PAL;
+	public static String SOUND_EDITOR_OVERVIEW_LABEL;
 	public static String SOUND_EDITOR_PAUSED;
 	public static String SOUND_EDITOR_PAUSE_BUTTON_TOOLTIP;
 	public static String SOUND_EDITOR_PLAYER_ADDRESS_LABEL;
@@ -70,6 +71,30 @@ public final class Texts extends NLS {
 	public static String SOUND_EDITOR_UNKNOWN;
 	public static String SOUND_EDITOR_VOLUME_LABEL;
 
+	/**
+	 * Sound renderer
+	 */
+	public static String SOUND_RENDERER_JOB_NAME;
+	public static String SOUND_RENDERER_TASK_NAME;
+
+	/**
+	 * Sound batch exporter
+	 */
+	public static String SOUND_BATCH_EXPORTER_JOB_NAME;
+	public static String SOUND_BATCH_EXPORTER_TASK_NAME;
+
+	/**
+	 * Song length analyzer
+	 */
+	public static String SONG_LENGTH_ANALYZER_JOB_NAME;
+	public static String SONG_LENGTH_ANALYZER_TASK_NAME;
+
+	/**
+	 * Song overview renderer
+	 */
+	public static String SONG_OVERVIEW_RENDERER_JOB_NAME;
+	public static String SONG_OVERVIEW_RENDERER_TASK_NAME;
+
 	/**
 	 * Messages for {@link SoundEditor}.
 	 */
@@ -83,6 +108,11 @@ public final class Texts extends NLS {
 	public static String MESSAGE_I507;
 	public static String MESSAGE_I508;
 	public static String MESSAGE_E509;
+	public static String MESSAGE_E510;
+	public static String MESSAGE_E511;
+	public static String MESSAGE_E512;
+	public static String MESSAGE_E513;
+	public static String MESSAGE_E514;
 
 	/**
 	 * Initializes the constants.
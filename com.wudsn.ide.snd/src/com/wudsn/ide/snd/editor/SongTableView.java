@@ -26,8 +26,13 @@ import java.util.Date;
 import java.util.List;
 
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.graphics.Rectangle;
 import org.eclipse.swt.layout.RowData;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.Listener;
 import org.eclipse.swt.widgets.Table;
@@ -39,6 +44,7 @@ import com.wudsn.ide.base.gui.Action;
 import com.wudsn.ide.snd.Texts;
 import com.wudsn.ide.snd.editor.SoundEditor.Actions;
 import com.wudsn.ide.snd.player.LoopMode;
+import com.wudsn.ide.snd.player.SongOverview;
 import com.wudsn.ide.snd.player.SoundInfo;
 
 /**
@@ -92,6 +98,11 @@ final class SongTableView {
 	// Standard width of a column.
 	private static final int WIDTH = 80;
 
+	// Index and margin of the overview column. The overview is drawn with one
+	// pixel per column of the overview.
+	private static final int OVERVIEW_COLUMN_INDEX = 5;
+	private static final int OVERVIEW_MARGIN = 2;
+
 	// Objects created in the constructor.
 	private final Table table;
 	private final TableColumn idColumn;
@@ -99,10 +110,16 @@ final class SongTableView {
 	private final DateFormat durationColumnFormat;
 	private final TableColumn durationColumn;
 	private final TableColumn loopColumn;
+	private final TableColumn overviewColumn;
+	private final Color waveformColor;
+	private final Color[] envelopeColors;
 
 	// The data list containing the converted image color histogram data.
 	private List<SongTableView.Data> dataList;
 
+	// The overviews of the songs, entries are null until they are available.
+	private SongOverview[] overviews;
+
 	public SongTableView(Composite parent, final SoundEditor owner) {
 		if (parent == null) {
 			throw new IllegalArgumentException("Parameter 'parent' must not be null."); //$NON-NLS-1$
@@ -114,7 +131,7 @@ final class SongTableView {
 		table = new Table(parent, SWT.BORDER | SWT.SINGLE | SWT.FULL_SELECTION);
 		table.setHeaderVisible(true);
 		RowData layoutData = new RowData();
-		layoutData.width = 640;
+		layoutData.width = 640 + SongOverview.WIDTH + 2 * OVERVIEW_MARGIN;
 		table.setLayoutData(layoutData);
 		/*
 		 * NOTE: MeasureItem, PaintItem and EraseItem are called repeatedly. Therefore,
@@ -132,6 +149,19 @@ final class SongTableView {
 
 		table.addSelectionListener(new Action(Actions.PLAY, owner));
 
+		// Clicking into the overview plays the song from the clicked position.
+		// The selection has already started the song when the mouse button is
+		// released.
+		table.addListener(SWT.MouseUp, new Listener() {
+
+			@Override
+			public void handleEvent(Event event) {
+				if (event.button == 1) {
+					seekOverview(event, owner);
+				}
+			}
+		});
+
 		// The first column is always left aligned in SWT due to a
 		// restriction in windows.
 		// This is a trick to come round this restriction.
@@ -148,13 +178,23 @@ final class SongTableView {
 		durationColumn.setText(Texts.SOUND_EDITOR_DURATION_LABEL);
 		loopColumn = new TableColumn(table, SWT.RIGHT);
 		loopColumn.setText(Texts.SOUND_EDITOR_LOOP_LABEL);
+		overviewColumn = new TableColumn(table, SWT.LEFT);
+		overviewColumn.setText(Texts.SOUND_EDITOR_OVERVIEW_LABEL);
 
 		idColumn.setWidth(WIDTH);
 		defaultSongColumn.setWidth(WIDTH);
 		durationColumn.setWidth(WIDTH);
 		loopColumn.setWidth(WIDTH);
+		overviewColumn.setWidth(SongOverview.WIDTH + 2 * OVERVIEW_MARGIN);
+
+		Display display = parent.getDisplay();
+		waveformColor = display.getSystemColor(SWT.COLOR_GREEN);
+		envelopeColors = new Color[] { display.getSystemColor(SWT.COLOR_BLUE),
+				display.getSystemColor(SWT.COLOR_RED), display.getSystemColor(SWT.COLOR_DARK_YELLOW),
+				display.getSystemColor(SWT.COLOR_MAGENTA) };
 
 		dataList = new ArrayList<SongTableView.Data>();
+		overviews = new SongOverview[0];
 	}
 
 	/**
@@ -206,6 +246,97 @@ final class SongTableView {
 			break;
 		}
 		item.setText(4, text);
+		if (event.index == OVERVIEW_COLUMN_INDEX) {
+			SongOverview overview = getOverview(data.getId());
+			if (overview != null) {
+				paintOverview(event.gc, item.getBounds(OVERVIEW_COLUMN_INDEX), overview);
+			}
+		}
+	}
+
+	/**
+	 * Paints the waveform and the envelopes of the channels.
+	 * 
+	 * @param gc       The graphics context, not <code>null</code>.
+	 * @param bounds   The bounds of the cell, not <code>null</code>.
+	 * @param overview The overview, not <code>null</code>.
+	 */
+	private void paintOverview(GC gc, Rectangle bounds, SongOverview overview) {
+		int width = bounds.width - 2 * OVERVIEW_MARGIN;
+		int height = bounds.height - 2 * OVERVIEW_MARGIN;
+		if (width <= 0 || height <= 0) {
+			return;
+		}
+		int left = bounds.x + OVERVIEW_MARGIN;
+		int top = bounds.y + OVERVIEW_MARGIN;
+		int middle = top + height / 2;
+		Color foreground = gc.getForeground();
+
+		gc.setForeground(waveformColor);
+		for (int x = 0; x < width; x++) {
+			int column = x * SongOverview.WIDTH / width;
+			gc.drawLine(left + x, middle - overview.getWaveformMaximum(column) * height / 256, left + x,
+					middle - overview.getWaveformMinimum(column) * height / 256);
+		}
+
+		int[] points = new int[2 * width];
+		for (int channel = 0; channel < overview.getChannels(); channel++) {
+			for (int x = 0; x < width; x++) {
+				int column = x * SongOverview.WIDTH / width;
+				points[2 * x] = left + x;
+				points[2 * x + 1] = top + height - 1 - overview.getEnvelope(channel, column) * (height - 1) / 255;
+			}
+			gc.setForeground(envelopeColors[channel % envelopeColors.length]);
+			gc.drawPolyline(points);
+		}
+		gc.setForeground(foreground);
+	}
+
+	/**
+	 * Plays the song from the position which was clicked in the overview.
+	 * 
+	 * @param event The mouse event, not <code>null</code>.
+	 * @param owner The sound editor, not <code>null</code>.
+	 */
+	void seekOverview(Event event, SoundEditor owner) {
+		TableItem item = table.getItem(new Point(event.x, event.y));
+		if (item == null) {
+			return;
+		}
+		Rectangle bounds = item.getBounds(OVERVIEW_COLUMN_INDEX);
+		int width = bounds.width - 2 * OVERVIEW_MARGIN;
+		if (!bounds.contains(event.x, event.y) || width <= 0) {
+			return;
+		}
+		int song = dataList.get(table.indexOf(item)).getId();
+		SongOverview overview = getOverview(song);
+		if (overview == null) {
+			return;
+		}
+		int x = Math.min(Math.max(0, event.x - bounds.x - OVERVIEW_MARGIN), width);
+		owner.playSong(song, overview.getPosition(x * SongOverview.WIDTH / width));
+	}
+
+	private SongOverview getOverview(int song) {
+		if (song < overviews.length) {
+			return overviews[song];
+		}
+		return null;
+	}
+
+	/**
+	 * Sets the overviews of the songs.
+	 * 
+	 * @param overviews The overviews with one entry per song, may be empty, not
+	 *                  <code>null</code>. Entries are <code>null</code> if the
+	 *                  overview of the song is not available.
+	 */
+	public void setOverviews(SongOverview[] overviews) {
+		if (overviews == null) {
+			throw new IllegalArgumentException("Parameter 'overviews' must not be null."); //$NON-NLS-1$
+		}
+		this.overviews = overviews.clone();
+		table.redraw();
 	}
 
 	public void setInfo(SoundInfo info) {
@@ -213,7 +344,10 @@ final class SongTableView {
 			throw new IllegalArgumentException("Parameter 'info' must not be null."); //$NON-NLS-1$
 		}
 
-		// Create data list.
+		// Create data list. The info may be set again when the song lengths
+		// have been detected.
+		dataList.clear();
+		table.clearAll();
 		int size = info.getSongs();
 		for (int i = 0; i < size; i++) {
 			int duration = info.getDuration(i);
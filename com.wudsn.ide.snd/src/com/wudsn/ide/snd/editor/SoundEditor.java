@@ -22,13 +22,19 @@ import java.io.File;
 import java.text.DateFormat;
 import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.dialogs.IInputValidator;
 import org.eclipse.jface.dialogs.InputDialog;
 import org.eclipse.jface.window.Window;
@@ -69,9 +75,14 @@ import com.wudsn.ide.snd.Texts;
 import com.wudsn.ide.snd.player.Clock;
 import com.wudsn.ide.snd.player.EmptyPlayer;
 import com.wudsn.ide.snd.player.FileType;
+import com.wudsn.ide.snd.player.SongLength;
+import com.wudsn.ide.snd.player.SongLengthAnalyzer;
+import com.wudsn.ide.snd.player.SongOverview;
+import com.wudsn.ide.snd.player.SongOverviewRenderer;
 import com.wudsn.ide.snd.player.SoundInfo;
 import com.wudsn.ide.snd.player.SoundPlayer;
 import com.wudsn.ide.snd.player.SoundPlayerListener;
+import com.wudsn.ide.snd.player.SoundRenderer;
 
 /**
  * Sound file editor, i.e. editor part for the visualization of the
@@ -148,9 +159,157 @@ public final class SoundEditor extends EditorPart implements Application, SoundP
 
 	}
 
+	/**
+	 * Background job which detects the lengths of the songs which are neither
+	 * known from the module nor from the song length database nor from the song
+	 * length cache. The song table is updated when the job has finished.
+	 */
+	private final class SongLengthJob extends Job {
+
+		private final SoundPlayer jobPlayer;
+		private final Display jobDisplay;
+
+		SongLengthJob(SoundPlayer player, Display display) {
+			super(Texts.SONG_LENGTH_ANALYZER_JOB_NAME);
+			this.jobPlayer = player;
+			this.jobDisplay = display;
+			setPriority(Job.LONG);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			final String moduleHash = jobPlayer.getInfo().getModuleHash();
+			final SongLength[] songLengths;
+			try {
+				songLengths = SongLengthAnalyzer.analyze(jobPlayer, SongLengthAnalyzer.DEFAULT_MAXIMUM_DURATION,
+						SoundRenderer.getDefaultConcurrency(), monitor);
+			} catch (OperationCanceledException ex) {
+				return Status.CANCEL_STATUS;
+			}
+
+			jobDisplay.asyncExec(new Runnable() {
+				@Override
+				public void run() {
+					if (SongLengthAnalyzer.applySongLengths(jobPlayer, moduleHash, songLengths) && partControlCreated) {
+						int selectedSong = songTableView.getSelectedSong();
+						songTableView.setInfo(jobPlayer.getInfo());
+						songTableView.setSelectedSong(selectedSong);
+						dataToUI();
+					}
+					// The overviews depend on the song lengths. They are not
+					// created anymore if the editor has been closed.
+					if (player == jobPlayer && (mainComposite == null || !mainComposite.isDisposed())) {
+						applySongOverviews();
+					}
+				}
+			});
+			return Status.OK_STATUS;
+		}
+	}
+
+	/**
+	 * Background job which creates the overviews of the songs which are not in
+	 * the song overview cache. The song table is updated when the job has
+	 * finished.
+	 */
+	private final class SongOverviewJob extends Job {
+
+		private final SoundPlayer jobPlayer;
+		private final Display jobDisplay;
+
+		SongOverviewJob(SoundPlayer player, Display display) {
+			super(Texts.SONG_OVERVIEW_RENDERER_JOB_NAME);
+			this.jobPlayer = player;
+			this.jobDisplay = display;
+			setPriority(Job.LONG);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			final SongOverview[] overviews;
+			try {
+				overviews = SongOverviewRenderer.create(jobPlayer, SongOverviewRenderer.DEFAULT_MAXIMUM_DURATION,
+						SoundRenderer.getDefaultConcurrency(), monitor);
+			} catch (OperationCanceledException ex) {
+				return Status.CANCEL_STATUS;
+			}
+
+			jobDisplay.asyncExec(new Runnable() {
+				@Override
+				public void run() {
+					if (player == jobPlayer) {
+						songOverviews = overviews;
+						if (partControlCreated) {
+							songTableView.setOverviews(overviews);
+						}
+					}
+				}
+			});
+			return Status.OK_STATUS;
+		}
+	}
+
+	/**
+	 * Background job which renders a song into an audio file. The result is
+	 * displayed when the job has finished.
+	 */
+	private final class SoundExportJob extends Job {
+
+		private final SoundPlayer jobPlayer;
+		private final int song;
+		private final FileType fileType;
+		private final File file;
+		private final Display jobDisplay;
+
+		SoundExportJob(SoundPlayer player, int song, FileType fileType, File file, Display display) {
+			super(Texts.SOUND_RENDERER_JOB_NAME);
+			this.jobPlayer = player;
+			this.song = song;
+			this.fileType = fileType;
+			this.file = file;
+			this.jobDisplay = display;
+			setPriority(Job.LONG);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			final SoundRenderer.Result result;
+			try {
+				result = SoundRenderer.render(
+						Collections.singletonList(new SoundRenderer.Task(jobPlayer, song, fileType, file)),
+						SoundRenderer.DEFAULT_MAXIMUM_DURATION, 1, monitor).get(0);
+			} catch (OperationCanceledException ex) {
+				return Status.CANCEL_STATUS;
+			}
+
+			jobDisplay.asyncExec(new Runnable() {
+				@Override
+				public void run() {
+					if (mainComposite == null || mainComposite.isDisposed()) {
+						return;
+					}
+					messageManager.clearMessages();
+					if (result.isSuccess()) {
+						// INFO: Sound file exported as file '{0}' of type '{1}'.
+						messageManager.sendMessage(MessageIds.FORMAT, IStatus.INFO, Texts.MESSAGE_I505,
+								file.getPath(), fileType.getDescription());
+					} else {
+						messageManager.sendMessage(MessageIds.FORMAT, result.getException());
+					}
+					messageManager.displayMessages();
+				}
+			});
+			return Status.OK_STATUS;
+		}
+	}
+
 	// ID of the editor in the plugin manifest.
 	public static final String ID = "com.wudsn.ide.snd.editor.SoundEditor"; //$NON-NLS-1$
 
+	// Minimum interval between two updates of the player state in the UI in
+	// milliseconds, i.e. at most 30 updates per second.
+	private static final int PLAYER_UPDATE_INTERVAL = 33;
+
 	private MessageQueue messageQueue;
 	private MessageManager messageManager;
 	private SoundPlayer player;
@@ -183,12 +342,55 @@ public final class SoundEditor extends EditorPart implements Application, SoundP
 	private ToolItem pauseButton;
 	private ToolItem stopButton;
 	private ToolItem exportButton;
+	private SongLengthJob songLengthJob;
+	private SongOverviewJob songOverviewJob;
+	private SongOverview[] songOverviews;
 	private FileDialog exportFileDialog;
 
+	// The player thread only accumulates the update flags. The UI thread takes
+	// the latest state from the player when the timer expires, so intermediate
+	// states are dropped.
+	private final AtomicInteger playerUpdateFlags;
+	private final AtomicBoolean playerUpdateScheduled;
+	private final Runnable playerUpdateScheduler;
+	private final Runnable playerUpdater;
+	private Display display;
+	private int[] channelVolumes;
+	private int positionTextSeconds;
+	private String positionText;
+
 	public SoundEditor() {
 		super();
 		messageQueue = new MessageQueue();
 		messageManager = new MessageManager(messageQueue, this);
+
+		playerUpdateFlags = new AtomicInteger();
+		playerUpdateScheduled = new AtomicBoolean();
+		playerUpdater = new Runnable() {
+
+			@Override
+			public void run() {
+				playerUpdateScheduled.set(false);
+				int flags = playerUpdateFlags.getAndSet(0);
+				if (flags != 0 && partControlCreated) {
+					updatePlayerState(flags);
+				}
+			}
+		};
+		playerUpdateScheduler = new Runnable() {
+
+			@Override
+			public void run() {
+				if (partControlCreated) {
+					display.timerExec(PLAYER_UPDATE_INTERVAL, playerUpdater);
+				} else {
+					playerUpdateScheduled.set(false);
+				}
+			}
+		};
+		channelVolumes = new int[0];
+		positionTextSeconds = -1;
+		songOverviews = new SongOverview[0];
 	}
 
 	// @Override
@@ -227,8 +429,56 @@ public final class SoundEditor extends EditorPart implements Application, SoundP
 		messageManager.displayMessages();
 	}
 
+	/**
+	 * Plays a song from a position. Called by the song table when the overview
+	 * of a song is clicked.
+	 * 
+	 * @param song     The song number, a non-negative integer starting at zero
+	 *                 for the first song in the tune.
+	 * @param position The position in milliseconds, a non-negative integer.
+	 */
+	void playSong(int song, int position) {
+		messageManager.clearMessages();
+		try {
+			if (!player.isPlaying() || player.getPlayingSong() != song) {
+				player.play(song, SoundEditor.this);
+			}
+			if (player.isSeekSupported()) {
+				player.seekPosition(position);
+			}
+			if (player.isPaused()) {
+				player.togglePause();
+			}
+		} catch (CoreException ex) {
+			messageManager.sendMessage(MessageIds.TITLE, ex);
+		}
+		dataToUI();
+		messageManager.displayMessages();
+	}
+
+	/**
+	 * Shows the cached overviews of the songs and creates the missing overviews
+	 * in the background.
+	 */
+	final void applySongOverviews() {
+		songOverviews = SongOverviewRenderer.getCachedOverviews(player, SongOverviewRenderer.DEFAULT_MAXIMUM_DURATION);
+		if (partControlCreated) {
+			songTableView.setOverviews(songOverviews);
+		}
+		if (SongOverviewRenderer.isIncomplete(songOverviews)) {
+			songOverviewJob = new SongOverviewJob(player, getSite().getShell().getDisplay());
+			songOverviewJob.schedule();
+		}
+	}
+
 	@Override
 	public void dispose() {
+		if (songLengthJob != null) {
+			songLengthJob.cancel();
+		}
+		if (songOverviewJob != null) {
+			songOverviewJob.cancel();
+		}
 		player.stop();
 		mainComposite.dispose();
 		partControlCreated = false;
@@ -281,6 +531,17 @@ public final class SoundEditor extends EditorPart implements Application, SoundP
 
 					}
 				}
+
+				// Detect the lengths of the songs which are not known in the
+				// background, unless they have been detected before.
+				// The overviews are created afterwards, because they depend on the
+				// song lengths.
+				if (SongLengthAnalyzer.applyCachedSongLengths(player)) {
+					songLengthJob = new SongLengthJob(player, site.getShell().getDisplay());
+					songLengthJob.schedule();
+				} else {
+					applySongOverviews();
+				}
 				if (partControlCreated) {
 					dataToUI();
 				}
@@ -380,13 +641,15 @@ public final class SoundEditor extends EditorPart implements Application, SoundP
 
 		songTableView = new SongTableView(topComposite, this);
 		songTableView.setInfo(player.getInfo());
+		songTableView.setOverviews(songOverviews);
 
 		// Volume control
 		vuMeterField = new VUMeterField(mainComposite, false, Texts.SOUND_EDITOR_VOLUME_LABEL, SWT.NONE);
 
+		display = parent.getDisplay();
 		partControlCreated = true;
 		dataToUI();
-		playerUpdated(SoundPlayerListener.ALL);
+		updatePlayerState(SoundPlayerListener.ALL);
 	}
 
 	private Composite createRowComposite(Composite parent, int type) {
@@ -463,93 +726,84 @@ public final class SoundEditor extends EditorPart implements Application, SoundP
 
 	}
 
-	// @Override
+	/**
+	 * Called by the player thread after every generated buffer. Only records the
+	 * update flags and schedules a single timer which updates the UI.
+	 * 
+	 * @param mode The update flags, see {@link SoundPlayerListener}.
+	 */
 	@Override
 	public void playerUpdated(int mode) {
+		if (!partControlCreated) {
+			return;
+		}
+		int flags;
+		do {
+			flags = playerUpdateFlags.get();
+		} while (!playerUpdateFlags.compareAndSet(flags, flags | mode));
+
+		// Timers can only be created in the display thread.
+		if (playerUpdateScheduled.compareAndSet(false, true)) {
+			display.asyncExec(playerUpdateScheduler);
+		}
+	}
 
-		final boolean stateUpdated;
-		final boolean positionUpdated;
-		final String position;
-		final int maxPositionValue;
-		final int positionValue;
-		final String positionText;
-		final boolean volumeUpdated;
-		final int[] channelVolumnes;
-
-		if (partControlCreated) {
-			stateUpdated = (mode & SoundPlayerListener.STATE) != 0;
-			positionUpdated = (mode & SoundPlayerListener.POSITION) != 0;
-			volumeUpdated = (mode & SoundPlayerListener.VOLUME) != 0;
-
-			// State dependent
-			maxPositionValue = player.getMaximumPosition();
+	/**
+	 * Updates the widgets with the current state of the player. Must be called
+	 * in the display thread.
+	 * 
+	 * @param mode The update flags, see {@link SoundPlayerListener}.
+	 */
+	final void updatePlayerState(int mode) {
+		if (!partControlCreated) {
+			return;
+		}
+		boolean stateUpdated = (mode & SoundPlayerListener.STATE) != 0;
+		boolean positionUpdated = (mode & SoundPlayerListener.POSITION) != 0;
+		boolean volumeUpdated = (mode & SoundPlayerListener.VOLUME) != 0;
+
+		// State dependent
+		int maxPositionValue = player.getMaximumPosition();
+		if (stateUpdated) {
+			pauseButton.setEnabled(player.isPlaying());
+			stopButton.setEnabled(player.isPlaying());
+			positionScale.setMaximum(maxPositionValue);
+			positionScale.setIncrement(SoundPlayerListener.POSITION_UPDATE_INCREMENT);
+			positionScale.setPageIncrement(maxPositionValue > 0 ? maxPositionValue / 10 + 1 : 0);
+		}
 
-			// Position dependent
-			if ((stateUpdated || positionUpdated) && (player.isPlaying() || player.isPaused())) {
+		// Position dependent
+		if (stateUpdated || positionUpdated) {
+			int positionValue;
+			String text;
+			if (player.isPlaying() || player.isPaused()) {
+				positionValue = player.getPosition();
 				if (maxPositionValue > 0) {
-					positionValue = player.getPosition() % maxPositionValue; // Modulo
-					// for
-					// looping
-					// sounds
-				} else {
-					positionValue = player.getPosition();
-				}
-				synchronized (positionFieldFormat) {
-					position = positionFieldFormat.format(new Date(positionValue));
-				}
-				if (player.isPaused()) {
-					positionText = position + Texts.SOUND_EDITOR_PAUSED;
-				} else {
-					positionText = position;
+					positionValue = positionValue % maxPositionValue; // Modulo for looping sounds
 				}
 
+				// The text is only formatted when the displayed seconds change.
+				int seconds = positionValue / 1000;
+				if (seconds != positionTextSeconds) {
+					positionTextSeconds = seconds;
+					positionText = positionFieldFormat.format(new Date(positionValue));
+				}
+				text = player.isPaused() ? positionText + Texts.SOUND_EDITOR_PAUSED : positionText;
 			} else {
 				positionValue = 0;
-				positionText = Texts.SOUND_EDITOR_STOPPED;
-			}
-
-			// Volume dependent
-			channelVolumnes = player.getChannelVolumes();
-
-			Runnable updater = new Runnable() {
-				// @Override
-				@Override
-				public void run() {
-					playerUpdatedWithValues(stateUpdated, maxPositionValue, positionUpdated, positionValue,
-							positionText, volumeUpdated, channelVolumnes);
-				}
-			};
-			// Updates to widgets must be performed in the display
-			// thread.
-			Display.getDefault().asyncExec(updater);
-
-		}
-	}
-
-	void playerUpdatedWithValues(final boolean stateUpdated, final int maxPositionValue, final boolean positionUpdated,
-			final int positionValue, final String positionText, final boolean volumeUpdated,
-			final int[] channelVolumnes) {
-		if (partControlCreated) {
-			if (stateUpdated) {
-				pauseButton.setEnabled(player.isPlaying());
-				stopButton.setEnabled(player.isPlaying());
-				positionScale.setMaximum(maxPositionValue);
-				positionScale.setIncrement(SoundPlayerListener.POSITION_UPDATE_INCREMENT);
-				positionScale.setPageIncrement(maxPositionValue > 0 ? maxPositionValue / 10 + 1 : 0);
-			}
-
-			if (positionUpdated) {
-				positionScale.setSelection(maxPositionValue > 0 ? positionValue : 0);
+				text = Texts.SOUND_EDITOR_STOPPED;
 			}
-
-			if (stateUpdated || positionUpdated) {
-				positionField.setValue(positionText);
+			positionScale.setSelection(maxPositionValue > 0 ? positionValue : 0);
+			if (!text.equals(positionField.getValue())) {
+				positionField.setValue(text);
 				positionField.getControl().pack();
 			}
+		}
 
-			if (volumeUpdated) {
-				vuMeterField.setValue(channelVolumnes);
-			}
+		// Volume dependent
+		if (volumeUpdated) {
+			channelVolumes = player.getChannelVolumes(channelVolumes);
+			vuMeterField.setValue(channelVolumes);
 		}
 	}
 
@@ -649,6 +903,21 @@ public final class SoundEditor extends EditorPart implements Application, SoundP
 
 		}
 
+		File file = new File(fileName).getAbsoluteFile();
+
+		// Render the selected song for audio file types.
+		if (selectedFileType.isAudio()) {
+			int song = songTableView.getSelectedSong();
+			if (song < 0) {
+				song = Math.max(0, info.getDefaultSong());
+			}
+			// The rendering takes some seconds, so it runs in the background.
+			Job job = new SoundExportJob(player, song, selectedFileType, file, mainComposite.getDisplay());
+			job.setUser(true);
+			job.schedule();
+			return;
+		}
+
 		// Perform actual export.
 		byte[] binary;
 		try {
@@ -660,7 +929,6 @@ public final class SoundEditor extends EditorPart implements Application, SoundP
 			return;
 		}
 
-		File file = new File(fileName).getAbsoluteFile();
 		try {
 			FileUtility.writeBytes(file, binary);
 		} catch (CoreException ex) {
@@ -19,6 +19,8 @@
 package com.wudsn.ide.snd.editor;
 
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.DisposeEvent;
+import org.eclipse.swt.events.DisposeListener;
 import org.eclipse.swt.events.PaintEvent;
 import org.eclipse.swt.events.PaintListener;
 import org.eclipse.swt.graphics.Color;
@@ -48,6 +50,8 @@ final class VUMeterField extends Field {
 	private Color borderColor;
 	private int[] channelVolumnes;
 	private int[] lastChannelVolumnes;
+	private int[] volumes;
+	private Image image;
 
 	public VUMeterField(Composite composite, boolean withLabel, String labelText, int none) {
 		if (composite == null) {
@@ -71,11 +75,20 @@ final class VUMeterField extends Field {
 				drawVUMeter(event.gc);
 			}
 		});
+		canvas.addDisposeListener(new DisposeListener() {
+
+			@Override
+			public void widgetDisposed(DisposeEvent e) {
+				disposeImage();
+			}
+		});
 
 		barColor = composite.getDisplay().getSystemColor(SWT.COLOR_GREEN);
 		borderColor = composite.getDisplay().getSystemColor(SWT.COLOR_BLACK);
 
 		channelVolumnes = new int[0];
+		lastChannelVolumnes = new int[0];
+		volumes = new int[0];
 	}
 
 	public void dispose() {
@@ -83,6 +96,13 @@ final class VUMeterField extends Field {
 		label.dispose();
 	}
 
+	final void disposeImage() {
+		if (image != null) {
+			image.dispose();
+			image = null;
+		}
+	}
+
 	@Override
 	public Control getControl() {
 		return canvas;
@@ -99,7 +119,8 @@ final class VUMeterField extends Field {
 	}
 
 	/**
-	 * Sets the values for to display.
+	 * Sets the values for to display. The values are copied, so the array can be
+	 * reused by the caller.
 	 * 
 	 * @param channelVolumes The array of channel volumes. May be empty, not
 	 *                       <code>null</code>. The minimum volume value is 0. The
@@ -110,7 +131,10 @@ final class VUMeterField extends Field {
 			throw new IllegalArgumentException("Parameter 'channelVolumes' must not be null.");
 		}
 		synchronized (this) {
-			this.channelVolumnes = channelVolumes;
+			if (this.channelVolumnes.length != channelVolumes.length) {
+				this.channelVolumnes = new int[channelVolumes.length];
+			}
+			System.arraycopy(channelVolumes, 0, this.channelVolumnes, 0, channelVolumes.length);
 		}
 
 		if (!canvas.isDisposed()) {
@@ -121,23 +145,40 @@ final class VUMeterField extends Field {
 	final void drawVUMeter(GC gc) {
 
 		Rectangle clientRectangle = canvas.getClientArea();
+		if (clientRectangle.width <= 0 || clientRectangle.height <= 0) {
+			return;
+		}
 
-		Image image = new Image(canvas.getDisplay(), canvas.getClientArea());
+		// The off-screen image is only created again when the size changes.
+		if (image != null) {
+			Rectangle imageBounds = image.getBounds();
+			if (imageBounds.width != clientRectangle.width || imageBounds.height != clientRectangle.height) {
+				image.dispose();
+				image = null;
+			}
+		}
+		if (image == null) {
+			image = new Image(canvas.getDisplay(), clientRectangle.width, clientRectangle.height);
+		}
 		GC imageGC = new GC(image);
 
 		imageGC.setBackground(canvas.getBackground());
-		imageGC.fillRectangle(clientRectangle);
-		int[] volumes;
+		imageGC.fillRectangle(0, 0, clientRectangle.width, clientRectangle.height);
 		synchronized (this) {
-			volumes = channelVolumnes.clone();
+			if (volumes.length != channelVolumnes.length) {
+				volumes = new int[channelVolumnes.length];
+			}
+			System.arraycopy(channelVolumnes, 0, volumes, 0, volumes.length);
 
 			// Create the average between the current and the previous volume.
-			if (lastChannelVolumnes != null && lastChannelVolumnes.length == channelVolumnes.length) {
+			if (lastChannelVolumnes.length == channelVolumnes.length) {
 				for (int i = 0; i < volumes.length; i++) {
 					volumes[i] = (volumes[i] + lastChannelVolumnes[i]) / 2;
 				}
+			} else {
+				lastChannelVolumnes = new int[channelVolumnes.length];
 			}
-			lastChannelVolumnes = channelVolumnes;
+			System.arraycopy(channelVolumnes, 0, lastChannelVolumnes, 0, channelVolumnes.length);
 		}
 		int voices = volumes.length;
 		if (voices > 0) {
@@ -167,7 +208,6 @@ final class VUMeterField extends Field {
 		gc.drawImage(image, clientRectangle.x, clientRectangle.y);
 
 		imageGC.dispose();
-		image.dispose();
 
 	}
 }
\ No newline at end of file
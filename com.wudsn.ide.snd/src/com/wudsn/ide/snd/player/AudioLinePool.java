@@ -0,0 +1,158 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.wudsn.ide.snd.player;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * Pool of opened source data lines used by the {@link AudioOutput}. Opening a
+ * line takes a noticeable amount of time on most audio systems, so a line is
+ * kept open after a song has stopped and is reused for the next song with the
+ * same audio format and buffer size. Switching songs in the song table then
+ * starts the playback almost immediately. The pool is thread safe.
+ * 
+ * @author Peter Dell
+ * @since 1.7.2
+ */
+public final class AudioLinePool {
+
+	/**
+	 * The maximum number of idle lines. The least recently used line is closed
+	 * when a further line is released.
+	 */
+	private static final int MAXIMUM_IDLE_LINES = 2;
+
+	/**
+	 * An opened line and the buffer size it was requested with. The actual
+	 * buffer size of the line may differ from the requested size.
+	 */
+	private static final class Entry {
+		final SourceDataLine line;
+		final int bufferSize;
+
+		Entry(SourceDataLine line, int bufferSize) {
+			this.line = line;
+			this.bufferSize = bufferSize;
+		}
+	}
+
+	// Idle lines, the most recently released first.
+	private static final LinkedList<Entry> idleEntries = new LinkedList<Entry>();
+
+	// Lines in use, by identity.
+	private static final Map<SourceDataLine, Entry> usedEntries = new IdentityHashMap<SourceDataLine, Entry>();
+
+	/**
+	 * Creation is private.
+	 */
+	private AudioLinePool() {
+	}
+
+	/**
+	 * Gets an idle line from the pool or opens a new one.
+	 * 
+	 * @param format     The audio format, not <code>null</code>.
+	 * @param bufferSize The requested buffer size of the line in bytes, a positive
+	 *                   integer.
+	 * @return The opened and stopped line, not <code>null</code>.
+	 * @throws LineUnavailableException If no line is available.
+	 */
+	public static SourceDataLine acquire(AudioFormat format, int bufferSize) throws LineUnavailableException {
+		if (format == null) {
+			throw new IllegalArgumentException("Parameter 'format' must not be null.");
+		}
+		if (bufferSize <= 0) {
+			throw new IllegalArgumentException(
+					"Parameter 'bufferSize' must be positive. Specified value is " + bufferSize + ".");
+		}
+		synchronized (AudioLinePool.class) {
+			for (Entry entry : idleEntries) {
+				if (entry.bufferSize == bufferSize && entry.line.getFormat().matches(format)) {
+					idleEntries.remove(entry);
+					usedEntries.put(entry.line, entry);
+					return entry.line;
+				}
+			}
+		}
+
+		// Open the new line outside of the lock, this may take some time.
+		SourceDataLine line = (SourceDataLine) AudioSystem.getLine(new DataLine.Info(SourceDataLine.class, format));
+		line.open(format, bufferSize);
+		synchronized (AudioLinePool.class) {
+			usedEntries.put(line, new Entry(line, bufferSize));
+		}
+		return line;
+	}
+
+	/**
+	 * Returns a line to the pool. The line is stopped and its remaining data is
+	 * discarded.
+	 * 
+	 * @param line The line returned by {@link #acquire(AudioFormat, int)}, not
+	 *             <code>null</code>.
+	 */
+	public static void release(SourceDataLine line) {
+		if (line == null) {
+			throw new IllegalArgumentException("Parameter 'line' must not be null.");
+		}
+		line.stop();
+		line.flush();
+
+		Entry closedEntry = null;
+		synchronized (AudioLinePool.class) {
+			Entry entry = usedEntries.remove(line);
+			if (entry == null) {
+				throw new IllegalArgumentException("Parameter 'line' is not a line of the pool.");
+			}
+			if (line.isOpen()) {
+				idleEntries.addFirst(entry);
+				if (idleEntries.size() > MAXIMUM_IDLE_LINES) {
+					closedEntry = idleEntries.removeLast();
+				}
+			}
+		}
+		if (closedEntry != null) {
+			closedEntry.line.close();
+		}
+	}
+
+	/**
+	 * Closes all idle lines. Called when the plug-in is stopped.
+	 */
+	public static void closeAll() {
+		List<Entry> closedEntries;
+		synchronized (AudioLinePool.class) {
+			closedEntries = new ArrayList<Entry>(idleEntries);
+			idleEntries.clear();
+		}
+		for (Entry entry : closedEntries) {
+			entry.line.close();
+		}
+	}
+}
@@ -0,0 +1,221 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.wudsn.ide.snd.player;
+
+import java.util.concurrent.locks.LockSupport;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+import com.wudsn.ide.base.common.StringUtility;
+import com.wudsn.ide.snd.SoundPlugin;
+
+/**
+ * Audio output which decouples the generation of the sound from the playback.
+ * The sound generator thread writes the PCM data into an
+ * {@link AudioRingBuffer} and a separate playback thread feeds the source data
+ * line from it. Neither thread holds a lock, so the sound generation is not
+ * blocked by the line and the playback is not blocked by the sound generation.
+ * 
+ * The source data line is taken from the {@link AudioLinePool} and returned to
+ * it when the output is closed. The sizes of the line buffer and the ring
+ * buffer are specified as latencies in milliseconds. A small line buffer lets
+ * the playback react quickly to pausing and seeking. A large ring buffer
+ * compensates for delays of the sound generation at the cost of memory.
+ * 
+ * @author Peter Dell
+ * @since 1.7.2
+ */
+public final class AudioOutput {
+
+	/**
+	 * Time to wait if the ring buffer is full or empty.
+	 */
+	private static final long PARK_NANOS = 1000000;
+
+	/**
+	 * The system property to override the latency of the source data line buffer
+	 * in milliseconds.
+	 */
+	public static final String LINE_BUFFER_LATENCY_PROPERTY = "com.wudsn.ide.snd.player.AudioOutput.lineBufferLatency"; //$NON-NLS-1$
+
+	/**
+	 * The system property to override the latency of the ring buffer in
+	 * milliseconds.
+	 */
+	public static final String RING_BUFFER_LATENCY_PROPERTY = "com.wudsn.ide.snd.player.AudioOutput.ringBufferLatency"; //$NON-NLS-1$
+
+	/**
+	 * The default latencies in milliseconds.
+	 */
+	private static final int DEFAULT_LINE_BUFFER_LATENCY = 25;
+	private static final int DEFAULT_RING_BUFFER_LATENCY = 100;
+
+	private final SourceDataLine line;
+	private final AudioRingBuffer ringBuffer;
+	private final Thread thread;
+	private volatile boolean closing;
+	private volatile boolean discarding;
+
+	/**
+	 * Creates a new audio output and starts the playback thread.
+	 * 
+	 * @param format The audio format, not <code>null</code>.
+	 * @param name   The name of the playback thread, not <code>null</code>.
+	 * @throws LineUnavailableException If no source data line is available.
+	 */
+	public AudioOutput(AudioFormat format, String name) throws LineUnavailableException {
+		if (format == null) {
+			throw new IllegalArgumentException("Parameter 'format' must not be null.");
+		}
+		if (name == null) {
+			throw new IllegalArgumentException("Parameter 'name' must not be null.");
+		}
+		// The ring buffer capacity must be a power of two, so it is rounded down.
+		int frameSize = Integer.highestOneBit(format.getFrameSize());
+		int ringBufferSize = Integer
+				.highestOneBit(getBufferSize(format, RING_BUFFER_LATENCY_PROPERTY, DEFAULT_RING_BUFFER_LATENCY));
+		ringBuffer = new AudioRingBuffer(Math.max(ringBufferSize, frameSize), frameSize);
+		line = AudioLinePool.acquire(format,
+				getBufferSize(format, LINE_BUFFER_LATENCY_PROPERTY, DEFAULT_LINE_BUFFER_LATENCY));
+
+		thread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				play();
+			}
+		});
+		thread.setName(name);
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MAX_PRIORITY);
+		line.start();
+		thread.start();
+	}
+
+	/**
+	 * Gets the buffer size for a latency.
+	 * 
+	 * @param format         The audio format, not <code>null</code>.
+	 * @param property       The system property to override the latency, not
+	 *                       <code>null</code>.
+	 * @param defaultLatency The default latency in milliseconds.
+	 * @return The buffer size in bytes, a positive multiple of the frame size.
+	 */
+	private static int getBufferSize(AudioFormat format, String property, int defaultLatency) {
+		int latency = defaultLatency;
+		String value = System.getProperty(property);
+		if (value != null && StringUtility.isSpecified(value)) {
+			try {
+				latency = Integer.parseInt(value.trim());
+			} catch (NumberFormatException ex) {
+				SoundPlugin.getInstance().logError("Invalid value '{0}' for system property '{1}'",
+						new Object[] { value, property }, ex);
+			}
+		}
+		int frames = (int) Math.ceil(format.getFrameRate() * Math.max(1, latency) / 1000);
+		return frames * format.getFrameSize();
+	}
+
+	/**
+	 * Writes PCM data. Waits until the ring buffer has room for all of the data.
+	 * Must only be called by the sound generator thread.
+	 * 
+	 * @param bytes  The source array, not <code>null</code>.
+	 * @param offset The offset in the source array.
+	 * @param length The number of bytes to write, a multiple of the frame size.
+	 * @return <code>true</code> if all data was written, <code>false</code> if
+	 *         the output was closed in the meantime.
+	 */
+	public boolean write(byte[] bytes, int offset, int length) {
+		if (bytes == null) {
+			throw new IllegalArgumentException("Parameter 'bytes' must not be null.");
+		}
+		while (length > 0) {
+			int count = ringBuffer.write(bytes, offset, length);
+			if (count == 0) {
+				if (closing || !thread.isAlive()) {
+					return false;
+				}
+				LockSupport.parkNanos(PARK_NANOS);
+			}
+			offset += count;
+			length -= count;
+		}
+		return true;
+	}
+
+	/**
+	 * Playback thread main loop.
+	 */
+	void play() {
+		byte[] bytes = new byte[Math.max(line.getBufferSize() / 4, ringBuffer.getCapacity() / 8)];
+		while (!discarding) {
+			int count = ringBuffer.read(bytes, 0, bytes.length);
+			if (count > 0) {
+				line.write(bytes, 0, count);
+			} else if (closing) {
+				break;
+			} else {
+				LockSupport.parkNanos(PARK_NANOS);
+			}
+		}
+	}
+
+	/**
+	 * Gets the latency of the output. This is the duration of the PCM data which
+	 * has been written but not played yet. May be called by any thread.
+	 * 
+	 * @return The latency in milliseconds, a non-negative integer.
+	 */
+	public int getLatency() {
+		long bytes = ringBuffer.getAvailable() + line.getBufferSize() - line.available();
+		AudioFormat format = line.getFormat();
+		return (int) Math.max(0, bytes * 1000 / format.getFrameSize() / (long) format.getFrameRate());
+	}
+
+	/**
+	 * Stops the playback thread and returns the source data line to the
+	 * {@link AudioLinePool}. Must only be called by the sound generator thread.
+	 * 
+	 * @param drain <code>true</code> to play the remaining PCM data first,
+	 *              <code>false</code> to discard it, so the output stops
+	 *              immediately.
+	 */
+	public void close(boolean drain) {
+		discarding = !drain;
+		closing = true;
+		boolean interrupted = false;
+		while (thread.isAlive()) {
+			try {
+				thread.join();
+			} catch (InterruptedException ex) {
+				interrupted = true;
+			}
+		}
+		if (drain) {
+			line.drain();
+		}
+		AudioLinePool.release(line);
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
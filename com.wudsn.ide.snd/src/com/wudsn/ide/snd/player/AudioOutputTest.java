@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.wudsn.ide.snd.player;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+import com.wudsn.ide.base.common.Assertions;
+import com.wudsn.ide.base.common.Test;
+import com.wudsn.ide.base.common.TestMethod;
+
+/**
+ * Opens, uses and closes an {@link AudioOutput} with the default buffer
+ * latencies, i.e. without the system properties being set, and checks that the
+ * source data line is reused from the {@link AudioLinePool}. The test is
+ * skipped if the system has no audio line.
+ * 
+ * @author Peter Dell
+ * 
+ * @since 1.7.2
+ */
+public final class AudioOutputTest {
+
+	/**
+	 * Creation is private.
+	 */
+	private AudioOutputTest() {
+	}
+
+	@TestMethod
+	public static void main(String[] args) {
+		System.clearProperty(AudioOutput.LINE_BUFFER_LATENCY_PROPERTY);
+		System.clearProperty(AudioOutput.RING_BUFFER_LATENCY_PROPERTY);
+
+		AudioFormat format = new AudioFormat(44100, 16, 2, true, false);
+		if (!AudioSystem.isLineSupported(new DataLine.Info(SourceDataLine.class, format))) {
+			Test.log("No audio line available, test skipped.");
+			return;
+		}
+
+		// 100 ms of silence
+		byte[] bytes = new byte[4410 * format.getFrameSize()];
+		try {
+			for (int i = 0; i < 2; i++) {
+				long startTime = System.nanoTime();
+				AudioOutput output = new AudioOutput(format, AudioOutputTest.class.getName());
+				long openMillis = (System.nanoTime() - startTime) / 1000000;
+				Assertions.assertEquals(Boolean.valueOf(output.write(bytes, 0, bytes.length)), Boolean.TRUE);
+				int latency = output.getLatency();
+				if (latency < 0) {
+					Assertions.fail("Latency " + latency + " is negative.");
+				}
+				output.close(i == 0);
+				Test.log("Output " + (i + 1) + " opened in " + openMillis + " ms, latency " + latency + " ms");
+			}
+		} catch (LineUnavailableException ex) {
+			Assertions.fail(ex);
+		} finally {
+			AudioLinePool.closeAll();
+		}
+	}
+}
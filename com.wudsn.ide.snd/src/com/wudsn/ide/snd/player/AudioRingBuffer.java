@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.wudsn.ide.snd.player;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free ring buffer for PCM data with exactly one thread writing and
+ * exactly one thread reading. Only complete frames are written and read.
+ * 
+ * @author Peter Dell
+ * @since 1.7.2
+ */
+final class AudioRingBuffer {
+
+	private final byte[] buffer;
+	private final int mask;
+	private final int frameSize;
+
+	// Total number of bytes written and read. Each is only modified by one
+	// thread and published to the other thread with release semantics.
+	private final AtomicLong writePosition;
+	private final AtomicLong readPosition;
+
+	/**
+	 * Creates a new ring buffer.
+	 * 
+	 * @param capacity  The capacity in bytes, a power of two.
+	 * @param frameSize The size of a frame in bytes, a power of two which is not
+	 *                  greater than the capacity.
+	 */
+	AudioRingBuffer(int capacity, int frameSize) {
+		if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("Parameter 'capacity' must be a power of two. Specified value is "
+					+ capacity + ".");
+		}
+		if (frameSize <= 0 || Integer.bitCount(frameSize) != 1 || frameSize > capacity) {
+			throw new IllegalArgumentException(
+					"Parameter 'frameSize' must be a power of two. Specified value is " + frameSize + ".");
+		}
+		buffer = new byte[capacity];
+		mask = capacity - 1;
+		this.frameSize = frameSize;
+		writePosition = new AtomicLong();
+		readPosition = new AtomicLong();
+	}
+
+	/**
+	 * Gets the capacity.
+	 * 
+	 * @return The capacity in bytes.
+	 */
+	public int getCapacity() {
+		return buffer.length;
+	}
+
+	/**
+	 * Gets the number of bytes which have been written but not read yet. May be
+	 * called by any thread, the result is only a snapshot.
+	 * 
+	 * @return The number of bytes, a non-negative integer.
+	 */
+	public int getAvailable() {
+		long position = readPosition.get();
+		return (int) (writePosition.get() - position);
+	}
+
+	/**
+	 * Writes as many complete frames as currently fit into the ring buffer. Must
+	 * only be called by the writing thread.
+	 * 
+	 * @param bytes  The source array, not <code>null</code>.
+	 * @param offset The offset in the source array.
+	 * @param length The number of bytes to write.
+	 * @return The number of bytes written, a non-negative multiple of the frame
+	 *         size.
+	 */
+	public int write(byte[] bytes, int offset, int length) {
+		long position = writePosition.get();
+		int free = buffer.length - (int) (position - readPosition.get());
+		int count = Math.min(length, free) & -frameSize;
+		if (count > 0) {
+			int index = (int) position & mask;
+			int first = Math.min(count, buffer.length - index);
+			System.arraycopy(bytes, offset, buffer, index, first);
+			System.arraycopy(bytes, offset + first, buffer, 0, count - first);
+			writePosition.lazySet(position + count);
+		}
+		return count;
+	}
+
+	/**
+	 * Reads as many complete frames as are currently available. Must only be
+	 * called by the reading thread.
+	 * 
+	 * @param bytes  The target array, not <code>null</code>.
+	 * @param offset The offset in the target array.
+	 * @param length The maximum number of bytes to read.
+	 * @return The number of bytes read, a non-negative multiple of the frame size.
+	 */
+	public int read(byte[] bytes, int offset, int length) {
+		long position = readPosition.get();
+		int available = (int) (writePosition.get() - position);
+		int count = Math.min(length, available) & -frameSize;
+		if (count > 0) {
+			int index = (int) position & mask;
+			int first = Math.min(count, buffer.length - index);
+			System.arraycopy(buffer, index, bytes, offset, first);
+			System.arraycopy(buffer, 0, bytes, offset + first, count - first);
+			readPosition.lazySet(position + count);
+		}
+		return count;
+	}
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.wudsn.ide.snd.player;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Pool of temporary byte arrays used by the sound players, for example to read
+ * a module or to write an export file. The arrays have sizes which are powers of
+ * two, so a buffer is only about as large as the actual data and can be reused
+ * for the next module of similar size when many modules are processed in a
+ * batch. The pool is thread safe.
+ * 
+ * @author Peter Dell
+ * @since 1.7.2
+ */
+public final class ByteArrayPool {
+
+	/**
+	 * The sizes of the pooled arrays as powers of two, from 4 KB to 1 MB. Larger
+	 * arrays are allocated but not pooled.
+	 */
+	private static final int MINIMUM_SIZE_SHIFT = 12;
+	private static final int MAXIMUM_SIZE_SHIFT = 20;
+
+	/**
+	 * One queue per size. Each queue keeps at most one array per processor, so
+	 * every parallel worker finds a free array.
+	 */
+	private static final ArrayBlockingQueue<?>[] queues;
+
+	static {
+		int capacity = Math.max(1, Runtime.getRuntime().availableProcessors());
+		queues = new ArrayBlockingQueue<?>[MAXIMUM_SIZE_SHIFT - MINIMUM_SIZE_SHIFT + 1];
+		for (int i = 0; i < queues.length; i++) {
+			queues[i] = new ArrayBlockingQueue<byte[]>(capacity);
+		}
+	}
+
+	/**
+	 * Creation is private.
+	 */
+	private ByteArrayPool() {
+	}
+
+	/**
+	 * Gets an array from the pool or allocates a new one.
+	 * 
+	 * @param minimumLength The minimum length of the array, a non-negative
+	 *                      integer.
+	 * @return The array, not <code>null</code>. The array has at least the
+	 *         minimum length and its content is undefined.
+	 */
+	public static byte[] acquire(int minimumLength) {
+		if (minimumLength < 0) {
+			throw new IllegalArgumentException(
+					"Parameter 'minimumLength' must not be negative. Specified value is " + minimumLength + ".");
+		}
+		int shift = MINIMUM_SIZE_SHIFT;
+		if (minimumLength > 1 << MINIMUM_SIZE_SHIFT) {
+			shift = 32 - Integer.numberOfLeadingZeros(minimumLength - 1);
+		}
+		if (shift > MAXIMUM_SIZE_SHIFT) {
+			return new byte[minimumLength];
+		}
+		byte[] result = getQueue(shift).poll();
+		if (result == null) {
+			result = new byte[1 << shift];
+		}
+		return result;
+	}
+
+	/**
+	 * Returns an array to the pool. The array must not be used by the caller
+	 * afterwards. Arrays which were not taken from the pool and arrays which do
+	 * not fit into the pool anymore are left to the garbage collector.
+	 * 
+	 * @param array The array, not <code>null</code>.
+	 */
+	public static void release(byte[] array) {
+		if (array == null) {
+			throw new IllegalArgumentException("Parameter 'array' must not be null.");
+		}
+		int length = array.length;
+		if (Integer.bitCount(length) != 1) {
+			return;
+		}
+		int shift = Integer.numberOfTrailingZeros(length);
+		if (shift >= MINIMUM_SIZE_SHIFT && shift <= MAXIMUM_SIZE_SHIFT) {
+			getQueue(shift).offer(array);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ArrayBlockingQueue<byte[]> getQueue(int shift) {
+		return (ArrayBlockingQueue<byte[]>) queues[shift - MINIMUM_SIZE_SHIFT];
+	}
+}
@@ -19,8 +19,12 @@
 package com.wudsn.ide.snd.player;
 
 import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.sound.sampled.AudioFormat;
 
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 
 /**
  * Empty player which is used in case the sound file type cannot be handled.
@@ -69,15 +73,25 @@ public final class EmptyPlayer extends SoundPlayer {
 	}
 
 	@Override
-	public synchronized void play(int song, SoundPlayerListener listener) throws CoreException {
+	public AudioFormat render(int song, int duration, OutputStream outputStream) throws CoreException {
+		throw new IllegalStateException("No module loaded");
+	}
 
-		stop();
+	@Override
+	public void analyze(int song, int duration, SongLengthDetector detector) throws CoreException {
+		throw new IllegalStateException("No module loaded");
+	}
 
+	@Override
+	public SongOverview createOverview(int song, int duration, IProgressMonitor monitor) throws CoreException {
+		throw new IllegalStateException("No module loaded");
 	}
 
 	@Override
-	public synchronized int getPosition() {
-		return 0;
+	public synchronized void play(int song, SoundPlayerListener listener) throws CoreException {
+
+		stop();
+
 	}
 
 	@Override
@@ -90,9 +104,4 @@ public final class EmptyPlayer extends SoundPlayer {
 
 	}
 
-	@Override
-	public synchronized int[] getChannelVolumes() {
-		return new int[0];
-	}
-
 }
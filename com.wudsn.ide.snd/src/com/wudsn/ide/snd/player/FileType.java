@@ -37,7 +37,13 @@ public enum FileType {
 	// prg, sid
 	// PRG is an export only format, not registered in the content type.
 
-	PRG(".prg"), SID(".sid");
+	PRG(".prg"), SID(".sid"),
+
+	// Audio file types, alphabetical order:
+	// raw, wav
+	// Both are export only formats which contain the rendered sound of a song.
+
+	RAW(".raw"), WAV(".wav");
 
 	private final String extension;
 
@@ -75,6 +81,18 @@ public enum FileType {
 		return EnumUtility.getText(this);
 	}
 
+	/**
+	 * Determines if the file type contains the rendered sound of a song instead
+	 * of the module.
+	 * 
+	 * @return <code>true</code> if the file type is an audio file type.
+	 * 
+	 * @since 1.7.2
+	 */
+	public boolean isAudio() {
+		return this == RAW || this == WAV;
+	}
+
 	public boolean isMusicAddressChangeable() {
 		switch (this) {
 		case CMC:
@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.wudsn.ide.snd.player;
+
+/**
+ * Duration and loop mode of a song as detected by {@link SongLengthDetector}.
+ * Instances are immutable.
+ * 
+ * @author Peter Dell
+ * @since 1.7.2
+ */
+public final class SongLength {
+
+	/**
+	 * The length of a song which could not be detected.
+	 */
+	public static final SongLength UNKNOWN = new SongLength(0, LoopMode.UNKNOWN);
+
+	private final int duration;
+	private final LoopMode loopMode;
+
+	/**
+	 * Creates a new song length.
+	 * 
+	 * @param duration The duration in milliseconds, a non-negative integer.
+	 *                 <code>0</code> means unknown.
+	 * @param loopMode The loop mode, not <code>null</code>.
+	 */
+	public SongLength(int duration, LoopMode loopMode) {
+		if (duration < 0) {
+			throw new IllegalArgumentException(
+					"Parameter 'duration' must not be negative. Specified value is " + duration + ".");
+		}
+		if (loopMode == null) {
+			throw new IllegalArgumentException("Parameter 'loopMode' must not be null.");
+		}
+		this.duration = duration;
+		this.loopMode = loopMode;
+	}
+
+	/**
+	 * Gets the duration.
+	 * 
+	 * @return The duration in milliseconds, a non-negative integer.
+	 *         <code>0</code> means unknown.
+	 */
+	public int getDuration() {
+		return duration;
+	}
+
+	/**
+	 * Gets the loop mode.
+	 * 
+	 * @return The loop mode, not <code>null</code>.
+	 */
+	public LoopMode getLoopMode() {
+		return loopMode;
+	}
+
+	/**
+	 * Determines if the duration is known.
+	 * 
+	 * @return <code>true</code> if the duration is known.
+	 */
+	public boolean isKnown() {
+		return duration > 0;
+	}
+
+	@Override
+	public String toString() {
+		return duration + ":" + loopMode.name();
+	}
+
+	/**
+	 * Parses the string representation created by {@link #toString()}.
+	 * 
+	 * @param text The text, not <code>null</code>.
+	 * @return The song length, not <code>null</code>.
+	 * @throws IllegalArgumentException If the text is not valid.
+	 */
+	public static SongLength parse(String text) {
+		if (text == null) {
+			throw new IllegalArgumentException("Parameter 'text' must not be null.");
+		}
+		int index = text.indexOf(':');
+		if (index < 0) {
+			throw new IllegalArgumentException("Song length '" + text + "' is not valid.");
+		}
+		return new SongLength(Integer.parseInt(text.substring(0, index)), LoopMode.valueOf(text.substring(index + 1)));
+	}
+}
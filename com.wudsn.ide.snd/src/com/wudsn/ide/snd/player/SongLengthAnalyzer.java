@@ -0,0 +1,219 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.wudsn.ide.snd.player;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import com.wudsn.ide.base.common.NumberUtility;
+import com.wudsn.ide.base.common.ParallelExecutor;
+import com.wudsn.ide.base.common.TextUtility;
+import com.wudsn.ide.snd.SoundPlugin;
+import com.wudsn.ide.snd.Texts;
+
+/**
+ * Detection of the lengths of songs for which the module and the song length
+ * database contain no duration. All songs of a module are analyzed in parallel
+ * via {@link SoundPlayer#analyze(int, int, SongLengthDetector)} and the results
+ * are stored in the {@link SongLengthCache}.
+ * 
+ * @author Peter Dell
+ * @since 1.7.2
+ */
+public final class SongLengthAnalyzer {
+
+	/**
+	 * The default maximum duration of a song to be analyzed in milliseconds. A
+	 * loop is only detected if it is played twice within this duration.
+	 */
+	public static final int DEFAULT_MAXIMUM_DURATION = 10 * 60 * 1000;
+
+	/**
+	 * Creation is private.
+	 */
+	private SongLengthAnalyzer() {
+	}
+
+	/**
+	 * Sets the cached lengths of the songs with unknown length. Must be called in
+	 * the UI thread.
+	 * 
+	 * @param player The sound player with the loaded module, not
+	 *               <code>null</code>.
+	 * @return <code>true</code> if there are songs with unknown length which
+	 *         have not been analyzed yet, <code>false</code> otherwise.
+	 */
+	public static boolean applyCachedSongLengths(SoundPlayer player) {
+		if (player == null) {
+			throw new IllegalArgumentException("Parameter 'player' must not be null.");
+		}
+		SoundInfo info = player.getInfo();
+		if (!player.isLoaded() || !hasUnknownSongLengths(info)) {
+			return false;
+		}
+		SongLength[] songLengths = SongLengthCache.getInstance().get(info.getModuleHash(), info.getSongs());
+		if (songLengths == null) {
+			return true;
+		}
+		applySongLengths(player, info.getModuleHash(), songLengths);
+		return false;
+	}
+
+	/**
+	 * Sets the detected lengths of the songs with unknown length. Must be called
+	 * in the UI thread.
+	 * 
+	 * @param player      The sound player with the loaded module, not
+	 *                    <code>null</code>.
+	 * @param moduleHash  The hash of the analyzed module, not <code>null</code>.
+	 *                    The song lengths are only set if the module is still
+	 *                    loaded.
+	 * @param songLengths The song lengths with one entry per song, not
+	 *                    <code>null</code>.
+	 * @return <code>true</code> if at least one song length was set.
+	 */
+	public static boolean applySongLengths(SoundPlayer player, String moduleHash, SongLength[] songLengths) {
+		if (player == null) {
+			throw new IllegalArgumentException("Parameter 'player' must not be null.");
+		}
+		if (moduleHash == null) {
+			throw new IllegalArgumentException("Parameter 'moduleHash' must not be null.");
+		}
+		if (songLengths == null) {
+			throw new IllegalArgumentException("Parameter 'songLengths' must not be null.");
+		}
+		SoundInfo info = player.getInfo();
+		if (!moduleHash.equals(info.getModuleHash()) || songLengths.length != info.getSongs()) {
+			return false;
+		}
+		boolean result = false;
+		for (int song = 0; song < songLengths.length; song++) {
+			if (info.getDuration(song) <= 0 && songLengths[song].isKnown()) {
+				player.setSongLength(song, songLengths[song]);
+				result = true;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Analyzes all songs with unknown length of a module in parallel and stores
+	 * the results in the cache.
+	 * 
+	 * @param player          The sound player with the loaded module, not
+	 *                        <code>null</code>.
+	 * @param maximumDuration The maximum duration to be analyzed per song in
+	 *                        milliseconds, a positive integer.
+	 * @param concurrency     The maximum number of songs analyzed in parallel, a
+	 *                        positive integer.
+	 * @param monitor         The progress monitor, not <code>null</code>.
+	 * @return The song lengths with one entry per song, not <code>null</code>.
+	 *         The entries of songs with known length and of songs for which no
+	 *         length was detected are {@link SongLength#UNKNOWN}.
+	 * @throws OperationCanceledException If the monitor was canceled.
+	 */
+	public static SongLength[] analyze(final SoundPlayer player, final int maximumDuration, int concurrency,
+			final IProgressMonitor monitor) {
+		if (player == null) {
+			throw new IllegalArgumentException("Parameter 'player' must not be null.");
+		}
+		if (maximumDuration <= 0) {
+			throw new IllegalArgumentException(
+					"Parameter 'maximumDuration' must be positive. Specified value is " + maximumDuration + ".");
+		}
+		if (concurrency < 1) {
+			throw new IllegalArgumentException(
+					"Parameter 'concurrency' must be positive. Specified value is " + concurrency + ".");
+		}
+		if (monitor == null) {
+			throw new IllegalArgumentException("Parameter 'monitor' must not be null.");
+		}
+
+		SoundInfo info = player.getInfo();
+		String moduleHash = info.getModuleHash();
+		SongLength[] songLengths = new SongLength[info.getSongs()];
+		List<Integer> songs = new ArrayList<Integer>(songLengths.length);
+		for (int song = 0; song < songLengths.length; song++) {
+			songLengths[song] = SongLength.UNKNOWN;
+			if (info.getDuration(song) <= 0) {
+				songs.add(Integer.valueOf(song));
+			}
+		}
+
+		monitor.beginTask(Texts.SONG_LENGTH_ANALYZER_JOB_NAME, songs.size());
+		List<ParallelExecutor.Task<SongLength>> tasks = new ArrayList<ParallelExecutor.Task<SongLength>>(songs.size());
+		for (final Integer song : songs) {
+			final String songNumber = NumberUtility.getLongValueDecimalString(song.intValue() + 1);
+			tasks.add(new ParallelExecutor.Task<SongLength>() {
+
+				@Override
+				public String getName() {
+					return TextUtility.format(Texts.SONG_LENGTH_ANALYZER_TASK_NAME, songNumber);
+				}
+
+				@Override
+				public SongLength execute() {
+					// The detector only checks if the monitor was canceled.
+					SongLengthDetector detector = new SongLengthDetector(monitor);
+					SongLength result;
+					try {
+						player.analyze(song.intValue(), maximumDuration, detector);
+						result = detector.getSongLength();
+					} catch (CoreException ex) {
+						SoundPlugin.getInstance().logError("Cannot analyze song {0}", new Object[] { songNumber }, ex);
+						result = SongLength.UNKNOWN;
+					}
+					return result;
+				}
+			});
+		}
+		try {
+			// The analysis runs with minimum priority, so it does not disturb the
+			// playback.
+			List<SongLength> results = ParallelExecutor.execute(tasks, concurrency, SongLengthAnalyzer.class.getName(),
+					Thread.MIN_PRIORITY, monitor);
+			for (int i = 0; i < results.size(); i++) {
+				songLengths[songs.get(i).intValue()] = results.get(i);
+			}
+			SongLengthCache.getInstance().put(moduleHash, songLengths);
+			return songLengths;
+		} finally {
+			monitor.done();
+		}
+	}
+
+	/**
+	 * Determines if a module has songs with unknown length.
+	 * 
+	 * @param info The sound info, not <code>null</code>.
+	 * @return <code>true</code> if at least one song has an unknown length.
+	 */
+	private static boolean hasUnknownSongLengths(SoundInfo info) {
+		for (int song = 0; song < info.getSongs(); song++) {
+			if (info.getDuration(song) <= 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
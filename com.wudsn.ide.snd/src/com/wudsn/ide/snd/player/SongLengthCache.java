@@ -0,0 +1,190 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.wudsn.ide.snd.player;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import com.wudsn.ide.snd.SoundPlugin;
+
+/**
+ * Persistent cache of the song lengths detected by {@link SongLengthAnalyzer}.
+ * The entries are keyed by the module hash, so they remain valid when a module
+ * is renamed or moved. The cache is stored in the state location of the
+ * plugin. Inconclusive results are stored as well, so modules are analyzed
+ * only once.
+ * 
+ * @author Peter Dell
+ * @since 1.7.2
+ */
+final class SongLengthCache {
+
+	private static final String CACHE_FILE_NAME = "SongLengthCache.properties";
+
+	/**
+	 * Version of the detection. Entries of a different version are discarded,
+	 * so improvements of the detection take effect.
+	 */
+	private static final String VERSION_KEY = "version";
+	private static final String VERSION = "1";
+
+	/**
+	 * Holder for the instance, so the cache is only loaded when it is first
+	 * used.
+	 */
+	private static final class InstanceHolder {
+		public static final SongLengthCache INSTANCE = new SongLengthCache(getCacheFile());
+	}
+
+	private final File file;
+	private final Properties properties;
+
+	/**
+	 * Creates a new cache and loads the cache file.
+	 * 
+	 * @param file The cache file or <code>null</code> if the cache is not
+	 *             persistent.
+	 */
+	private SongLengthCache(File file) {
+		this.file = file;
+		properties = new Properties();
+		if (file != null && file.exists()) {
+			try (InputStream inputStream = new FileInputStream(file)) {
+				properties.load(inputStream);
+			} catch (IOException ex) {
+				SoundPlugin.getInstance().logError("Cannot read song length cache {0}",
+						new Object[] { file.getPath() }, ex);
+			}
+			if (!VERSION.equals(properties.getProperty(VERSION_KEY))) {
+				properties.clear();
+			}
+		}
+		properties.setProperty(VERSION_KEY, VERSION);
+	}
+
+	/**
+	 * Gets the cache.
+	 * 
+	 * @return The cache, not <code>null</code>.
+	 */
+	public static SongLengthCache getInstance() {
+		return InstanceHolder.INSTANCE;
+	}
+
+	/**
+	 * Gets the cache file in the state location of the plugin.
+	 * 
+	 * @return The cache file or <code>null</code> if the plugin is not running
+	 *         or has no state location.
+	 */
+	private static File getCacheFile() {
+		try {
+			return SoundPlugin.getInstance().getStateLocation().append(CACHE_FILE_NAME).toFile();
+		} catch (IllegalStateException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the song lengths of a module.
+	 * 
+	 * @param moduleHash The module hash, not empty and not <code>null</code>.
+	 * @param songs      The number of songs in the module.
+	 * @return The song lengths with one entry per song or <code>null</code> if
+	 *         the module is not in the cache.
+	 */
+	public synchronized SongLength[] get(String moduleHash, int songs) {
+		if (moduleHash == null) {
+			throw new IllegalArgumentException("Parameter 'moduleHash' must not be null.");
+		}
+		String value = properties.getProperty(moduleHash);
+		if (value == null) {
+			return null;
+		}
+		String[] values = value.split(",");
+		if (values.length != songs) {
+			return null;
+		}
+		SongLength[] result = new SongLength[songs];
+		try {
+			for (int i = 0; i < songs; i++) {
+				result[i] = SongLength.parse(values[i]);
+			}
+		} catch (IllegalArgumentException ex) {
+			return null;
+		}
+		return result;
+	}
+
+	/**
+	 * Puts the song lengths of a module into the cache and writes the cache
+	 * file.
+	 * 
+	 * @param moduleHash  The module hash, not empty and not <code>null</code>.
+	 * @param songLengths The song lengths with one entry per song, not
+	 *                    <code>null</code>.
+	 */
+	public synchronized void put(String moduleHash, SongLength[] songLengths) {
+		if (moduleHash == null) {
+			throw new IllegalArgumentException("Parameter 'moduleHash' must not be null.");
+		}
+		if (songLengths == null) {
+			throw new IllegalArgumentException("Parameter 'songLengths' must not be null.");
+		}
+		StringBuilder value = new StringBuilder();
+		for (SongLength songLength : songLengths) {
+			if (value.length() > 0) {
+				value.append(',');
+			}
+			value.append(songLength.toString());
+		}
+		properties.setProperty(moduleHash, value.toString());
+
+		if (file != null) {
+			try {
+				write();
+			} catch (IOException ex) {
+				SoundPlugin.getInstance().logError("Cannot write song length cache {0}",
+						new Object[] { file.getPath() }, ex);
+			}
+		}
+	}
+
+	/**
+	 * Writes the cache file. The cache is written to a temporary file first, so
+	 * an incomplete cache file is never read.
+	 * 
+	 * @throws IOException If the file cannot be written.
+	 */
+	private void write() throws IOException {
+		File temporaryFile = new File(file.getPath() + ".tmp");
+		try (OutputStream outputStream = new FileOutputStream(temporaryFile)) {
+			properties.store(outputStream, "WUDSN IDE song lengths");
+		}
+		if (file.exists() && !file.delete() || !temporaryFile.renameTo(file)) {
+			temporaryFile.delete();
+			throw new IOException("Cannot rename '" + temporaryFile.getPath() + "'.");
+		}
+	}
+}
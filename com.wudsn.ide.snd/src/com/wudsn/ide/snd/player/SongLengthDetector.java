@@ -0,0 +1,236 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.wudsn.ide.snd.player;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Detects the duration and the loop mode of a song from the emulation which is
+ * run offline as fast as possible by
+ * {@link SoundPlayer#analyze(int, int, SongLengthDetector)}. The player passes
+ * a fingerprint for each frame, for example a hash of the sound chip register
+ * writes. A song ends if there are no more frames for
+ * {@link #SILENCE_DURATION} milliseconds or if the player detects silence. A
+ * song loops if the sequence of fingerprints at the end of the analysis is
+ * periodic and the period was observed at least twice. The analysis is stopped
+ * early if the period was already observed three times.
+ * 
+ * @author Peter Dell
+ * @since 1.7.2
+ */
+public final class SongLengthDetector {
+
+	/**
+	 * Minimum duration without frames or sound after which the song is considered
+	 * to have ended, in milliseconds.
+	 */
+	public static final int SILENCE_DURATION = 5000;
+
+	/**
+	 * Periods shorter than this duration in milliseconds are not considered as
+	 * loop of the song but as a steady state, like a held note or a player which
+	 * keeps writing the same values after the end of the song.
+	 */
+	private static final int MINIMUM_LOOP_DURATION = 2000;
+
+	/**
+	 * Interval in milliseconds in which {@link #isDone(int)} checks if a loop
+	 * can already be detected.
+	 */
+	private static final int LOOP_CHECK_INTERVAL = 10000;
+
+	private static final int INITIAL_CAPACITY = 4096;
+
+	private final IProgressMonitor monitor;
+	private int[] times;
+	private long[] fingerprints;
+	private int count;
+	private int endTime;
+	private int silenceTime;
+	private int nextLoopCheckTime;
+
+	/**
+	 * Creates a new detector.
+	 * 
+	 * @param monitor The progress monitor used to cancel the analysis, not
+	 *                <code>null</code>.
+	 */
+	public SongLengthDetector(IProgressMonitor monitor) {
+		if (monitor == null) {
+			throw new IllegalArgumentException("Parameter 'monitor' must not be null.");
+		}
+		this.monitor = monitor;
+		times = new int[INITIAL_CAPACITY];
+		fingerprints = new long[INITIAL_CAPACITY];
+		endTime = -1;
+		silenceTime = -1;
+		nextLoopCheckTime = LOOP_CHECK_INTERVAL;
+	}
+
+	/**
+	 * Adds the fingerprint of a frame.
+	 * 
+	 * @param time        The start time of the frame in milliseconds since the
+	 *                    start of the song, not less than the time of the previous
+	 *                    frame.
+	 * @param fingerprint The fingerprint of the frame.
+	 */
+	public void addFrame(int time, long fingerprint) {
+		if (count == times.length) {
+			int[] newTimes = new int[count * 2];
+			System.arraycopy(times, 0, newTimes, 0, count);
+			times = newTimes;
+			long[] newFingerprints = new long[count * 2];
+			System.arraycopy(fingerprints, 0, newFingerprints, 0, count);
+			fingerprints = newFingerprints;
+		}
+		times[count] = time;
+		fingerprints[count] = fingerprint;
+		count++;
+	}
+
+	/**
+	 * Determines if the analysis can be stopped, because the song has ended, a
+	 * loop was observed three times or the analysis was canceled.
+	 * 
+	 * @param time The current time in milliseconds since the start of the song.
+	 * @return <code>true</code> if the analysis can be stopped.
+	 */
+	public boolean isDone(int time) {
+		if (monitor.isCanceled() || (count > 0 && time - times[count - 1] >= SILENCE_DURATION)) {
+			return true;
+		}
+		if (time >= nextLoopCheckTime) {
+			nextLoopCheckTime = time + LOOP_CHECK_INTERVAL;
+			SongLength songLength = findPeriod(3);
+			return songLength != null && songLength.getLoopMode() == LoopMode.YES;
+		}
+		return false;
+	}
+
+	/**
+	 * Ends the analysis.
+	 * 
+	 * @param time The time in milliseconds since the start of the song at which
+	 *             the analysis ended.
+	 */
+	public void end(int time) {
+		endTime = time;
+	}
+
+	/**
+	 * Ends the analysis because the player detected silence.
+	 * 
+	 * @param time The time in milliseconds since the start of the song at which
+	 *             the silence started.
+	 */
+	public void endWithSilence(int time) {
+		endTime = time;
+		silenceTime = time;
+	}
+
+	/**
+	 * Gets the detected song length. Must only be called after the analysis was
+	 * ended.
+	 * 
+	 * @return The song length, not <code>null</code>. The song length is
+	 *         {@link SongLength#UNKNOWN} if the analysis was canceled or neither an
+	 *         end nor a loop was found.
+	 */
+	public SongLength getSongLength() {
+		if (endTime < 0) {
+			throw new IllegalStateException("Analysis not yet ended.");
+		}
+		if (monitor.isCanceled()) {
+			return SongLength.UNKNOWN;
+		}
+		if (silenceTime >= 0) {
+			return new SongLength(silenceTime, LoopMode.NO);
+		}
+		if (count == 0) {
+			return SongLength.UNKNOWN;
+		}
+		if (endTime - times[count - 1] >= SILENCE_DURATION) {
+			return new SongLength(times[count - 1], LoopMode.NO);
+		}
+		SongLength result = findPeriod(2);
+		return result != null ? result : SongLength.UNKNOWN;
+	}
+
+	/**
+	 * Finds the shortest period of the fingerprints at the end, which lasts at
+	 * least as long as the silence duration.
+	 * 
+	 * @param repetitions The minimum number of times the period must have been
+	 *                    observed, at least 2.
+	 * @return The song length or <code>null</code> if there is no such period.
+	 */
+	private SongLength findPeriod(int repetitions) {
+		if (count == 0) {
+			return null;
+		}
+
+		// z[p] is the length of the common suffix of the whole sequence and the
+		// sequence without the last p frames.
+		int[] z = getCommonSuffixLengths();
+		for (int p = 1; p < count; p++) {
+			// The periodic part starts at index "start". At index "start + p"
+			// the song starts to repeat itself.
+			int start = count - p - z[p];
+			if (z[p] >= (repetitions - 1) * p && times[count - 1] - times[start] >= SILENCE_DURATION) {
+				if (times[start + p] - times[start] < MINIMUM_LOOP_DURATION) {
+					return new SongLength(times[start], LoopMode.NO);
+				}
+				return new SongLength(times[start + p], LoopMode.YES);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Computes the Z-function of the reversed fingerprint sequence in linear
+	 * time.
+	 * 
+	 * @return The array with the length of the common suffix of the sequence and
+	 *         the sequence without the last p frames at index p, not
+	 *         <code>null</code>.
+	 */
+	private int[] getCommonSuffixLengths() {
+		int[] z = new int[count];
+		z[0] = count;
+		int left = 0;
+		int right = 0;
+		for (int i = 1; i < count; i++) {
+			int length = 0;
+			if (i < right) {
+				length = Math.min(right - i, z[i - left]);
+			}
+			while (i + length < count
+					&& fingerprints[count - 1 - length] == fingerprints[count - 1 - i - length]) {
+				length++;
+			}
+			z[i] = length;
+			if (i + length > right) {
+				left = i;
+				right = i + length;
+			}
+		}
+		return z;
+	}
+}
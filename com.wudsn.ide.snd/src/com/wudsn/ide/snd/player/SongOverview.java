@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.wudsn.ide.snd.player;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Overview of a song for the song table. The song is divided into a fixed
+ * number of columns. For every column the overview contains the minimum and
+ * maximum of the waveform and the maximum volume of every channel. Instances
+ * are immutable and are created by {@link SongOverviewBuilder}.
+ * 
+ * @author Peter Dell
+ * @since 1.7.2
+ */
+public final class SongOverview {
+
+	/**
+	 * The number of columns.
+	 */
+	public static final int WIDTH = 256;
+
+	private final int duration;
+	private final int channels;
+	private final byte[] waveformMinimum;
+	private final byte[] waveformMaximum;
+	private final byte[] envelopes;
+
+	/**
+	 * Creates a new instance. The arrays are not copied.
+	 * 
+	 * @param duration        The duration in milliseconds, a positive integer.
+	 * @param channels        The number of channels, a non-negative integer.
+	 * @param waveformMinimum The minimum of the waveform per column, not
+	 *                        <code>null</code>.
+	 * @param waveformMaximum The maximum of the waveform per column, not
+	 *                        <code>null</code>.
+	 * @param envelopes       The volumes per channel and column, not
+	 *                        <code>null</code>.
+	 */
+	SongOverview(int duration, int channels, byte[] waveformMinimum, byte[] waveformMaximum, byte[] envelopes) {
+		if (waveformMinimum == null) {
+			throw new IllegalArgumentException("Parameter 'waveformMinimum' must not be null.");
+		}
+		if (waveformMaximum == null) {
+			throw new IllegalArgumentException("Parameter 'waveformMaximum' must not be null.");
+		}
+		if (envelopes == null) {
+			throw new IllegalArgumentException("Parameter 'envelopes' must not be null.");
+		}
+		this.duration = duration;
+		this.channels = channels;
+		this.waveformMinimum = waveformMinimum;
+		this.waveformMaximum = waveformMaximum;
+		this.envelopes = envelopes;
+	}
+
+	/**
+	 * Gets the duration covered by the overview.
+	 * 
+	 * @return The duration in milliseconds, a positive integer.
+	 */
+	public int getDuration() {
+		return duration;
+	}
+
+	/**
+	 * Gets the number of channels, i.e. POKEY channels or SID voices.
+	 * 
+	 * @return The number of channels, a non-negative integer.
+	 */
+	public int getChannels() {
+		return channels;
+	}
+
+	/**
+	 * Gets the minimum of the waveform in a column.
+	 * 
+	 * @param column The column, between 0 and {@link #WIDTH} - 1.
+	 * @return The minimum, between -128 and 127.
+	 */
+	public int getWaveformMinimum(int column) {
+		return waveformMinimum[column];
+	}
+
+	/**
+	 * Gets the maximum of the waveform in a column.
+	 * 
+	 * @param column The column, between 0 and {@link #WIDTH} - 1.
+	 * @return The maximum, between -128 and 127.
+	 */
+	public int getWaveformMaximum(int column) {
+		return waveformMaximum[column];
+	}
+
+	/**
+	 * Gets the maximum volume of a channel in a column.
+	 * 
+	 * @param channel The channel, between 0 and {@link #getChannels()} - 1.
+	 * @param column  The column, between 0 and {@link #WIDTH} - 1.
+	 * @return The volume, between 0 and 255.
+	 */
+	public int getEnvelope(int channel, int column) {
+		return envelopes[channel * WIDTH + column] & 0xff;
+	}
+
+	/**
+	 * Gets the position of the start of a column.
+	 * 
+	 * @param column The column, between 0 and {@link #WIDTH}.
+	 * @return The position in milliseconds, a non-negative integer.
+	 */
+	public int getPosition(int column) {
+		return (int) ((long) duration * column / WIDTH);
+	}
+
+	/**
+	 * Writes the overview.
+	 * 
+	 * @param output The output, not <code>null</code>.
+	 * @throws IOException If the overview cannot be written.
+	 */
+	void write(DataOutput output) throws IOException {
+		if (output == null) {
+			throw new IllegalArgumentException("Parameter 'output' must not be null.");
+		}
+		output.writeInt(duration);
+		output.writeInt(channels);
+		output.write(waveformMinimum);
+		output.write(waveformMaximum);
+		output.write(envelopes);
+	}
+
+	/**
+	 * Reads an overview written by {@link #write(DataOutput)}.
+	 * 
+	 * @param input The input, not <code>null</code>.
+	 * @return The overview, not <code>null</code>.
+	 * @throws IOException If the overview cannot be read or is invalid.
+	 */
+	static SongOverview read(DataInput input) throws IOException {
+		if (input == null) {
+			throw new IllegalArgumentException("Parameter 'input' must not be null.");
+		}
+		int duration = input.readInt();
+		int channels = input.readInt();
+		if (duration <= 0 || channels < 0 || channels > 256) {
+			throw new IOException("Invalid song overview.");
+		}
+		byte[] waveformMinimum = new byte[WIDTH];
+		byte[] waveformMaximum = new byte[WIDTH];
+		byte[] envelopes = new byte[channels * WIDTH];
+		input.readFully(waveformMinimum);
+		input.readFully(waveformMaximum);
+		input.readFully(envelopes);
+		return new SongOverview(duration, channels, waveformMinimum, waveformMaximum, envelopes);
+	}
+}
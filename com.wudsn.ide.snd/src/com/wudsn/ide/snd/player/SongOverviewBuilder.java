@@ -0,0 +1,154 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.wudsn.ide.snd.player;
+
+/**
+ * Builder for the {@link SongOverview} of a song. In
+ * {@link SoundPlayer#createOverview(int, int, org.eclipse.core.runtime.IProgressMonitor)}
+ * the sound player passes the PCM data rendered at {@link #SAMPLE_RATE} and the
+ * channel volumes to the builder.
+ * Instances are used by a single thread.
+ * 
+ * @author Peter Dell
+ * @since 1.7.2
+ */
+public final class SongOverviewBuilder {
+
+	/**
+	 * The sample rate for rendering overviews. It is sufficient for the
+	 * waveform and reduces the effort for resampling and the amount of PCM data.
+	 */
+	public static final int SAMPLE_RATE = 11025;
+
+	private final int duration;
+	private final int audioChannels;
+	private final int channels;
+	private final long totalFrames;
+	private final byte[] waveformMinimum;
+	private final byte[] waveformMaximum;
+	private final byte[] envelopes;
+	private long frames;
+
+	/**
+	 * Creates a new builder.
+	 * 
+	 * @param duration      The duration to be rendered in milliseconds, a
+	 *                      positive integer.
+	 * @param audioChannels The number of audio channels of the PCM data, 1 or 2.
+	 * @param channels      The number of channel volumes, i.e. POKEY channels or
+	 *                      SID voices, a non-negative integer.
+	 */
+	public SongOverviewBuilder(int duration, int audioChannels, int channels) {
+		if (duration <= 0) {
+			throw new IllegalArgumentException(
+					"Parameter 'duration' must be positive. Specified value is " + duration + ".");
+		}
+		if (audioChannels < 1) {
+			throw new IllegalArgumentException(
+					"Parameter 'audioChannels' must be positive. Specified value is " + audioChannels + ".");
+		}
+		if (channels < 0) {
+			throw new IllegalArgumentException(
+					"Parameter 'channels' must not be negative. Specified value is " + channels + ".");
+		}
+		this.duration = duration;
+		this.audioChannels = audioChannels;
+		this.channels = channels;
+		totalFrames = Math.max(1, (long) duration * SAMPLE_RATE / 1000);
+		waveformMinimum = new byte[SongOverview.WIDTH];
+		waveformMaximum = new byte[SongOverview.WIDTH];
+		envelopes = new byte[channels * SongOverview.WIDTH];
+	}
+
+	/**
+	 * Adds PCM data. Data beyond the duration is ignored.
+	 * 
+	 * @param bytes  The PCM data, 16 bit signed little endian samples, not
+	 *               <code>null</code>.
+	 * @param offset The offset of the PCM data.
+	 * @param length The length of the PCM data, a multiple of the frame size.
+	 */
+	public void addSamples(byte[] bytes, int offset, int length) {
+		if (bytes == null) {
+			throw new IllegalArgumentException("Parameter 'bytes' must not be null.");
+		}
+		int frameSize = 2 * audioChannels;
+		int end = offset + length - frameSize;
+		for (int i = offset; i <= end && frames < totalFrames; i += frameSize) {
+			int sum = 0;
+			for (int channel = 0; channel < audioChannels; channel++) {
+				int index = i + 2 * channel;
+				sum += (bytes[index] & 0xff) | bytes[index + 1] << 8;
+			}
+			byte value = (byte) (sum / audioChannels >> 8);
+			int column = getColumn(frames);
+			if (value < waveformMinimum[column]) {
+				waveformMinimum[column] = value;
+			} else if (value > waveformMaximum[column]) {
+				waveformMaximum[column] = value;
+			}
+			frames++;
+		}
+	}
+
+	/**
+	 * Adds the channel volumes at the end of the PCM data added so far.
+	 * 
+	 * @param volumes The channel volumes between 0 and 255, as returned by
+	 *                {@link SoundPlayer#getChannelVolumes()}, not
+	 *                <code>null</code>.
+	 */
+	public void addChannelVolumes(int[] volumes) {
+		if (volumes == null) {
+			throw new IllegalArgumentException("Parameter 'volumes' must not be null.");
+		}
+		int column = getColumn(Math.max(0, frames - 1));
+		for (int channel = 0; channel < Math.min(channels, volumes.length); channel++) {
+			int index = channel * SongOverview.WIDTH + column;
+			int volume = Math.min(255, Math.max(0, volumes[channel]));
+			if (volume > (envelopes[index] & 0xff)) {
+				envelopes[index] = (byte) volume;
+			}
+		}
+	}
+
+	private int getColumn(long frame) {
+		return (int) (frame * SongOverview.WIDTH / totalFrames);
+	}
+
+	/**
+	 * Determines if the PCM data for the whole duration was added.
+	 * 
+	 * @return <code>true</code> if the rendering can stop.
+	 */
+	public boolean isDone() {
+		return frames >= totalFrames;
+	}
+
+	/**
+	 * Gets the overview. Columns after the end of a song which ended before the
+	 * duration remain silent.
+	 * 
+	 * @return The overview, not <code>null</code>.
+	 */
+	public SongOverview getOverview() {
+		return new SongOverview(duration, channels, waveformMinimum.clone(), waveformMaximum.clone(),
+				envelopes.clone());
+	}
+}
@@ -0,0 +1,266 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.wudsn.ide.snd.player;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import com.wudsn.ide.snd.SoundPlugin;
+
+/**
+ * Persistent cache of the song overviews created by
+ * {@link SongOverviewRenderer}. Every overview is stored in a file of its own,
+ * keyed by the module hash and the song number, so only the overviews of the
+ * module which is opened are read. The cache is stored in the state location
+ * of the plugin. When the total size of the files exceeds {@link #MAX_SIZE},
+ * the least recently used files are deleted.
+ * 
+ * @author Peter Dell
+ * @since 1.7.2
+ */
+final class SongOverviewCache {
+
+	private static final String CACHE_DIRECTORY_NAME = "SongOverviewCache";
+	private static final String CACHE_FILE_EXTENSION = ".overview";
+
+	/**
+	 * Version of the file format and the rendering. Files of a different
+	 * version are ignored and overwritten.
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * Maximum total size of the cache files in bytes. When it is exceeded, the
+	 * least recently used files are deleted until the total size is below three
+	 * quarters of the maximum.
+	 */
+	private static final long MAX_SIZE = 32 * 1024 * 1024;
+
+	/**
+	 * Holder for the instance, so the directory is only determined when the
+	 * cache is first used.
+	 */
+	private static final class InstanceHolder {
+		public static final SongOverviewCache INSTANCE = new SongOverviewCache(getCacheDirectory());
+	}
+
+	private final File directory;
+
+	// Total size of the cache files in bytes or -1 if not yet determined.
+	private long size;
+
+	/**
+	 * Creates a new cache.
+	 * 
+	 * @param directory The cache directory or <code>null</code> if the cache is
+	 *                  not persistent.
+	 */
+	private SongOverviewCache(File directory) {
+		this.directory = directory;
+		size = -1;
+	}
+
+	/**
+	 * Gets the cache.
+	 * 
+	 * @return The cache, not <code>null</code>.
+	 */
+	public static SongOverviewCache getInstance() {
+		return InstanceHolder.INSTANCE;
+	}
+
+	/**
+	 * Gets the cache directory in the state location of the plugin.
+	 * 
+	 * @return The cache directory or <code>null</code> if the plugin is not
+	 *         running or has no state location.
+	 */
+	private static File getCacheDirectory() {
+		try {
+			return SoundPlugin.getInstance().getStateLocation().append(CACHE_DIRECTORY_NAME).toFile();
+		} catch (IllegalStateException ex) {
+			return null;
+		}
+	}
+
+	private File getFile(String moduleHash, int song) {
+		return new File(directory, moduleHash + "-" + song + CACHE_FILE_EXTENSION);
+	}
+
+	/**
+	 * Gets the overview of a song.
+	 * 
+	 * @param moduleHash The module hash, not empty and not <code>null</code>.
+	 * @param song       The song number, a non-negative integer starting at zero
+	 *                   for the first song in the tune.
+	 * @param duration   The duration of the overview in milliseconds. Overviews
+	 *                   of a different duration, for example before the length
+	 *                   of the song was detected, are ignored.
+	 * @return The overview or <code>null</code> if the song is not in the cache.
+	 */
+	public SongOverview get(String moduleHash, int song, int duration) {
+		if (moduleHash == null) {
+			throw new IllegalArgumentException("Parameter 'moduleHash' must not be null.");
+		}
+		if (directory == null) {
+			return null;
+		}
+		File file = getFile(moduleHash, song);
+		if (!file.exists()) {
+			return null;
+		}
+		SongOverview result;
+		try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (inputStream.readInt() != VERSION) {
+				return null;
+			}
+			result = SongOverview.read(inputStream);
+		} catch (IOException ex) {
+			SoundPlugin.getInstance().logError("Cannot read song overview cache file {0}",
+					new Object[] { file.getPath() }, ex);
+			return null;
+		}
+		if (result.getDuration() != duration) {
+			return null;
+		}
+
+		// The modification time is the time of the last use.
+		file.setLastModified(System.currentTimeMillis());
+		return result;
+	}
+
+	/**
+	 * Puts the overview of a song into the cache and writes the cache file. The
+	 * file is written to a temporary file first, so an incomplete file is never
+	 * read.
+	 * 
+	 * @param moduleHash The module hash, not empty and not <code>null</code>.
+	 * @param song       The song number, a non-negative integer starting at zero
+	 *                   for the first song in the tune.
+	 * @param overview   The overview, not <code>null</code>.
+	 */
+	public void put(String moduleHash, int song, SongOverview overview) {
+		if (moduleHash == null) {
+			throw new IllegalArgumentException("Parameter 'moduleHash' must not be null.");
+		}
+		if (overview == null) {
+			throw new IllegalArgumentException("Parameter 'overview' must not be null.");
+		}
+		if (directory == null) {
+			return;
+		}
+		File file = getFile(moduleHash, song);
+		File temporaryFile = null;
+		long oldLength = file.length();
+		try {
+			if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+				throw new IOException("Cannot create directory '" + directory.getPath() + "'.");
+			}
+			temporaryFile = File.createTempFile(file.getName(), ".tmp", directory);
+			try (DataOutputStream outputStream = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+				outputStream.writeInt(VERSION);
+				overview.write(outputStream);
+			}
+			if (file.exists() && !file.delete() || !temporaryFile.renameTo(file)) {
+				throw new IOException("Cannot rename '" + temporaryFile.getPath() + "'.");
+			}
+			temporaryFile = null;
+			addSize(file.length() - oldLength);
+		} catch (IOException ex) {
+			SoundPlugin.getInstance().logError("Cannot write song overview cache file {0}",
+					new Object[] { file.getPath() }, ex);
+		} finally {
+			if (temporaryFile != null) {
+				temporaryFile.delete();
+			}
+		}
+	}
+
+	/**
+	 * Gets the cache files in the cache directory.
+	 * 
+	 * @return The cache files, may be empty, not <code>null</code>.
+	 */
+	private File[] listFiles() {
+		File[] result = directory.listFiles();
+		if (result == null) {
+			return new File[0];
+		}
+		int count = 0;
+		for (File file : result) {
+			if (file.getName().endsWith(CACHE_FILE_EXTENSION)) {
+				result[count++] = file;
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Adds the size of a written file to the total size and deletes the least
+	 * recently used files if the total size exceeds the maximum.
+	 * 
+	 * @param delta The change of the total size in bytes.
+	 */
+	private synchronized void addSize(long delta) {
+		if (size < 0) {
+			size = 0;
+			for (File file : listFiles()) {
+				size += file.length();
+			}
+		} else {
+			size += delta;
+		}
+		if (size <= MAX_SIZE) {
+			return;
+		}
+
+		File[] files = listFiles();
+		final long[] lastModified = new long[files.length];
+		Integer[] indexes = new Integer[files.length];
+		size = 0;
+		for (int i = 0; i < files.length; i++) {
+			lastModified[i] = files[i].lastModified();
+			indexes[i] = Integer.valueOf(i);
+			size += files[i].length();
+		}
+		Arrays.sort(indexes, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return Long.compare(lastModified[o1.intValue()], lastModified[o2.intValue()]);
+			}
+		});
+		for (int i = 0; i < indexes.length && size > MAX_SIZE / 4 * 3; i++) {
+			File file = files[indexes[i].intValue()];
+			long length = file.length();
+			if (file.delete()) {
+				size -= length;
+			}
+		}
+	}
+}
@@ -0,0 +1,183 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.wudsn.ide.snd.player;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import com.wudsn.ide.base.common.NumberUtility;
+import com.wudsn.ide.base.common.ParallelExecutor;
+import com.wudsn.ide.base.common.TextUtility;
+import com.wudsn.ide.snd.SoundPlugin;
+import com.wudsn.ide.snd.Texts;
+
+/**
+ * Creation of the overviews of the songs of a module. The songs are rendered
+ * offline at a reduced sample rate via
+ * {@link SoundPlayer#createOverview(int, int, IProgressMonitor)} in parallel
+ * and the results are stored in the {@link SongOverviewCache}, so they are
+ * available immediately when the module is opened again.
+ * 
+ * @author Peter Dell
+ * @since 1.7.2
+ */
+public final class SongOverviewRenderer {
+
+	/**
+	 * The default maximum duration of an overview in milliseconds. It is used
+	 * for songs without known duration.
+	 */
+	public static final int DEFAULT_MAXIMUM_DURATION = SongLengthAnalyzer.DEFAULT_MAXIMUM_DURATION;
+
+	/**
+	 * Creation is private.
+	 */
+	private SongOverviewRenderer() {
+	}
+
+	/**
+	 * Gets the cached overviews of the songs of a module.
+	 * 
+	 * @param player          The sound player with the loaded module, not
+	 *                        <code>null</code>.
+	 * @param maximumDuration The maximum duration of an overview in milliseconds,
+	 *                        a positive integer.
+	 * @return The overviews with one entry per song, not <code>null</code>. The
+	 *         entries of songs which are not in the cache are <code>null</code>.
+	 */
+	public static SongOverview[] getCachedOverviews(SoundPlayer player, int maximumDuration) {
+		if (player == null) {
+			throw new IllegalArgumentException("Parameter 'player' must not be null.");
+		}
+		SoundInfo info = player.getInfo();
+		SongOverview[] result = new SongOverview[player.isLoaded() ? info.getSongs() : 0];
+		for (int song = 0; song < result.length; song++) {
+			result[song] = SongOverviewCache.getInstance().get(info.getModuleHash(), song,
+					SoundRenderer.getDuration(info, song, maximumDuration));
+		}
+		return result;
+	}
+
+	/**
+	 * Determines if overviews are missing.
+	 * 
+	 * @param overviews The overviews, not <code>null</code>.
+	 * @return <code>true</code> if at least one entry is <code>null</code>.
+	 */
+	public static boolean isIncomplete(SongOverview[] overviews) {
+		if (overviews == null) {
+			throw new IllegalArgumentException("Parameter 'overviews' must not be null.");
+		}
+		for (SongOverview overview : overviews) {
+			if (overview == null) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Creates the missing overviews of the songs of a module in parallel and
+	 * stores them in the cache.
+	 * 
+	 * @param player          The sound player with the loaded module, not
+	 *                        <code>null</code>.
+	 * @param maximumDuration The maximum duration of an overview in milliseconds,
+	 *                        a positive integer.
+	 * @param concurrency     The maximum number of songs rendered in parallel, a
+	 *                        positive integer.
+	 * @param monitor         The progress monitor, not <code>null</code>.
+	 * @return The overviews with one entry per song, not <code>null</code>. The
+	 *         entries of songs for which no overview could be created are
+	 *         <code>null</code>.
+	 * @throws OperationCanceledException If the monitor was canceled.
+	 */
+	public static SongOverview[] create(final SoundPlayer player, int maximumDuration, int concurrency,
+			IProgressMonitor monitor) {
+		if (player == null) {
+			throw new IllegalArgumentException("Parameter 'player' must not be null.");
+		}
+		if (maximumDuration <= 0) {
+			throw new IllegalArgumentException(
+					"Parameter 'maximumDuration' must be positive. Specified value is " + maximumDuration + ".");
+		}
+		if (concurrency < 1) {
+			throw new IllegalArgumentException(
+					"Parameter 'concurrency' must be positive. Specified value is " + concurrency + ".");
+		}
+		if (monitor == null) {
+			throw new IllegalArgumentException("Parameter 'monitor' must not be null.");
+		}
+
+		SoundInfo info = player.getInfo();
+		final String moduleHash = info.getModuleHash();
+		SongOverview[] overviews = getCachedOverviews(player, maximumDuration);
+		List<Integer> songs = new ArrayList<Integer>(overviews.length);
+		for (int song = 0; song < overviews.length; song++) {
+			if (overviews[song] == null) {
+				songs.add(Integer.valueOf(song));
+			}
+		}
+
+		monitor.beginTask(Texts.SONG_OVERVIEW_RENDERER_JOB_NAME, songs.size());
+		List<ParallelExecutor.Task<SongOverview>> tasks = new ArrayList<ParallelExecutor.Task<SongOverview>>(
+				songs.size());
+		for (final Integer song : songs) {
+			final int duration = SoundRenderer.getDuration(info, song.intValue(), maximumDuration);
+			final String songNumber = NumberUtility.getLongValueDecimalString(song.intValue() + 1);
+			tasks.add(new ParallelExecutor.Task<SongOverview>() {
+
+				@Override
+				public String getName() {
+					return TextUtility.format(Texts.SONG_OVERVIEW_RENDERER_TASK_NAME, songNumber);
+				}
+
+				@Override
+				public SongOverview execute() {
+					SongOverview result;
+					try {
+						result = player.createOverview(song.intValue(), duration, monitor);
+						SongOverviewCache.getInstance().put(moduleHash, song.intValue(), result);
+					} catch (CoreException ex) {
+						SoundPlugin.getInstance().logError("Cannot create overview of song {0}",
+								new Object[] { songNumber }, ex);
+						result = null;
+					}
+					return result;
+				}
+			});
+		}
+		try {
+			// The rendering runs with minimum priority, so it does not disturb the
+			// playback.
+			List<SongOverview> results = ParallelExecutor.execute(tasks, concurrency,
+					SongOverviewRenderer.class.getName(), Thread.MIN_PRIORITY, monitor);
+			for (int i = 0; i < results.size(); i++) {
+				overviews[songs.get(i).intValue()] = results.get(i);
+			}
+			return overviews;
+		} finally {
+			monitor.done();
+		}
+	}
+}
@@ -0,0 +1,398 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.wudsn.ide.snd.player;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+
+import com.wudsn.ide.base.common.FileUtility;
+import com.wudsn.ide.base.common.ParallelExecutor;
+import com.wudsn.ide.base.common.TextUtility;
+import com.wudsn.ide.snd.SoundPlugin;
+import com.wudsn.ide.snd.Texts;
+import com.wudsn.ide.snd.player.atari8.ASAPPlayer;
+import com.wudsn.ide.snd.player.c64.SIDPlayer;
+
+/**
+ * Headless batch export of sound files to other file types. Every sound file is
+ * loaded by its own sound player, so multiple sound files are exported in
+ * parallel. The module and export buffers are taken from the
+ * {@link ByteArrayPool}, so they only have to be as large as the actual files
+ * and are reused across the sound files of the batch.
+ * The export is started headless via {@link SoundBatchExporterApplication}.
+ * 
+ * @author Peter Dell
+ * @since 1.7.2
+ */
+public final class SoundBatchExporter {
+
+	/**
+	 * A sound file to be exported.
+	 */
+	public static final class Task {
+
+		public final File sourceFile;
+		public final FileType sourceFileType;
+		public final List<FileType> fileTypes;
+		public final File targetDirectory;
+
+		/**
+		 * Creates a new task.
+		 * 
+		 * @param sourceFile      The sound file, not <code>null</code>.
+		 * @param sourceFileType  The file type of the sound file, not
+		 *                        <code>null</code>.
+		 * @param fileTypes       The file types to export to, may be empty, not
+		 *                        <code>null</code>.
+		 * @param targetDirectory The directory for the exported files, not
+		 *                        <code>null</code>.
+		 */
+		public Task(File sourceFile, FileType sourceFileType, List<FileType> fileTypes, File targetDirectory) {
+			if (sourceFile == null) {
+				throw new IllegalArgumentException("Parameter 'sourceFile' must not be null.");
+			}
+			if (sourceFileType == null) {
+				throw new IllegalArgumentException("Parameter 'sourceFileType' must not be null.");
+			}
+			if (fileTypes == null) {
+				throw new IllegalArgumentException("Parameter 'fileTypes' must not be null.");
+			}
+			if (targetDirectory == null) {
+				throw new IllegalArgumentException("Parameter 'targetDirectory' must not be null.");
+			}
+			this.sourceFile = sourceFile;
+			this.sourceFileType = sourceFileType;
+			this.fileTypes = Collections.unmodifiableList(new ArrayList<FileType>(fileTypes));
+			this.targetDirectory = targetDirectory;
+		}
+	}
+
+	/**
+	 * The result of exporting a single sound file.
+	 */
+	public static final class Result {
+
+		public final Task task;
+		final List<File> files;
+		final List<FileType> unsupportedFileTypes;
+		CoreException exception;
+		long durationMillis;
+
+		Result(Task task) {
+			this.task = task;
+			files = new ArrayList<File>();
+			unsupportedFileTypes = new ArrayList<FileType>();
+		}
+
+		/**
+		 * Determines if the sound file was loaded and all files were written.
+		 * 
+		 * @return <code>true</code> if the export was successful.
+		 */
+		public boolean isSuccess() {
+			return exception == null;
+		}
+
+		/**
+		 * Gets the exception which occurred while loading or exporting. The export
+		 * of a sound file ends at the first exception.
+		 * 
+		 * @return The exception or <code>null</code>.
+		 */
+		public CoreException getException() {
+			return exception;
+		}
+
+		/**
+		 * Gets the files which were written.
+		 * 
+		 * @return The unmodifiable list of files, may be empty, not
+		 *         <code>null</code>.
+		 */
+		public List<File> getFiles() {
+			return Collections.unmodifiableList(files);
+		}
+
+		/**
+		 * Gets the file types which are not supported for the sound file and were
+		 * skipped.
+		 * 
+		 * @return The unmodifiable list of file types, may be empty, not
+		 *         <code>null</code>.
+		 */
+		public List<FileType> getUnsupportedFileTypes() {
+			return Collections.unmodifiableList(unsupportedFileTypes);
+		}
+
+		public long getDurationMillis() {
+			return durationMillis;
+		}
+	}
+
+	/**
+	 * Creation is private.
+	 */
+	private SoundBatchExporter() {
+	}
+
+	/**
+	 * Creates a new sound player for a file type. Other than
+	 * {@link SoundPlugin#createSoundPlayer(String)} this does not require the
+	 * content type registry and does not stop the current sound player.
+	 * 
+	 * @param fileType The file type of the sound file, not <code>null</code>.
+	 * @return The new sound player or <code>null</code> if the file type cannot
+	 *         be loaded.
+	 */
+	public static SoundPlayer createSoundPlayer(FileType fileType) {
+		if (fileType == null) {
+			throw new IllegalArgumentException("Parameter 'fileType' must not be null.");
+		}
+		switch (fileType) {
+		case CM3:
+		case CMC:
+		case CMR:
+		case CMS:
+		case DLT:
+		case DMC:
+		case FC:
+		case MPD:
+		case MPT:
+		case RMT:
+		case SAP:
+		case TM2:
+		case TM8:
+		case TMC:
+			return new ASAPPlayer();
+		case SID:
+			return new SIDPlayer();
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the file type of a sound file which can be loaded.
+	 * 
+	 * @param file The file, not <code>null</code>.
+	 * @return The file type or <code>null</code> if the file is no sound file
+	 *         which can be loaded.
+	 */
+	private static FileType getSourceFileType(File file) {
+		String fileName = file.getName();
+		int index = fileName.lastIndexOf('.');
+		if (index <= 0) {
+			return null;
+		}
+		FileType fileType = FileType.getInstanceByExtension(fileName.substring(index).toLowerCase());
+		if (fileType == null || createSoundPlayer(fileType) == null) {
+			return null;
+		}
+		return fileType;
+	}
+
+	/**
+	 * Creates the tasks for all sound files in the source directories.
+	 * Subdirectories are not included.
+	 * 
+	 * @param sourceDirectories The source directories, may be empty, not
+	 *                          <code>null</code>.
+	 * @param fileTypes         The file types to export to, not
+	 *                          <code>null</code>.
+	 * @param targetDirectory   The directory for the exported files or
+	 *                          <code>null</code> to write the exported files into
+	 *                          the directory of the sound file.
+	 * @return The list of tasks, ordered by directory and file name, may be
+	 *         empty, not <code>null</code>.
+	 */
+	public static List<Task> createTasks(List<File> sourceDirectories, List<FileType> fileTypes,
+			File targetDirectory) {
+		if (sourceDirectories == null) {
+			throw new IllegalArgumentException("Parameter 'sourceDirectories' must not be null.");
+		}
+		if (fileTypes == null) {
+			throw new IllegalArgumentException("Parameter 'fileTypes' must not be null.");
+		}
+		List<Task> result = new ArrayList<Task>();
+		for (File sourceDirectory : sourceDirectories) {
+			File[] files = sourceDirectory.listFiles();
+			if (files == null) {
+				continue;
+			}
+			Arrays.sort(files);
+			for (File file : files) {
+				FileType sourceFileType = getSourceFileType(file);
+				if (sourceFileType != null && file.isFile()) {
+					result.add(new Task(file, sourceFileType, fileTypes,
+							targetDirectory != null ? targetDirectory : sourceDirectory));
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the target file for a sound file and a file type. The extension of
+	 * the sound file is replaced by the extension of the file type.
+	 * 
+	 * @param task     The task, not <code>null</code>.
+	 * @param fileType The file type, not <code>null</code>.
+	 * @return The target file, not <code>null</code>.
+	 */
+	private static File getTargetFile(Task task, FileType fileType) {
+		String fileName = task.sourceFile.getName();
+		fileName = fileName.substring(0, fileName.lastIndexOf('.'));
+		return new File(task.targetDirectory, fileName + fileType.getExtension());
+	}
+
+	/**
+	 * Exports a single sound file.
+	 * 
+	 * @param task            The task, not <code>null</code>.
+	 * @param maximumDuration The maximum duration for audio file types in
+	 *                        milliseconds, a positive integer.
+	 * @param result          The result to be filled, not <code>null</code>.
+	 * @throws CoreException If the sound file cannot be loaded or a file cannot
+	 *                       be exported.
+	 */
+	private static void export(Task task, int maximumDuration, Result result) throws CoreException {
+		SoundPlayer player = createSoundPlayer(task.sourceFileType);
+		String fileName = task.sourceFile.getName();
+		try {
+			player.load(fileName, new FileInputStream(task.sourceFile));
+		} catch (IOException ex) {
+			// ERROR: Cannot open sound file '{0}'. {1}
+			throw new CoreException(new Status(IStatus.ERROR, SoundPlugin.ID,
+					TextUtility.format(Texts.MESSAGE_E501, task.sourceFile.getPath(), ex.getMessage()), ex));
+		}
+		SoundInfo info = player.getInfo();
+		for (FileType fileType : task.fileTypes) {
+			File targetFile = getTargetFile(task, fileType);
+			if (!info.getSupportedExportFileTypes().contains(fileType) || targetFile.equals(task.sourceFile)) {
+				result.unsupportedFileTypes.add(fileType);
+				continue;
+			}
+			if (fileType.isAudio()) {
+				for (SoundRenderer.Task renderTask : SoundRenderer.createTasks(player, fileType, targetFile)) {
+					SoundRenderer.writeFile(player, renderTask.song, fileType, maximumDuration, renderTask.file);
+					result.files.add(renderTask.file);
+				}
+				continue;
+			}
+			byte[] content;
+			try {
+				content = player.getExportFileContent(fileType, info.getMusicAddress());
+			} catch (Exception ex) {
+				// ERROR: Cannot export sound file as '{0}'. {1}
+				throw new CoreException(new Status(IStatus.ERROR, SoundPlugin.ID,
+						TextUtility.format(Texts.MESSAGE_E506, fileType.getDescription(), ex.getMessage()), ex));
+			}
+			if (content == null) {
+				result.unsupportedFileTypes.add(fileType);
+				continue;
+			}
+			FileUtility.writeBytes(targetFile, content);
+			result.files.add(targetFile);
+		}
+	}
+
+	/**
+	 * Exports the sound files in parallel.
+	 * 
+	 * @param tasks           The tasks, may be empty, not <code>null</code>.
+	 * @param maximumDuration The maximum duration for audio file types in
+	 *                        milliseconds, a positive integer.
+	 * @param concurrency     The maximum number of sound files exported in
+	 *                        parallel, a positive integer.
+	 * @param monitor         The progress monitor, not <code>null</code>.
+	 * @return The list of results in the order of the tasks, not
+	 *         <code>null</code>.
+	 * 
+	 * @throws OperationCanceledException If the progress monitor was canceled.
+	 */
+	public static List<Result> export(List<Task> tasks, final int maximumDuration, int concurrency,
+			IProgressMonitor monitor) {
+		if (tasks == null) {
+			throw new IllegalArgumentException("Parameter 'tasks' must not be null.");
+		}
+		if (maximumDuration <= 0) {
+			throw new IllegalArgumentException(
+					"Parameter 'maximumDuration' must be positive. Specified value is " + maximumDuration + ".");
+		}
+		if (concurrency < 1) {
+			throw new IllegalArgumentException(
+					"Parameter 'concurrency' must be positive. Specified value is " + concurrency + ".");
+		}
+		if (monitor == null) {
+			throw new IllegalArgumentException("Parameter 'monitor' must not be null.");
+		}
+
+		monitor.beginTask(Texts.SOUND_BATCH_EXPORTER_JOB_NAME, tasks.size());
+		List<ParallelExecutor.Task<Result>> executorTasks = new ArrayList<ParallelExecutor.Task<Result>>(tasks.size());
+		for (final Task task : tasks) {
+			executorTasks.add(new ParallelExecutor.Task<Result>() {
+
+				@Override
+				public String getName() {
+					return TextUtility.format(Texts.SOUND_BATCH_EXPORTER_TASK_NAME, task.sourceFile.getPath());
+				}
+
+				@Override
+				public Result execute() {
+					Result result = new Result(task);
+					long startTimeMillis = System.currentTimeMillis();
+					try {
+						export(task, maximumDuration, result);
+					} catch (CoreException ex) {
+						result.exception = ex;
+					} catch (RuntimeException ex) {
+						// An error in a single sound file must not end the export of the
+						// other sound files.
+						SoundPlugin.getInstance().logError("Cannot export '{0}'",
+								new Object[] { task.sourceFile.getPath() }, ex);
+						// ERROR: Cannot export sound file '{0}'. {1}
+						result.exception = new CoreException(new Status(IStatus.ERROR, SoundPlugin.ID,
+								TextUtility.format(Texts.MESSAGE_E514, task.sourceFile.getPath(),
+										String.valueOf(ex.getMessage())),
+								ex));
+					}
+					result.durationMillis = System.currentTimeMillis() - startTimeMillis;
+					return result;
+				}
+			});
+		}
+		try {
+			return ParallelExecutor.execute(executorTasks, concurrency, SoundBatchExporter.class.getName(),
+					Thread.NORM_PRIORITY, monitor);
+		} finally {
+			monitor.done();
+		}
+	}
+}
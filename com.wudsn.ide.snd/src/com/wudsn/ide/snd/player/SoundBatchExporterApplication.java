@@ -0,0 +1,181 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.wudsn.ide.snd.player;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+
+/**
+ * Headless application for {@link SoundBatchExporter}. It is started with
+ * "-application com.wudsn.ide.snd.SoundBatchExporter". The arguments are the
+ * file types to export to and the directories containing the sound files. The
+ * result of every sound file is printed to the standard output. The exit code
+ * is {@link #EXIT_FAILED} if at least one sound file could not be exported.
+ * 
+ * @author Peter Dell
+ * @since 1.7.2
+ */
+public final class SoundBatchExporterApplication implements IApplication {
+
+	/**
+	 * Exit code if at least one sound file could not be exported.
+	 */
+	public static final Integer EXIT_FAILED = Integer.valueOf(1);
+
+	/**
+	 * Exit code if the arguments are invalid.
+	 */
+	public static final Integer EXIT_INVALID_ARGUMENTS = Integer.valueOf(2);
+
+	private static final String TYPES = "-types";
+	private static final String TARGET = "-target";
+	private static final String DURATION = "-duration";
+	private static final String CONCURRENCY = "-concurrency";
+
+	/**
+	 * Creation is public. Called by the application container.
+	 */
+	public SoundBatchExporterApplication() {
+	}
+
+	@Override
+	public Object start(IApplicationContext context) throws Exception {
+		String[] args = (String[]) context.getArguments().get(IApplicationContext.APPLICATION_ARGS);
+		if (args == null) {
+			args = new String[0];
+		}
+		PrintStream out = System.out;
+		PrintStream err = System.err;
+
+		List<FileType> fileTypes = new ArrayList<FileType>();
+		File targetDirectory = null;
+		int maximumDuration = SoundRenderer.DEFAULT_MAXIMUM_DURATION;
+		int concurrency = SoundRenderer.getDefaultConcurrency();
+		List<File> sourceDirectories = new ArrayList<File>();
+		try {
+			for (int i = 0; i < args.length; i++) {
+				String arg = args[i];
+				if (arg.equals(TYPES) || arg.equals(TARGET) || arg.equals(DURATION) || arg.equals(CONCURRENCY)) {
+					if (i + 1 == args.length) {
+						throw new IllegalArgumentException("Missing value for argument '" + arg + "'.");
+					}
+					String value = args[++i];
+					if (arg.equals(TYPES)) {
+						for (String extension : value.toLowerCase().split(",")) {
+							FileType fileType = FileType.getInstanceByExtension("." + extension.trim());
+							if (fileType == null) {
+								throw new IllegalArgumentException("Unknown file type '" + extension + "'.");
+							}
+							fileTypes.add(fileType);
+						}
+					} else if (arg.equals(TARGET)) {
+						targetDirectory = new File(value);
+						if (!targetDirectory.isDirectory()) {
+							throw new IllegalArgumentException("Target directory '" + value + "' does not exist.");
+						}
+					} else if (arg.equals(DURATION)) {
+						maximumDuration = parsePositiveInteger(arg, value) * 1000;
+					} else {
+						concurrency = parsePositiveInteger(arg, value);
+					}
+				} else {
+					File sourceDirectory = new File(arg);
+					if (!sourceDirectory.isDirectory()) {
+						throw new IllegalArgumentException("Directory '" + arg + "' does not exist.");
+					}
+					sourceDirectories.add(sourceDirectory);
+				}
+			}
+			if (fileTypes.isEmpty()) {
+				throw new IllegalArgumentException("No file type specified.");
+			}
+			if (sourceDirectories.isEmpty()) {
+				throw new IllegalArgumentException("No directory specified.");
+			}
+		} catch (IllegalArgumentException ex) {
+			err.println(ex.getMessage());
+			printUsage(err);
+			return EXIT_INVALID_ARGUMENTS;
+		}
+
+		List<SoundBatchExporter.Task> tasks = SoundBatchExporter.createTasks(sourceDirectories, fileTypes,
+				targetDirectory);
+		List<SoundBatchExporter.Result> results = SoundBatchExporter.export(tasks, maximumDuration, concurrency,
+				new NullProgressMonitor());
+		Integer exitCode = EXIT_OK;
+		for (SoundBatchExporter.Result result : results) {
+			out.println((result.isSuccess() ? "OK     " : "FAILED ") + result.task.sourceFile.getPath() + " "
+					+ result.getDurationMillis() + " ms");
+			for (File file : result.getFiles()) {
+				out.println("       " + file.getPath());
+			}
+			for (FileType fileType : result.getUnsupportedFileTypes()) {
+				out.println("       " + fileType.getExtension() + " not supported");
+			}
+			if (!result.isSuccess()) {
+				exitCode = EXIT_FAILED;
+				out.println("       " + result.getException().getMessage());
+			}
+		}
+		out.println(results.size() + " sound files exported.");
+		return exitCode;
+	}
+
+	@Override
+	public void stop() {
+	}
+
+	/**
+	 * Parses the value of an argument as positive integer.
+	 * 
+	 * @param arg   The argument, not <code>null</code>.
+	 * @param value The value, not <code>null</code>.
+	 * @return The positive integer.
+	 * 
+	 * @throws IllegalArgumentException If the value is no positive integer.
+	 */
+	private static int parsePositiveInteger(String arg, String value) {
+		int result;
+		try {
+			result = Integer.parseInt(value);
+		} catch (NumberFormatException ex) {
+			result = 0;
+		}
+		if (result < 1) {
+			throw new IllegalArgumentException("Invalid value '" + value + "' for argument '" + arg + "'.");
+		}
+		return result;
+	}
+
+	/**
+	 * Prints the usage.
+	 * 
+	 * @param out The print stream, not <code>null</code>.
+	 */
+	private static void printUsage(PrintStream out) {
+		out.println("Arguments: " + TYPES + " <extension>,... [" + TARGET + " <directory>] [" + DURATION
+				+ " <seconds>] [" + CONCURRENCY + " <count>] <directory>...");
+	}
+}
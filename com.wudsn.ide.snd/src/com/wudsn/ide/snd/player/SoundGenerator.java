@@ -20,7 +20,8 @@
 package com.wudsn.ide.snd.player;
 
 /**
- * Callback to generate the actual sound in a parallel thread.
+ * Callback to generate the actual sound in a parallel thread. All methods are
+ * called by the sound generator thread only.
  * 
  * @author Peter Dell
  * 
@@ -34,6 +35,46 @@ public abstract class SoundGenerator {
 
 	public abstract boolean isGenerating();
 
-	public abstract void close();
+	/**
+	 * Gets the current position after the last generated buffer.
+	 * 
+	 * @return The position in the current song as number of milliseconds since the
+	 *         start.
+	 * 
+	 * @since 1.7.2
+	 */
+	public abstract int getPosition();
+
+	/**
+	 * Gets the channel volumes after the last generated buffer.
+	 * 
+	 * @return The new array of channel volumes. May be empty, not
+	 *         <code>null</code>. The minimum volume value is 0. The maximum volume
+	 *         value is 255.
+	 * 
+	 * @since 1.7.2
+	 */
+	public abstract int[] getChannelVolumes();
+
+	/**
+	 * Gets the latency of the audio output.
+	 * 
+	 * @return The duration of the generated sound which has not been played yet
+	 *         in milliseconds, a non-negative integer.
+	 * 
+	 * @since 1.7.2
+	 */
+	public abstract int getLatency();
+
+	/**
+	 * Closes the generator and its audio output.
+	 * 
+	 * @param drain <code>true</code> if the song has ended and the remaining
+	 *              sound shall be played, <code>false</code> if the song was
+	 *              stopped and the remaining sound shall be discarded.
+	 * 
+	 * @since 1.7.2
+	 */
+	public abstract void close(boolean drain);
 
 }
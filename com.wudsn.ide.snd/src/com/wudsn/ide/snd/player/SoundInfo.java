@@ -52,6 +52,17 @@ public interface SoundInfo {
 	 */
 	public String getModuleFileType();
 
+	/**
+	 * Gets the hash of the current module. It identifies the module independent
+	 * of its file name.
+	 * 
+	 * @return The SHA-256 digest of the module as hex string, empty if no module
+	 *         is loaded, not <code>null</code>.
+	 * 
+	 * @since 1.7.2
+	 */
+	public String getModuleHash();
+
 	/**
 	 * Gets the list of supported export file types.
 	 * 
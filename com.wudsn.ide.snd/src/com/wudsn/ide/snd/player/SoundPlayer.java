@@ -20,11 +20,23 @@ package com.wudsn.ide.snd.player;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.sound.sampled.AudioFormat;
 
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import com.wudsn.ide.base.common.HexUtility;
 
 /**
  * Base class for sound player wrappers.
@@ -45,6 +57,7 @@ public abstract class SoundPlayer {
 		public String title;
 		public String moduleTypeDescription;
 		public String moduleFileType;
+		public String moduleHash;
 		private List<FileType> supportedExportFileTypes;
 		public String author;
 		public String date;
@@ -65,6 +78,7 @@ public abstract class SoundPlayer {
 			title = "";
 			moduleTypeDescription = "";
 			moduleFileType = "";
+			moduleHash = "";
 			supportedExportFileTypes = Collections.emptyList();
 			author = "";
 			date = "";
@@ -94,6 +108,11 @@ public abstract class SoundPlayer {
 			return moduleFileType;
 		}
 
+		@Override
+		public String getModuleHash() {
+			return moduleHash;
+		}
+
 		public void setSupportedExportFileTypes(List<FileType> supportedExportFileTypes) {
 			if (supportedExportFileTypes == null) {
 				throw new IllegalArgumentException("Parameter 'supportedExportFileTypes' must not be null.");
@@ -222,7 +241,12 @@ public abstract class SoundPlayer {
 
 		/**
 		 * Implementation of {@link Runnable} which generated the actual sound, passes
-		 * it to the source data line and notifies the listener about the updates.
+		 * it to the audio output and notifies the listener about the updates. The
+		 * sound is generated without holding the monitor of the player, so calls
+		 * from the UI never wait for the sound generation. The position, the
+		 * channel volumes and the latency are published after every buffer. The
+		 * remaining sound is only played if the song has ended, so stopping the
+		 * song and starting the next one does not wait for the audio output.
 		 */
 		@Override
 		public void run() {
@@ -231,11 +255,16 @@ public abstract class SoundPlayer {
 				player.listenerUpdatedPosition = 0;
 			}
 
+			boolean drain = false;
 			try {
 
 				do {
+					generator.generateBuffer();
+					player.position.set(generator.getPosition());
+					player.channelVolumes.set(generator.getChannelVolumes());
+
+					int flags = SoundPlayerListener.VOLUME;
 					synchronized (player) {
-						generator.generateBuffer();
 						while (player.playing && player.paused) {
 							try {
 								player.wait(200);
@@ -243,28 +272,36 @@ public abstract class SoundPlayer {
 								throw new RuntimeException(ex);
 							}
 						}
-						if (listener != null) {
-							int flags = SoundPlayerListener.VOLUME;
-
-							if (player.getPosition()
-									- player.listenerUpdatedPosition >= SoundPlayerListener.POSITION_UPDATE_INCREMENT) {
-								player.listenerUpdatedPosition = player.getPosition();
-								flags |= SoundPlayerListener.POSITION;
-							}
-							listener.playerUpdated(flags);
-
+						int position = player.getPosition();
+						if (position - player.listenerUpdatedPosition >= SoundPlayerListener.POSITION_UPDATE_INCREMENT) {
+							player.listenerUpdatedPosition = position;
+							flags |= SoundPlayerListener.POSITION;
 						}
 					}
+					if (listener != null) {
+						listener.playerUpdated(flags);
+					}
 
 					generator.playBuffer();
+					if (player.startLatency.get() < 0) {
+						player.startLatency.set(
+								(int) TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - player.playRequestTime));
+					}
+					player.latency.set(generator.getLatency());
 				} while (generator.isGenerating() && player.isPlaying());
 
+				// The song has ended unless it was stopped.
+				drain = player.isPlaying();
 			} finally {
 				synchronized (player) {
 					player.playing = false;
+				}
 
-					generator.close();
+				generator.close(drain);
+				player.channelVolumes.set(new int[player.channelVolumes.get().length]);
+				player.latency.set(0);
 
+				synchronized (player) {
 					if (listener != null) {
 						listener.playerUpdated(SoundPlayerListener.ALL);
 					}
@@ -277,6 +314,8 @@ public abstract class SoundPlayer {
 		}
 	}
 
+	private static final String MODULE_HASH_ALGORITHM = "SHA-256";
+
 	private boolean loaded;
 	protected SoundInfoImpl info;
 
@@ -287,11 +326,21 @@ public abstract class SoundPlayer {
 	protected int listenerUpdatedPosition;
 	boolean threadActive;
 
+	// Published by the sound generator thread.
+	final AtomicInteger position;
+	final AtomicReference<int[]> channelVolumes;
+	final AtomicInteger latency;
+	final AtomicInteger startLatency;
+	volatile long playRequestTime;
+
 	/**
 	 * Creation is protected.
 	 */
 	protected SoundPlayer() {
-
+		position = new AtomicInteger();
+		channelVolumes = new AtomicReference<int[]>(new int[0]);
+		latency = new AtomicInteger();
+		startLatency = new AtomicInteger(-1);
 		clear();
 	}
 
@@ -331,6 +380,71 @@ public abstract class SoundPlayer {
 	 */
 	public abstract byte[] getExportFileContent(FileType fileType, int musicAddress) throws Exception;
 
+	/**
+	 * Renders a song of the loaded module as PCM data as fast as possible. The
+	 * rendering uses its own emulation instance, so it is independent of the
+	 * playback and multiple songs can be rendered in parallel. Implementations
+	 * must be thread safe.
+	 * 
+	 * @param song         The song number, a non-negative integer starting at
+	 *                     zero for the first song in the tune.
+	 * @param duration     The duration to be rendered in milliseconds, a positive
+	 *                     integer. Rendering ends earlier if the song ends
+	 *                     earlier.
+	 * @param outputStream The output stream for the PCM data, not
+	 *                     <code>null</code>. The output stream is not closed.
+	 * @return The format of the PCM data, 16 bit signed little endian samples, not
+	 *         <code>null</code>.
+	 * @throws CoreException If the song cannot be rendered or the PCM data cannot
+	 *                       be written.
+	 * 
+	 * @since 1.7.2
+	 */
+	public abstract AudioFormat render(int song, int duration, OutputStream outputStream) throws CoreException;
+
+	/**
+	 * Runs the emulation of a song offline as fast as possible and passes the
+	 * frames to a song length detector. Like
+	 * {@link #render(int, int, OutputStream)} the analysis uses its own emulation
+	 * instance. Implementations must be thread safe and must stop when
+	 * {@link SongLengthDetector#isDone(int)} returns <code>true</code>.
+	 * 
+	 * @param song     The song number, a non-negative integer starting at zero for
+	 *                 the first song in the tune.
+	 * @param duration The maximum duration to be analyzed in milliseconds, a
+	 *                 positive integer.
+	 * @param detector The song length detector, not <code>null</code>. The
+	 *                 analysis is ended via {@link SongLengthDetector#end(int)}
+	 *                 or {@link SongLengthDetector#endWithSilence(int)}.
+	 * @throws CoreException If the song cannot be analyzed.
+	 * 
+	 * @since 1.7.2
+	 */
+	public abstract void analyze(int song, int duration, SongLengthDetector detector) throws CoreException;
+
+	/**
+	 * Renders a song of the loaded module offline at
+	 * {@link SongOverviewBuilder#SAMPLE_RATE} and creates its overview. Like
+	 * {@link #render(int, int, OutputStream)} the rendering uses its own
+	 * emulation instance. Implementations must be thread safe. Like
+	 * {@link SongLengthDetector#isDone(int)} the progress monitor is checked
+	 * while rendering, so the rendering ends when it is canceled.
+	 * 
+	 * @param song     The song number, a non-negative integer starting at zero for
+	 *                 the first song in the tune.
+	 * @param duration The duration to be rendered in milliseconds, a positive
+	 *                 integer.
+	 * @param monitor  The progress monitor, not <code>null</code>. Only
+	 *                 {@link IProgressMonitor#isCanceled()} is called.
+	 * @return The overview, not <code>null</code>.
+	 * @throws CoreException              If the song cannot be rendered.
+	 * @throws OperationCanceledException If the monitor was canceled.
+	 * 
+	 * @since 1.7.2
+	 */
+	public abstract SongOverview createOverview(int song, int duration, IProgressMonitor monitor)
+			throws CoreException;
+
 	/**
 	 * Loads a file from an input stream.
 	 * 
@@ -352,35 +466,90 @@ public abstract class SoundPlayer {
 	}
 
 	/**
-	 * Fill a byte array from an input stream.
+	 * Computes the hash of a module for {@link SoundInfo#getModuleHash()}.
+	 * 
+	 * @param module The byte array containing the module, not <code>null</code>.
+	 * @param length The length of the module.
+	 * @return The SHA-256 digest as hex string, not empty and not
+	 *         <code>null</code>.
 	 * 
-	 * @param inputStream The input stream, not <code>null</code>.
-	 * @param module      The byte array in which the module shall be loaded. Only
-	 *                    te byte which fit into the array are loaded.
-	 * @return The actual number of bytes read.
+	 * @since 1.7.2
+	 */
+	protected static String getModuleHash(byte[] module, int length) {
+		if (module == null) {
+			throw new IllegalArgumentException("Parameter 'module' must not be null.");
+		}
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance(MODULE_HASH_ALGORITHM);
+		} catch (NoSuchAlgorithmException ex) {
+			throw new RuntimeException("Message digest algorithm " + MODULE_HASH_ALGORITHM + " not available.", ex);
+		}
+		digest.update(module, 0, length);
+		StringBuilder result = new StringBuilder();
+		for (byte b : digest.digest()) {
+			result.append(HexUtility.getByteValueHexString(b & 0xff));
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Sets the length of a song which was unknown when the module was loaded.
+	 * Called by {@link SongLengthAnalyzer} in the UI thread.
+	 * 
+	 * @param song       The song number, a non-negative integer starting at zero
+	 *                   for the first song in the tune.
+	 * @param songLength The song length, not <code>null</code>.
+	 */
+	final void setSongLength(int song, SongLength songLength) {
+		if (songLength == null) {
+			throw new IllegalArgumentException("Parameter 'songLength' must not be null.");
+		}
+		info.durations[song] = songLength.getDuration();
+		info.loops[song] = songLength.getLoopMode();
+	}
+
+	/**
+	 * Reads a module from an input stream. The module is read into a buffer from
+	 * the {@link ByteArrayPool} which grows with the module, so the returned
+	 * array has exactly the length of the module.
+	 * 
+	 * @param inputStream   The input stream, not <code>null</code>.
+	 * @param maximumLength The maximum length of the module, a positive integer.
+	 *                      Only the bytes up to the maximum length are read.
+	 * @return The module, not <code>null</code>.
 	 * @throws IOException If the reading fails.
 	 */
-	protected final int readAndClose(InputStream inputStream, byte[] module) throws IOException {
+	protected static byte[] readAndClose(InputStream inputStream, int maximumLength) throws IOException {
 		if (inputStream == null) {
 			throw new IllegalArgumentException("Parameter 'inputStream' must not be null.");
 		}
-		if (module == null) {
-			throw new IllegalArgumentException("Parameter 'module' must not be null.");
+		if (maximumLength <= 0) {
+			throw new IllegalArgumentException(
+					"Parameter 'maximumLength' must be positive. Specified value is " + maximumLength + ".");
 		}
+		byte[] buffer = ByteArrayPool.acquire(Math.min(inputStream.available() + 1, maximumLength));
 		int got = 0;
-		int need = module.length;
 		try {
-			while (need > 0) {
-				int i = inputStream.read(module, got, need);
+			while (got < maximumLength) {
+				if (got == buffer.length) {
+					byte[] newBuffer = ByteArrayPool.acquire(Math.min(buffer.length * 2, maximumLength));
+					System.arraycopy(buffer, 0, newBuffer, 0, got);
+					ByteArrayPool.release(buffer);
+					buffer = newBuffer;
+				}
+				int i = inputStream.read(buffer, got, Math.min(buffer.length, maximumLength) - got);
 				if (i <= 0)
 					break;
 				got += i;
-				need -= i;
 			}
+			byte[] result = new byte[got];
+			System.arraycopy(buffer, 0, result, 0, got);
+			return result;
 		} finally {
+			ByteArrayPool.release(buffer);
 			inputStream.close();
 		}
-		return got;
 
 	}
 
@@ -395,7 +564,7 @@ public abstract class SoundPlayer {
 
 	/**
 	 * Stops current song and starts playing the specified song again from the
-	 * start. Calls
+	 * start. Calls {@link #setPlayRequestTime()} at the start and
 	 * {@link #playInNewThread(int, SoundGenerator, SoundPlayerListener)} to start
 	 * playing at the end. Implementations must be synchronized.
 	 * 
@@ -407,6 +576,17 @@ public abstract class SoundPlayer {
 	 */
 	public abstract void play(int song, SoundPlayerListener listener) throws CoreException;
 
+	/**
+	 * Called by sub-classes at the start of the {@link #play(int, SoundPlayerListener)}
+	 * implementation to measure the start latency.
+	 * 
+	 * @since 1.7.2
+	 */
+	protected final void setPlayRequestTime() {
+		startLatency.set(-1);
+		playRequestTime = System.nanoTime();
+	}
+
 	/**
 	 * Starts a new thread in which the sound player generator is executed.
 	 * 
@@ -423,6 +603,8 @@ public abstract class SoundPlayer {
 		}
 		playingSong = song;
 		playing = true;
+		position.set(0);
+		channelVolumes.set(new int[0]);
 		this.listener = listener;
 		if (listener != null) {
 			listener.playerUpdated(SoundPlayerListener.ALL);
@@ -464,12 +646,29 @@ public abstract class SoundPlayer {
 	}
 
 	/**
-	 * Gets the current position in the current song.
+	 * Gets the current position in the current song. The position is published
+	 * by the sound generator thread, so calling this method never waits for the
+	 * sound generation.
 	 * 
 	 * @return The position in the current song as number of milliseconds since the
 	 *         start.
 	 */
-	public abstract int getPosition();
+	public final int getPosition() {
+		return position.get();
+	}
+
+	/**
+	 * Sets the current position in the current song. Called by sub-classes in the
+	 * implementation of {@link #seekPosition(int)}.
+	 * 
+	 * @param position The position in the current song as number of milliseconds
+	 *                 since the start.
+	 * 
+	 * @since 1.7.2
+	 */
+	protected final void setPosition(int position) {
+		this.position.set(position);
+	}
 
 	/**
 	 * Determines if seeking is supported.
@@ -534,11 +733,65 @@ public abstract class SoundPlayer {
 	}
 
 	/**
-	 * Gets the channel volumes.
+	 * Gets the channel volumes. The volumes are published by the sound generator
+	 * thread, so calling this method never waits for the sound generation.
 	 * 
 	 * @return The array of channel volumes. May be empty, not <code>null</code> .
 	 *         The minimum volume value is 0. The maximum volume value is 255.
 	 */
-	public abstract int[] getChannelVolumes();
+	public final int[] getChannelVolumes() {
+		return channelVolumes.get().clone();
+	}
+
+	/**
+	 * Gets the latency of the audio output. The latency is published by the sound
+	 * generator thread, so calling this method never waits for the sound
+	 * generation.
+	 * 
+	 * @return The duration of the generated sound which has not been played yet
+	 *         in milliseconds, a non-negative integer. The value is 0 if no song
+	 *         is playing.
+	 * 
+	 * @since 1.7.2
+	 */
+	public final int getLatency() {
+		return latency.get();
+	}
+
+	/**
+	 * Gets the start latency of the current or last song. This is the time from
+	 * the request to play the song until the first sound was passed to the audio
+	 * output, including the time to stop the previous song and to open the audio
+	 * line.
+	 * 
+	 * @return The start latency in milliseconds, a non-negative integer, or
+	 *         <code>-1</code> if the first sound has not been passed to the
+	 *         audio output yet.
+	 * 
+	 * @since 1.7.2
+	 */
+	public final int getStartLatency() {
+		return startLatency.get();
+	}
+
+	/**
+	 * Gets the channel volumes without creating a new array if possible.
+	 * 
+	 * @param result The array to be filled or <code>null</code>.
+	 * @return The array of channel volumes, i.e. the specified array if it has the
+	 *         correct length or a new array otherwise. May be empty, not
+	 *         <code>null</code>. The minimum volume value is 0. The maximum volume
+	 *         value is 255.
+	 * 
+	 * @since 1.7.2
+	 */
+	public final int[] getChannelVolumes(int[] result) {
+		int[] volumes = channelVolumes.get();
+		if (result == null || result.length != volumes.length) {
+			result = new int[volumes.length];
+		}
+		System.arraycopy(volumes, 0, result, 0, volumes.length);
+		return result;
+	}
 
 }
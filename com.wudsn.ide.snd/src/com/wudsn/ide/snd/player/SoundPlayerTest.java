@@ -0,0 +1,393 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.wudsn.ide.snd.player;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.wudsn.ide.base.common.Assertions;
+import com.wudsn.ide.base.common.HexUtility;
+import com.wudsn.ide.base.common.Test;
+import com.wudsn.ide.base.common.TestMethod;
+import com.wudsn.ide.snd.player.c64.SIDPlayer;
+
+/**
+ * Benchmark and regression test for the sound emulation. Renders the sound
+ * files of the reference project via
+ * {@link SoundPlayer#render(int, int, OutputStream)} into a sink which only
+ * hashes the PCM data, reports the samples per second and the allocation rate
+ * per file type and compares the PCM data with golden values. This way updates
+ * of the bundled ASAP and jsidplay2 libraries which change the output or the
+ * speed are detected.
+ * <p>
+ * The SID emulation adds random dithering and a random power on delay. Both
+ * are fixed by {@link SIDPlayer#render(int, int, OutputStream)}, so the hash is
+ * compared for SID files as well.
+ * <p>
+ * Finally the number of events which {@link SIDPlayer} executes in a sequence
+ * is varied via {@link SIDPlayer#NUMBER_OF_EVENTS_PROPERTY}. Stopping and
+ * pausing take effect only between two sequences, so the emulated time of a
+ * sequence is the response time during playback. The computation time of a
+ * sequence is the response time when rendering. The song length analysis does
+ * not clock the SID chips, so it is faster and not measured here.
+ * <p>
+ * The optional first argument is the folder of the sound files. The default is
+ * the "SND" folder of the reference project next to the working directory.
+ * 
+ * @author Peter Dell
+ * 
+ * @since 1.7.2
+ */
+public final class SoundPlayerTest {
+
+	private static final String DEFAULT_FOLDER = "../com.wudsn.ide.ref/SND";
+
+	/**
+	 * The rendered duration of the first song in milliseconds.
+	 */
+	private static final int DURATION = 10000;
+
+	private static final String DIGEST_ALGORITHM = "SHA-256";
+
+	/**
+	 * The SID file and the numbers of events used to measure the effect of
+	 * {@link SIDPlayer#NUMBER_OF_EVENTS_PROPERTY}.
+	 */
+	private static final String NUMBER_OF_EVENTS_FILE_PATH = "C64/Mono/A_Funky_Toon.sid";
+	private static final int[] NUMBERS_OF_EVENTS = { 10000, 25000, 50000, 100000, 200000, 400000 };
+
+	/**
+	 * CPU clock frequency of the PAL C64 in Hz. Each event is roughly one clock
+	 * tick.
+	 */
+	private static final double PAL_CPU_FREQUENCY = 985248;
+
+	/**
+	 * A sound file with its golden values.
+	 */
+	private static final class Fixture {
+		final String filePath;
+		final String hash;
+
+		/**
+		 * Creates a new fixture.
+		 * 
+		 * @param filePath The file path relative to the folder, not
+		 *                 <code>null</code>.
+		 * @param hash     The golden hash of the PCM data, not <code>null</code>.
+		 */
+		Fixture(String filePath, String hash) {
+			this.filePath = filePath;
+			this.hash = hash;
+		}
+	}
+
+	private static final Fixture[] FIXTURES = {
+			new Fixture("Atari8/asap/Ballblazer-PAL.sap",
+					"D86036B3120800D2E3C1CA6D7CA878833B77CA8919C02A05EF5D88EC93E96FB1"),
+			new Fixture("Atari8/asap/Delirium_Tremens.cmr",
+					"DA05BF21271FE525F238B8F95B9FD309C3C2D75957FBAB2DB301C822D8054E70"),
+			new Fixture("Atari8/asap/Euglena_Zielona.tm8",
+					"AD185C3BBEEA698B8DA211FC6001EF7A88985A75817A2C44C32D61E18324A969"),
+			new Fixture("Atari8/asap/Euglena_Zielona.tmc",
+					"AD185C3BBEEA698B8DA211FC6001EF7A88985A75817A2C44C32D61E18324A969"),
+			new Fixture("Atari8/asap/Komar.mpt",
+					"2FE1FF921B877FD92099748101B3F34A3EC12EF6A080AED15E9925481EF45C43"),
+			new Fixture("Atari8/asap/Lasermania.cmc",
+					"8298998A809EDD3AB044A2D91E18F178A99DC42990B6FD5DD5C2D0CAD199C233"),
+			new Fixture("Atari8/asap/NINJA.FC",
+					"B081CBB6879DA8F8DF60BCEE911B1F6C8ED50BC210ED35DE17766BF1F7725C09"),
+			new Fixture("Atari8/asap/Onslaught.rmt",
+					"91F1F7774B019AAF487310F32C6CB91F9355E945D78580200589BFEFD780E12B"),
+			new Fixture("Atari8/asap/Sweet_DMC_Version.dmc",
+					"AFA330E5FA448BEA3820B66ED8B47D9EC77D8EC3B61BC30FF71675804A1A1054"),
+			new Fixture("Atari8/asap/fred.tm2",
+					"4751965804D363511CABA43BB5C1A0AFBED35A24042DE07B6588FE6AB34C0980"),
+			new Fixture("Atari8/asap/kol5.cm3",
+					"3FC93378327C9ECAC565966FA6E7BCBA6D45F8B9380B8DC2384546FE95199DFB"),
+			new Fixture("Atari8/asap/title.cms",
+					"301693576540C7B98B8AFD467AEC8AA1CF12FDB15DC3145FACE6F1D779AD1439"),
+			new Fixture("Atari8/asap/wybieraj.dlt",
+					"57651E8A7E9B35B7A3845D310AD5BC8D5FFAF4081659294C82160190AF7358F7"),
+			new Fixture("C64/Mono/A_Funky_Toon.sid",
+					"03EA5BEEEA511098D5215120A8FCA93C8A2C0D9225951F115C57711EA882B42E"),
+			new Fixture("C64/Mono/Dodo.sid",
+					"48B56F577C729E5E4FE16FFE5FB149F225F1DA2E3DA95871D1D497AF1437BFA7"),
+			new Fixture("C64/Mono/Hitech.sid",
+					"330F15F13076EFED22555399DCBBFD74A6EE1C036FCB9304262ACD7E689FEF28"),
+			new Fixture("C64/Stereo/Hokuto_Stereo_2SID.sid",
+					"4B18C4E3618EB532EA19887F21E9CE5EE9E6F64A23C1F7B350CE6CBAA4776C0B")
+	};
+
+	/**
+	 * Output stream which discards the PCM data after computing its hash and its
+	 * RMS level.
+	 */
+	private static final class NullOutputStream extends OutputStream {
+		private final MessageDigest digest;
+		private int lowByte;
+		private long samples;
+		private double sumOfSquares;
+
+		NullOutputStream() {
+			try {
+				digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+			} catch (NoSuchAlgorithmException ex) {
+				throw new RuntimeException("Message digest algorithm " + DIGEST_ALGORITHM + " not available.", ex);
+			}
+			lowByte = -1;
+		}
+
+		@Override
+		public void write(int b) {
+			digest.update((byte) b);
+			if (lowByte < 0) {
+				lowByte = b & 0xff;
+			} else {
+				// Signed 16-bit little endian
+				int sample = (short) (lowByte | b << 8);
+				sumOfSquares += (double) sample * sample;
+				samples++;
+				lowByte = -1;
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			if (lowByte >= 0) {
+				write(b[off++]);
+				len--;
+			}
+			digest.update(b, off, len);
+			int end = off + (len & ~1);
+			for (int i = off; i < end; i += 2) {
+				int sample = (short) (b[i] & 0xff | b[i + 1] << 8);
+				sumOfSquares += (double) sample * sample;
+			}
+			samples += len >> 1;
+			if ((len & 1) != 0) {
+				lowByte = b[end] & 0xff;
+			}
+		}
+
+		public long getSamples() {
+			return samples;
+		}
+
+		public String getHash() {
+			StringBuilder result = new StringBuilder();
+			for (byte b : digest.digest()) {
+				result.append(HexUtility.getByteValueHexString(b & 0xff));
+			}
+			return result.toString();
+		}
+
+		public int getLevel() {
+			return samples == 0 ? 0 : (int) Math.round(Math.sqrt(sumOfSquares / samples));
+		}
+	}
+
+	/**
+	 * The result of rendering a sound file.
+	 */
+	private static final class Result {
+		long samples;
+		long nanos;
+		long allocatedBytes;
+		String hash;
+		int level;
+	}
+
+	/**
+	 * The accumulated results of a file type.
+	 */
+	private static final class Statistics {
+		int files;
+		long samples;
+		long nanos;
+		long allocatedBytes;
+	}
+
+	/**
+	 * Creation is private.
+	 */
+	private SoundPlayerTest() {
+	}
+
+	@TestMethod
+	public static void main(String[] args) {
+		File folder = new File(args.length > 0 ? args[0] : DEFAULT_FOLDER);
+		if (!folder.isDirectory()) {
+			Assertions.fail("Folder '" + folder.getAbsolutePath() + "' does not exist.");
+		}
+
+		// The first round lets the JIT compiler optimize the emulation. It must
+		// yield the same results as the second round.
+		List<String> errors = new ArrayList<String>();
+		Map<FileType, Statistics> statisticsMap = new TreeMap<FileType, Statistics>();
+		for (Fixture fixture : FIXTURES) {
+			File file = new File(folder, fixture.filePath);
+			FileType fileType = getFileType(file);
+			Result warmUpResult = render(file, fileType);
+			Result result = render(file, fileType);
+			Test.log(fixture.filePath + ": " + getSpeed(result) + ", hash " + result.hash + ", level "
+					+ result.level);
+
+			Statistics statistics = statisticsMap.get(fileType);
+			if (statistics == null) {
+				statistics = new Statistics();
+				statisticsMap.put(fileType, statistics);
+			}
+			statistics.files++;
+			statistics.samples += result.samples;
+			statistics.nanos += result.nanos;
+			statistics.allocatedBytes += result.allocatedBytes;
+
+			checkHash(errors, fixture, warmUpResult.hash, result.hash);
+			checkHash(errors, fixture, result.hash, fixture.hash);
+		}
+
+		for (Map.Entry<FileType, Statistics> entry : statisticsMap.entrySet()) {
+			Statistics statistics = entry.getValue();
+			Result result = new Result();
+			result.samples = statistics.samples;
+			result.nanos = statistics.nanos;
+			result.allocatedBytes = statistics.allocatedBytes;
+			Test.log(entry.getKey().name() + " (" + statistics.files + " files): " + getSpeed(result));
+		}
+
+		testNumbersOfEvents(new File(folder, NUMBER_OF_EVENTS_FILE_PATH));
+
+		if (!errors.isEmpty()) {
+			for (String error : errors) {
+				Test.log(error);
+			}
+			Assertions.fail(errors.size() + " regressions found.");
+		}
+	}
+
+	private static FileType getFileType(File file) {
+		String fileName = file.getName();
+		FileType fileType = FileType.getInstanceByExtension(fileName.substring(fileName.lastIndexOf('.')).toLowerCase());
+		if (fileType == null) {
+			Assertions.fail("File '" + file.getPath() + "' has no known file type.");
+		}
+		return fileType;
+	}
+
+	/**
+	 * Renders the first song of a sound file with a new sound player.
+	 * 
+	 * @param file     The sound file, not <code>null</code>.
+	 * @param fileType The file type, not <code>null</code>.
+	 * @return The result, not <code>null</code>.
+	 */
+	private static Result render(File file, FileType fileType) {
+		SoundPlayer player = SoundBatchExporter.createSoundPlayer(fileType);
+		if (player == null) {
+			Assertions.fail("File type " + fileType + " cannot be played.");
+		}
+		try (InputStream inputStream = new FileInputStream(file)) {
+			player.load(file.getName(), inputStream);
+		} catch (Exception ex) {
+			Assertions.fail(ex);
+		}
+
+		NullOutputStream outputStream = new NullOutputStream();
+		long allocatedBytes = getAllocatedBytes();
+		long startTime = System.nanoTime();
+		try {
+			player.render(0, DURATION, outputStream);
+		} catch (Exception ex) {
+			Assertions.fail(ex);
+		}
+		Result result = new Result();
+		result.nanos = System.nanoTime() - startTime;
+		result.allocatedBytes = getAllocatedBytes() - allocatedBytes;
+		result.samples = outputStream.getSamples();
+		result.hash = outputStream.getHash();
+		result.level = outputStream.getLevel();
+		return result;
+	}
+
+	/**
+	 * Gets the number of bytes allocated by the current thread so far.
+	 * 
+	 * @return The number of bytes or <code>-1</code> if the JVM does not measure
+	 *         the allocation.
+	 */
+	private static long getAllocatedBytes() {
+		ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+		if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) threadMXBean)
+					.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+	private static String getSpeed(Result result) {
+		double seconds = result.nanos / 1e9;
+		return String.format("%,.0f samples/s, %,.1f MB/s allocated, %.1f ms", result.samples / seconds,
+				result.allocatedBytes / seconds / (1024 * 1024), result.nanos / 1e6);
+	}
+
+	private static void checkHash(List<String> errors, Fixture fixture, String actualHash, String expectedHash) {
+		if (!actualHash.equals(expectedHash)) {
+			errors.add(fixture.filePath + ": Hash " + actualHash + " is not equal to expected hash " + expectedHash
+					+ ".");
+		}
+	}
+
+	/**
+	 * Renders a SID file with different numbers of events per sequence.
+	 * 
+	 * @param file The SID file, not <code>null</code>.
+	 */
+	private static void testNumbersOfEvents(File file) {
+		String oldValue = System.getProperty(SIDPlayer.NUMBER_OF_EVENTS_PROPERTY);
+		try {
+			for (int numberOfEvents : NUMBERS_OF_EVENTS) {
+				System.setProperty(SIDPlayer.NUMBER_OF_EVENTS_PROPERTY, Integer.toString(numberOfEvents));
+				Result result = render(file, FileType.SID);
+				double emulatedMillis = numberOfEvents / PAL_CPU_FREQUENCY * 1000;
+				double computationMillis = emulatedMillis * result.nanos / 1e6 / DURATION;
+				Test.log(String.format(
+						"%,d events per sequence: %s, response time %.1f ms when playing, %.1f ms when rendering",
+						numberOfEvents, getSpeed(result), emulatedMillis, computationMillis));
+			}
+		} finally {
+			if (oldValue != null) {
+				System.setProperty(SIDPlayer.NUMBER_OF_EVENTS_PROPERTY, oldValue);
+			} else {
+				System.clearProperty(SIDPlayer.NUMBER_OF_EVENTS_PROPERTY);
+			}
+		}
+	}
+}
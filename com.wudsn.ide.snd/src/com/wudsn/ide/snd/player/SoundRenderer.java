@@ -0,0 +1,404 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.wudsn.ide.snd.player;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+
+import com.wudsn.ide.base.common.NumberUtility;
+import com.wudsn.ide.base.common.ParallelExecutor;
+import com.wudsn.ide.base.common.TextUtility;
+import com.wudsn.ide.snd.SoundPlugin;
+import com.wudsn.ide.snd.Texts;
+
+/**
+ * Offline rendering of songs as WAV or raw PCM data. The songs are rendered via
+ * {@link SoundPlayer#render(int, int, OutputStream)} as fast as the CPU allows
+ * and without a source data line, so multiple songs of a module or of multiple
+ * modules can be rendered in parallel.
+ * 
+ * @author Peter Dell
+ * @since 1.7.2
+ */
+public final class SoundRenderer {
+
+	/**
+	 * The system property to override the maximum number of songs rendered in
+	 * parallel. The default is the number of available processors.
+	 */
+	public static final String CONCURRENCY_PROPERTY = "com.wudsn.ide.snd.player.SoundRenderer.concurrency"; //$NON-NLS-1$
+
+	/**
+	 * The default maximum duration in milliseconds. It is used for songs without
+	 * known duration.
+	 */
+	public static final int DEFAULT_MAXIMUM_DURATION = 3 * 60 * 1000;
+
+	/**
+	 * A song to be rendered into a file.
+	 */
+	public static final class Task {
+
+		public final SoundPlayer player;
+		public final int song;
+		public final FileType fileType;
+		public final File file;
+
+		/**
+		 * Creates a new task.
+		 * 
+		 * @param player   The sound player with the loaded module, not
+		 *                 <code>null</code>.
+		 * @param song     The song number, a non-negative integer starting at zero
+		 *                 for the first song in the tune.
+		 * @param fileType The audio file type, not <code>null</code>.
+		 * @param file     The target file, not <code>null</code>.
+		 */
+		public Task(SoundPlayer player, int song, FileType fileType, File file) {
+			if (player == null) {
+				throw new IllegalArgumentException("Parameter 'player' must not be null.");
+			}
+			if (fileType == null) {
+				throw new IllegalArgumentException("Parameter 'fileType' must not be null.");
+			}
+			if (!fileType.isAudio()) {
+				throw new IllegalArgumentException("Parameter 'fileType' must be an audio file type. Specified value is "
+						+ fileType + ".");
+			}
+			if (file == null) {
+				throw new IllegalArgumentException("Parameter 'file' must not be null.");
+			}
+			this.player = player;
+			this.song = song;
+			this.fileType = fileType;
+			this.file = file;
+		}
+	}
+
+	/**
+	 * The result of rendering a single song.
+	 */
+	public static final class Result {
+
+		public final Task task;
+		CoreException exception;
+		long durationMillis;
+
+		Result(Task task) {
+			this.task = task;
+		}
+
+		/**
+		 * Determines if the song was rendered and the file was written.
+		 * 
+		 * @return <code>true</code> if the rendering was successful.
+		 */
+		public boolean isSuccess() {
+			return exception == null;
+		}
+
+		/**
+		 * Gets the exception which occurred while rendering.
+		 * 
+		 * @return The exception or <code>null</code>.
+		 */
+		public CoreException getException() {
+			return exception;
+		}
+
+		public long getDurationMillis() {
+			return durationMillis;
+		}
+	}
+
+	/**
+	 * Creation is private.
+	 */
+	private SoundRenderer() {
+	}
+
+	/**
+	 * Gets the maximum number of songs rendered in parallel.
+	 * 
+	 * @return The concurrency, a positive integer.
+	 */
+	public static int getDefaultConcurrency() {
+		return ParallelExecutor.getDefaultConcurrency(CONCURRENCY_PROPERTY);
+	}
+
+	/**
+	 * Gets the duration to be rendered for a song. This is the duration of the
+	 * song as specified by {@link SoundInfo#getDuration(int)}, limited to the
+	 * maximum duration. If the duration of the song is not known, the maximum
+	 * duration is used.
+	 * 
+	 * @param info            The sound info, not <code>null</code>.
+	 * @param song            The song number, a non-negative integer starting at
+	 *                        zero for the first song in the tune.
+	 * @param maximumDuration The maximum duration in milliseconds, a positive
+	 *                        integer.
+	 * @return The duration in milliseconds, a positive integer.
+	 */
+	public static int getDuration(SoundInfo info, int song, int maximumDuration) {
+		if (info == null) {
+			throw new IllegalArgumentException("Parameter 'info' must not be null.");
+		}
+		if (maximumDuration <= 0) {
+			throw new IllegalArgumentException(
+					"Parameter 'maximumDuration' must be positive. Specified value is " + maximumDuration + ".");
+		}
+		int duration = info.getDuration(song);
+		if (duration <= 0) {
+			return maximumDuration;
+		}
+		return Math.min(duration, maximumDuration);
+	}
+
+	/**
+	 * Renders a song into a file. Raw PCM data is written directly to the file.
+	 * WAV files are written via a temporary file in the same folder, because the
+	 * header contains the length of the data. If the calling thread is
+	 * interrupted, rendering stops with an exception and the incomplete file is
+	 * deleted.
+	 * 
+	 * @param player          The sound player with the loaded module, not
+	 *                        <code>null</code>.
+	 * @param song            The song number, a non-negative integer starting at
+	 *                        zero for the first song in the tune.
+	 * @param fileType        The audio file type, not <code>null</code>.
+	 * @param maximumDuration The maximum duration in milliseconds, a positive
+	 *                        integer.
+	 * @param file            The target file, not <code>null</code>.
+	 * @throws CoreException If the song cannot be rendered or the file cannot be
+	 *                       written.
+	 */
+	public static void writeFile(SoundPlayer player, int song, FileType fileType, int maximumDuration, File file)
+			throws CoreException {
+		if (player == null) {
+			throw new IllegalArgumentException("Parameter 'player' must not be null.");
+		}
+		if (fileType == null) {
+			throw new IllegalArgumentException("Parameter 'fileType' must not be null.");
+		}
+		if (file == null) {
+			throw new IllegalArgumentException("Parameter 'file' must not be null.");
+		}
+		int duration = getDuration(player.getInfo(), song, maximumDuration);
+		File pcmFile = null;
+		boolean success = false;
+		try {
+			switch (fileType) {
+			case RAW:
+				try (OutputStream outputStream = new BufferedOutputStream(
+						new InterruptibleOutputStream(new FileOutputStream(file)))) {
+					player.render(song, duration, outputStream);
+				}
+				break;
+			case WAV:
+				pcmFile = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+				AudioFormat audioFormat;
+				try (OutputStream outputStream = new BufferedOutputStream(
+						new InterruptibleOutputStream(new FileOutputStream(pcmFile)))) {
+					audioFormat = player.render(song, duration, outputStream);
+				}
+				try (InputStream inputStream = new BufferedInputStream(new FileInputStream(pcmFile));
+						OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file))) {
+					writeWAV(inputStream, audioFormat, pcmFile.length(), outputStream);
+				}
+				break;
+			default:
+				throw new IllegalArgumentException(
+						"Parameter 'fileType' must be an audio file type. Specified value is " + fileType + ".");
+			}
+			success = true;
+		} catch (IOException ex) {
+			// ERROR: Cannot write audio file '{0}'. {1}
+			throw new CoreException(new Status(IStatus.ERROR, SoundPlugin.ID,
+					TextUtility.format(Texts.MESSAGE_E511, file.getAbsolutePath(), ex.getMessage()), ex));
+		} finally {
+			if (pcmFile != null) {
+				pcmFile.delete();
+			}
+			if (!success) {
+				file.delete();
+			}
+		}
+	}
+
+	/**
+	 * Output stream which fails as soon as the current thread is interrupted, so
+	 * a canceled rendering does not run until the end of the song.
+	 */
+	private static final class InterruptibleOutputStream extends FilterOutputStream {
+
+		InterruptibleOutputStream(OutputStream outputStream) {
+			super(outputStream);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (Thread.currentThread().isInterrupted()) {
+				throw new InterruptedIOException();
+			}
+			out.write(b, off, len);
+		}
+	}
+
+	/**
+	 * Writes PCM data as WAV file.
+	 * 
+	 * @param inputStream  The input stream with the PCM data, not
+	 *                     <code>null</code>.
+	 * @param audioFormat  The format of the PCM data, not <code>null</code>.
+	 * @param length       The length of the PCM data in bytes.
+	 * @param outputStream The output stream, not <code>null</code>.
+	 * @throws IOException If the data cannot be written.
+	 */
+	private static void writeWAV(InputStream inputStream, AudioFormat audioFormat, long length,
+			OutputStream outputStream) throws IOException {
+		AudioInputStream audioInputStream = new AudioInputStream(inputStream, audioFormat,
+				length / audioFormat.getFrameSize());
+		AudioSystem.write(audioInputStream, AudioFileFormat.Type.WAVE, outputStream);
+	}
+
+	/**
+	 * Creates the tasks for rendering all songs of a module. If the module
+	 * contains more than one song, the song number starting at 1 is inserted
+	 * before the extension of the target file, so "tune.wav" results in
+	 * "tune.1.wav", "tune.2.wav" and so on.
+	 * 
+	 * @param player   The sound player with the loaded module, not
+	 *                 <code>null</code>.
+	 * @param fileType The audio file type, not <code>null</code>.
+	 * @param file     The target file, not <code>null</code>.
+	 * @return The modifiable list of tasks, may be empty, not <code>null</code>.
+	 */
+	public static List<Task> createTasks(SoundPlayer player, FileType fileType, File file) {
+		if (player == null) {
+			throw new IllegalArgumentException("Parameter 'player' must not be null.");
+		}
+		if (fileType == null) {
+			throw new IllegalArgumentException("Parameter 'fileType' must not be null.");
+		}
+		if (file == null) {
+			throw new IllegalArgumentException("Parameter 'file' must not be null.");
+		}
+		int songs = player.getInfo().getSongs();
+		List<Task> result = new ArrayList<Task>(songs);
+		if (songs == 1) {
+			result.add(new Task(player, 0, fileType, file));
+			return result;
+		}
+		String fileName = file.getName();
+		String extension = fileType.getExtension();
+		if (fileName.toLowerCase().endsWith(extension)) {
+			fileName = fileName.substring(0, fileName.length() - extension.length());
+		}
+		for (int song = 0; song < songs; song++) {
+			result.add(new Task(player, song, fileType, new File(file.getParentFile(), fileName + "." + (song + 1)
+					+ extension)));
+		}
+		return result;
+	}
+
+	/**
+	 * Renders the songs in parallel. Every song is rendered by its own emulation
+	 * instance, so the tasks can share the same sound player.
+	 * 
+	 * @param tasks           The tasks, may be empty, not <code>null</code>.
+	 * @param maximumDuration The maximum duration in milliseconds, a positive
+	 *                        integer.
+	 * @param concurrency     The maximum number of songs rendered in parallel, a
+	 *                        positive integer.
+	 * @param monitor         The progress monitor, not <code>null</code>.
+	 * @return The list of results in the order of the tasks, not
+	 *         <code>null</code>.
+	 * 
+	 * @throws OperationCanceledException If the progress monitor was canceled.
+	 */
+	public static List<Result> render(List<Task> tasks, final int maximumDuration, int concurrency,
+			IProgressMonitor monitor) {
+		if (tasks == null) {
+			throw new IllegalArgumentException("Parameter 'tasks' must not be null.");
+		}
+		if (maximumDuration <= 0) {
+			throw new IllegalArgumentException(
+					"Parameter 'maximumDuration' must be positive. Specified value is " + maximumDuration + ".");
+		}
+		if (concurrency < 1) {
+			throw new IllegalArgumentException(
+					"Parameter 'concurrency' must be positive. Specified value is " + concurrency + ".");
+		}
+		if (monitor == null) {
+			throw new IllegalArgumentException("Parameter 'monitor' must not be null.");
+		}
+
+		monitor.beginTask(Texts.SOUND_RENDERER_JOB_NAME, tasks.size());
+		List<ParallelExecutor.Task<Result>> executorTasks = new ArrayList<ParallelExecutor.Task<Result>>(tasks.size());
+		for (final Task task : tasks) {
+			executorTasks.add(new ParallelExecutor.Task<Result>() {
+
+				@Override
+				public String getName() {
+					return TextUtility.format(Texts.SOUND_RENDERER_TASK_NAME, task.file.getPath());
+				}
+
+				@Override
+				public Result execute() {
+					Result result = new Result(task);
+					long startTimeMillis = System.currentTimeMillis();
+					try {
+						writeFile(task.player, task.song, task.fileType, maximumDuration, task.file);
+					} catch (CoreException ex) {
+						result.exception = ex;
+					}
+					result.durationMillis = System.currentTimeMillis() - startTimeMillis;
+					return result;
+				}
+			});
+		}
+		try {
+			return ParallelExecutor.execute(executorTasks, concurrency, SoundRenderer.class.getName(),
+					Thread.NORM_PRIORITY, monitor);
+		} finally {
+			monitor.done();
+		}
+	}
+}
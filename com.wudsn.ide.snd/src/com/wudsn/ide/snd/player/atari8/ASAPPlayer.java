@@ -20,31 +20,38 @@ package com.wudsn.ide.snd.player.atari8;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
 import javax.sound.sampled.AudioFormat;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.DataLine;
 import javax.sound.sampled.LineUnavailableException;
-import javax.sound.sampled.SourceDataLine;
 
 import net.sf.asap.ASAP;
+import net.sf.asap.ASAPConversionException;
 import net.sf.asap.ASAPInfo;
 import net.sf.asap.ASAPMusicRoutine;
+import net.sf.asap.ASAPSampleFormat;
 import net.sf.asap.ASAPWriter;
 
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
 
 import com.wudsn.ide.base.common.NumberUtility;
 import com.wudsn.ide.base.common.TextUtility;
 import com.wudsn.ide.snd.SoundPlugin;
 import com.wudsn.ide.snd.Texts;
+import com.wudsn.ide.snd.player.AudioOutput;
+import com.wudsn.ide.snd.player.ByteArrayPool;
 import com.wudsn.ide.snd.player.Clock;
 import com.wudsn.ide.snd.player.FileType;
 import com.wudsn.ide.snd.player.LoopMode;
+import com.wudsn.ide.snd.player.SongLengthDetector;
+import com.wudsn.ide.snd.player.SongOverview;
+import com.wudsn.ide.snd.player.SongOverviewBuilder;
 import com.wudsn.ide.snd.player.SoundPlayer;
 import com.wudsn.ide.snd.player.SoundPlayerListener;
 
@@ -61,11 +68,44 @@ public final class ASAPPlayer extends SoundPlayer {
 
 	private final ASAP asap;
 
+	/**
+	 * Maximum size of an export file and the initial size of the export buffer
+	 * in addition to the module length. The reserve covers the headers and
+	 * player routines of the export formats, so the buffer normally only has to
+	 * grow for large XEX files with display information.
+	 */
 	private static final int MAX_EXPORT_SIZE = 655636;
+	private static final int EXPORT_SIZE_RESERVE = 16384;
+
+	/**
+	 * Message of the {@link ASAPConversionException} thrown by
+	 * {@link ASAPWriter} if the output buffer is too small.
+	 */
+	private static final String OUTPUT_FULL_MESSAGE = "Output full";
+
+	/**
+	 * Size of the generated chunks in bytes. The sizes of the source data line
+	 * buffer and the ring buffer are defined by the {@link AudioOutput}.
+	 */
+	private static final int CHUNK_SIZE = 2048;
+
+	/**
+	 * Size of the chunks generated while rendering in bytes.
+	 */
+	private static final int RENDER_CHUNK_SIZE = 65536;
+
+	/**
+	 * Number of frames generated per chunk while creating an overview. The
+	 * channel volumes are sampled after every chunk, i.e. about 40 times per
+	 * second.
+	 */
+	private static final int OVERVIEW_CHUNK_FRAMES = 256;
 
 	// Module binary is not in the base class because other players only work on
 	// the input stream and do not expose it at all. Is it also not purely local
-	// to load() because it is also used during export.
+	// to load() because it is also used during export and rendering. The array
+	// is replaced but never modified after loading.
+	private String fileName;
 	private byte[] module;
 	private int moduleLen;
 
@@ -74,6 +114,7 @@ public final class ASAPPlayer extends SoundPlayer {
 	 */
 	public ASAPPlayer() {
 		asap = new ASAP();
+		fileName = "";
 		module = null;
 		moduleLen = 0;
 	}
@@ -99,8 +140,8 @@ public final class ASAPPlayer extends SoundPlayer {
 
 		// Read binary from the input stream.
 		try {
-			module = new byte[ASAPInfo.MAX_MODULE_LENGTH];
-			moduleLen = readAndClose(inputStream, module);
+			module = readAndClose(inputStream, ASAPInfo.MAX_MODULE_LENGTH);
+			moduleLen = module.length;
 
 		} catch (IOException ex) {
 			// ERROR: Cannot read sound file {0}. {1}
@@ -165,6 +206,8 @@ public final class ASAPPlayer extends SoundPlayer {
 			supportedExportFileTypes.add(fileType);
 
 		}
+		supportedExportFileTypes.add(FileType.RAW);
+		supportedExportFileTypes.add(FileType.WAV);
 		info.setSupportedExportFileTypes(supportedExportFileTypes);
 		info.channels = asapInfo.getChannels();
 		info.songs = asapInfo.getSongs();
@@ -172,8 +215,15 @@ public final class ASAPPlayer extends SoundPlayer {
 		info.durations = new int[info.songs];
 		info.loops = new LoopMode[info.songs];
 		for (int i = 0; i < info.songs; i++) {
-			info.durations[i] = asapInfo.getDuration(i);
-			info.loops[i] = asapInfo.getLoop(i) ? LoopMode.YES : LoopMode.NO;
+			// ASAP indicates an unknown duration by a negative value.
+			int duration = asapInfo.getDuration(i);
+			if (duration > 0) {
+				info.durations[i] = duration;
+				info.loops[i] = asapInfo.getLoop(i) ? LoopMode.YES : LoopMode.NO;
+			} else {
+				info.durations[i] = 0;
+				info.loops[i] = LoopMode.UNKNOWN;
+			}
 		}
 		info.playerClock = asapInfo.isNtsc() ? Clock.NTSC : Clock.PAL;
 		int scanlines = asapInfo.getPlayerRateScanlines();
@@ -190,6 +240,8 @@ public final class ASAPPlayer extends SoundPlayer {
 			info.musicAddress = -1;
 		}
 
+		info.moduleHash = getModuleHash(module, moduleLen);
+		this.fileName = fileName;
 		setLoaded(true);
 
 	}
@@ -203,38 +255,224 @@ public final class ASAPPlayer extends SoundPlayer {
 			throw new IllegalStateException("No module loaded");
 		}
 
+		String fileName;
+		byte[] module;
+		int moduleLen;
+		synchronized (this) {
+			fileName = this.fileName;
+			module = this.module;
+			moduleLen = this.moduleLen;
+		}
+
 		// The file name must have a least one character before the dot.
 		String asapFile = "DUMMY" + fileType.getExtension().toUpperCase();
-		ASAPInfo asapInfo = asap.getInfo();
-		byte[] output = new byte[MAX_EXPORT_SIZE];
-		ASAPWriter asapWriter = new ASAPWriter();
-		int outputOffset = 0;
-		asapWriter.setOutput(output, outputOffset, output.length);
-		// Change the music address in case it is changeable.
-		if (fileType.isMusicAddressChangeable()) {
-			asapInfo.setMusicAddress(musicAddress);
+
+		// The export buffer starts with the module length plus a reserve and is
+		// doubled until the export fits.
+		int outputSize = moduleLen + EXPORT_SIZE_RESERVE;
+		while (true) {
+			// Every export uses its own info, so changing the music address does
+			// not affect the player and exports can run in parallel.
+			ASAPInfo asapInfo = new ASAPInfo();
+			asapInfo.load(fileName, module, moduleLen);
+			// Change the music address in case it is changeable and specified.
+			if (fileType.isMusicAddressChangeable() && musicAddress >= 0) {
+				asapInfo.setMusicAddress(musicAddress);
+			}
+			byte[] output = ByteArrayPool.acquire(Math.min(outputSize, MAX_EXPORT_SIZE));
+			try {
+				ASAPWriter asapWriter = new ASAPWriter();
+				asapWriter.setOutput(output, 0, output.length);
+				/**
+				 * Writes the given module in a possibly different file format.
+				 * 
+				 * @param targetFilename Output filename, used to determine the format.
+				 * @param info           File information got from the source file with
+				 *                       data updated for the output file.
+				 * @param module         Contents of the source file.
+				 * @param moduleLen      Length of the source file.
+				 * @param tag            Display information (xex output only).
+				 */
+				int outputOffset = asapWriter.write(asapFile, asapInfo, module, moduleLen, false);
+
+				byte[] result = new byte[outputOffset];
+				System.arraycopy(output, 0, result, 0, outputOffset);
+				return result;
+			} catch (ASAPConversionException ex) {
+				if (!OUTPUT_FULL_MESSAGE.equals(ex.getMessage()) || output.length >= MAX_EXPORT_SIZE) {
+					throw ex;
+				}
+				outputSize = output.length * 2;
+			} finally {
+				ByteArrayPool.release(output);
+			}
 		}
-		/**
-		 * Writes the given module in a possibly different file format.
-		 * 
-		 * @param targetFilename Output filename, used to determine the format.
-		 * @param info           File information got from the source file with data
-		 *                       updated for the output file.
-		 * @param module         Contents of the source file.
-		 * @param moduleLen      Length of the source file.
-		 * @param tag            Display information (xex output only).
-		 */
-
-		outputOffset = asapWriter.write(asapFile, asapInfo, module, moduleLen, false);
-
-		byte[] result = new byte[outputOffset];
-		System.arraycopy(output, 0, result, 0, outputOffset);
-		return result;
+	}
+
+	@Override
+	public AudioFormat render(int song, int duration, OutputStream outputStream) throws CoreException {
+		if (duration <= 0) {
+			throw new IllegalArgumentException(
+					"Parameter 'duration' must be positive. Specified value is " + duration + ".");
+		}
+		if (outputStream == null) {
+			throw new IllegalArgumentException("Parameter 'outputStream' must not be null.");
+		}
+		String fileName;
+		byte[] module;
+		int moduleLen;
+		synchronized (this) {
+			if (!isLoaded()) {
+				throw new IllegalStateException("No module loaded");
+			}
+			fileName = this.fileName;
+			module = this.module;
+			moduleLen = this.moduleLen;
+		}
+
+		// Use a separate instance, so the playback is not affected.
+		ASAP renderASAP = new ASAP();
+		try {
+			renderASAP.load(fileName, module, moduleLen);
+			renderASAP.playSong(song, duration);
+		} catch (Exception ex) {
+			// ERROR: Cannot render song number {0}. {1}
+			IStatus status = new Status(IStatus.ERROR, SoundPlugin.ID, TextUtility.format(Texts.MESSAGE_E510,
+					NumberUtility.getLongValueDecimalString(song), ex.getMessage()));
+			throw new CoreException(status);
+		}
+
+		byte[] buffer = new byte[RENDER_CHUNK_SIZE];
+		int len;
+		try {
+			do {
+				len = renderASAP.generate(buffer, buffer.length, ASAPSampleFormat.S16_L_E);
+				outputStream.write(buffer, 0, len);
+			} while (len == buffer.length);
+		} catch (IOException ex) {
+			// ERROR: Cannot render song number {0}. {1}
+			IStatus status = new Status(IStatus.ERROR, SoundPlugin.ID, TextUtility.format(Texts.MESSAGE_E510,
+					NumberUtility.getLongValueDecimalString(song), ex.getMessage()));
+			throw new CoreException(status);
+		}
+		return new AudioFormat(ASAP.SAMPLE_RATE, 16, renderASAP.getInfo().getChannels(), true, false);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * ASAP does not expose the POKEY register writes, and the PCM data does not
+	 * repeat exactly when a song loops because the length of the loop in cycles
+	 * is no multiple of the sample period. Therefore only the end of a song is
+	 * detected, using the silence detection of ASAP.
+	 */
+	@Override
+	public void analyze(int song, int duration, SongLengthDetector detector) throws CoreException {
+		if (duration <= 0) {
+			throw new IllegalArgumentException(
+					"Parameter 'duration' must be positive. Specified value is " + duration + ".");
+		}
+		if (detector == null) {
+			throw new IllegalArgumentException("Parameter 'detector' must not be null.");
+		}
+		String fileName;
+		byte[] module;
+		int moduleLen;
+		synchronized (this) {
+			if (!isLoaded()) {
+				throw new IllegalStateException("No module loaded");
+			}
+			fileName = this.fileName;
+			module = this.module;
+			moduleLen = this.moduleLen;
+		}
+
+		// Use a separate instance, so the playback is not affected.
+		ASAP analyzeASAP = new ASAP();
+		try {
+			analyzeASAP.load(fileName, module, moduleLen);
+			analyzeASAP.detectSilence(SongLengthDetector.SILENCE_DURATION / 1000);
+			analyzeASAP.playSong(song, -1);
+		} catch (Exception ex) {
+			// ERROR: Cannot analyze song number {0}. {1}
+			IStatus status = new Status(IStatus.ERROR, SoundPlugin.ID, TextUtility.format(Texts.MESSAGE_E512,
+					NumberUtility.getLongValueDecimalString(song), ex.getMessage()));
+			throw new CoreException(status);
+		}
+
+		// Without a duration, the generation only ends when silence is
+		// detected.
+		byte[] buffer = new byte[RENDER_CHUNK_SIZE];
+		int position;
+		int len;
+		do {
+			len = analyzeASAP.generate(buffer, buffer.length, ASAPSampleFormat.S16_L_E);
+			position = analyzeASAP.getPosition();
+		} while (len == buffer.length && position < duration && !detector.isDone(position));
+		if (len < buffer.length) {
+			detector.endWithSilence(Math.max(0, position - SongLengthDetector.SILENCE_DURATION));
+		} else {
+			detector.end(position);
+		}
+	}
+
+	@Override
+	public SongOverview createOverview(int song, int duration, IProgressMonitor monitor) throws CoreException {
+		if (duration <= 0) {
+			throw new IllegalArgumentException(
+					"Parameter 'duration' must be positive. Specified value is " + duration + ".");
+		}
+		if (monitor == null) {
+			throw new IllegalArgumentException("Parameter 'monitor' must not be null.");
+		}
+		String fileName;
+		byte[] module;
+		int moduleLen;
+		synchronized (this) {
+			if (!isLoaded()) {
+				throw new IllegalStateException("No module loaded");
+			}
+			fileName = this.fileName;
+			module = this.module;
+			moduleLen = this.moduleLen;
+		}
+
+		// Use a separate instance, so the playback is not affected.
+		ASAP overviewASAP = new ASAP();
+		try {
+			overviewASAP.setSampleRate(SongOverviewBuilder.SAMPLE_RATE);
+			overviewASAP.load(fileName, module, moduleLen);
+			overviewASAP.playSong(song, duration);
+		} catch (Exception ex) {
+			// ERROR: Cannot create overview of song number {0}. {1}
+			IStatus status = new Status(IStatus.ERROR, SoundPlugin.ID, TextUtility.format(Texts.MESSAGE_E513,
+					NumberUtility.getLongValueDecimalString(song + 1), ex.getMessage()));
+			throw new CoreException(status);
+		}
+
+		int audioChannels = overviewASAP.getInfo().getChannels();
+		int[] volumes = new int[audioChannels * 4];
+		SongOverviewBuilder builder = new SongOverviewBuilder(duration, audioChannels, volumes.length);
+		byte[] buffer = new byte[OVERVIEW_CHUNK_FRAMES * 2 * audioChannels];
+		int len;
+		do {
+			len = overviewASAP.generate(buffer, buffer.length, ASAPSampleFormat.S16_L_E);
+			builder.addSamples(buffer, 0, len);
+			for (int i = 0; i < volumes.length; i++) {
+				volumes[i] = overviewASAP.getPokeyChannelVolume(i) * 16;
+			}
+			builder.addChannelVolumes(volumes);
+			if (monitor.isCanceled()) {
+				throw new OperationCanceledException();
+			}
+		} while (len == buffer.length && !builder.isDone());
+		return builder.getOverview();
 	}
 
 	@Override
 	public synchronized void play(int song, SoundPlayerListener listener) throws CoreException {
 
+		setPlayRequestTime();
 		stop();
 
 		ASAPInfo info;
@@ -249,26 +487,19 @@ public final class ASAPPlayer extends SoundPlayer {
 		}
 
 		AudioFormat format = new AudioFormat(ASAP.SAMPLE_RATE, 16, info.getChannels(), true, false);
-		SourceDataLine line;
-		int bufferSize = 8192;
+		AudioOutput output;
 		try {
-			line = (SourceDataLine) AudioSystem.getLine(new DataLine.Info(SourceDataLine.class, format));
-			line.open(format, bufferSize);
+			output = new AudioOutput(format, getClass().getName() + ":" + getInfo().getTitle());
 		} catch (LineUnavailableException ex) {
 			// ERROR: No free audio line available to play song {0}. {1}
 			IStatus status = new Status(IStatus.ERROR, SoundPlugin.ID, TextUtility.format(Texts.MESSAGE_E504,
 					NumberUtility.getLongValueDecimalString(song), ex.getMessage()));
 			throw new CoreException(status);
 		}
-		playInNewThread(song, new ASAPSoundGenerator(asap, line), listener);
+		playInNewThread(song, new ASAPSoundGenerator(asap, output, CHUNK_SIZE), listener);
 
 	}
 
-	@Override
-	public synchronized int getPosition() {
-		return asap.getPosition();
-	}
-
 	@Override
 	public boolean isSeekSupported() {
 		return true;
@@ -278,7 +509,12 @@ public final class ASAPPlayer extends SoundPlayer {
 	public synchronized void seekPosition(int position) {
 		try {
 
-			asap.seek(position);
+			// The sound generator thread uses the instance as lock while
+			// generating.
+			synchronized (asap) {
+				asap.seek(position);
+			}
+			setPosition(position);
 			if (listener != null) {
 				listenerUpdatedPosition = position;
 				listener.playerUpdated(SoundPlayerListener.POSITION);
@@ -287,18 +523,4 @@ public final class ASAPPlayer extends SoundPlayer {
 			throw new RuntimeException("Cannot seeek to position " + position, ex);
 		}
 	}
-
-	@Override
-	public synchronized int[] getChannelVolumes() {
-		int[] result;
-
-		int channels = asap.getInfo().getChannels() * 4;
-		result = new int[channels];
-		if (isPlaying()) {
-			for (int i = 0; i < channels; i++) {
-				result[i] = asap.getPokeyChannelVolume(i) * 16;
-			}
-		}
-		return result;
-	}
 }
@@ -18,58 +18,84 @@
  */
 package com.wudsn.ide.snd.player.atari8;
 
-import javax.sound.sampled.SourceDataLine;
-
 import net.sf.asap.ASAP;
 import net.sf.asap.ASAPSampleFormat;
 
+import com.wudsn.ide.snd.player.AudioOutput;
 import com.wudsn.ide.snd.player.SoundGenerator;
 
 /**
- * Sound generator for {@link ASAPPlayer}.
+ * Sound generator for {@link ASAPPlayer}. The ASAP instance is used as lock
+ * while generating, so {@link ASAPPlayer#seekPosition(int)} can change the
+ * position from a different thread.
  * 
  * @author Peter Dell
  * @since 1.6.1
  */
 final class ASAPSoundGenerator extends SoundGenerator {
 	private final ASAP asap;
-	private final SourceDataLine line;
+	private final AudioOutput output;
 	private final byte[] buffer;
+	private final int channels;
 	private int len;
+	private boolean written;
 
-	public ASAPSoundGenerator(ASAP asap, SourceDataLine line) {
+	public ASAPSoundGenerator(ASAP asap, AudioOutput output, int bufferSize) {
 		if (asap == null) {
 			throw new IllegalArgumentException("Parameter 'asap' must not be null.");
 		}
-		if (line == null) {
-			throw new IllegalArgumentException("Parameter 'line' must not be null.");
+		if (output == null) {
+			throw new IllegalArgumentException("Parameter 'output' must not be null.");
 		}
 		this.asap = asap;
-		this.line = line;
-		buffer = new byte[line.getBufferSize()];
-
-		line.start();
-
+		this.output = output;
+		buffer = new byte[bufferSize];
+		channels = asap.getInfo().getChannels() * 4;
+		written = true;
 	}
 
 	@Override
 	public void generateBuffer() {
-		len = asap.generate(buffer, buffer.length, ASAPSampleFormat.S16_L_E);
+		synchronized (asap) {
+			len = asap.generate(buffer, buffer.length, ASAPSampleFormat.S16_L_E);
+		}
 	}
 
 	@Override
 	public void playBuffer() {
-		line.write(buffer, 0, len);
+		written = output.write(buffer, 0, len);
 	}
 
 	@Override
 	public boolean isGenerating() {
-		return len == buffer.length;
+		return len == buffer.length && written;
+	}
+
+	@Override
+	public int getPosition() {
+		synchronized (asap) {
+			return asap.getPosition();
+		}
+	}
+
+	@Override
+	public int[] getChannelVolumes() {
+		int[] result = new int[channels];
+		synchronized (asap) {
+			for (int i = 0; i < channels; i++) {
+				result[i] = asap.getPokeyChannelVolume(i) * 16;
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public int getLatency() {
+		return output.getLatency();
 	}
 
 	@Override
-	public void close() {
-		line.drain();
-		line.close();
+	public void close(boolean drain) {
+		output.close(drain);
 	}
 }
\ No newline at end of file
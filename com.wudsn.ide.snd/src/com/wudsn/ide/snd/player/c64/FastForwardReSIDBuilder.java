@@ -0,0 +1,259 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.wudsn.ide.snd.player.c64;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import libsidplay.common.EventScheduler;
+import libsidplay.common.SIDEmu;
+import resid_builder.ReSID;
+import resid_builder.ReSIDBuilder;
+import resid_builder.resid.ISIDDefs.ChipModel;
+import sidplay.audio.AudioConfig;
+
+/**
+ * Builder for the SID emulation of {@link SIDPlayer} which supports fast
+ * forwarding. While fast forwarding, the register writes of the C64 are still
+ * applied to the SID chips, but the SID chips are not clocked and no samples
+ * are passed to the audio driver. This way the C64 emulation runs as fast as
+ * possible. The register writes can also be observed by a
+ * {@link RegisterWriteListener}.
+ * 
+ * Because the SID chips are not clocked, the state of their oscillators,
+ * envelopes and filters does not advance while fast forwarding. Tunes which
+ * read the oscillator or envelope of voice 3 (OSC3 at $D41B or ENV3 at $D41C)
+ * read frozen values, so for example random numbers or modulation based on
+ * these registers differ from normal playback.
+ * 
+ * The mixer of JSIDPlay2 adds a dithering based on an unseeded random number
+ * generator. The seed can be fixed with {@link #setDitheringSeed(long)}, so
+ * the same emulation always creates the same samples.
+ * 
+ * @author Peter Dell
+ * @since 1.7.2
+ */
+final class FastForwardReSIDBuilder extends ReSIDBuilder {
+
+	/**
+	 * Listener for the register writes to the SID chips.
+	 */
+	static interface RegisterWriteListener {
+
+		/**
+		 * Called after a register of a SID chip was written.
+		 * 
+		 * @param chip    The index of the SID chip, a non-negative integer.
+		 * @param address The register address, 0 to 31.
+		 * @param value   The value, 0 to 255.
+		 */
+		public void registerWritten(int chip, int address, int value);
+	}
+
+	/**
+	 * SID chip which skips the clock cycles while fast forwarding.
+	 */
+	private final class FastForwardReSID extends ReSID {
+
+		private final int chip;
+
+		public FastForwardReSID(EventScheduler context, MixerEvent mixerEvent, int chip) {
+			super(context, mixerEvent);
+			this.chip = chip;
+		}
+
+		@Override
+		public void write(int addr, byte data) {
+			super.write(addr, data);
+			if (registerWriteListener != null) {
+				registerWriteListener.registerWritten(chip, addr & 0x1f, data & 0xff);
+			}
+		}
+
+		@Override
+		public void clock() {
+			if (fastForward) {
+				clocksSinceLastAccess();
+			} else {
+				super.clock();
+			}
+		}
+	}
+
+	/**
+	 * Mixer which makes the volume of the SID chips accessible to the builder.
+	 * If a dithering seed is set, the mixing of the super class is replaced by
+	 * the same mixing with a seeded random number generator.
+	 */
+	private final class FastForwardMixerEvent extends MixerEvent {
+
+		// Mixer interval in clock cycles, the same as in the super class.
+		private static final int MIXER_EVENT_RATE = 10000;
+
+		private final int[] volume;
+		private EventScheduler context;
+		private Random random;
+		private int oldRandomValue;
+
+		public FastForwardMixerEvent() {
+			volume = new int[] { 1024, 1024 };
+		}
+
+		void setChipVolume(int chip, float volume) {
+			setVolume(chip, volume);
+			this.volume[chip] = (int) (volume * 1024);
+		}
+
+		void setDitheringSeed(long seed) {
+			random = new Random(seed);
+			oldRandomValue = 0;
+		}
+
+		@Override
+		public void setContext(EventScheduler context) {
+			super.setContext(context);
+			this.context = context;
+		}
+
+		@Override
+		public void event() throws InterruptedException {
+			if (random == null) {
+				super.event();
+				return;
+			}
+			ReSID sid1 = sids.get(0);
+			ReSID sid2 = sids.size() >= 2 ? sids.get(1) : null;
+			sid1.clock();
+			int[] buffer1 = sid1.getBuffer();
+			int[] buffer2 = null;
+			if (sid2 != null) {
+				sid2.clock();
+				buffer2 = sid2.getBuffer();
+			}
+			int samples = sid1.getPosition();
+			ByteBuffer buffer = output.buffer();
+			for (int i = 0; i < samples; i++) {
+				int dithering = triangularDithering();
+				buffer.putShort(clip((buffer1[i] * volume[0] + dithering) >> 10));
+				if (buffer2 != null) {
+					buffer.putShort(clip((buffer2[i] * volume[1] + dithering) >> 10));
+				}
+				if (buffer.remaining() == 0) {
+					output.write();
+					buffer.clear();
+				}
+			}
+			sid1.setPosition(0);
+			if (sid2 != null) {
+				sid2.setPosition(0);
+			}
+			context.schedule(this, MIXER_EVENT_RATE);
+		}
+
+		private int triangularDithering() {
+			int previousRandomValue = oldRandomValue;
+			oldRandomValue = random.nextInt() & 0x3ff;
+			return oldRandomValue - previousRandomValue;
+		}
+
+		private short clip(int value) {
+			if (value > Short.MAX_VALUE) {
+				return Short.MAX_VALUE;
+			}
+			if (value < Short.MIN_VALUE) {
+				return Short.MIN_VALUE;
+			}
+			return (short) value;
+		}
+	}
+
+	private final AudioConfig audioConfig;
+	private final double systemFrequency;
+	private final FastForwardMixerEvent mixerEvent;
+	private boolean fastForward;
+	private RegisterWriteListener registerWriteListener;
+
+	/**
+	 * Creates a new builder.
+	 * 
+	 * @param audioConfig     The audio configuration, not <code>null</code>.
+	 * @param systemFrequency The C64 system frequency.
+	 */
+	public FastForwardReSIDBuilder(AudioConfig audioConfig, double systemFrequency) {
+		super(audioConfig, systemFrequency);
+		if (audioConfig == null) {
+			throw new IllegalArgumentException("Parameter 'audioConfig' must not be null.");
+		}
+		this.audioConfig = audioConfig;
+		this.systemFrequency = systemFrequency;
+		mixerEvent = new FastForwardMixerEvent();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * The SID chips of this builder use their own mixer, so the volume is set
+	 * there instead of in the mixer of the super class.
+	 */
+	@Override
+	public void setSIDVolume(int chip, float volume) {
+		mixerEvent.setChipVolume(chip, volume);
+	}
+
+	@Override
+	public SIDEmu lock(EventScheduler env, ChipModel model) {
+		ReSID sid = new FastForwardReSID(env, mixerEvent, sids.size());
+		sid.model(model);
+		sid.sampling(systemFrequency, audioConfig.getFrameRate(), audioConfig.getSamplingMethod());
+		sids.add(sid);
+		return sid;
+	}
+
+	/**
+	 * Sets the fast forward mode. Must only be called by the thread which runs
+	 * the emulation.
+	 * 
+	 * @param fastForward <code>true</code> to fast forward, <code>false</code>
+	 *                    to play normally.
+	 */
+	public void setFastForward(boolean fastForward) {
+		this.fastForward = fastForward;
+	}
+
+	/**
+	 * Sets the seed of the dithering which the mixer adds to the samples, so the
+	 * same emulation always creates the same samples. Must be called before the
+	 * emulation runs.
+	 * 
+	 * @param seed The seed of the random number generator.
+	 */
+	public void setDitheringSeed(long seed) {
+		mixerEvent.setDitheringSeed(seed);
+	}
+
+	/**
+	 * Sets the listener for the register writes. Must only be called by the
+	 * thread which runs the emulation.
+	 * 
+	 * @param registerWriteListener The listener or <code>null</code>.
+	 */
+	public void setRegisterWriteListener(RegisterWriteListener registerWriteListener) {
+		this.registerWriteListener = registerWriteListener;
+	}
+}
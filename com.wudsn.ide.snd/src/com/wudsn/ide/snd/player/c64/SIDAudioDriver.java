@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.wudsn.ide.snd.player.c64;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+
+import sidplay.audio.AudioConfig;
+import sidplay.audio.AudioDriver;
+
+import com.wudsn.ide.snd.player.AudioOutput;
+
+/**
+ * Audio driver for {@link SIDPlayer} which passes the samples produced by the
+ * emulation to an {@link AudioOutput} instead of writing them to the source
+ * data line in the emulation thread like {@link sidplay.audio.JavaSound}.
+ * 
+ * @author Peter Dell
+ * @since 1.7.2
+ */
+final class SIDAudioDriver extends AudioDriver {
+
+	private final int channels;
+	private final String name;
+	private ByteBuffer sampleBuffer;
+	private AudioOutput output;
+
+	/**
+	 * Creates a new driver.
+	 * 
+	 * @param channels The number of channels, 1 or 2.
+	 * @param name     The name of the playback thread, not <code>null</code>.
+	 */
+	SIDAudioDriver(int channels, String name) {
+		if (name == null) {
+			throw new IllegalArgumentException("Parameter 'name' must not be null.");
+		}
+		this.channels = channels;
+		this.name = name;
+	}
+
+	@Override
+	public void open(AudioConfig cfg) throws LineUnavailableException {
+		if (cfg == null) {
+			throw new IllegalArgumentException("Parameter 'cfg' must not be null.");
+		}
+		AudioFormat audioFormat = new AudioFormat(cfg.getFrameRate(), 16, channels, true, false);
+		int chunkSize = cfg.getChunkFrames() * 2 * channels;
+		sampleBuffer = ByteBuffer.allocate(chunkSize);
+		sampleBuffer.order(ByteOrder.LITTLE_ENDIAN);
+		output = new AudioOutput(audioFormat, name);
+	}
+
+	@Override
+	public void write() throws InterruptedException {
+		if (!output.write(sampleBuffer.array(), 0, sampleBuffer.capacity())) {
+			throw new InterruptedException();
+		}
+	}
+
+	@Override
+	public void pause() {
+		// The playback thread outputs silence when there is no more data.
+	}
+
+	@Override
+	public void close() {
+		close(true);
+	}
+
+	/**
+	 * Closes the audio output.
+	 * 
+	 * @param drain <code>true</code> to play the remaining samples first,
+	 *              <code>false</code> to discard them.
+	 */
+	public void close(boolean drain) {
+		if (output != null) {
+			output.close(drain);
+			output = null;
+		}
+	}
+
+	/**
+	 * Gets the latency of the audio output.
+	 * 
+	 * @return The latency in milliseconds, a non-negative integer.
+	 */
+	public int getLatency() {
+		return output != null ? output.getLatency() : 0;
+	}
+
+	@Override
+	public ByteBuffer buffer() {
+		return sampleBuffer;
+	}
+}
@@ -19,43 +19,53 @@
 
 package com.wudsn.ide.snd.player.c64;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.LineUnavailableException;
 
 import libsidplay.Player;
+import libsidplay.common.Event;
+import libsidplay.common.Event.Phase;
+import libsidplay.common.EventScheduler;
 import libsidplay.common.ISID2Types.Clock;
 import libsidplay.common.SIDEmu;
 import libsidplay.components.mos656x.Palette;
 import libsidplay.sidtune.SidTune;
 import libsidplay.sidtune.SidTuneError;
 import libsidplay.sidtune.SidTuneInfo;
-import libsidutils.SidDatabase;
 
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
 
 import resid_builder.ReSID;
-import resid_builder.ReSIDBuilder;
 import resid_builder.resid.ISIDDefs.ChipModel;
 import resid_builder.resid.SID;
 import resid_builder.resid.Voice;
 import sidplay.audio.AudioConfig;
 import sidplay.audio.AudioDriver;
-import sidplay.audio.JavaSound;
 import sidplay.ini.IniConfig;
 import sidplay.ini.IniFilterSection;
 
 import com.wudsn.ide.base.common.NumberUtility;
+import com.wudsn.ide.base.common.StringUtility;
 import com.wudsn.ide.base.common.TextUtility;
 import com.wudsn.ide.snd.SoundPlugin;
 import com.wudsn.ide.snd.Texts;
+import com.wudsn.ide.snd.player.ByteArrayPool;
 import com.wudsn.ide.snd.player.FileType;
 import com.wudsn.ide.snd.player.LoopMode;
+import com.wudsn.ide.snd.player.SongLengthDetector;
+import com.wudsn.ide.snd.player.SongOverview;
+import com.wudsn.ide.snd.player.SongOverviewBuilder;
 import com.wudsn.ide.snd.player.SoundGenerator;
 import com.wudsn.ide.snd.player.SoundPlayer;
 import com.wudsn.ide.snd.player.SoundPlayerListener;
@@ -91,13 +101,18 @@ import com.wudsn.ide.snd.player.SoundPlayerListener;
  * SID tunes themselves do not contain any information on duration or looping of
  * a song. The duration is available separately via the This is the
  * "C64Music/DOCUMENTS/SongLength.txt" file contained in the complete download
- * of the "http://www.hvsc.c64.org/index.html". The ability to load the file
- * content directly from a resource input stream has been fixed in the local
- * copy of {@link SidDatabase}.
+ * of the "http://www.hvsc.c64.org/index.html". The bundled copy of the file
+ * is accessed via the binary {@link SongLengthIndex}. For other tunes the
+ * duration is detected by {@link #analyze(int, int, SongLengthDetector)} from
+ * the register writes to the SID chips.
  * </p>
  * <p>
  * Seeking:<br/>
- * Seeking a song position by time is currently not support in JSIDPLAY.
+ * Seeking a song position by time is not supported. JSIDPLAY cannot take
+ * snapshots of the emulation state, so seeking would have to replay the song
+ * from the start. This takes seconds for longer songs, even without clocking
+ * the SID chips as {@link FastForwardReSIDBuilder} does, and the state of the
+ * SID chips would differ from normal playback.
  * </p>
  * 
  * @author Peter Dell
@@ -121,12 +136,41 @@ public final class SIDPlayer extends SoundPlayer {
 	 * <li>It must be high enough to filled the sound buffer according to the audio
 	 * frequency (41000 Hz). Otherwise stuttering is audible.</li>
 	 * </ul>
+	 * The value can be overridden with {@link #NUMBER_OF_EVENTS_PROPERTY}.
+	 * {@link com.wudsn.ide.snd.player.SoundPlayerTest} measures the effect of
+	 * different values.
 	 */
 	private static final int MAGIC_NUMBER_OF_EVENTS = 10000 * 10;
 
-	private static final String HVSC_SONG_LENGTHS = "hvsc/SongLengths.txt";
+	/**
+	 * The system property to override {@link #MAGIC_NUMBER_OF_EVENTS}. The value
+	 * is read when the player is created.
+	 * 
+	 * @since 1.7.2
+	 */
+	public static final String NUMBER_OF_EVENTS_PROPERTY = "com.wudsn.ide.snd.player.c64.SIDPlayer.numberOfEvents"; //$NON-NLS-1$
+
+	/**
+	 * Maximum length of a module, the same as in
+	 * {@link SidTune#load(InputStream)}.
+	 */
+	private static final int MAX_MODULE_LENGTH = 65536;
 
-	private static final SidDatabase sidDatabase;
+	/**
+	 * Register writes which are less than this number of cycles apart belong to
+	 * the same frame of the analysis, i.e. to the same call of the player
+	 * routine.
+	 */
+	private static final int ANALYSIS_FRAME_GAP_CYCLES = 1000;
+
+	/**
+	 * Seed of the dithering and power on delay of the emulation for rendering.
+	 * Both are random by default, so the same song would create different PCM
+	 * data every time it is rendered. The power on delay is the minimum delay
+	 * the PSID driver uses.
+	 */
+	private static final long RENDER_DITHERING_SEED = 0;
+	private static final int RENDER_POWER_ON_DELAY = 256;
 
 	/**
 	 * Internal player.
@@ -135,13 +179,17 @@ public final class SIDPlayer extends SoundPlayer {
 	private String moduleFileType;
 	private SidTune tune;
 
-	static {
-		InputStream result = SIDPlayer.class.getResourceAsStream(HVSC_SONG_LENGTHS);
-		if (result == null) {
-			throw new RuntimeException("Canot find resource '" + HVSC_SONG_LENGTHS + "'.");
-		}
-		sidDatabase = new SidDatabase(result);
-	}
+	// Module binary of the tune. The rendering creates its own tune from it. The
+	// array is replaced but never modified after loading.
+	private byte[] module;
+
+	// Configuration for playing, read from the INI file once and reused for
+	// every song. The emulation itself is created again for every song, because
+	// the SID chips keep the filter and resampler state of the previous song.
+	private IniConfig iniConfig;
+
+	// Number of events to execute in a sequence.
+	private final int numberOfEvents;
 
 	/**
 	 * Creation is public.
@@ -149,6 +197,27 @@ public final class SIDPlayer extends SoundPlayer {
 	public SIDPlayer() {
 		player = new Player();
 		moduleFileType = "";
+		module = new byte[0];
+		numberOfEvents = getDefaultNumberOfEvents();
+	}
+
+	/**
+	 * Gets the number of events to execute in a sequence.
+	 * 
+	 * @return The number of events, a positive integer.
+	 */
+	private static int getDefaultNumberOfEvents() {
+		int numberOfEvents = MAGIC_NUMBER_OF_EVENTS;
+		String value = System.getProperty(NUMBER_OF_EVENTS_PROPERTY);
+		if (value != null && StringUtility.isSpecified(value)) {
+			try {
+				numberOfEvents = Integer.parseInt(value.trim());
+			} catch (NumberFormatException ex) {
+				SoundPlugin.getInstance().logError("Invalid value '{0}' for system property '{1}'",
+						new Object[] { value, NUMBER_OF_EVENTS_PROPERTY }, ex);
+			}
+		}
+		return Math.max(1, numberOfEvents);
 	}
 
 	@Override
@@ -164,7 +233,8 @@ public final class SIDPlayer extends SoundPlayer {
 		clear();
 		try {
 			// Load tune.
-			tune = SidTune.load(inputStream);
+			module = readAndClose(inputStream, MAX_MODULE_LENGTH);
+			tune = SidTune.load(new ByteArrayInputStream(module));
 			int index = fileName.lastIndexOf('.') + 1;
 			if (index >= 0) {
 				moduleFileType = fileName.substring(index).toUpperCase();
@@ -208,9 +278,12 @@ public final class SIDPlayer extends SoundPlayer {
 		}
 		info.moduleTypeDescription = ids.toString();
 		info.moduleFileType = moduleFileType;
+		info.moduleHash = getModuleHash(module, module.length);
 
 		List<FileType> supportedExportFileTypes = new ArrayList<FileType>();
 		supportedExportFileTypes.add(FileType.PRG);
+		supportedExportFileTypes.add(FileType.RAW);
+		supportedExportFileTypes.add(FileType.WAV);
 		info.setSupportedExportFileTypes(supportedExportFileTypes);
 
 		info.channels = (sidTuneInfo.sidChipBase2 != 0) ? 2 : 1;
@@ -223,7 +296,7 @@ public final class SIDPlayer extends SoundPlayer {
 		for (int i = 0; i < info.songs; i++) {
 			// Try to lookup song duration in database.
 			if (md5 != null) {
-				info.durations[i] = sidDatabase.length(md5, i + 1) * 1000;
+				info.durations[i] = SongLengthIndex.getInstance().getLength(md5, i + 1) * 1000;
 			}
 			info.loops[i] = LoopMode.UNKNOWN;
 		}
@@ -256,11 +329,13 @@ public final class SIDPlayer extends SoundPlayer {
 	}
 
 	private final static class SIDSoundGenerator extends SoundGenerator {
-		private final AudioDriver driver;
+		private final SIDAudioDriver driver;
 		private final Player player;
+		private final int channels;
+		private final int numberOfEvents;
 		private boolean generating;
 
-		public SIDSoundGenerator(AudioDriver driver, Player player) {
+		public SIDSoundGenerator(SIDAudioDriver driver, Player player, int channels, int numberOfEvents) {
 			if (driver == null) {
 				throw new IllegalArgumentException("Parameter 'driver' must not be null.");
 			}
@@ -270,6 +345,8 @@ public final class SIDPlayer extends SoundPlayer {
 			}
 			this.driver = driver;
 			this.player = player;
+			this.channels = channels;
+			this.numberOfEvents = numberOfEvents;
 			generating = false;
 		}
 
@@ -281,7 +358,7 @@ public final class SIDPlayer extends SoundPlayer {
 		@Override
 		public void playBuffer() {
 			try {
-				player.play(MAGIC_NUMBER_OF_EVENTS);
+				player.play(numberOfEvents);
 			} catch (InterruptedException ex) {
 				generating = false;
 			}
@@ -294,33 +371,102 @@ public final class SIDPlayer extends SoundPlayer {
 		}
 
 		@Override
-		public void close() {
+		public int getPosition() {
+			return getTime(player);
+		}
+
+		@Override
+		public int[] getChannelVolumes() {
+			int[] result;
+
+			// From SID.output()
+			// externalFilter.clock(filter.clock(voice[0].output(voice[2].wave),
+			// voice[1].output(voice[0].wave), voice[2].output(voice[1].wave)));
+
+			result = new int[channels * VOICES];
+			for (int channel = 0; channel < channels; channel++) {
+				SIDEmu sidEmu = player.getC64().getSID(channel);
+				if (sidEmu != null && sidEmu instanceof ReSID) {
+					SID sid = ((ReSID) sidEmu).sid();
+					Voice[] voices = sid.voice;
+
+					for (int voice = 0; voice < VOICES; voice++) {
+						int sampleValue;
+						switch (voice) {
+						case 0:
+							sampleValue = voices[0].output(voices[2].wave);
+							break;
+						case 1:
+							sampleValue = voices[1].output(voices[0].wave);
+							break;
+						case 2:
+							sampleValue = voices[2].output(voices[1].wave);
+							break;
+						default:
+							throw new RuntimeException("Only 3 voices supported.");
+						}
+
+						sampleValue = sampleValue / 4096;
+						if (sampleValue < 0) {
+							sampleValue = 0;
+						} else if (sampleValue > 255) {
+							sampleValue = 255;
+						}
+						result[channel * VOICES + voice] = sampleValue;
+					}
+				}
+			}
+			return result;
+		}
+
+		@Override
+		public int getLatency() {
+			return driver.getLatency();
+		}
+
+		@Override
+		public void close(boolean drain) {
 			player.setTune(null);
 			try {
 				player.reset();
 			} catch (InterruptedException ignore) {
 			}
-			driver.close();
+			driver.close(drain);
 		}
 	}
 
 	@Override
-	public byte[] getExportFileContent(FileType fileType, int musicAddress) {
+	public byte[] getExportFileContent(FileType fileType, int musicAddress) throws Exception {
 		if (fileType == null) {
 			throw new IllegalArgumentException("Parameter 'fileType' must not be null.");
 		}
+		byte[] module;
+		synchronized (this) {
+			if (!isLoaded()) {
+				throw new IllegalStateException("No module loaded");
+			}
+			module = this.module;
+		}
 		byte[] result;
 		switch (fileType) {
 		case PRG:
-			byte[] c64buf = new byte[0x10000];
-			tune.placeProgramInMemory(c64buf);
-			SidTuneInfo sidTuneInfo = tune.getInfo();
-			int start = sidTuneInfo.loadAddr;
-			int length = sidTuneInfo.c64dataLen;
-			result = new byte[2 + length];
-			result[0] = (byte) (start & 0xff);
-			result[1] = (byte) (start >>> 8 & 0xff);
-			System.arraycopy(c64buf, start, result, 2, length);
+			// Use a separate tune with the default song selected, so the export
+			// works without playing a song first and exports can run in parallel.
+			SidTune exportTune = SidTune.load(new ByteArrayInputStream(module));
+			exportTune.selectSong(0);
+			byte[] c64buf = ByteArrayPool.acquire(0x10000);
+			try {
+				exportTune.placeProgramInMemory(c64buf);
+				SidTuneInfo sidTuneInfo = exportTune.getInfo();
+				int start = sidTuneInfo.loadAddr;
+				int length = sidTuneInfo.c64dataLen;
+				result = new byte[2 + length];
+				result[0] = (byte) (start & 0xff);
+				result[1] = (byte) (start >>> 8 & 0xff);
+				System.arraycopy(c64buf, start, result, 2, length);
+			} finally {
+				ByteArrayPool.release(c64buf);
+			}
 			break;
 
 		default:
@@ -330,8 +476,291 @@ public final class SIDPlayer extends SoundPlayer {
 		return result;
 	}
 
+	@Override
+	public AudioFormat render(int song, int duration, final OutputStream outputStream) throws CoreException {
+		if (duration <= 0) {
+			throw new IllegalArgumentException(
+					"Parameter 'duration' must be positive. Specified value is " + duration + ".");
+		}
+		if (outputStream == null) {
+			throw new IllegalArgumentException("Parameter 'outputStream' must not be null.");
+		}
+		byte[] module;
+		int channels;
+		synchronized (this) {
+			if (!isLoaded()) {
+				throw new IllegalStateException("No module loaded");
+			}
+			module = this.module;
+			channels = getInfo().getChannels();
+		}
+
+		// Use a separate player and tune, so the playback is not affected.
+		SIDRenderAudioDriver driver = new SIDRenderAudioDriver(channels, duration,
+				new SIDRenderAudioDriver.SampleSink() {
+
+					@Override
+					public void write(byte[] samples, int offset, int length) throws IOException {
+						outputStream.write(samples, offset, length);
+					}
+				});
+		try {
+			SidTune renderTune = SidTune.load(new ByteArrayInputStream(module));
+			renderTune.selectSong(song + 1);
+			Player renderPlayer = new Player();
+			renderPlayer.setTune(renderTune);
+			renderPlayer.setClock(DEFAULT_CLOCK);
+
+			final IniConfig iniCfg = new IniConfig();
+			final AudioConfig config = iniCfg.audio().toAudioConfig(channels);
+			driver.open(config);
+			FastForwardReSIDBuilder builder = createEmulation(renderPlayer, renderTune, driver, config, iniCfg);
+			builder.setDitheringSeed(RENDER_DITHERING_SEED);
+			setPowerOnDelay(renderPlayer, renderTune, RENDER_POWER_ON_DELAY);
+
+			while (true) {
+				renderPlayer.play(numberOfEvents);
+			}
+		} catch (InterruptedException ex) {
+			// The driver interrupts the emulation when the duration is reached or
+			// when the PCM data cannot be written.
+			if (!driver.isFinished()) {
+				IOException writeException = driver.getException();
+				// ERROR: Cannot render song number {0}. {1}
+				IStatus status = new Status(IStatus.ERROR, SoundPlugin.ID,
+						TextUtility.format(Texts.MESSAGE_E510, NumberUtility.getLongValueDecimalString(song),
+								writeException != null ? writeException.getMessage() : ex.toString()));
+				throw new CoreException(status);
+			}
+		} catch (Exception ex) {
+			// ERROR: Cannot render song number {0}. {1}
+			IStatus status = new Status(IStatus.ERROR, SoundPlugin.ID, TextUtility.format(Texts.MESSAGE_E510,
+					NumberUtility.getLongValueDecimalString(song), ex.getMessage()));
+			throw new CoreException(status);
+		} finally {
+			driver.close();
+		}
+		return driver.getAudioFormat();
+	}
+
+	/**
+	 * Replaces the power on delay of the PSID driver. JSIDPLAY derives the delay
+	 * from the system time when the player places the driver in memory after the
+	 * init delay of the tune. The delay is therefore patched by an event which
+	 * is scheduled for the same time, after the event of the player.
+	 * 
+	 * @param player       The player which has just been reset, not
+	 *                     <code>null</code>.
+	 * @param tune         The tune of the player, not <code>null</code>.
+	 * @param powerOnDelay The power on delay in cycles, 0 to 65535.
+	 */
+	private static void setPowerOnDelay(final Player player, SidTune tune, final int powerOnDelay) {
+		// Only PSID tunes have a driver.
+		final int driverAddress = tune.getInfo().determinedDriverAddr;
+		if (driverAddress == 0) {
+			return;
+		}
+		player.getC64().getEventScheduler().schedule(new Event("Power on delay") {
+
+			@Override
+			public void event() {
+				// The driver starts with the song, the speed, the init address, the
+				// play address and the power on delay.
+				byte[] ram = player.getC64().getRAM();
+				ram[driverAddress + 6] = (byte) powerOnDelay;
+				ram[driverAddress + 7] = (byte) (powerOnDelay >>> 8);
+			}
+		}, tune.getInitDelay());
+	}
+
+	/**
+	 * Groups the register writes into frames and passes the fingerprints of the
+	 * frames to the song length detector.
+	 */
+	private static final class AnalysisFrameBuilder implements FastForwardReSIDBuilder.RegisterWriteListener {
+
+		// FNV-1a hash.
+		private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+		private static final long PRIME = 0x100000001b3L;
+
+		private final Player player;
+		private final SongLengthDetector detector;
+		private boolean frameOpen;
+		private int frameTime;
+		private long frameFingerprint;
+		private long lastWriteCycle;
+
+		public AnalysisFrameBuilder(Player player, SongLengthDetector detector) {
+			this.player = player;
+			this.detector = detector;
+		}
+
+		@Override
+		public void registerWritten(int chip, int address, int value) {
+			long cycle = player.getC64().getEventScheduler().getTime(Phase.PHI2);
+			closeFrame(cycle);
+			if (!frameOpen) {
+				frameOpen = true;
+				frameTime = getTime(player);
+				frameFingerprint = OFFSET_BASIS;
+			}
+			frameFingerprint = (frameFingerprint ^ (chip << 13 | address << 8 | value)) * PRIME;
+			lastWriteCycle = cycle;
+		}
+
+		/**
+		 * Passes the current frame to the detector if there was no register write
+		 * for a while.
+		 * 
+		 * @param cycle The current cycle.
+		 */
+		public void closeFrame(long cycle) {
+			if (frameOpen && cycle - lastWriteCycle > ANALYSIS_FRAME_GAP_CYCLES) {
+				detector.addFrame(frameTime, frameFingerprint);
+				frameOpen = false;
+			}
+		}
+	}
+
+	@Override
+	public void analyze(int song, int duration, SongLengthDetector detector) throws CoreException {
+		if (duration <= 0) {
+			throw new IllegalArgumentException(
+					"Parameter 'duration' must be positive. Specified value is " + duration + ".");
+		}
+		if (detector == null) {
+			throw new IllegalArgumentException("Parameter 'detector' must not be null.");
+		}
+		byte[] module;
+		int channels;
+		synchronized (this) {
+			if (!isLoaded()) {
+				throw new IllegalStateException("No module loaded");
+			}
+			module = this.module;
+			channels = getInfo().getChannels();
+		}
+
+		// Use a separate player and tune, so the playback is not affected. The
+		// SID chips are not clocked at all, so the driver never receives
+		// samples.
+		SIDRenderAudioDriver driver = new SIDRenderAudioDriver(channels, duration,
+				new SIDRenderAudioDriver.SampleSink() {
+
+					@Override
+					public void write(byte[] samples, int offset, int length) {
+						// Not called.
+					}
+				});
+		try {
+			SidTune analyzeTune = SidTune.load(new ByteArrayInputStream(module));
+			analyzeTune.selectSong(song + 1);
+			Player analyzePlayer = new Player();
+			analyzePlayer.setTune(analyzeTune);
+			analyzePlayer.setClock(DEFAULT_CLOCK);
+
+			final IniConfig iniCfg = new IniConfig();
+			final AudioConfig config = iniCfg.audio().toAudioConfig(channels);
+			driver.open(config);
+			FastForwardReSIDBuilder builder = createEmulation(analyzePlayer, analyzeTune, driver, config, iniCfg);
+			AnalysisFrameBuilder frameBuilder = new AnalysisFrameBuilder(analyzePlayer, detector);
+			builder.setRegisterWriteListener(frameBuilder);
+			builder.setFastForward(true);
+
+			int time = getTime(analyzePlayer);
+			while (time < duration && !detector.isDone(time)) {
+				analyzePlayer.play(numberOfEvents);
+				frameBuilder.closeFrame(analyzePlayer.getC64().getEventScheduler().getTime(Phase.PHI2));
+				time = getTime(analyzePlayer);
+			}
+			detector.end(time);
+		} catch (Exception ex) {
+			// ERROR: Cannot analyze song number {0}. {1}
+			IStatus status = new Status(IStatus.ERROR, SoundPlugin.ID, TextUtility.format(Texts.MESSAGE_E512,
+					NumberUtility.getLongValueDecimalString(song), ex.getMessage()));
+			throw new CoreException(status);
+		} finally {
+			driver.close();
+		}
+	}
+
+	@Override
+	public SongOverview createOverview(int song, int duration, IProgressMonitor monitor) throws CoreException {
+		if (duration <= 0) {
+			throw new IllegalArgumentException(
+					"Parameter 'duration' must be positive. Specified value is " + duration + ".");
+		}
+		if (monitor == null) {
+			throw new IllegalArgumentException("Parameter 'monitor' must not be null.");
+		}
+		byte[] module;
+		final int channels;
+		synchronized (this) {
+			if (!isLoaded()) {
+				throw new IllegalStateException("No module loaded");
+			}
+			module = this.module;
+			channels = getInfo().getChannels();
+		}
+
+		// Use a separate player and tune, so the playback is not affected. The
+		// envelopes of the voices are sampled whenever the driver writes a
+		// chunk.
+		final Player overviewPlayer = new Player();
+		final SongOverviewBuilder builder = new SongOverviewBuilder(duration, channels, channels * VOICES);
+		SIDRenderAudioDriver.SampleSink sampleSink = new SIDRenderAudioDriver.SampleSink() {
+			private final int[] volumes = new int[channels * VOICES];
+
+			@Override
+			public void write(byte[] samples, int offset, int length) {
+				builder.addSamples(samples, offset, length);
+				for (int channel = 0; channel < channels; channel++) {
+					SIDEmu sidEmu = overviewPlayer.getC64().getSID(channel);
+					if (sidEmu instanceof ReSID) {
+						Voice[] voices = ((ReSID) sidEmu).sid().voice;
+						for (int voice = 0; voice < VOICES; voice++) {
+							volumes[channel * VOICES + voice] = voices[voice].envelope.readENV() & 0xff;
+						}
+					}
+				}
+				builder.addChannelVolumes(volumes);
+			}
+		};
+		SIDRenderAudioDriver driver = new SIDRenderAudioDriver(channels, duration, sampleSink);
+		try {
+			SidTune overviewTune = SidTune.load(new ByteArrayInputStream(module));
+			overviewTune.selectSong(song + 1);
+			overviewPlayer.setTune(overviewTune);
+			overviewPlayer.setClock(DEFAULT_CLOCK);
+
+			final IniConfig iniCfg = new IniConfig();
+			iniCfg.audio().setFrequency(SongOverviewBuilder.SAMPLE_RATE);
+			final AudioConfig config = iniCfg.audio().toAudioConfig(channels);
+			driver.open(config);
+			createEmulation(overviewPlayer, overviewTune, driver, config, iniCfg);
+
+			while (!monitor.isCanceled()) {
+				overviewPlayer.play(numberOfEvents);
+			}
+		} catch (InterruptedException ex) {
+			// The driver interrupts the emulation when the duration is reached.
+		} catch (Exception ex) {
+			// ERROR: Cannot create overview of song number {0}. {1}
+			IStatus status = new Status(IStatus.ERROR, SoundPlugin.ID, TextUtility.format(Texts.MESSAGE_E513,
+					NumberUtility.getLongValueDecimalString(song + 1), ex.getMessage()));
+			throw new CoreException(status);
+		} finally {
+			driver.close();
+		}
+		if (!driver.isFinished()) {
+			throw new OperationCanceledException();
+		}
+		return builder.getOverview();
+	}
+
 	@Override
 	public synchronized void play(int song, SoundPlayerListener listener) throws CoreException {
+		setPlayRequestTime();
 		stop();
 
 		// Select song. SIDPLAY numbering starts with 1.
@@ -345,23 +774,65 @@ public final class SIDPlayer extends SoundPlayer {
 		// sidplay.ConsolePlayer#open().
 
 		// Read filter settings and create filter
-		final IniConfig iniCfg = new IniConfig();
+		if (iniConfig == null) {
+			iniConfig = new IniConfig();
+		}
+		final IniConfig iniCfg = iniConfig;
 
 		// Customize player configuration
 		player.setClock(DEFAULT_CLOCK);
 
 		// Get sound driver and apply to the player
-		final AudioDriver driver = new JavaSound();
+		final SIDAudioDriver driver = new SIDAudioDriver(getInfo().getChannels(),
+				getClass().getName() + ":" + getInfo().getTitle());
 		final AudioConfig config = iniCfg.audio().toAudioConfig(getInfo().getChannels());
 		try {
 			driver.open(config);
 
+			createEmulation(player, tune, driver, config, iniCfg);
+		} catch (LineUnavailableException ex) {
+			driver.close();
+			// ERROR: No free audio line available to play song {0}. {1}
+			IStatus status = new Status(IStatus.ERROR, SoundPlugin.ID, TextUtility.format(Texts.MESSAGE_E504,
+					NumberUtility.getLongValueDecimalString(song), ex.getMessage()));
+			throw new CoreException(status);
+
+		} catch (Exception ex) {
+			driver.close(false);
+			// ERROR: Cannot play song number {0}. {1}
+			IStatus status = new Status(IStatus.ERROR, SoundPlugin.ID, TextUtility.format(Texts.MESSAGE_E503,
+					NumberUtility.getLongValueDecimalString(song), ex.getMessage()));
+			throw new CoreException(status);
+		}
+
+		playInNewThread(song, new SIDSoundGenerator(driver, player, getInfo().getChannels(), numberOfEvents),
+				listener);
+
+	}
+
+	/**
+	 * Sets up the SID emulation for a player. The setup is serialized, because
+	 * reSID caches the combined waveform tables in an unsynchronized static map
+	 * and the emulations for playback and rendering may be set up in parallel.
+	 * 
+	 * @param player The player with the tune, not <code>null</code>.
+	 * @param tune   The tune, not <code>null</code>.
+	 * @param driver The opened audio driver, not <code>null</code>.
+	 * @param config The audio configuration, not <code>null</code>.
+	 * @param iniCfg The ini configuration, not <code>null</code>.
+	 * @return The SID builder, not <code>null</code>.
+	 * @throws InterruptedException If the reset of the player is interrupted.
+	 */
+	private static FastForwardReSIDBuilder createEmulation(Player player, SidTune tune, AudioDriver driver, AudioConfig config,
+			IniConfig iniCfg) throws InterruptedException {
+		synchronized (SIDPlayer.class) {
 			// Setup the SID emulation (not part of the player)
-			final ReSIDBuilder rs = new ReSIDBuilder(config, player.getC64().getClock().getCpuFrequency());
+			final FastForwardReSIDBuilder rs = new FastForwardReSIDBuilder(config,
+					player.getC64().getClock().getCpuFrequency());
 			rs.setOutput(driver);
 
 			// Create SID chip of desired model (mono tunes need exactly one)
-			final ReSID sid = createSID(rs, iniCfg);
+			final ReSID sid = createSID(player, rs, iniCfg);
 
 			// Apply mono SID chip to the C64, then reset
 			player.getC64().setSID(0, sid);
@@ -379,7 +850,7 @@ public final class SIDPlayer extends SoundPlayer {
 
 			if (secondAddress != 0) {
 				// Create 2nd SID.
-				player.getC64().setSID(1, createSID(rs, iniCfg));
+				player.getC64().setSID(1, createSID(player, rs, iniCfg));
 
 				// Set correct SID address.
 				if (secondAddress != 0xd400) {
@@ -439,25 +910,23 @@ public final class SIDPlayer extends SoundPlayer {
 			}
 
 			player.reset();
-		} catch (LineUnavailableException ex) {
-			driver.close();
-			// ERROR: No free audio line available to play song {0}. {1}
-			IStatus status = new Status(IStatus.ERROR, SoundPlugin.ID, TextUtility.format(Texts.MESSAGE_E501,
-					NumberUtility.getLongValueDecimalString(song), ex.getMessage()));
-			throw new CoreException(status);
-
-		} catch (Exception ex) {
-			// ERROR: Cannot play song number {0}. {1}
-			IStatus status = new Status(IStatus.ERROR, SoundPlugin.ID, TextUtility.format(Texts.MESSAGE_E503,
-					NumberUtility.getLongValueDecimalString(song), ex.getMessage()));
-			throw new CoreException(status);
+			return rs;
 		}
+	}
 
-		playInNewThread(song, new SIDSoundGenerator(driver, player), listener);
-
+	/**
+	 * Gets the emulated time of a player. The time of the player itself has a
+	 * resolution of one second only.
+	 * 
+	 * @param player The player, not <code>null</code>.
+	 * @return The time in milliseconds since the last reset.
+	 */
+	private static int getTime(Player player) {
+		EventScheduler scheduler = player.getC64().getEventScheduler();
+		return (int) (scheduler.getTime(Phase.PHI2) * 1000 / scheduler.getCyclesPerSecond());
 	}
 
-	private ReSID createSID(ReSIDBuilder rs, IniConfig iniCfg) {
+	private static ReSID createSID(Player player, FastForwardReSIDBuilder rs, IniConfig iniCfg) {
 		if (rs == null) {
 			throw new IllegalArgumentException("Parameter 'rs' must not be null.");
 		}
@@ -476,11 +945,6 @@ public final class SIDPlayer extends SoundPlayer {
 		return sid;
 	}
 
-	@Override
-	public synchronized int getPosition() {
-		return player.time() * 1000;
-	}
-
 	@Override
 	public boolean isSeekSupported() {
 		return false;
@@ -488,51 +952,6 @@ public final class SIDPlayer extends SoundPlayer {
 
 	@Override
 	public void seekPosition(int position) {
-		// Not yet supported.
-	}
-
-	@Override
-	public synchronized int[] getChannelVolumes() {
-		int[] result;
-
-		// From SID.output()
-		// externalFilter.clock(filter.clock(voice[0].output(voice[2].wave),
-		// voice[1].output(voice[0].wave), voice[2].output(voice[1].wave)));
-
-		final int channels = getInfo().getChannels();
-		result = new int[channels * VOICES];
-		for (int channel = 0; channel < channels; channel++) {
-			SIDEmu sidEmu = player.getC64().getSID(channel);
-			if (sidEmu != null && sidEmu instanceof ReSID) {
-				SID sid = ((ReSID) sidEmu).sid();
-				Voice[] voices = sid.voice;
-
-				for (int voice = 0; voice < VOICES; voice++) {
-					int sampleValue;
-					switch (voice) {
-					case 0:
-						sampleValue = voices[0].output(voices[2].wave);
-						break;
-					case 1:
-						sampleValue = voices[1].output(voices[0].wave);
-						break;
-					case 2:
-						sampleValue = voices[2].output(voices[1].wave);
-						break;
-					default:
-						throw new RuntimeException("Only 3 voices supported.");
-					}
-
-					sampleValue = sampleValue / 4096;
-					if (sampleValue < 0) {
-						sampleValue = 0;
-					} else if (sampleValue > 255) {
-						sampleValue = 255;
-					}
-					result[channel * VOICES + voice] = sampleValue;
-				}
-			}
-		}
-		return result;
+		// Not supported, see class comment.
 	}
 }
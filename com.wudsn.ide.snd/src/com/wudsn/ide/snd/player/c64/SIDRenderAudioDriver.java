@@ -0,0 +1,154 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.wudsn.ide.snd.player.c64;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import javax.sound.sampled.AudioFormat;
+
+import sidplay.audio.AudioConfig;
+import sidplay.audio.AudioDriver;
+
+/**
+ * Audio driver for {@link SIDPlayer#render(int, int, java.io.OutputStream)}
+ * and {@link SIDPlayer#createOverview(int, int, org.eclipse.core.runtime.IProgressMonitor)}
+ * which passes the samples produced by the emulation to a sink instead of a
+ * source data line. The emulation runs as fast as possible and is interrupted
+ * when the requested duration is reached.
+ * 
+ * @author Peter Dell
+ * @since 1.7.2
+ */
+final class SIDRenderAudioDriver extends AudioDriver {
+
+	/**
+	 * Receives the samples produced by the emulation.
+	 */
+	static interface SampleSink {
+
+		/**
+		 * Writes a chunk of samples.
+		 * 
+		 * @param samples The byte array with the 16-bit signed little endian
+		 *                samples, not <code>null</code>.
+		 * @param offset  The offset of the first byte, a non-negative integer.
+		 * @param length  The number of bytes, a non-negative integer.
+		 * @throws IOException If the samples cannot be written.
+		 */
+		public void write(byte[] samples, int offset, int length) throws IOException;
+	}
+
+	private final int channels;
+	private final int duration;
+	private final SampleSink sampleSink;
+	private AudioFormat audioFormat;
+	private ByteBuffer sampleBuffer;
+	private long remainingLength;
+	private boolean finished;
+	private IOException exception;
+
+	/**
+	 * Creates a new driver.
+	 * 
+	 * @param channels   The number of channels, 1 or 2.
+	 * @param duration   The duration to be rendered in milliseconds, a positive
+	 *                   integer.
+	 * @param sampleSink The sink for the PCM data, not <code>null</code>.
+	 */
+	SIDRenderAudioDriver(int channels, int duration, SampleSink sampleSink) {
+		if (sampleSink == null) {
+			throw new IllegalArgumentException("Parameter 'sampleSink' must not be null.");
+		}
+		this.channels = channels;
+		this.duration = duration;
+		this.sampleSink = sampleSink;
+	}
+
+	@Override
+	public void open(AudioConfig cfg) {
+		if (cfg == null) {
+			throw new IllegalArgumentException("Parameter 'cfg' must not be null.");
+		}
+		audioFormat = new AudioFormat(cfg.getFrameRate(), 16, channels, true, false);
+		int frameSize = 2 * channels;
+		sampleBuffer = ByteBuffer.allocate(cfg.getChunkFrames() * frameSize);
+		sampleBuffer.order(ByteOrder.LITTLE_ENDIAN);
+		remainingLength = (long) duration * cfg.getFrameRate() / 1000 * frameSize;
+	}
+
+	@Override
+	public void write() throws InterruptedException {
+		int length = (int) Math.min(sampleBuffer.capacity(), remainingLength);
+		try {
+			sampleSink.write(sampleBuffer.array(), 0, length);
+		} catch (IOException ex) {
+			exception = ex;
+			throw new InterruptedException();
+		}
+		remainingLength -= length;
+		if (remainingLength == 0) {
+			finished = true;
+			throw new InterruptedException();
+		}
+	}
+
+	@Override
+	public void pause() {
+		// Nothing to pause when rendering.
+	}
+
+	@Override
+	public void close() {
+		// The sink is closed by the caller.
+	}
+
+	@Override
+	public ByteBuffer buffer() {
+		return sampleBuffer;
+	}
+
+	/**
+	 * Gets the format of the PCM data.
+	 * 
+	 * @return The audio format or <code>null</code> if the driver is not open.
+	 */
+	public AudioFormat getAudioFormat() {
+		return audioFormat;
+	}
+
+	/**
+	 * Determines if the requested duration was written completely.
+	 * 
+	 * @return <code>true</code> if the requested duration was written completely.
+	 */
+	public boolean isFinished() {
+		return finished;
+	}
+
+	/**
+	 * Gets the exception which occurred while writing the PCM data.
+	 * 
+	 * @return The exception or <code>null</code>.
+	 */
+	public IOException getException() {
+		return exception;
+	}
+}
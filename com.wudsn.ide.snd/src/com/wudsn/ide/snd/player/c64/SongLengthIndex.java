@@ -0,0 +1,454 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.wudsn.ide.snd.player.c64;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import com.wudsn.ide.snd.SoundPlugin;
+
+/**
+ * Index of the song lengths in the HVSC "SongLengths.txt" file. The text file
+ * is converted on first use into a table of MD5 keys sorted for binary search
+ * and packed song lengths. The table is stored in the state location of the
+ * plugin and memory mapped, so the text file is only parsed again when it
+ * changes.
+ * 
+ * @author Peter Dell
+ * 
+ * @since 1.7.2
+ */
+final class SongLengthIndex {
+
+	private static final String HVSC_SONG_LENGTHS = "hvsc/SongLengths.txt";
+	private static final String CACHE_FILE_NAME = "SongLengths.bin";
+
+	private static final int MAGIC = 0x534c4442; // "SLDB"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 32;
+	private static final int KEY_SIZE = 16;
+
+	/**
+	 * Holder for the instance, so the index is only loaded when the first song
+	 * length is requested.
+	 */
+	private static final class InstanceHolder {
+		public static final SongLengthIndex INSTANCE = load();
+	}
+
+	/**
+	 * One entry of the text file.
+	 */
+	private static final class Entry {
+		public final long keyHigh;
+		public final long keyLow;
+		public final char[] lengths;
+
+		public Entry(long keyHigh, long keyLow, char[] lengths) {
+			this.keyHigh = keyHigh;
+			this.keyLow = keyLow;
+			this.lengths = lengths;
+		}
+	}
+
+	// Layout: header, sorted keys, (entryCount + 1) start indices of the
+	// lengths of each entry, lengths in seconds as unsigned 16 bit values.
+	private final ByteBuffer buffer;
+	private final int entryCount;
+	private final int keysOffset;
+	private final int startsOffset;
+	private final int lengthsOffset;
+
+	private SongLengthIndex(ByteBuffer buffer) {
+		this.buffer = buffer;
+		entryCount = buffer.getInt(28);
+		keysOffset = HEADER_SIZE;
+		startsOffset = keysOffset + entryCount * KEY_SIZE;
+		lengthsOffset = startsOffset + (entryCount + 1) * 4;
+	}
+
+	/**
+	 * Gets the index for the song lengths file bundled with the plugin.
+	 * 
+	 * @return The index, not <code>null</code>.
+	 */
+	public static SongLengthIndex getInstance() {
+		return InstanceHolder.INSTANCE;
+	}
+
+	/**
+	 * Gets the number of entries in the index.
+	 * 
+	 * @return The number of entries, a non-negative integer.
+	 */
+	public int getEntryCount() {
+		return entryCount;
+	}
+
+	/**
+	 * Gets the length of a song.
+	 * 
+	 * @param md5  The MD5 digest of the SID tune as hex string, not
+	 *             <code>null</code>.
+	 * @param song The song number, starting with 1.
+	 * @return The length of the song in seconds or 0 if it is not known.
+	 */
+	public int getLength(String md5, int song) {
+		if (md5 == null) {
+			throw new IllegalArgumentException("Parameter 'md5' must not be null.");
+		}
+		if (md5.length() != 2 * KEY_SIZE || !isHex(md5, 2 * KEY_SIZE)) {
+			return 0;
+		}
+		long keyHigh = parseHex(md5, 0);
+		long keyLow = parseHex(md5, KEY_SIZE);
+
+		int low = 0;
+		int high = entryCount - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int offset = keysOffset + middle * KEY_SIZE;
+			int compare = Long.compareUnsigned(buffer.getLong(offset), keyHigh);
+			if (compare == 0) {
+				compare = Long.compareUnsigned(buffer.getLong(offset + 8), keyLow);
+			}
+			if (compare < 0) {
+				low = middle + 1;
+			} else if (compare > 0) {
+				high = middle - 1;
+			} else {
+				int start = buffer.getInt(startsOffset + middle * 4);
+				int end = buffer.getInt(startsOffset + middle * 4 + 4);
+				if (song < 1 || song > end - start) {
+					return 0;
+				}
+				return buffer.getChar(lengthsOffset + (start + song - 1) * 2);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Loads the index for the bundled song lengths file, preferably from the
+	 * cache file.
+	 * 
+	 * @return The index, not <code>null</code>.
+	 */
+	private static SongLengthIndex load() {
+		URL url = SongLengthIndex.class.getResource(HVSC_SONG_LENGTHS);
+		if (url == null) {
+			throw new RuntimeException("Cannot find resource '" + HVSC_SONG_LENGTHS + "'.");
+		}
+		long lastModified;
+		long contentLength;
+		try {
+			URLConnection connection = url.openConnection();
+			lastModified = connection.getLastModified();
+			contentLength = connection.getContentLengthLong();
+		} catch (IOException ex) {
+			throw new RuntimeException("Cannot open resource '" + HVSC_SONG_LENGTHS + "'.", ex);
+		}
+
+		File cacheFile = getCacheFile();
+		if (cacheFile != null && cacheFile.exists()) {
+			try {
+				SongLengthIndex result = read(cacheFile, lastModified, contentLength);
+				if (result != null) {
+					return result;
+				}
+			} catch (IOException ex) {
+				SoundPlugin.getInstance().logError("Cannot read song length index {0}",
+						new Object[] { cacheFile.getPath() }, ex);
+			}
+		}
+
+		ByteBuffer buffer;
+		try (InputStream inputStream = url.openStream()) {
+			buffer = create(inputStream, lastModified, contentLength);
+		} catch (IOException ex) {
+			throw new RuntimeException("Cannot read resource '" + HVSC_SONG_LENGTHS + "'.", ex);
+		}
+		if (cacheFile != null) {
+			try {
+				write(cacheFile, buffer);
+			} catch (IOException ex) {
+				SoundPlugin.getInstance().logError("Cannot write song length index {0}",
+						new Object[] { cacheFile.getPath() }, ex);
+			}
+		}
+		return new SongLengthIndex(buffer);
+	}
+
+	/**
+	 * Gets the cache file in the state location of the plugin.
+	 * 
+	 * @return The cache file or <code>null</code> if the plugin is not running
+	 *         or has no state location.
+	 */
+	private static File getCacheFile() {
+		try {
+			return SoundPlugin.getInstance().getStateLocation().append(CACHE_FILE_NAME).toFile();
+		} catch (IllegalStateException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Creates the index table from a song lengths text file.
+	 * 
+	 * @param inputStream   The input stream of the text file, not
+	 *                      <code>null</code>.
+	 * @param lastModified  The modification time stamp of the text file.
+	 * @param contentLength The length of the text file.
+	 * @return The index table, not <code>null</code>.
+	 * @throws IOException If the input stream cannot be read.
+	 */
+	static ByteBuffer create(InputStream inputStream, long lastModified, long contentLength) throws IOException {
+		if (inputStream == null) {
+			throw new IllegalArgumentException("Parameter 'inputStream' must not be null.");
+		}
+		List<Entry> entries = new ArrayList<Entry>(65536);
+		int lengthCount = 0;
+		BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.ISO_8859_1));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			int index = line.indexOf('=');
+			if (index != 2 * KEY_SIZE || line.startsWith(";")) {
+				continue;
+			}
+			Entry entry = parseEntry(line);
+			if (entry != null) {
+				entries.add(entry);
+				lengthCount += entry.lengths.length;
+			}
+		}
+
+		entries.sort(new Comparator<Entry>() {
+
+			@Override
+			public int compare(Entry o1, Entry o2) {
+				int result = Long.compareUnsigned(o1.keyHigh, o2.keyHigh);
+				if (result == 0) {
+					result = Long.compareUnsigned(o1.keyLow, o2.keyLow);
+				}
+				return result;
+			}
+		});
+
+		int entryCount = entries.size();
+		ByteBuffer buffer = ByteBuffer
+				.allocate(HEADER_SIZE + entryCount * KEY_SIZE + (entryCount + 1) * 4 + lengthCount * 2);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(buffer.capacity());
+		buffer.putLong(lastModified);
+		buffer.putLong(contentLength);
+		buffer.putInt(entryCount);
+		for (Entry entry : entries) {
+			buffer.putLong(entry.keyHigh);
+			buffer.putLong(entry.keyLow);
+		}
+		int start = 0;
+		for (Entry entry : entries) {
+			buffer.putInt(start);
+			start += entry.lengths.length;
+		}
+		buffer.putInt(start);
+		for (Entry entry : entries) {
+			for (char length : entry.lengths) {
+				buffer.putChar(length);
+			}
+		}
+		buffer.rewind();
+		return buffer;
+	}
+
+	/**
+	 * Creates an index from a song lengths text file.
+	 * 
+	 * @param inputStream The input stream of the text file, not
+	 *                    <code>null</code>.
+	 * @return The index, not <code>null</code>.
+	 * @throws IOException If the input stream cannot be read.
+	 */
+	static SongLengthIndex create(InputStream inputStream) throws IOException {
+		return new SongLengthIndex(create(inputStream, 0, 0));
+	}
+
+	/**
+	 * Parses an entry of the form "md5=m:ss m:ss(G) ...".
+	 * 
+	 * @param line The line, not <code>null</code>.
+	 * @return The entry or <code>null</code> if the line is invalid.
+	 */
+	private static Entry parseEntry(String line) {
+		if (!isHex(line, 2 * KEY_SIZE)) {
+			return null;
+		}
+		long keyHigh = parseHex(line, 0);
+		long keyLow = parseHex(line, KEY_SIZE);
+		char[] lengths = new char[8];
+		int count = 0;
+		int length = line.length();
+		int index = 2 * KEY_SIZE + 1;
+		while (index < length) {
+			if (line.charAt(index) == ' ') {
+				index++;
+				continue;
+			}
+			// Minutes, colon, seconds and optional attributes like "(G)".
+			int minutes = 0;
+			int seconds = 0;
+			boolean colon = false;
+			int digits = 0;
+			while (index < length && line.charAt(index) != ' ') {
+				char c = line.charAt(index++);
+				if (c >= '0' && c <= '9') {
+					if (colon) {
+						seconds = seconds * 10 + c - '0';
+					} else {
+						minutes = minutes * 10 + c - '0';
+					}
+					digits++;
+				} else if (c == ':' && !colon) {
+					colon = true;
+				} else {
+					// Skip fractions and attributes.
+					while (index < length && line.charAt(index) != ' ') {
+						index++;
+					}
+				}
+			}
+			if (!colon || digits < 2) {
+				return null;
+			}
+			if (count == lengths.length) {
+				lengths = Arrays.copyOf(lengths, count * 2);
+			}
+			lengths[count++] = (char) Math.min(minutes * 60 + seconds, Character.MAX_VALUE);
+		}
+		return new Entry(keyHigh, keyLow, Arrays.copyOf(lengths, count));
+	}
+
+	/**
+	 * Determines if a text starts with hex digits.
+	 * 
+	 * @param text   The text, not <code>null</code>.
+	 * @param length The number of hex digits.
+	 * @return <code>true</code> if the first characters are hex digits.
+	 */
+	private static boolean isHex(String text, int length) {
+		for (int i = 0; i < length; i++) {
+			if (Character.digit(text.charAt(i), 16) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Parses 16 hex digits.
+	 * 
+	 * @param text   The text, not <code>null</code>.
+	 * @param offset The offset of the first digit.
+	 * @return The value.
+	 */
+	private static long parseHex(String text, int offset) {
+		long result = 0;
+		for (int i = offset; i < offset + 16; i++) {
+			result = result << 4 | Character.digit(text.charAt(i), 16);
+		}
+		return result;
+	}
+
+	/**
+	 * Writes the index table to the cache file. The table is written to a
+	 * temporary file first, so an incomplete cache file is never read.
+	 * 
+	 * @param file   The cache file, not <code>null</code>.
+	 * @param buffer The index table, not <code>null</code>.
+	 * @throws IOException If the file cannot be written.
+	 */
+	static void write(File file, ByteBuffer buffer) throws IOException {
+		File temporaryFile = new File(file.getPath() + ".tmp");
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(temporaryFile, "rw")) {
+			randomAccessFile.setLength(0);
+			randomAccessFile.getChannel().write(buffer.duplicate());
+		}
+		if (file.exists() && !file.delete() || !temporaryFile.renameTo(file)) {
+			temporaryFile.delete();
+			throw new IOException("Cannot rename '" + temporaryFile.getPath() + "'.");
+		}
+	}
+
+	/**
+	 * Reads the index from the cache file. The header is checked with a plain
+	 * stream first, so an invalid or outdated cache file is never mapped.
+	 * 
+	 * @param file          The cache file, not <code>null</code>.
+	 * @param lastModified  The modification time stamp of the text file.
+	 * @param contentLength The length of the text file.
+	 * @return The index or <code>null</code> if the cache file is invalid or was
+	 *         created for a different text file.
+	 * @throws IOException If the file cannot be read.
+	 */
+	static SongLengthIndex read(File file, long lastModified, long contentLength) throws IOException {
+		if (file == null) {
+			throw new IllegalArgumentException("Parameter 'file' must not be null.");
+		}
+		long size = file.length();
+		if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+			return null;
+		}
+		try (DataInputStream inputStream = new DataInputStream(new FileInputStream(file))) {
+			if (inputStream.readInt() != MAGIC || inputStream.readInt() != VERSION || inputStream.readInt() != size
+					|| inputStream.readLong() != lastModified || inputStream.readLong() != contentLength) {
+				return null;
+			}
+			int entryCount = inputStream.readInt();
+			if (entryCount < 0 || HEADER_SIZE + (long) entryCount * (KEY_SIZE + 4) + 4 > size) {
+				return null;
+			}
+		}
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+			FileChannel channel = randomAccessFile.getChannel();
+			if (channel.size() != size) {
+				return null;
+			}
+			// The mapping stays valid after the channel is closed.
+			return new SongLengthIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+		}
+	}
+}
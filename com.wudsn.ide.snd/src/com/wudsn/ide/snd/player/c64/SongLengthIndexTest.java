@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) 2009 - 2021 <a href="https://www.wudsn.com" target="_top">Peter Dell</a>
+ *
+ * This file is part of WUDSN IDE.
+ * 
+ * WUDSN IDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ * 
+ * WUDSN IDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with WUDSN IDE.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.wudsn.ide.snd.player.c64;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.wudsn.ide.base.common.Assertions;
+import com.wudsn.ide.base.common.Test;
+import com.wudsn.ide.base.common.TestMethod;
+
+/**
+ * Checks that the song lengths of a text file are returned unchanged by
+ * {@link SongLengthIndex#create(java.io.InputStream)} and by the cache file
+ * written and read again.
+ * 
+ * @author Peter Dell
+ * 
+ * @since 1.7.2
+ */
+public final class SongLengthIndexTest {
+
+	private static final String TEXT = "[Database]\n" //
+			+ "; /DEMOS/B.sid\n" //
+			+ "ffffffffffffffffffffffffffffffff=0:05\n" //
+			+ "; /DEMOS/A.sid\n" //
+			+ "6897307ef63533962667412848c92124=1:17 0:30(G) 2:03.500 12:34(M)(Z)\n" //
+			+ "; Invalid lines are skipped.\n" //
+			+ "0123456789abcdef0123456789abcdeX=1:00\n" //
+			+ "00000000000000000000000000000001=1:xx\n" //
+			+ "00000000000000000000000000000000=0:01\n";
+
+	/**
+	 * Creation is private.
+	 */
+	private SongLengthIndexTest() {
+	}
+
+	@TestMethod
+	public static void main(String[] args) throws IOException {
+		byte[] text = TEXT.getBytes(StandardCharsets.ISO_8859_1);
+		check(SongLengthIndex.create(new ByteArrayInputStream(text)));
+
+		File file = File.createTempFile("SongLengths", ".bin");
+		try {
+			ByteBuffer buffer = SongLengthIndex.create(new ByteArrayInputStream(text), 1234, text.length);
+			SongLengthIndex.write(file, buffer);
+			check(SongLengthIndex.read(file, 1234, text.length));
+
+			// Cache files of other text files or with a broken header are not
+			// used.
+			Assertions.assertEquals(SongLengthIndex.read(file, 1235, text.length), null);
+			Assertions.assertEquals(SongLengthIndex.read(file, 1234, text.length + 1), null);
+			try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+				randomAccessFile.setLength(randomAccessFile.length() - 1);
+			}
+			Assertions.assertEquals(SongLengthIndex.read(file, 1234, text.length), null);
+		} finally {
+			file.delete();
+		}
+		Test.log("Song length index checked");
+	}
+
+	private static void check(SongLengthIndex index) {
+		Assertions.assertEquals(Integer.valueOf(index.getEntryCount()), Integer.valueOf(3));
+		assertLength(index, "6897307ef63533962667412848c92124", 1, 77);
+		assertLength(index, "6897307EF63533962667412848C92124", 2, 30);
+		assertLength(index, "6897307ef63533962667412848c92124", 3, 123);
+		assertLength(index, "6897307ef63533962667412848c92124", 4, 754);
+		assertLength(index, "6897307ef63533962667412848c92124", 5, 0);
+		assertLength(index, "6897307ef63533962667412848c92124", 0, 0);
+		assertLength(index, "ffffffffffffffffffffffffffffffff", 1, 5);
+		assertLength(index, "00000000000000000000000000000000", 1, 1);
+		assertLength(index, "00000000000000000000000000000001", 1, 0);
+		assertLength(index, "0123456789abcdef0123456789abcdeX", 1, 0);
+		assertLength(index, "6897307ef63533962667412848c9212", 1, 0);
+	}
+
+	private static void assertLength(SongLengthIndex index, String md5, int song, int expectedLength) {
+		Assertions.assertEquals(Integer.valueOf(index.getLength(md5, song)), Integer.valueOf(expectedLength));
+	}
+}